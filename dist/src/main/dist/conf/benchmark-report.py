@@ -463,7 +463,8 @@ class HdrAnalyzer:
     def analyze(self):
         handles = []
         for file_name in os.listdir(self.directory):
-            if not file_name.endswith(".hgrm"):
+            # the steady state distribution belongs to the hgrm file of the same probe
+            if not file_name.endswith(".hgrm") or file_name.endswith(".steady-state.hgrm"):
                 continue
 
             file_name = os.path.splitext(file_name)[0]
@@ -10,40 +10,17 @@ set -e
 # the session id; could be a * om case everything needs to be downloaded
 session_dir=$1
 
-# merge all hdr files of each member into a hdr file which gets stored in the target_directory
-probes=($(ls -R ${session_dir} | grep .hdr | sort | uniq))
-for probe in "${probes[@]}"
-do
-    echo "Merging $probe"
-
-    hdr_files=($(find ${session_dir} | grep ${probe}))
-    echo "[INFO]          $probe"
-    java -cp "${SIMULATOR_HOME}/lib/*" com.hazelcast.simulator.utils.HistogramLogMerger \
-            "${session_dir}/${probe}" "${hdr_files[@]}"
-done
-
-# convert all hdr files to hgrm files so they can easily be plot using
+# convert all binary performance logs to csv files
+bin_files=($(find "${session_dir}" -name "performance*.bin"))
+if [ ${#bin_files[@]} -gt 0 ] ; then
+    echo "[INFO]          Converting ${#bin_files[@]} binary performance logs"
+    java -cp "${SIMULATOR_HOME}/lib/*" com.hazelcast.simulator.worker.performance.PerformanceLogConverter "${bin_files[@]}"
+fi
+
+# merge the hdr files of the workers per probe into a hdr file in the session directory and convert all hdr files to
+# an interval percentile log (csv) and a hgrm file, so they can easily be plot using
 # http://hdrhistogram.github.io/HdrHistogram/plotFiles.html
-hdr_files=($(find "${session_dir}" -name *.hdr))
-echo HDR Files $hdr_files
-
-for hdr_file in "${hdr_files[@]}"
-do
-    file_name="${hdr_file%.*}"
-    java -cp "${SIMULATOR_HOME}/lib/*"  com.hazelcast.simulator.utils.SimulatorHistogramLogProcessor \
-            -i ${hdr_file} \
-            -o ${file_name} \
-            -outputValueUnitRatio 1000
-
-    mv "${file_name}.hgrm" "${file_name}.hgrm.bak"
-
-    java -cp "${SIMULATOR_HOME}/lib/*"  com.hazelcast.simulator.utils.SimulatorHistogramLogProcessor \
-            -csv \
-            -i ${hdr_file} \
-            -o ${file_name} \
-            -outputValueUnitRatio 1000
-
-    echo "[INFO]          $hdr_file"
-
-    mv "${file_name}.hgrm.bak" "${file_name}.hgrm"
-done
+# all hdr files are processed in a single JVM and every hdr file is decoded only once
+# if the workers have detected the steady state, the distribution after the warmup is written to a .steady-state.hgrm file
+java -cp "${SIMULATOR_HOME}/lib/*" -Dlog4j.configuration=file:${SIMULATOR_HOME}/conf/coordinator-log4j.xml \
+    com.hazelcast.simulator.utils.HistogramLogPostProcessor "${session_dir}"
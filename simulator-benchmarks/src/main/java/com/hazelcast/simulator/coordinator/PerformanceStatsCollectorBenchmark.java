@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.coordinator;
+
+import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the costs of the {@link PerformanceStatsCollector} on the coordinator: processing the performance stats of a
+ * worker and formatting the interval performance numbers of a test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PerformanceStatsCollectorBenchmark {
+
+    private static final int TEST_COUNT = 5;
+
+    @Param({"1", "10", "100"})
+    public int workerCount;
+
+    private PerformanceStatsCollector collector;
+    private SimulatorAddress[] workerAddresses;
+    private Map<String, PerformanceStats> performanceStatsMap;
+    private int workerIndex;
+
+    @Setup
+    public void setup() {
+        collector = new PerformanceStatsCollector();
+
+        performanceStatsMap = new HashMap<String, PerformanceStats>();
+        for (int i = 0; i < TEST_COUNT; i++) {
+            performanceStatsMap.put("test" + i, new PerformanceStats(i * 1000, 1.5, 2.5, 3.5, 4, 5));
+        }
+
+        workerAddresses = new SimulatorAddress[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workerAddresses[i] = SimulatorAddress.fromString("A1_W" + (i + 1));
+            collector.update(workerAddresses[i], performanceStatsMap);
+        }
+    }
+
+    @Benchmark
+    public void update() {
+        collector.update(workerAddresses[workerIndex], performanceStatsMap);
+        workerIndex = workerIndex + 1 == workerCount ? 0 : workerIndex + 1;
+    }
+
+    @Benchmark
+    public String formatIntervalPerformanceNumbers() {
+        return collector.formatIntervalPerformanceNumbers("test1");
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.probes.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of {@link HdrProbe#recordValue(long)} uncontended and when the probe is shared between threads, like
+ * the probe of a timestep method is shared between all threads of an execution group.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HdrProbeBenchmark {
+
+    private static final long LATENCY_NANOS = TimeUnit.MICROSECONDS.toNanos(250);
+
+    private final HdrProbe probe = new HdrProbe(true);
+
+    @Benchmark
+    @Threads(1)
+    public void recordValue() {
+        probe.recordValue(LATENCY_NANOS);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordValueEightThreads() {
+        probe.recordValue(LATENCY_NANOS);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void done() {
+        probe.done(System.nanoTime() - LATENCY_NANOS);
+    }
+}
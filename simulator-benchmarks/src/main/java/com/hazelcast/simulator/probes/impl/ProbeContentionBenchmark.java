@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.probes.impl;
+
+import com.hazelcast.simulator.probes.HistogramProbe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HdrProbe} (one Recorder shared by all threads) with {@link StripedHdrProbe} (a single-writer recorder
+ * per thread) when all timestep threads of a test record into the same probe.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProbeContentionBenchmark {
+
+    private static final long LATENCY_NANOS = TimeUnit.MICROSECONDS.toNanos(250);
+
+    @Param({"HdrProbe", "StripedHdrProbe"})
+    public String probeClass;
+
+    private HistogramProbe probe;
+
+    @Setup
+    public void setup() {
+        probe = "HdrProbe".equals(probeClass) ? new HdrProbe(true) : new StripedHdrProbe(true);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordValueOneThread() {
+        probe.recordValue(LATENCY_NANOS);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void recordValueEightThreads() {
+        probe.recordValue(LATENCY_NANOS);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void recordValueSixtyFourThreads() {
+        probe.recordValue(LATENCY_NANOS);
+    }
+}
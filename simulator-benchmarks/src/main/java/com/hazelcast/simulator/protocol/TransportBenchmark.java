@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.protocol.operation.LogOperation;
+import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static com.hazelcast.simulator.utils.SimulatorUtils.localIp;
+
+/**
+ * Compares the {@link TransportType#JMS} and the {@link TransportType#NIO} transport for the control traffic between the
+ * coordinator and the workers of a single agent.
+ *
+ * The roundTrip benchmark measures the latency of a single request to a worker; the broadcast benchmark sends a request to
+ * every worker and waits for all replies, so the messages/second are workerCount / the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TransportBenchmark {
+
+    @Param({"JMS", "NIO"})
+    public TransportType transport;
+
+    @Param({"100"})
+    public int workerCount;
+
+    private final SimulatorAddress agentAddress = SimulatorAddress.fromString("A1");
+    private final SimulatorOperation operation = new LogOperation("ping", Level.DEBUG);
+    private final List<Server> servers = new ArrayList<Server>();
+    private Closeable broker;
+    private CoordinatorClient client;
+    private SimulatorAddress[] workerAddresses;
+    private ResponseFuture[] futures;
+    private int workerIndex;
+
+    @Setup
+    public void setup() throws Exception {
+        int port = freePort();
+        if (transport == TransportType.NIO) {
+            broker = new FrameRouter(localIp(), port).start();
+        } else {
+            broker = new Broker().setBrokerAddress(localIp(), port).start();
+        }
+
+        OperationProcessor processor = new OperationProcessor() {
+            @Override
+            public void process(SimulatorOperation op, SimulatorAddress source, Promise promise) {
+                promise.answer("ok");
+            }
+        };
+
+        workerAddresses = new SimulatorAddress[workerCount];
+        futures = new ResponseFuture[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workerAddresses[i] = SimulatorAddress.fromString("A1_W" + (i + 1));
+            servers.add(new Server("workers")
+                    .setTransportType(transport)
+                    .setBrokerURL(localIp(), port)
+                    .setSelfAddress(workerAddresses[i])
+                    .setProcessor(processor)
+                    .start());
+        }
+
+        client = new CoordinatorClient()
+                .setTransportType(transport)
+                .setAgentBrokerPort(port)
+                .setProcessor(processor)
+                .start()
+                .connectToAgentBroker(agentAddress, localIp());
+    }
+
+    @TearDown
+    public void tearDown() {
+        closeQuietly(client);
+        closeQuietly(servers);
+        closeQuietly(broker);
+    }
+
+    @Benchmark
+    public String roundTrip() throws Exception {
+        String result = client.submit(workerAddresses[workerIndex], operation).get();
+        workerIndex = workerIndex + 1 == workerCount ? 0 : workerIndex + 1;
+        return result;
+    }
+
+    @Benchmark
+    public void broadcast() throws Exception {
+        for (int i = 0; i < workerCount; i++) {
+            futures[i] = client.submit(workerAddresses[i], operation);
+        }
+        for (ResponseFuture future : futures) {
+            future.get();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        ServerSocket serverSocket = new ServerSocket(0);
+        try {
+            return serverSocket.getLocalPort();
+        } finally {
+            serverSocket.close();
+        }
+    }
+}
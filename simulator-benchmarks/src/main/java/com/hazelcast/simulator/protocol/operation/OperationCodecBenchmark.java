@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol.operation;
+
+import com.hazelcast.simulator.agent.operations.CreateWorkerOperation;
+import com.hazelcast.simulator.agent.workerprocess.WorkerParameters;
+import com.hazelcast.simulator.worker.operations.PerformanceStatsOperation;
+import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the encode/decode costs of the {@link OperationCodec} and the {@link BinaryOperationCodec}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OperationCodecBenchmark {
+
+    private static final int PERFORMANCE_STATS_COUNT = 10;
+    private static final int WORKER_PARAMETER_COUNT = 50;
+
+    @Param({"PERFORMANCE_STATE", "CREATE_WORKER"})
+    public OperationType operationType;
+
+    private SimulatorOperation operation;
+    private Class<? extends SimulatorOperation> classType;
+    private String json;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        operation = createOperation(operationType);
+        classType = operationType.getClassType();
+        json = OperationCodec.toJson(operation);
+        bytes = BinaryOperationCodec.toBytes(operation);
+    }
+
+    @Benchmark
+    public String jsonEncode() {
+        return OperationCodec.toJson(operation);
+    }
+
+    @Benchmark
+    public SimulatorOperation jsonDecode() {
+        return OperationCodec.fromJson(json, classType);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return BinaryOperationCodec.toBytes(operation);
+    }
+
+    @Benchmark
+    public SimulatorOperation binaryDecode() {
+        return BinaryOperationCodec.fromBytes(bytes, operationType);
+    }
+
+    private static SimulatorOperation createOperation(OperationType operationType) {
+        switch (operationType) {
+            case PERFORMANCE_STATE:
+                PerformanceStatsOperation performanceStatsOperation = new PerformanceStatsOperation();
+                for (int i = 0; i < PERFORMANCE_STATS_COUNT; i++) {
+                    performanceStatsOperation.addPerformanceStats("test" + i,
+                            new PerformanceStats(i * 1000, 1.5, 2.5, 3.5, 4, 5));
+                }
+                return performanceStatsOperation;
+            case CREATE_WORKER:
+                WorkerParameters workerParameters = new WorkerParameters();
+                for (int i = 0; i < WORKER_PARAMETER_COUNT; i++) {
+                    workerParameters.set("PROPERTY_" + i, "some value for property " + i);
+                }
+                return new CreateWorkerOperation(workerParameters, 0);
+            default:
+                throw new IllegalArgumentException("No benchmark operation for " + operationType);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.metronome;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.worker.testcontainer.PropertyBinding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of {@link Metronome#waitForNext()} for each {@link Metronome} implementation.
+ *
+ * The interval is 1ns, so the metronome is always behind and never needs to wait; what remains is the bookkeeping.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MetronomeBenchmark {
+
+    private static final long INTERVAL_NANOS = 1;
+
+    @Param({"EmptyMetronome", "SleepingMetronome", "BusySpinningMetronome", "ConstantCombinedRateMetronome"})
+    public String metronomeClass;
+
+    private Metronome metronome;
+
+    @Setup
+    public void setup() throws Exception {
+        Class<?> clazz = Class.forName(Metronome.class.getPackage().getName() + '.' + metronomeClass);
+        if (clazz == EmptyMetronome.class) {
+            metronome = EmptyMetronome.INSTANCE;
+            return;
+        }
+
+        PropertyBinding binding = new PropertyBinding(new TestCase("MetronomeBenchmark"));
+        Metronome master = (Metronome) clazz.getConstructor(Long.TYPE, Integer.TYPE, PropertyBinding.class, String.class)
+                .newInstance(INTERVAL_NANOS, 1, binding, "");
+        metronome = (Metronome) clazz.getConstructor(Metronome.class).newInstance(master);
+    }
+
+    @Benchmark
+    public long waitForNext() {
+        return metronome.waitForNext();
+    }
+}
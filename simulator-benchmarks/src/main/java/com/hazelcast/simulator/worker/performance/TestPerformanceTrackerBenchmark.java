@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.common.TestPhase;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import com.hazelcast.simulator.worker.testcontainer.TestContainer;
+import com.hazelcast.simulator.worker.testcontainer.TestContextImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.simulator.utils.CommonUtils.joinThread;
+import static com.hazelcast.simulator.utils.CommonUtils.sleepMillis;
+
+/**
+ * Measures the costs of {@link TestPerformanceTracker#update(long, long)} for a running test with 4 probes.
+ *
+ * Every call is forced to make an update: collecting the interval histograms of the probes and calculating the interval
+ * statistics. The test itself runs with a 1ms interval, so it doesn't compete too much with the tracker for CPU.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TestPerformanceTrackerBenchmark {
+
+    private static final long UPDATE_INTERVAL_MILLIS = 1;
+    private static final int WAIT_FOR_RUNNING_MILLIS = 10;
+
+    private TestContextImpl testContext;
+    private TestContainer testContainer;
+    private Thread runThread;
+    private TestPerformanceTracker tracker;
+    private long currentTimeMillis;
+
+    @Setup
+    public void setup() {
+        TestCase testCase = new TestCase("TestPerformanceTrackerBenchmark")
+                .setProperty("threadCount", 1)
+                .setProperty("interval", "1ms");
+        testContext = new TestContextImpl(testCase.getId(), "localhost", null);
+        testContainer = new TestContainer(testContext, new ProbedTest(), testCase);
+
+        runThread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    testContainer.invoke(TestPhase.RUN);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        runThread.start();
+        while (!testContainer.isRunning() || testContainer.getRunStartedMillis() == 0) {
+            sleepMillis(WAIT_FOR_RUNNING_MILLIS);
+        }
+
+        tracker = new TestPerformanceTracker(testContainer);
+        currentTimeMillis = System.currentTimeMillis();
+        // the first update only initializes the tracker
+        tracker.update(UPDATE_INTERVAL_MILLIS, currentTimeMillis);
+    }
+
+    @TearDown
+    public void tearDown() {
+        testContext.stop();
+        joinThread(runThread);
+    }
+
+    @Benchmark
+    public boolean update() {
+        currentTimeMillis += UPDATE_INTERVAL_MILLIS;
+        return tracker.update(UPDATE_INTERVAL_MILLIS, currentTimeMillis);
+    }
+
+    public static class ProbedTest {
+
+        @TimeStep(prob = 0.25)
+        public void timeStep1() {
+        }
+
+        @TimeStep(prob = 0.25)
+        public void timeStep2() {
+        }
+
+        @TimeStep(prob = 0.25)
+        public void timeStep3() {
+        }
+
+        @TimeStep(prob = 0.25)
+        public void timeStep4() {
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of the generated {@link TimeStepRunner} loop.
+ *
+ * The timestep methods are empty, so the numbers are the cost of the loop itself: selecting the timestep method, the
+ * metronome and the probe. The metronome uses an interval of 1ns, so it never has to wait and only the bookkeeping of
+ * the metronome is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TimeStepRunnerBenchmark {
+
+    private static final int ITERATIONS = 100000;
+
+    @Param({"1", "4"})
+    public int timeStepMethods;
+
+    @Param({"false", "true"})
+    public boolean metronome;
+
+    @Param({"false", "true"})
+    public boolean probe;
+
+    private TimeStepRunner runner;
+
+    @Setup
+    public void setup() throws Exception {
+        Object testInstance = timeStepMethods == 1 ? new SingleTimeStepTest() : new MultipleTimeStepTest();
+
+        TestCase testCase = new TestCase("TimeStepRunnerBenchmark")
+                .setProperty("measureLatency", probe)
+                .setProperty("iterations", ITERATIONS);
+        if (metronome) {
+            testCase.setProperty("interval", "1ns");
+        }
+
+        TestContextImpl testContext = new TestContextImpl(testCase.getId(), "localhost", null);
+        PropertyBinding binding = new PropertyBinding(testCase).setTestContext(testContext);
+        TimeStepModel timeStepModel = new TimeStepModel(testInstance.getClass(), binding);
+        MetronomeConstructor metronomeConstructor = new MetronomeConstructor("", binding, 1);
+
+        Class runnerClass = new TimeStepRunnerCodeGenerator().compile(
+                testCase.getId(),
+                "",
+                timeStepModel,
+                metronomeConstructor.getMetronomeClass(),
+                binding.getProbeClass(),
+                0,
+                0,
+                true,
+                false,
+                0);
+
+        @SuppressWarnings("unchecked")
+        Constructor<TimeStepRunner> constructor = runnerClass
+                .getConstructor(testInstance.getClass(), TimeStepModel.class, String.class);
+        runner = constructor.newInstance(testInstance, timeStepModel, "");
+        runner.testContext = testContext;
+        runner.maxIterations = ITERATIONS;
+        runner.metronome = metronomeConstructor.newInstance();
+        runner.bind(binding);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITERATIONS)
+    public void timeStepLoop() throws Exception {
+        runner.timeStepLoop();
+    }
+
+    public static class SingleTimeStepTest {
+
+        @TimeStep
+        public void timeStep() {
+        }
+    }
+
+    public static class MultipleTimeStepTest {
+
+        @TimeStep(prob = 0.25)
+        public void timeStep1() {
+        }
+
+        @TimeStep(prob = 0.25)
+        public void timeStep2() {
+        }
+
+        @TimeStep(prob = 0.25)
+        public void timeStep3() {
+        }
+
+        @TimeStep(prob = 0.25)
+        public void timeStep4() {
+        }
+    }
+}
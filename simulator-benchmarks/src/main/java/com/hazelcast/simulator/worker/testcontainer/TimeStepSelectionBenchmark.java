@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.utils.XorShiftRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.simulator.worker.testcontainer.Probability.methodProbabilitiesToMethodRatios;
+import static com.hazelcast.simulator.worker.testcontainer.Probability.ratiosToMethodProbabilityArray;
+
+/**
+ * Compares the selection of a timestep method in the generated {@link TimeStepRunner}: the former {@link Random} with
+ * the probability array against the {@link XorShiftRandom} with the {@link AliasTable}.
+ *
+ * The probabilities determine the size of the probability array: 0.25 for each method results in an array of 4 bytes,
+ * while the uneven probabilities result in an array of 1MB (as with any probabilities which don't simplify).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TimeStepSelectionBenchmark {
+
+    @Param({"0.25,0.25,0.25,0.25", "0.123457,0.333333,0.54321"})
+    public String probabilities;
+
+    private Random random;
+    private byte[] probabilityArray;
+
+    private XorShiftRandom xorShiftRandom;
+    private AliasTable aliasTable;
+
+    @Setup
+    public void setup() {
+        String[] items = probabilities.split(",");
+        double[] methodProbabilities = new double[items.length];
+        for (int i = 0; i < items.length; i++) {
+            methodProbabilities[i] = Double.parseDouble(items[i]);
+        }
+
+        random = new Random();
+        probabilityArray = ratiosToMethodProbabilityArray(methodProbabilitiesToMethodRatios(methodProbabilities));
+
+        xorShiftRandom = new XorShiftRandom();
+        aliasTable = new AliasTable(methodProbabilities);
+    }
+
+    @Benchmark
+    public int randomWithProbabilityArray() {
+        return probabilityArray[random.nextInt(probabilityArray.length)];
+    }
+
+    @Benchmark
+    public int xorShiftWithAliasTable() {
+        return aliasTable.select(xorShiftRandom.nextLong());
+    }
+}
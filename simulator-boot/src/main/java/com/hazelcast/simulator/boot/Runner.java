@@ -27,6 +27,7 @@ import com.hazelcast.simulator.coordinator.operations.RcTestRunOperation;
 import com.hazelcast.simulator.coordinator.operations.RcWorkerStartOperation;
 import com.hazelcast.simulator.coordinator.registry.Registry;
 import com.hazelcast.simulator.coordinator.registry.WorkerQuery;
+import com.hazelcast.simulator.protocol.TransportType;
 
 import java.io.File;
 import java.util.LinkedList;
@@ -51,7 +52,10 @@ public class Runner {
     }
 
     public void run() throws Exception {
-        prepareClassPathForUploading();
+        // embedded workers load the classes from the classpath of this JVM, so nothing needs to be uploaded
+        if (!isEmbedded()) {
+            prepareClassPathForUploading();
+        }
 
         Coordinator coordinator = newCoordinator();
         try {
@@ -65,6 +69,10 @@ public class Runner {
         }
     }
 
+    private boolean isEmbedded() {
+        return TransportType.fromString(options.simulatorProperties.get("TRANSPORT")) == TransportType.EMBEDDED;
+    }
+
     private void prepareClassPathForUploading() {
         List<File> workerClassPath = getWorkerClassPath();
         if (workerClassPath.isEmpty()) {
@@ -89,7 +97,7 @@ public class Runner {
         }
 
         Registry registry;
-        if ("local".equals(options.simulatorProperties.getCloudProvider())) {
+        if ("local".equals(options.simulatorProperties.getCloudProvider()) || isEmbedded()) {
             registry = new Registry();
             registry.addAgent("localhost", "localhost");
         } else {
@@ -21,7 +21,10 @@ import com.hazelcast.simulator.agent.workerprocess.WorkerProcessManager;
 import com.hazelcast.simulator.common.ProcessSuicideThread;
 import com.hazelcast.simulator.common.ShutdownThread;
 import com.hazelcast.simulator.protocol.Broker;
+import com.hazelcast.simulator.protocol.EmbeddedRouter;
+import com.hazelcast.simulator.protocol.FrameRouter;
 import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.protocol.TransportType;
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
 import com.hazelcast.simulator.worker.ExitingExceptionListener;
 import org.apache.log4j.Logger;
@@ -49,6 +52,9 @@ public class Agent implements Closeable {
     private final WorkerProcessFailureMonitor workerProcessFailureMonitor;
     private final Server server;
     private final Broker broker;
+    private final FrameRouter frameRouter;
+    private final int port;
+    private EmbeddedRouter embeddedRouter;
     private final WorkerSniffer workerSniffer;
     private final String parentPid;
 
@@ -57,16 +63,36 @@ public class Agent implements Closeable {
                  int port,
                  int workerLastSeenTimeoutSeconds,
                  String parentPid) {
+        this(addressIndex, publicAddress, port, workerLastSeenTimeoutSeconds, parentPid, TransportType.JMS);
+    }
+
+    public Agent(int addressIndex,
+                 String publicAddress,
+                 int port,
+                 int workerLastSeenTimeoutSeconds,
+                 String parentPid,
+                 TransportType transportType) {
         SimulatorAddress agentAddress = agentAddress(addressIndex);
 
         this.publicAddress = publicAddress;
         this.parentPid = parentPid;
-        this.broker = new Broker()
-                .setBrokerAddress(localIp(), port);
+        this.port = port;
+        if (transportType == TransportType.NIO) {
+            this.broker = null;
+            this.frameRouter = new FrameRouter(localIp(), port);
+        } else if (transportType == TransportType.JMS) {
+            this.broker = new Broker()
+                    .setBrokerAddress(localIp(), port);
+            this.frameRouter = null;
+        } else {
+            this.broker = null;
+            this.frameRouter = null;
+        }
 
         // this server will listen to requests on the 'agents' topic
         this.server = new Server("agents")
                 .setExceptionListener(new ExitingExceptionListener())
+                .setTransportType(transportType)
                 .setSelfAddress(agentAddress);
 
         this.processManager = new WorkerProcessManager(server, agentAddress, publicAddress);
@@ -93,10 +119,17 @@ public class Agent implements Closeable {
     public void start() {
         LOGGER.info("Agent starting...");
 
-        broker.start();
-
-        server.setBrokerURL(broker.getBrokerURL())
-                .start();
+        if (frameRouter != null) {
+            frameRouter.start();
+            server.setBrokerURL(localIp(), frameRouter.getPort());
+        } else if (broker != null) {
+            broker.start();
+            server.setBrokerURL(broker.getBrokerURL());
+        } else {
+            embeddedRouter = EmbeddedRouter.start(port);
+            server.setBrokerURL(localIp(), port);
+        }
+        server.start();
 
         workerSniffer.setConnection(server.getConnection())
                 .start();
@@ -134,6 +167,8 @@ public class Agent implements Closeable {
             workerSniffer.stop();
             closeQuietly(server);
             closeQuietly(broker);
+            closeQuietly(frameRouter);
+            closeQuietly(embeddedRouter);
 
             LOGGER.info("Removing PID file...");
             deleteQuiet(pidFile);
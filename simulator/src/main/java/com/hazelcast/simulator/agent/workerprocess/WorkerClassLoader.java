@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.agent.workerprocess;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * The classloader of a worker running embedded in the JVM of the agent.
+ *
+ * Classes and resources are loaded from the classpath of the worker first, so every worker has its own copy of the
+ * Simulator, vendor and test classes including their static state. Only the JDK, log4j and the {@link
+ * com.hazelcast.simulator.protocol.EmbeddedRouter} the agent and the workers communicate with are shared.
+ */
+final class WorkerClassLoader extends URLClassLoader {
+
+    private static final String[] SHARED_PREFIXES = {
+            "java.",
+            "javax.",
+            "sun.",
+            "com.sun.",
+            "org.w3c.",
+            "org.xml.",
+            "org.apache.log4j.",
+            "com.hazelcast.simulator.protocol.EmbeddedRouter",
+    };
+
+    private final ClassLoader agentClassLoader;
+
+    /**
+     * Creates the classloader.
+     *
+     * The classloader of the agent is not made the parent, but is only used as fallback. Otherwise libraries which walk up
+     * the parent chain to find the classloader of a resource, like the ServiceLoader of Hazelcast, end up loading classes
+     * from the agent.
+     *
+     * @param classpath        the classpath of the worker
+     * @param agentClassLoader the classloader for the shared classes
+     */
+    WorkerClassLoader(String classpath, ClassLoader agentClassLoader) {
+        super(toUrls(classpath), null);
+        this.agentClassLoader = agentClassLoader;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (isShared(name)) {
+            return agentClassLoader.loadClass(name);
+        }
+
+        synchronized (this) {
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null) {
+                try {
+                    clazz = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    clazz = agentClassLoader.loadClass(name);
+                }
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+    }
+
+    @Override
+    public URL getResource(String name) {
+        URL url = findResource(name);
+        return url == null ? agentClassLoader.getResource(name) : url;
+    }
+
+    @Override
+    public Enumeration<URL> getResources(String name) throws IOException {
+        // the classpath of the worker contains the classpath of the agent, so returning both would create duplicates
+        Enumeration<URL> urls = findResources(name);
+        return urls.hasMoreElements() ? urls : agentClassLoader.getResources(name);
+    }
+
+    private static boolean isShared(String name) {
+        for (String prefix : SHARED_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts a classpath to URLs. Like the java command it supports entries ending with '*' for all jars in a directory.
+     *
+     * @param classpath the classpath
+     * @return the URLs of the existing entries
+     */
+    static URL[] toUrls(String classpath) {
+        List<URL> urls = new ArrayList<URL>();
+        try {
+            for (String entry : classpath.split(File.pathSeparator)) {
+                if (entry.endsWith("*")) {
+                    addJars(urls, new File(entry.substring(0, entry.length() - 1)));
+                } else if (!entry.isEmpty() && new File(entry).exists()) {
+                    urls.add(new File(entry).toURI().toURL());
+                }
+            }
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return urls.toArray(new URL[urls.size()]);
+    }
+
+    private static void addJars(List<URL> urls, File directory) throws MalformedURLException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().endsWith(".jar")) {
+                urls.add(file.toURI().toURL());
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.simulator.agent.workerprocess;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+
+/**
+ * Watches the home directories of the workers for the files which signal a failure: the '.exception' files written by the
+ * worker, and the 'worker.oome' and '.hprof' files created on an OutOfMemoryError.
+ *
+ * The {@link WatchService} is backed by inotify on Linux, so the agent is notified as soon as such a file is created and
+ * doesn't need to scan the directories. If a file is created, the {@link WorkerProcess} is offered to the queue of the
+ * {@link WorkerProcessFailureMonitor}.
+ *
+ * This class uses the Java 7 file API, so it is only loaded if that is available.
+ */
+final class WorkerHomeWatcher implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkerHomeWatcher.class);
+
+    private final ConcurrentMap<WatchKey, WorkerProcess> workerProcesses = new ConcurrentHashMap<WatchKey, WorkerProcess>();
+    private final Queue<WorkerProcess> failureCandidates;
+    private final WatchService watchService;
+    private final WatcherThread watcherThread = new WatcherThread();
+
+    WorkerHomeWatcher(Queue<WorkerProcess> failureCandidates) throws IOException {
+        this.failureCandidates = failureCandidates;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    void start() {
+        watcherThread.start();
+    }
+
+    /**
+     * Starts watching the home directory of a worker.
+     *
+     * @param workerProcess the worker
+     * @return {@code true} if the directory is watched, {@code false} otherwise
+     */
+    boolean register(WorkerProcess workerProcess) {
+        try {
+            WatchKey key = workerProcess.getWorkerHome().toPath().register(watchService, ENTRY_CREATE);
+            workerProcesses.put(key, workerProcess);
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to watch the home directory of " + workerProcess.getAddress() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    void unregister(WorkerProcess workerProcess) {
+        for (Map.Entry<WatchKey, WorkerProcess> entry : workerProcesses.entrySet()) {
+            if (entry.getValue() == workerProcess) {
+                entry.getKey().cancel();
+                workerProcesses.remove(entry.getKey());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(watchService);
+        watcherThread.interrupt();
+    }
+
+    static boolean isFailureFile(String fileName) {
+        return fileName.endsWith(".exception") || fileName.endsWith(".hprof") || "worker.oome".equals(fileName);
+    }
+
+    private final class WatcherThread extends Thread {
+
+        private WatcherThread() {
+            super("WorkerHomeWatcher");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (; ; ) {
+                    WatchKey key = watchService.take();
+                    WorkerProcess workerProcess = workerProcesses.get(key);
+                    if (workerProcess != null && containsFailureFile(key)) {
+                        failureCandidates.offer(workerProcess);
+                    }
+                    if (!key.reset()) {
+                        // the directory is gone
+                        workerProcesses.remove(key);
+                    }
+                }
+            } catch (InterruptedException ignore) {
+                LOGGER.debug("WorkerHomeWatcher interrupted");
+            } catch (ClosedWatchServiceException ignore) {
+                LOGGER.debug("WorkerHomeWatcher closed");
+            }
+        }
+
+        private boolean containsFailureFile(WatchKey key) {
+            boolean found = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                // an overflow means that events are lost, so we need to scan the directory
+                if (event.kind() != ENTRY_CREATE || isFailureFile(((Path) event.context()).getFileName().toString())) {
+                    found = true;
+                }
+            }
+            return found;
+        }
+    }
+}
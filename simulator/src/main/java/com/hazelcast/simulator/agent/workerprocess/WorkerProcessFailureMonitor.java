@@ -22,19 +22,38 @@ import org.apache.log4j.Logger;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import static com.hazelcast.simulator.common.FailureType.WORKER_ABNORMAL_EXIT;
 import static com.hazelcast.simulator.common.FailureType.WORKER_EXCEPTION;
 import static com.hazelcast.simulator.common.FailureType.WORKER_NORMAL_EXIT;
 import static com.hazelcast.simulator.common.FailureType.WORKER_OOME;
 import static com.hazelcast.simulator.common.FailureType.WORKER_TIMEOUT;
-import static com.hazelcast.simulator.utils.CommonUtils.sleepMillis;
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
 import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
 import static com.hazelcast.simulator.utils.FormatUtils.NEW_LINE;
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+/**
+ * Detects the failures of the workers of this agent.
+ *
+ * A worker is checked when one of its failure files is created in its home directory, which is signalled by the
+ * {@link WorkerHomeWatcher}, and when its process has exited, which is signalled by an {@link ExitWaiterThread}. So a failure
+ * is reported as soon as it happens and an idle agent doesn't do any I/O. If the file watching isn't available, e.g. on
+ * Java 6, the workers are checked every check interval instead. The same is done for a worker whose home directory could not
+ * be watched, e.g. since the inotify watch limit has been reached.
+ */
 public class WorkerProcessFailureMonitor {
 
     private static final int DEFAULT_CHECK_INTERVAL_MILLIS = (int) SECONDS.toMillis(1);
@@ -49,6 +68,12 @@ public class WorkerProcessFailureMonitor {
         this(failureHandler, workerProcessManager, lastSeenTimeoutSeconds, DEFAULT_CHECK_INTERVAL_MILLIS);
     }
 
+    /**
+     * Creates the monitor.
+     *
+     * @param checkIntervalMillis the interval to pick up new workers; also the interval to check all workers if the file
+     *                            watching isn't available
+     */
     WorkerProcessFailureMonitor(WorkerProcessFailureHandler failureHandler,
                                 WorkerProcessManager workerProcessManager,
                                 int lastSeenTimeoutSeconds,
@@ -80,6 +105,15 @@ public class WorkerProcessFailureMonitor {
         }
     }
 
+    private static boolean isWatchServiceAvailable() {
+        try {
+            Class.forName("java.nio.file.WatchService");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
     private final class MonitorThread extends Thread {
 
         private final WorkerProcessFailureHandler failureHandler;
@@ -87,6 +121,14 @@ public class WorkerProcessFailureMonitor {
         private final int lastSeenTimeoutSeconds;
         private final int checkIntervalMillis;
 
+        // the workers which need to be checked, offered by the WorkerHomeWatcher and the ExitWaiterThreads
+        private final BlockingQueue<WorkerProcess> failureCandidates = new LinkedBlockingQueue<WorkerProcess>();
+        // only accessed by the MonitorThread
+        private final Map<WorkerProcess, ExitWaiterThread> monitoredWorkers = new HashMap<WorkerProcess, ExitWaiterThread>();
+        // the monitored workers whose home directory is not watched, so they are checked every check interval
+        private final Set<WorkerProcess> unwatchedWorkers = new HashSet<WorkerProcess>();
+        private WorkerHomeWatcher workerHomeWatcher;
+
         private volatile boolean running = true;
         private volatile boolean detectTimeouts;
 
@@ -104,20 +146,113 @@ public class WorkerProcessFailureMonitor {
 
         @Override
         public void run() {
-            while (running) {
-                try {
-                    for (WorkerProcess workerProcess : workerProcessManager.getWorkerProcesses()) {
-
-                        detectFailures(workerProcess);
+            startWorkerHomeWatcher();
+            try {
+                while (running) {
+                    updateMonitoredWorkers();
 
-                        if (workerProcess.isFinished()) {
-                            workerProcessManager.remove(workerProcess);
-                        }
+                    WorkerProcess workerProcess = failureCandidates.poll(checkIntervalMillis, MILLISECONDS);
+                    while (workerProcess != null) {
+                        check(workerProcess);
+                        workerProcess = failureCandidates.poll();
                     }
-                } catch (Exception e) {
-                    LOGGER.fatal("Failed to scan for failures", e);
+
+                    checkPeriodically();
+                }
+            } catch (InterruptedException e) {
+                LOGGER.debug("WorkerJvmFailureMonitorThread interrupted");
+            } finally {
+                stopMonitoring();
+            }
+        }
+
+        private void checkPeriodically() {
+            Collection<WorkerProcess> workerProcesses = workerHomeWatcher == null ? monitoredWorkers.keySet() : unwatchedWorkers;
+            for (WorkerProcess workerProcess : workerProcesses) {
+                check(workerProcess);
+            }
+        }
+
+        private void startWorkerHomeWatcher() {
+            if (!isWatchServiceAvailable()) {
+                LOGGER.info("File watching is not available, the Workers are checked for failures periodically");
+                return;
+            }
+            try {
+                workerHomeWatcher = new WorkerHomeWatcher(failureCandidates);
+                workerHomeWatcher.start();
+            } catch (IOException e) {
+                LOGGER.warn("Failed to start file watching, the Workers are checked for failures periodically", e);
+            }
+        }
+
+        /**
+         * Starts monitoring new workers and stops monitoring removed workers. This only checks the registered workers, so
+         * doesn't do any I/O.
+         */
+        private void updateMonitoredWorkers() {
+            Collection<WorkerProcess> workerProcesses = workerProcessManager.getWorkerProcesses();
+            for (WorkerProcess workerProcess : workerProcesses) {
+                if (!monitoredWorkers.containsKey(workerProcess)) {
+                    startMonitoring(workerProcess);
+                }
+            }
+
+            Iterator<Map.Entry<WorkerProcess, ExitWaiterThread>> iterator = monitoredWorkers.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<WorkerProcess, ExitWaiterThread> entry = iterator.next();
+                if (!workerProcesses.contains(entry.getKey())) {
+                    iterator.remove();
+                    stopMonitoring(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        private void startMonitoring(WorkerProcess workerProcess) {
+            ExitWaiterThread exitWaiterThread = new ExitWaiterThread(workerProcess, failureCandidates);
+            exitWaiterThread.start();
+            monitoredWorkers.put(workerProcess, exitWaiterThread);
+
+            if (workerHomeWatcher != null && !workerHomeWatcher.register(workerProcess)) {
+                LOGGER.info("The home directory of " + workerProcess.getAddress() + " is checked for failures periodically");
+                unwatchedWorkers.add(workerProcess);
+            }
+
+            // the failure files could have been created before the directory was watched
+            check(workerProcess);
+        }
+
+        private void stopMonitoring(WorkerProcess workerProcess, ExitWaiterThread exitWaiterThread) {
+            exitWaiterThread.interrupt();
+            unwatchedWorkers.remove(workerProcess);
+            if (workerHomeWatcher != null) {
+                workerHomeWatcher.unregister(workerProcess);
+            }
+        }
+
+        private void stopMonitoring() {
+            for (ExitWaiterThread exitWaiterThread : monitoredWorkers.values()) {
+                exitWaiterThread.interrupt();
+            }
+            monitoredWorkers.clear();
+            unwatchedWorkers.clear();
+            closeQuietly(workerHomeWatcher);
+        }
+
+        private void check(WorkerProcess workerProcess) {
+            if (!workerProcessManager.getWorkerProcesses().contains(workerProcess)) {
+                // the worker has been removed in the meantime, e.g. since its exit has already been detected
+                return;
+            }
+
+            try {
+                detectFailures(workerProcess);
+
+                if (workerProcess.isFinished()) {
+                    workerProcessManager.remove(workerProcess);
                 }
-                sleepMillis(checkIntervalMillis);
+            } catch (Exception e) {
+                LOGGER.fatal("Failed to scan for failures", e);
             }
         }
 
@@ -245,6 +380,36 @@ public class WorkerProcessFailureMonitor {
         }
     }
 
+    /**
+     * Waits for the exit of the process of a worker, so the exit is detected immediately without polling the process.
+     */
+    private static final class ExitWaiterThread extends Thread {
+
+        private final WorkerProcess workerProcess;
+        private final Queue<WorkerProcess> failureCandidates;
+
+        private ExitWaiterThread(WorkerProcess workerProcess, Queue<WorkerProcess> failureCandidates) {
+            super("WorkerProcessExitWaiter-" + workerProcess.getAddress());
+            setDaemon(true);
+            this.workerProcess = workerProcess;
+            this.failureCandidates = failureCandidates;
+        }
+
+        @Override
+        public void run() {
+            Process process = workerProcess.getProcess();
+            if (process == null) {
+                return;
+            }
+            try {
+                process.waitFor();
+                failureCandidates.offer(workerProcess);
+            } catch (InterruptedException ignore) {
+                LOGGER.debug("WorkerProcessExitWaiter interrupted for " + workerProcess.getAddress());
+            }
+        }
+    }
+
     static class ExceptionExtensionFilter implements FilenameFilter {
 
         private static final ExceptionExtensionFilter INSTANCE = new ExceptionExtensionFilter();
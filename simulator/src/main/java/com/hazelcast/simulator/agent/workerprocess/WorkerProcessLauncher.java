@@ -15,13 +15,17 @@
  */
 package com.hazelcast.simulator.agent.workerprocess;
 
+import com.hazelcast.simulator.protocol.TransportType;
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
 import org.apache.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -48,6 +52,7 @@ public class WorkerProcessLauncher {
     private static final String CLASSPATH_SEPARATOR = System.getProperty("path.separator");
     private static final Logger LOGGER = Logger.getLogger(WorkerProcessLauncher.class);
     private static final String FILE_PREFIX = "file:";
+    private static final String WORKER_CLASS_NAME = "com.hazelcast.simulator.worker.Worker";
 
     private final AtomicBoolean javaHomePrinted = new AtomicBoolean();
 
@@ -72,13 +77,18 @@ public class WorkerProcessLauncher {
             ensureExistingDirectory(sessionDir);
 
             String type = parameters.getWorkerType();
-            LOGGER.info(format("Starting a Java Virtual Machine for %s Worker %s", type, workerAddress));
-
-            LOGGER.info("Launching Worker using: " + parameters);
-            process = startWorker();
+            if (TransportType.fromString(parameters.get("TRANSPORT")) == TransportType.EMBEDDED) {
+                LOGGER.info(format("Starting an embedded %s Worker %s", type, workerAddress));
+                LOGGER.info("Launching Worker using: " + parameters);
+                // the embedded worker has completed its startup when it is returned
+                process = startEmbeddedWorker();
+            } else {
+                LOGGER.info(format("Starting a Java Virtual Machine for %s Worker %s", type, workerAddress));
+                LOGGER.info("Launching Worker using: " + parameters);
+                process = startWorker();
+                waitForWorkersStartup(process);
+            }
             LOGGER.info(format("Finished starting a for %s Worker %s ", type, workerAddress));
-
-            waitForWorkersStartup(process);
             process = null;
         } finally {
             if (process != null) {
@@ -105,7 +115,58 @@ public class WorkerProcessLauncher {
                 .directory(workerHome);
 
         Map<String, String> environment = processBuilder.environment();
+        writeParameters(workerHome, environment);
+
+        environment.putAll(System.getenv());
+        String javaHome = getJavaHome();
+        String path = javaHome + "/bin:" + environment.get("PATH");
+        environment.put("PATH", path);
+        environment.put("JAVA_HOME", javaHome);
+        environment.put("CLASSPATH", getClasspath(workerHome));
+        environment.put("SIMULATOR_HOME", getSimulatorHome().getAbsolutePath());
+
+        Process process = processBuilder.start();
+
+        workerProcess.setProcess(process);
+        processManager.add(workerAddress, workerProcess);
+
+        return workerProcess;
+    }
+
+    /**
+     * Starts the worker in this JVM with its own {@link WorkerClassLoader}.
+     *
+     * The worker is created with reflection, so it is loaded by the WorkerClassLoader. It returns a {@link Process} which
+     * represents the embedded worker, so it is monitored and shutdown like a worker process.
+     */
+    private WorkerProcess startEmbeddedWorker() throws Exception {
+        String workerDirName = parameters.get("WORKER_DIR_NAME");
+        File workerHome = ensureExistingDirectory(sessionDir, workerDirName);
+
+        copyResourcesToWorkerHome(workerDirName);
+        writeParameters(workerHome, new HashMap<String, String>());
 
+        WorkerProcess workerProcess = new WorkerProcess(workerAddress, workerDirName, workerHome);
+        ClassLoader classLoader = new WorkerClassLoader(getClasspath(workerHome), getClass().getClassLoader());
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        // the threads of the worker inherit the context classloader
+        thread.setContextClassLoader(classLoader);
+        try {
+            Method startMethod = classLoader.loadClass(WORKER_CLASS_NAME).getMethod("startEmbedded", Map.class, File.class);
+            workerProcess.setProcess((Process) startMethod.invoke(null, parameters.asMap(), workerHome));
+        } catch (InvocationTargetException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+
+        processManager.add(workerAddress, workerProcess);
+        return workerProcess;
+    }
+
+    private void writeParameters(File workerHome, Map<String, String> environment) {
         StringBuilder sb = new StringBuilder();
         List<String> keys = new ArrayList<String>(parameters.asMap().keySet());
         Collections.sort(keys);
@@ -122,21 +183,6 @@ public class WorkerProcessLauncher {
         sb.append("CLASSPATH=").append(getClasspath(workerHome)).append("\n");
 
         writeText(sb.toString(), new File(workerHome, "parameters"));
-
-        environment.putAll(System.getenv());
-        String javaHome = getJavaHome();
-        String path = javaHome + "/bin:" + environment.get("PATH");
-        environment.put("PATH", path);
-        environment.put("JAVA_HOME", javaHome);
-        environment.put("CLASSPATH", getClasspath(workerHome));
-        environment.put("SIMULATOR_HOME", getSimulatorHome().getAbsolutePath());
-
-        Process process = processBuilder.start();
-
-        workerProcess.setProcess(process);
-        processManager.add(workerAddress, workerProcess);
-
-        return workerProcess;
     }
 
     private void waitForWorkersStartup(WorkerProcess worker) {
@@ -211,6 +211,10 @@ public class SimulatorProperties {
         return parseInt(get("COORDINATOR_PORT", "0"));
     }
 
+    public int getCoordinatorMetricsPort() {
+        return parseInt(get("COORDINATOR_METRICS_PORT", "0"));
+    }
+
     public int getAgentThreadPoolSize() {
         return parseInt(get("AGENT_THREAD_POOL_SIZE", "0"));
     }
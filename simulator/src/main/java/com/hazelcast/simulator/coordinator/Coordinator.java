@@ -15,8 +15,10 @@
  */
 package com.hazelcast.simulator.coordinator;
 
+import com.hazelcast.simulator.agent.Agent;
 import com.hazelcast.simulator.agent.workerprocess.WorkerParameters;
 import com.hazelcast.simulator.common.SimulatorProperties;
+import com.hazelcast.simulator.coordinator.operations.RcPerformanceHistoryOperation;
 import com.hazelcast.simulator.coordinator.operations.RcTestRunOperation;
 import com.hazelcast.simulator.coordinator.operations.RcTestStatusOperation;
 import com.hazelcast.simulator.coordinator.operations.RcTestStopOperation;
@@ -35,11 +37,14 @@ import com.hazelcast.simulator.coordinator.tasks.RunTestSuiteTask;
 import com.hazelcast.simulator.coordinator.tasks.StartWorkersTask;
 import com.hazelcast.simulator.coordinator.tasks.TerminateWorkersTask;
 import com.hazelcast.simulator.protocol.CoordinatorClient;
+import com.hazelcast.simulator.protocol.TransportType;
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.protocol.operation.OperationEncoding;
 import com.hazelcast.simulator.utils.CommandLineExitException;
 import com.hazelcast.simulator.utils.CommonUtils;
 import com.hazelcast.simulator.vendors.VendorDriver;
 import com.hazelcast.simulator.worker.operations.ExecuteScriptOperation;
+import com.hazelcast.simulator.worker.operations.PerformanceHistoryOperation;
 import org.apache.log4j.Logger;
 
 import java.io.Closeable;
@@ -53,27 +58,35 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 
 import static com.hazelcast.simulator.coordinator.AgentUtils.startAgents;
 import static com.hazelcast.simulator.coordinator.AgentUtils.stopAgents;
+import static com.hazelcast.simulator.coordinator.PerformanceStatsCollector.parsePercentiles;
 import static com.hazelcast.simulator.coordinator.registry.AgentData.publicAddresses;
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
 import static com.hazelcast.simulator.utils.CommonUtils.sleepSeconds;
 import static com.hazelcast.simulator.utils.FileUtils.ensureNewDirectory;
 import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
 import static com.hazelcast.simulator.utils.TagUtils.matches;
 import static com.hazelcast.simulator.vendors.VendorDriver.loadVendorDriver;
+import static java.lang.Math.max;
 import static java.lang.Runtime.getRuntime;
 import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 @SuppressWarnings({"checkstyle:classdataabstractioncoupling", "checkstyle:classfanoutcomplexity"})
 public class Coordinator implements Closeable {
 
     private static final Logger LOGGER = Logger.getLogger(Coordinator.class);
-
-    private final PerformanceStatsCollector performanceStatsCollector = new PerformanceStatsCollector();
+    private static final int EMBEDDED_WORKER_LAST_SEEN_TIMEOUT_SECONDS = 180;
+    private static final long PERFORMANCE_HISTORY_TIMEOUT_NANOS = SECONDS.toNanos(60);
 
     private final Registry registry;
     private final CoordinatorParameters parameters;
@@ -82,6 +95,10 @@ public class Coordinator implements Closeable {
     private final SimulatorProperties properties;
     private final int testCompletionTimeoutSeconds;
     private final CoordinatorClient client;
+    private final PerformanceStatsCollector performanceStatsCollector;
+    private final TransportType transportType;
+    private Agent embeddedAgent;
+    private MetricsEndpoint metricsEndpoint;
 
     public Coordinator(Registry registry, CoordinatorParameters parameters) {
         this.registry = registry;
@@ -90,9 +107,14 @@ public class Coordinator implements Closeable {
         this.failureCollector = new FailureCollector(outputDirectory, registry);
         this.properties = parameters.getSimulatorProperties();
         this.testCompletionTimeoutSeconds = properties.getTestCompletionTimeoutSeconds();
+        this.performanceStatsCollector = new PerformanceStatsCollector(
+                parsePercentiles(properties.get("LATENCY_PERCENTILES")));
+        this.transportType = TransportType.fromString(properties.get("TRANSPORT"));
 
         this.client = new CoordinatorClient()
                 .setAgentBrokerPort(properties.getAgentPort())
+                .setOperationEncoding(OperationEncoding.fromString(properties.get("OPERATION_ENCODING")))
+                .setTransportType(transportType)
                 .setProcessor(new CoordinatorOperationProcessor(failureCollector, performanceStatsCollector))
                 .setFailureCollector(failureCollector);
     }
@@ -101,6 +123,18 @@ public class Coordinator implements Closeable {
         return failureCollector;
     }
 
+    PerformanceStatsCollector getPerformanceStatsCollector() {
+        return performanceStatsCollector;
+    }
+
+    Registry getRegistry() {
+        return registry;
+    }
+
+    File getOutputDirectory() {
+        return outputDirectory;
+    }
+
     public void start() throws Exception {
         client.start();
 
@@ -110,7 +144,11 @@ public class Coordinator implements Closeable {
 
         log("Coordinator starting...");
 
-        startAgents(properties, registry);
+        if (transportType == TransportType.EMBEDDED) {
+            startEmbeddedAgent();
+        } else {
+            startAgents(properties, registry);
+        }
 
         startClient();
 
@@ -124,9 +162,32 @@ public class Coordinator implements Closeable {
 
         initCoordinatorRemote();
 
+        int metricsPort = properties.getCoordinatorMetricsPort();
+        if (metricsPort != 0) {
+            metricsEndpoint = new MetricsEndpoint(performanceStatsCollector, metricsPort);
+            failureCollector.addListener(metricsEndpoint);
+            metricsEndpoint.start();
+        }
+
         log("Coordinator started...");
     }
 
+    /**
+     * Starts the agent inside the coordinator JVM; the workers are then created by this agent in isolated classloaders
+     * instead of being forked, and all messaging goes through the in-memory {@link TransportType#EMBEDDED} transport.
+     */
+    private void startEmbeddedAgent() {
+        if (registry.agentCount() != 1) {
+            throw new CommandLineExitException(format("The embedded transport requires exactly 1 agent, but %d are configured",
+                    registry.agentCount()));
+        }
+
+        AgentData agentData = registry.getFirstAgent();
+        embeddedAgent = new Agent(agentData.getAddressIndex(), agentData.getPublicAddress(), properties.getAgentPort(),
+                EMBEDDED_WORKER_LAST_SEEN_TIMEOUT_SECONDS, null, TransportType.EMBEDDED);
+        embeddedAgent.start();
+    }
+
     private void initCoordinatorRemote() throws RemoteException, AlreadyBoundException {
         int remotePort = properties.getCoordinatorPort();
         if (remotePort != 0) {
@@ -172,6 +233,10 @@ public class Coordinator implements Closeable {
         if (properties.getCoordinatorPort() > 0) {
             log("Coordinator remote enabled on port " + properties.getCoordinatorPort());
         }
+
+        if (properties.getCoordinatorMetricsPort() > 0) {
+            log("Coordinator metrics endpoint enabled on port " + properties.getCoordinatorMetricsPort());
+        }
     }
 
     @Override
@@ -182,7 +247,11 @@ public class Coordinator implements Closeable {
 
         client.close();
 
-        stopAgents(properties, registry);
+        if (embeddedAgent != null) {
+            embeddedAgent.close();
+        } else {
+            stopAgents(properties, registry);
+        }
 
         if (!parameters.skipDownload()) {
             new DownloadTask(publicAddresses(registry.getAgents()),
@@ -191,6 +260,8 @@ public class Coordinator implements Closeable {
                     parameters.getSessionId()).run();
         }
 
+        closeQuietly(metricsEndpoint);
+
         failureCollector.logFailureInfo();
     }
 
@@ -433,6 +504,39 @@ public class Coordinator implements Closeable {
         return sb.toString();
     }
 
+    public String performanceHistory(RcPerformanceHistoryOperation operation) throws Exception {
+        List<WorkerData> workers = operation.getWorkerQuery().execute(registry.getWorkers());
+
+        LOGGER.info(format("Fetching performance history of test [%s] from %s workers ...", operation.getTestId(),
+                workers.size()));
+
+        Map<WorkerData, Future<String>> futures = new LinkedHashMap<WorkerData, Future<String>>();
+        for (WorkerData worker : workers) {
+            futures.put(worker, client.submit(worker.getAddress(),
+                    new PerformanceHistoryOperation(operation.getTestId(), operation.getSinceMillis())));
+        }
+
+        // a single deadline for all workers, so a hanging worker doesn't block the coordinator-remote
+        long deadlineNanos = nanoTime() + PERFORMANCE_HISTORY_TIMEOUT_NANOS;
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<WorkerData, Future<String>> entry : futures.entrySet()) {
+            SimulatorAddress address = entry.getKey().getAddress();
+            String history;
+            try {
+                history = entry.getValue().get(max(0, deadlineNanos - nanoTime()), NANOSECONDS);
+            } catch (TimeoutException e) {
+                LOGGER.warn(format("Worker %s didn't return its performance history in time, skipping it", address));
+                sb.append("# ").append(address).append(" timed out\n");
+                continue;
+            }
+            if (history.isEmpty()) {
+                continue;
+            }
+            sb.append("# ").append(address).append("\n").append(history);
+        }
+        return sb.toString();
+    }
+
     StartWorkersTask createStartWorkersTask(Map<SimulatorAddress, List<WorkerParameters>> deploymentPlan,
                                             Map<String, String> workerTags) {
         return new StartWorkersTask(
@@ -49,6 +49,7 @@ import static com.hazelcast.simulator.vendors.VendorDriver.loadVendorDriver;
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.DAYS;
 import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -66,6 +67,7 @@ final class CoordinatorCli {
     SimulatorProperties simulatorProperties;
     DeploymentPlan deploymentPlan;
     VendorDriver vendorDriver;
+    ThroughputSearch throughputSearch;
 
     private final OptionParser parser = new OptionParser();
 
@@ -130,6 +132,37 @@ final class CoordinatorCli {
                     + " List of defined test phases: %s", TestPhase.getLastTestPhase(), TestPhase.getIdsAsString()))
             .withRequiredArg().ofType(TestPhase.class).defaultsTo(TestPhase.getLastTestPhase());
 
+    private final OptionSpec<ThroughputSearch.Strategy> throughputSearchSpec = parser.accepts("throughputSearch",
+            "Searches the maximum sustainable throughput by running the test repeatedly at different rates, using the given"
+                    + " strategy (STEP or BINARY). Each run takes the configured duration. The rate-vs-latency table is written"
+                    + " to the session directory.")
+            .withRequiredArg().ofType(ThroughputSearch.Strategy.class);
+
+    private final OptionSpec<Long> throughputSearchSlaMicrosSpec = parser.accepts("throughputSearchSlaMicros",
+            "The maximum latency in microseconds at the throughputSearchPercentile for a rate to be sustainable.")
+            .withRequiredArg().ofType(Long.class);
+
+    private final OptionSpec<Double> throughputSearchPercentileSpec = parser.accepts("throughputSearchPercentile",
+            "The latency percentile which needs to stay under the throughputSearchSlaMicros.")
+            .withRequiredArg().ofType(Double.class).defaultsTo(99d);
+
+    private final OptionSpec<Long> throughputSearchStartRateSpec = parser.accepts("throughputSearchStartRate",
+            "The rate in ops/s of all load generating workers together for the first run of the throughput search.")
+            .withRequiredArg().ofType(Long.class).defaultsTo(1000L);
+
+    private final OptionSpec<Long> throughputSearchMaxRateSpec = parser.accepts("throughputSearchMaxRate",
+            "The maximum rate in ops/s of all load generating workers together for the throughput search.")
+            .withRequiredArg().ofType(Long.class).defaultsTo(1000000L);
+
+    private final OptionSpec<Long> throughputSearchStepRateSpec = parser.accepts("throughputSearchStepRate",
+            "The rate increase in ops/s per run of the STEP throughput search. Defaults to the throughputSearchStartRate.")
+            .withRequiredArg().ofType(Long.class);
+
+    private final OptionSpec<Double> throughputSearchPrecisionSpec = parser.accepts("throughputSearchPrecision",
+            "The BINARY throughput search stops if the difference between the highest passing rate and the lowest failing"
+                    + " rate is smaller than this fraction of the failing rate.")
+            .withRequiredArg().ofType(Double.class).defaultsTo(0.05d);
+
     private final OptionSpec<String> memberArgsSpec = parser.accepts("memberArgs",
             "Member Worker JVM options (quotes can be used). ")
             .withRequiredArg().ofType(String.class).defaultsTo("-XX:+HeapDumpOnOutOfMemoryError");
@@ -185,6 +218,7 @@ final class CoordinatorCli {
             } else {
                 this.deploymentPlan = newDeploymentPlan();
                 this.runMonolith = new CoordinatorRunMonolith(coordinator, coordinatorParameters);
+                this.throughputSearch = newThroughputSearch();
             }
         }
     }
@@ -203,7 +237,13 @@ final class CoordinatorCli {
                         + "Waiting for commands from the coordinator-remote.");
             } else {
                 runMonolith.init(deploymentPlan);
-                boolean success = runMonolith.run(testSuite);
+                boolean success;
+                if (throughputSearch == null) {
+                    success = runMonolith.run(testSuite);
+                } else {
+                    // the search has failed if not even the lowest rate has met the SLA
+                    success = runMonolith.runThroughputSearch(testSuite, throughputSearch) > 0;
+                }
                 System.exit(success ? 0 : 1);
             }
         }
@@ -254,6 +294,33 @@ final class CoordinatorCli {
         return testSuite;
     }
 
+    private ThroughputSearch newThroughputSearch() {
+        if (!options.has(throughputSearchSpec)) {
+            return null;
+        }
+        if (!options.has(throughputSearchSlaMicrosSpec)) {
+            throw new CommandLineExitException("--throughputSearch requires --throughputSearchSlaMicros");
+        }
+        if (simulatorProperties.getInt("WORKER_PERFORMANCE_MONITOR_INTERVAL_SECONDS") == 0) {
+            throw new CommandLineExitException("--throughputSearch requires the performance monitor to be enabled");
+        }
+
+        long startRate = options.valueOf(throughputSearchStartRateSpec);
+        long stepRate = options.has(throughputSearchStepRateSpec) ? options.valueOf(throughputSearchStepRateSpec) : startRate;
+        try {
+            return new ThroughputSearch(
+                    options.valueOf(throughputSearchSpec),
+                    startRate,
+                    options.valueOf(throughputSearchMaxRateSpec),
+                    stepRate,
+                    options.valueOf(throughputSearchPrecisionSpec),
+                    options.valueOf(throughputSearchPercentileSpec),
+                    MICROSECONDS.toNanos(options.valueOf(throughputSearchSlaMicrosSpec)));
+        } catch (IllegalArgumentException e) {
+            throw new CommandLineExitException("Invalid throughput search configuration: " + e.getMessage(), e);
+        }
+    }
+
     private TestSuite loadRawTestSuite() {
         String content;
         List testsuiteFiles = options.nonOptionArguments();
@@ -18,6 +18,7 @@ package com.hazelcast.simulator.coordinator;
 import com.hazelcast.simulator.common.SimulatorProperties;
 import com.hazelcast.simulator.coordinator.operations.RcDownloadOperation;
 import com.hazelcast.simulator.coordinator.operations.RcInstallOperation;
+import com.hazelcast.simulator.coordinator.operations.RcPerformanceHistoryOperation;
 import com.hazelcast.simulator.coordinator.operations.RcPrintLayoutOperation;
 import com.hazelcast.simulator.coordinator.operations.RcStopCoordinatorOperation;
 import com.hazelcast.simulator.coordinator.operations.RcTestRunOperation;
@@ -100,6 +101,8 @@ public final class CoordinatorRemoteCli implements Closeable {
             new DownloadCli().run(subArgs);
         } else if (InstallCli.NAME.equals(cmd)) {
             new InstallCli().run(subArgs);
+        } else if (PerformanceHistoryCli.NAME.equals(cmd)) {
+            new PerformanceHistoryCli().run(subArgs);
         } else if (PrintClusterLayoutCli.NAME.equals(cmd)) {
             new PrintClusterLayoutCli().run(subArgs);
         } else if (StopCli.NAME.equals(cmd)) {
@@ -133,6 +136,7 @@ public final class CoordinatorRemoteCli implements Closeable {
                         + "--------------------------                                                                  \n"
                         + "download        Downloads all artifacts from the workers                                    \n"
                         + "install         Installs vendor software on the remote machines                             \n"
+                        + "performance-history Fetches the performance history of a test from the workers              \n"
                         + "print-layout    Prints the cluster-layout                                                   \n"
                         + "test-run        Runs a test and wait for completion                                         \n"
                         + "test-start      Starts a test asynchronously                                                \n"
@@ -479,6 +483,53 @@ public final class CoordinatorRemoteCli implements Closeable {
         }
     }
 
+    private class PerformanceHistoryCli extends WorkerQueryableCli {
+
+        static final String NAME = "performance-history";
+
+        private final String help
+                = "The 'performance-history' command fetches the performance history of a test from the workers\n"
+                + "\n"
+                + "The workers only keep a history if WORKER_PERFORMANCE_MONITOR_SAMPLE_INTERVAL_MILLIS is set. For each\n"
+                + "worker the most recent samples are printed in csv format. The history is kept after the test has\n"
+                + "completed.\n"
+                + "\n"
+                + "Various filter options are available like --versionSpec, --workerType, --agent, --worker\n"
+                + "\n"
+                + "Examples\n"
+                + "# fetches the history of test 'mytest' from all workers\n"
+                + "coordinator-remote performance-history mytest\n\n"
+                + "# fetches the samples taken after the given epoch millis from A1_W1\n"
+                + "coordinator-remote performance-history --workers A1_W1 --sinceMillis 1500000000000 mytest";
+
+        private final OptionSpec<Long> sinceMillisSpec = parser.accepts("sinceMillis",
+                "Only the samples taken after this epoch time in milliseconds are fetched.")
+                .withRequiredArg().ofType(Long.class).defaultsTo(0L);
+
+        private final NonOptionArgumentSpec<String> argumentSpec = parser
+                .nonOptions("test id").ofType(String.class);
+
+        @Override
+        protected String name() {
+            return NAME;
+        }
+
+        @Override
+        protected OptionSet newOptions(String[] args) {
+            return initOptionsWithHelp(parser, help, args);
+        }
+
+        @Override
+        protected SimulatorOperation newOperation() {
+            List<String> nonOptionArguments = options.valuesOf(argumentSpec);
+            if (nonOptionArguments.size() != 1) {
+                throw new CommandLineExitException("Only 1 argument allowed: the test id");
+            }
+
+            return new RcPerformanceHistoryOperation(nonOptionArguments.get(0), newQuery(), options.valueOf(sinceMillisSpec));
+        }
+    }
+
     private class WorkerKillCli extends WorkerQueryableCli {
 
         static final String NAME = "worker-kill";
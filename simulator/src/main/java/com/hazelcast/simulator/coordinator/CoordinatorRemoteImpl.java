@@ -18,6 +18,7 @@ package com.hazelcast.simulator.coordinator;
 
 import com.hazelcast.simulator.coordinator.operations.RcDownloadOperation;
 import com.hazelcast.simulator.coordinator.operations.RcInstallOperation;
+import com.hazelcast.simulator.coordinator.operations.RcPerformanceHistoryOperation;
 import com.hazelcast.simulator.coordinator.operations.RcPrintLayoutOperation;
 import com.hazelcast.simulator.coordinator.operations.RcStopCoordinatorOperation;
 import com.hazelcast.simulator.coordinator.operations.RcTestRunOperation;
@@ -47,6 +48,8 @@ public class CoordinatorRemoteImpl implements CoordinatorRemote {
         } else if (op instanceof RcInstallOperation) {
             RcInstallOperation installOp = (RcInstallOperation) op;
             coordinator.installVendor(installOp.getVersionSpec());
+        } else if (op instanceof RcPerformanceHistoryOperation) {
+            return coordinator.performanceHistory((RcPerformanceHistoryOperation) op);
         } else if (op instanceof RcPrintLayoutOperation) {
             return coordinator.printLayout();
         } else if (op instanceof RcStopCoordinatorOperation) {
@@ -57,7 +60,14 @@ public class CoordinatorRemoteImpl implements CoordinatorRemote {
             return coordinator.testStatus((RcTestStatusOperation) op);
         } else if (op instanceof RcTestStopOperation) {
             return coordinator.testStop((RcTestStopOperation) op);
-        } else if (op instanceof RcWorkerKillOperation) {
+        } else {
+            return executeWorkerOperation(op);
+        }
+        return null;
+    }
+
+    private String executeWorkerOperation(SimulatorOperation op) throws Exception {
+        if (op instanceof RcWorkerKillOperation) {
             return coordinator.workerKill((RcWorkerKillOperation) op);
         } else if (op instanceof RcWorkerScriptOperation) {
             return coordinator.workerScript((RcWorkerScriptOperation) op);
@@ -66,6 +76,5 @@ public class CoordinatorRemoteImpl implements CoordinatorRemote {
         } else {
             throw new ProcessException("Unknown operation:" + op);
         }
-        return null;
     }
 }
@@ -17,11 +17,13 @@
 package com.hazelcast.simulator.coordinator;
 
 import com.hazelcast.simulator.common.FailureType;
+import com.hazelcast.simulator.common.TestCase;
 import com.hazelcast.simulator.common.TestPhase;
 import com.hazelcast.simulator.coordinator.operations.FailureOperation;
 import com.hazelcast.simulator.utils.CommandLineExitException;
 import org.apache.log4j.Logger;
 
+import java.io.File;
 import java.util.HashMap;
 
 import static com.hazelcast.simulator.utils.CommonUtils.sleepSeconds;
@@ -34,6 +36,7 @@ import static java.lang.String.format;
 class CoordinatorRunMonolith {
 
     private static final int WAIT_FOR_WORKER_FAILURE_RETRY_COUNT = 10;
+    private static final String THROUGHPUT_SEARCH_FILE = "throughput-search.csv";
 
     private static final Logger LOGGER = Logger.getLogger(CoordinatorRunMonolith.class);
 
@@ -75,6 +78,68 @@ class CoordinatorRunMonolith {
         return !failureCollector.hasCriticalFailure();
     }
 
+    /**
+     * Runs the test of the test suite repeatedly at different rates, to find the highest rate for which the latency stays
+     * under the SLA. The rate-vs-latency table is written to the session directory.
+     *
+     * @param testSuite the test suite containing a single test
+     * @param search    the {@link ThroughputSearch} to run
+     * @return the highest rate for which the latency stays under the SLA or 0 if there is no such rate
+     */
+    public long runThroughputSearch(final TestSuite testSuite, ThroughputSearch search) {
+        if (testSuite.size() != 1) {
+            throw new CommandLineExitException("Throughput search requires a test suite with a single test");
+        }
+        if (testSuite.getDurationSeconds() == 0) {
+            throw new CommandLineExitException("Throughput search requires a duration");
+        }
+
+        final TestCase testCase = testSuite.getTestCaseList().get(0);
+        final int targetCount = testSuite.getWorkerQuery().execute(coordinator.getRegistry().getWorkers()).size();
+        if (targetCount == 0) {
+            throw new CommandLineExitException("No workers found for query: " + testSuite.getWorkerQuery());
+        }
+
+        try {
+            return search.search(new ThroughputSearch.StepRunner() {
+                @Override
+                public ThroughputSearch.Step run(long ratePerSecond) {
+                    return runStep(testSuite, testCase, targetCount, ratePerSecond);
+                }
+            });
+        } finally {
+            File file = new File(coordinator.getOutputDirectory(), THROUGHPUT_SEARCH_FILE);
+            search.writeTable(file);
+            LOGGER.info(format("Throughput search results written to %s", file.getAbsolutePath()));
+        }
+    }
+
+    private ThroughputSearch.Step runStep(TestSuite testSuite, TestCase testCase, int targetCount, long ratePerSecond) {
+        // the ratePerSecond of a test is the rate per load generating worker
+        TestCase stepTestCase = new TestCase(testCase.getId(), testCase.getProperties())
+                .setProperty("ratePerSecond", (double) ratePerSecond / targetCount);
+        TestSuite stepTestSuite = new TestSuite()
+                .setDurationSeconds(testSuite.getDurationSeconds())
+                .setFailFast(testSuite.isFailFast())
+                .setVerifyEnabled(testSuite.isVerifyEnabled())
+                .setWorkerQuery(testSuite.getWorkerQuery())
+                .addTest(stepTestCase);
+
+        coordinator.createRunTestSuiteTask(stepTestSuite).run();
+        if (failureCollector.hasCriticalFailure()) {
+            throw new CommandLineExitException(format("Throughput search aborted at %d ops/s due to a critical failure",
+                    ratePerSecond));
+        }
+
+        // the registry has given the test a unique id
+        String testId = stepTestCase.getId();
+        PerformanceStatsCollector performanceStatsCollector = coordinator.getPerformanceStatsCollector();
+        long operationCount = performanceStatsCollector.get(testId, true).getOperationCount();
+        return new ThroughputSearch.Step(ratePerSecond,
+                (double) operationCount / testSuite.getDurationSeconds(),
+                performanceStatsCollector.getAggregatedHistogram(testId));
+    }
+
     private void logConfiguration(DeploymentPlan deploymentPlan) {
         LOGGER.info(format("Total number of Hazelcast member workers: %s", deploymentPlan.getMemberWorkerCount()));
         LOGGER.info(format("Total number of Hazelcast client workers: %s", deploymentPlan.getClientWorkerCount()));
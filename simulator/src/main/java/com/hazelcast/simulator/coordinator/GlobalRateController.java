@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.coordinator;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.coordinator.registry.Registry;
+import com.hazelcast.simulator.coordinator.registry.WorkerData;
+import com.hazelcast.simulator.protocol.CoordinatorClient;
+import com.hazelcast.simulator.protocol.ResponseFuture;
+import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.worker.operations.RetuneRateOperation;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Divides the globalRatePerSecond of a test between its load generating workers.
+ *
+ * Each worker gets an equal share of the rate. A worker which is killed doesn't get a share anymore, so the remaining workers
+ * take over its part of the rate. A worker which falls behind, so its throughput is lower than its share, keeps its share to
+ * catch up, but the rest of the rate it doesn't make is divided between the workers which keep up. This way the rate of the
+ * cluster stays the same, which keeps rate limited latency benchmarks valid in elastic and failure scenarios.
+ */
+class GlobalRateController {
+
+    // a worker is falling behind if its throughput is lower than this ratio of its equal share of the global rate
+    static final double MIN_THROUGHPUT_RATIO = ThroughputSearch.MIN_THROUGHPUT_RATIO;
+
+    // the workers are only retuned if a share changes more than this ratio, to prevent retuning on every small dip
+    private static final double MIN_SHARE_CHANGE_RATIO = 0.01;
+
+    // the time the workers together get to answer a retune, so an unresponsive worker doesn't block the test
+    private static final long RETUNE_TIMEOUT_NANOS = SECONDS.toNanos(10);
+
+    private static final Logger LOGGER = Logger.getLogger(GlobalRateController.class);
+
+    private final String testId;
+    private final double globalRatePerSecond;
+    private final List<WorkerData> targets;
+    private final CoordinatorClient client;
+    private final Registry registry;
+    private final PerformanceStatsCollector performanceStatsCollector;
+    private final Map<SimulatorAddress, Double> throughputs = new HashMap<SimulatorAddress, Double>();
+    private Map<SimulatorAddress, Double> shares = new HashMap<SimulatorAddress, Double>();
+
+    GlobalRateController(String testId, double globalRatePerSecond, List<WorkerData> targets, CoordinatorClient client,
+                         Registry registry, PerformanceStatsCollector performanceStatsCollector) {
+        this.testId = testId;
+        this.globalRatePerSecond = globalRatePerSecond;
+        this.targets = targets;
+        this.client = client;
+        this.registry = registry;
+        this.performanceStatsCollector = performanceStatsCollector;
+    }
+
+    /**
+     * Returns the global rate of a test, which is the sum of the globalRatePerSecond properties of all its execution groups.
+     *
+     * @param testCase the test
+     * @return the global rate or 0 if no globalRatePerSecond is configured
+     */
+    static double getGlobalRatePerSecond(TestCase testCase) {
+        double globalRatePerSecond = 0;
+        for (Map.Entry<String, String> entry : testCase.getProperties().entrySet()) {
+            String key = entry.getKey();
+            if (key.equals("globalRatePerSecond") || key.endsWith("GlobalRatePerSecond")) {
+                globalRatePerSecond += Double.parseDouble(entry.getValue());
+            }
+        }
+        return globalRatePerSecond;
+    }
+
+    /**
+     * Divides the global rate between the workers which are still running and retunes the workers whose share has changed.
+     *
+     * @param refreshThroughputs {@code true} if the throughputs of the last performance interval should be taken into
+     *                           account to detect workers which fall behind, {@code false} to use the previous throughputs
+     */
+    void rebalance(boolean refreshThroughputs) {
+        List<WorkerData> workers = new ArrayList<WorkerData>();
+        for (WorkerData worker : targets) {
+            if (registry.findWorker(worker.getAddress()) != null) {
+                workers.add(worker);
+            }
+        }
+        if (workers.isEmpty()) {
+            return;
+        }
+
+        double[] newShares = divide(globalRatePerSecond, getThroughputs(workers, refreshThroughputs));
+        Map<SimulatorAddress, Double> retunedShares = new HashMap<SimulatorAddress, Double>();
+        for (int i = 0; i < workers.size(); i++) {
+            retunedShares.put(workers.get(i).getAddress(), newShares[i]);
+        }
+        retune(retunedShares);
+    }
+
+    private double[] getThroughputs(List<WorkerData> workers, boolean refreshThroughputs) {
+        double[] workerThroughputs = new double[workers.size()];
+        for (int i = 0; i < workers.size(); i++) {
+            SimulatorAddress address = workers.get(i).getAddress();
+            if (refreshThroughputs) {
+                throughputs.put(address, performanceStatsCollector.getIntervalThroughput(address, testId));
+            }
+            Double throughput = throughputs.get(address);
+            workerThroughputs[i] = throughput == null ? -1 : throughput;
+        }
+        return workerThroughputs;
+    }
+
+    private void retune(Map<SimulatorAddress, Double> newShares) {
+        Map<SimulatorAddress, ResponseFuture> futures = new HashMap<SimulatorAddress, ResponseFuture>();
+        for (Map.Entry<SimulatorAddress, Double> entry : newShares.entrySet()) {
+            Double oldShare = shares.get(entry.getKey());
+            double share = entry.getValue();
+            if (oldShare == null || abs(share - oldShare) > MIN_SHARE_CHANGE_RATIO * oldShare) {
+                futures.put(entry.getKey(), client.submit(entry.getKey(), new RetuneRateOperation(testId, share)));
+            } else {
+                // keep the old share, so small changes can't add up without retuning
+                entry.setValue(oldShare);
+            }
+        }
+        if (futures.isEmpty()) {
+            return;
+        }
+
+        LOGGER.info(format("%s retuning the global rate of %.1f ops/s over %d workers: %s",
+                testId, globalRatePerSecond, newShares.size(), formatRates(newShares)));
+        long deadlineNanos = nanoTime() + RETUNE_TIMEOUT_NANOS;
+        for (Map.Entry<SimulatorAddress, ResponseFuture> entry : futures.entrySet()) {
+            SimulatorAddress address = entry.getKey();
+            try {
+                entry.getValue().get(max(0, deadlineNanos - nanoTime()), NANOSECONDS);
+            } catch (TimeoutException e) {
+                LOGGER.warn(format("%s worker %s didn't answer the retune of the rate in time, skipping it", testId, address));
+                skip(newShares, address);
+            } catch (Exception e) {
+                // the worker will be removed from the registry if it has died, so it will be skipped on the next rebalance
+                LOGGER.warn(format("%s failed to retune the rate of worker %s: %s", testId, address, e.getMessage()));
+                skip(newShares, address);
+            }
+        }
+        shares = newShares;
+    }
+
+    /**
+     * Restores the previous share of a worker which didn't confirm the retune, so it is retuned again on the next rebalance.
+     */
+    private void skip(Map<SimulatorAddress, Double> newShares, SimulatorAddress address) {
+        Double oldShare = shares.get(address);
+        if (oldShare == null) {
+            newShares.remove(address);
+        } else {
+            newShares.put(address, oldShare);
+        }
+    }
+
+    private String formatRates(Map<SimulatorAddress, Double> newShares) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<SimulatorAddress, Double> entry : newShares.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append(format("=%.1f ops/s", entry.getValue() * globalRatePerSecond));
+        }
+        return sb.toString();
+    }
+
+    Map<SimulatorAddress, Double> getShares() {
+        return shares;
+    }
+
+    /**
+     * Divides the global rate between the workers.
+     *
+     * @param globalRatePerSecond the global rate
+     * @param throughputs         the throughput per worker or -1 if the throughput of a worker is unknown
+     * @return the share of the global rate per worker
+     */
+    static double[] divide(double globalRatePerSecond, double[] throughputs) {
+        int workerCount = throughputs.length;
+        double equalRate = globalRatePerSecond / workerCount;
+
+        boolean[] falling = new boolean[workerCount];
+        int fallingCount = 0;
+        double fallingThroughput = 0;
+        for (int i = 0; i < workerCount; i++) {
+            if (throughputs[i] >= 0 && throughputs[i] < MIN_THROUGHPUT_RATIO * equalRate) {
+                falling[i] = true;
+                fallingCount++;
+                fallingThroughput += throughputs[i];
+            }
+        }
+
+        double[] shares = new double[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            if (fallingCount == 0 || fallingCount == workerCount || falling[i]) {
+                shares[i] = 1d / workerCount;
+            } else {
+                // the workers which keep up take over the part of the rate the falling workers don't make
+                shares[i] = (globalRatePerSecond - fallingThroughput) / (workerCount - fallingCount) / globalRatePerSecond;
+            }
+        }
+        return shares;
+    }
+}
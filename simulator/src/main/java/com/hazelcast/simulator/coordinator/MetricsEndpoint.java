@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.coordinator;
+
+import com.hazelcast.simulator.coordinator.operations.FailureOperation;
+import com.hazelcast.simulator.utils.UncheckedIOException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static com.hazelcast.simulator.coordinator.MetricsFormatter.label;
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+
+/**
+ * Serves the live metrics of a benchmark over HTTP, so long running benchmarks can be scraped by Prometheus and alerted on
+ * while they are running.
+ *
+ * The metrics are served on {@code /metrics} in the Prometheus text format, see {@link MetricsFormatter}. Next to the
+ * performance stats of the {@link PerformanceStatsCollector}, the critical failures reported to the {@link FailureCollector}
+ * are counted per test and failure type.
+ *
+ * To be cheap enough to be scraped every second, the formatted metrics are cached: they are only formatted again after the
+ * workers have sent new performance stats or a failure has been reported. The gzip encoded response is cached as well.
+ */
+public class MetricsEndpoint implements FailureListener, HttpHandler, Closeable {
+
+    static final String PATH = "/metrics";
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final Logger LOGGER = Logger.getLogger(MetricsEndpoint.class);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_BAD_METHOD = 405;
+    private static final String NO_TEST = "";
+
+    private final PerformanceStatsCollector performanceStatsCollector;
+    private final int port;
+    // the failure counts keyed by their formatted labels
+    private final ConcurrentMap<String, AtomicLong> failureCounts = new ConcurrentHashMap<String, AtomicLong>();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final Object cacheLock = new Object();
+    private volatile Response cachedResponse;
+    private HttpServer server;
+
+    public MetricsEndpoint(PerformanceStatsCollector performanceStatsCollector, int port) {
+        this.performanceStatsCollector = performanceStatsCollector;
+        this.port = port;
+    }
+
+    /**
+     * Starts the HTTP server.
+     *
+     * @throws UncheckedIOException if the server could not be bound to the port
+     */
+    public void start() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.createContext(PATH, this);
+        // the responses are cached, so the dispatcher thread of the server is sufficient
+        server.setExecutor(null);
+        server.start();
+        LOGGER.info("Metrics endpoint started on http://localhost:" + getPort() + PATH);
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void onFailure(FailureOperation failure, boolean isFinishedFailure, boolean isCritical) {
+        String testId = failure.getTestId() == null ? NO_TEST : failure.getTestId();
+        String labels = label("test", testId) + ',' + label("type", failure.getType().getId());
+        AtomicLong count = failureCounts.get(labels);
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong();
+            AtomicLong foundCount = failureCounts.putIfAbsent(labels, newCount);
+            count = foundCount == null ? newCount : foundCount;
+        }
+        count.incrementAndGet();
+        failureCount.incrementAndGet();
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(HTTP_BAD_METHOD, -1);
+                return;
+            }
+
+            Response response = getResponse();
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            byte[] body = response.body;
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                body = response.getGzipBody();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(HTTP_OK, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    Response getResponse() {
+        long updateCount = performanceStatsCollector.getUpdateCount();
+        long failures = failureCount.get();
+        Response response = cachedResponse;
+        if (response != null && response.updateCount == updateCount && response.failureCount == failures) {
+            return response;
+        }
+
+        synchronized (cacheLock) {
+            response = cachedResponse;
+            if (response == null || response.updateCount != updateCount || response.failureCount != failures) {
+                String metrics = new MetricsFormatter(performanceStatsCollector).format(getFailureCounts());
+                response = new Response(updateCount, failures, metrics.getBytes(UTF8));
+                cachedResponse = response;
+            }
+            return response;
+        }
+    }
+
+    private Map<String, Long> getFailureCounts() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : failureCounts.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    static final class Response {
+        private final long updateCount;
+        private final long failureCount;
+        private final byte[] body;
+        private volatile byte[] gzipBody;
+
+        private Response(long updateCount, long failureCount, byte[] body) {
+            this.updateCount = updateCount;
+            this.failureCount = failureCount;
+            this.body = body;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        byte[] getGzipBody() {
+            byte[] result = gzipBody;
+            if (result == null) {
+                result = gzip(body);
+                gzipBody = result;
+            }
+            return result;
+        }
+
+        private static byte[] gzip(byte[] bytes) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(bytes.length);
+            GZIPOutputStream out = null;
+            try {
+                out = new GZIPOutputStream(bos);
+                out.write(bytes);
+                out.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                closeQuietly(out);
+            }
+            return bos.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.coordinator;
+
+import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import org.HdrHistogram.Histogram;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.hazelcast.simulator.coordinator.PerformanceStatsCollector.MAX_PERCENTILE;
+import static java.lang.Math.max;
+
+/**
+ * Formats the live performance stats and failure counts of the coordinator in the Prometheus text exposition format, which is
+ * also understood by OpenMetrics scrapers.
+ *
+ * The throughput and operation counts are taken from the last interval of every worker; the latency quantiles are calculated
+ * on the interval histograms of all workers merged together, like the progress line of the coordinator. The latencies are in
+ * microseconds and exposed as a summary, with the maximum latency as the quantile 1.
+ */
+final class MetricsFormatter {
+
+    private static final double NANOS_PER_MICRO = 1000;
+    private static final BigDecimal PERCENTILES_PER_QUANTILE = BigDecimal.valueOf(MAX_PERCENTILE);
+    private static final String LATENCY_METRIC = "simulator_test_latency_microseconds";
+    private static final String GC_TIME_METRIC = "simulator_worker_gc_time_milliseconds";
+
+    private final PerformanceStatsCollector collector;
+    private final StringBuilder sb = new StringBuilder();
+    // the last interval stats by worker and test, sorted so the output is stable
+    private final Map<String, Map<String, PerformanceStats>> workerStats = new TreeMap<String, Map<String, PerformanceStats>>();
+    private final Map<String, PerformanceStats> testStats = new TreeMap<String, PerformanceStats>();
+    private final Map<String, PerformanceStats> agentStats = new TreeMap<String, PerformanceStats>();
+
+    MetricsFormatter(PerformanceStatsCollector collector) {
+        this.collector = collector;
+        for (Map.Entry<SimulatorAddress, Map<String, PerformanceStats>> entry
+                : collector.getLastIntervalPerformanceStats().entrySet()) {
+            String agent = entry.getKey().getParent().toString();
+            workerStats.put(entry.getKey().toString(), new TreeMap<String, PerformanceStats>(entry.getValue()));
+            for (Map.Entry<String, PerformanceStats> testEntry : entry.getValue().entrySet()) {
+                add(testStats, testEntry.getKey(), testEntry.getValue());
+                add(agentStats, agent + '\n' + testEntry.getKey(), testEntry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Formats the metrics.
+     *
+     * @param failureCounts the number of failures by their labels
+     * @return the metrics in the Prometheus text format
+     */
+    String format(Map<String, Long> failureCounts) {
+        formatTestMetrics();
+        formatLatencyMetrics();
+        formatAgentMetrics();
+        formatWorkerMetrics();
+
+        header("simulator_failures_total", "The number of critical failures.", "counter");
+        for (Map.Entry<String, Long> entry : failureCounts.entrySet()) {
+            sample("simulator_failures_total", entry.getKey(), entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    private void formatTestMetrics() {
+        header("simulator_test_throughput", "The operations per second of the test in the last interval.", "gauge");
+        for (Map.Entry<String, PerformanceStats> entry : testStats.entrySet()) {
+            sample("simulator_test_throughput", testLabel(entry.getKey()), entry.getValue().getIntervalThroughput());
+        }
+        header("simulator_test_operations_total", "The number of operations of the test.", "counter");
+        for (Map.Entry<String, PerformanceStats> entry : testStats.entrySet()) {
+            sample("simulator_test_operations_total", testLabel(entry.getKey()), entry.getValue().getOperationCount());
+        }
+        header("simulator_test_steady_state_throughput",
+                "The operations per second of the test since all workers reached steady state.", "gauge");
+        for (Map.Entry<String, PerformanceStats> entry : testStats.entrySet()) {
+            if (entry.getValue().getSteadyStateOperationCount() >= 0) {
+                sample("simulator_test_steady_state_throughput", testLabel(entry.getKey()),
+                        entry.getValue().getSteadyStateThroughput());
+            }
+        }
+    }
+
+    private void formatLatencyMetrics() {
+        header(LATENCY_METRIC, "The latency of the test in the last interval.", "summary");
+        double[] percentiles = collector.getPercentiles();
+        for (String testId : testStats.keySet()) {
+            Histogram histogram = collector.getIntervalHistogram(testId);
+            if (histogram == null || histogram.getTotalCount() == 0) {
+                continue;
+            }
+            String testLabel = testLabel(testId);
+            for (double percentile : percentiles) {
+                sample(LATENCY_METRIC, testLabel + ',' + label("quantile", quantile(percentile)),
+                        histogram.getValueAtPercentile(percentile) / NANOS_PER_MICRO);
+            }
+            sample(LATENCY_METRIC, testLabel + ',' + label("quantile", quantile(MAX_PERCENTILE)),
+                    histogram.getMaxValue() / NANOS_PER_MICRO);
+            sample(LATENCY_METRIC + "_sum", testLabel, histogram.getMean() * histogram.getTotalCount() / NANOS_PER_MICRO);
+            sample(LATENCY_METRIC + "_count", testLabel, histogram.getTotalCount());
+        }
+    }
+
+    /**
+     * Converts a percentile to a quantile without the rounding noise of a double division, e.g. 99.9 to "0.999".
+     *
+     * @param percentile the percentile
+     * @return the quantile
+     */
+    static String quantile(double percentile) {
+        return BigDecimal.valueOf(percentile).divide(PERCENTILES_PER_QUANTILE).stripTrailingZeros().toPlainString();
+    }
+
+    private void formatAgentMetrics() {
+        header("simulator_agent_throughput", "The operations per second of the test on the agent in the last interval.", "gauge");
+        for (Map.Entry<String, PerformanceStats> entry : agentStats.entrySet()) {
+            String[] key = entry.getKey().split("\n", 2);
+            sample("simulator_agent_throughput", label("agent", key[0]) + ',' + testLabel(key[1]),
+                    entry.getValue().getIntervalThroughput());
+        }
+    }
+
+    private void formatWorkerMetrics() {
+        // the garbage collection time is measured per worker, so every test of the worker has the same value
+        header(GC_TIME_METRIC, "The garbage collection time of the worker in the last interval.", "gauge");
+        for (Map.Entry<String, Map<String, PerformanceStats>> entry : workerStats.entrySet()) {
+            long gcTimeMillis = -1;
+            for (PerformanceStats stats : entry.getValue().values()) {
+                if (!stats.isEmpty()) {
+                    gcTimeMillis = max(gcTimeMillis, stats.getIntervalGcTimeMillis());
+                }
+            }
+            if (gcTimeMillis >= 0) {
+                sample(GC_TIME_METRIC, label("worker", entry.getKey()), gcTimeMillis);
+            }
+        }
+
+        for (WorkerMetric metric : WorkerMetric.values()) {
+            header(metric.metricName, metric.help, metric.type);
+            for (Map.Entry<String, Map<String, PerformanceStats>> entry : workerStats.entrySet()) {
+                String workerLabel = label("worker", entry.getKey());
+                for (Map.Entry<String, PerformanceStats> testEntry : entry.getValue().entrySet()) {
+                    PerformanceStats stats = testEntry.getValue();
+                    Number value = metric.value(stats);
+                    if (!stats.isEmpty() && value.doubleValue() >= 0) {
+                        sample(metric.metricName, workerLabel + ',' + testLabel(testEntry.getKey()), value);
+                    }
+                }
+            }
+        }
+    }
+
+    private void header(String name, String help, String type) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private void sample(String name, String labels, Number value) {
+        sb.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static void add(Map<String, PerformanceStats> map, String key, PerformanceStats stats) {
+        PerformanceStats aggregated = map.get(key);
+        if (aggregated == null) {
+            aggregated = new PerformanceStats();
+            map.put(key, aggregated);
+        }
+        aggregated.add(stats);
+    }
+
+    private static String testLabel(String testId) {
+        return label("test", testId);
+    }
+
+    /**
+     * Formats a label with an escaped value.
+     *
+     * @param name  the name of the label
+     * @param value the value of the label
+     * @return the formatted label
+     */
+    static String label(String name, String value) {
+        StringBuilder sb = new StringBuilder(name.length() + value.length() + 3);
+        sb.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private enum WorkerMetric {
+        THROUGHPUT("simulator_worker_throughput", "The operations per second of the test on the worker in the last interval.",
+                "gauge") {
+            @Override
+            Number value(PerformanceStats stats) {
+                return stats.getIntervalThroughput();
+            }
+        },
+        OPERATIONS("simulator_worker_operations_total", "The number of operations of the test on the worker.", "counter") {
+            @Override
+            Number value(PerformanceStats stats) {
+                return stats.getOperationCount();
+            }
+        },
+        ALLOCATION_RATE("simulator_worker_allocation_rate_bytes",
+                "The bytes per second allocated by the threads of the test in the last interval.", "gauge") {
+            @Override
+            Number value(PerformanceStats stats) {
+                return stats.getIntervalAllocationRate();
+            }
+        };
+
+        private final String metricName;
+        private final String help;
+        private final String type;
+
+        WorkerMetric(String metricName, String help, String type) {
+            this.metricName = metricName;
+            this.help = help;
+            this.type = type;
+        }
+
+        // a negative value means not available
+        abstract Number value(PerformanceStats stats);
+    }
+}
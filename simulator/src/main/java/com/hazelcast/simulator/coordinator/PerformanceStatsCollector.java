@@ -17,6 +17,7 @@ package com.hazelcast.simulator.coordinator;
 
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
 import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import org.HdrHistogram.Histogram;
 
 import java.util.Collections;
 import java.util.Comparator;
@@ -27,20 +28,35 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.hazelcast.simulator.utils.FormatUtils.formatDouble;
 import static com.hazelcast.simulator.utils.FormatUtils.formatLong;
 import static com.hazelcast.simulator.utils.FormatUtils.formatPercentage;
 import static com.hazelcast.simulator.utils.FormatUtils.secondsToHuman;
 import static com.hazelcast.simulator.worker.performance.PerformanceStats.INTERVAL_LATENCY_PERCENTILE;
+import static java.lang.Double.parseDouble;
 import static java.lang.Math.round;
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * Responsible for storing and formatting performance metrics from Simulator workers.
+ *
+ * The interval latency percentiles are calculated on the histograms of all workers merged together, since percentiles
+ * (and averages) of different workers can't be added.
+ *
+ * The interval performance numbers also show the garbage collection time and the allocation rate of a test, so latency spikes
+ * can be correlated with the garbage collector.
+ *
+ * The detailed performance info shows the total throughput and latency of a test, so including the warmup. If all workers have
+ * detected the steady state of a test, it also shows the throughput and latency after the warmup. The steady state latency
+ * contains the intervals from the one in which a worker has detected its steady state, so it can still contain a few
+ * intervals of the detection window; the exact steady state latency is written by the {@code HistogramLogPostProcessor}.
  */
 public class PerformanceStatsCollector {
 
@@ -48,11 +64,52 @@ public class PerformanceStatsCollector {
     public static final int THROUGHPUT_FORMAT_LENGTH = 12;
     public static final int LATENCY_FORMAT_LENGTH = 10;
 
+    static final double[] DEFAULT_PERCENTILES = {50, 99, 99.9, 99.99};
+
+    static final double MAX_PERCENTILE = 100;
     private static final long DISPLAY_LATENCY_AS_MICROS_MAX_VALUE = SECONDS.toMicros(1);
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+    private static final int GC_TIME_FORMAT_LENGTH = 6;
+    private static final int ALLOCATION_RATE_FORMAT_LENGTH = 9;
+
+    private final double[] percentiles;
 
     // holds a map per Worker SimulatorAddress which contains the lastDelta PerformanceStats per testCaseId
     private final ConcurrentMap<SimulatorAddress, WorkerPerformance> workerPerformanceInfoMap
             = new ConcurrentHashMap<SimulatorAddress, WorkerPerformance>();
+    // incremented on every update, so readers can tell if the performance stats have changed
+    private final AtomicLong updateCount = new AtomicLong();
+
+    public PerformanceStatsCollector() {
+        this(DEFAULT_PERCENTILES);
+    }
+
+    public PerformanceStatsCollector(double... percentiles) {
+        for (double percentile : percentiles) {
+            if (percentile <= 0 || percentile > MAX_PERCENTILE) {
+                throw new IllegalArgumentException("Percentile must be in range (0, 100], found: " + percentile);
+            }
+        }
+        this.percentiles = percentiles.clone();
+    }
+
+    /**
+     * Parses a comma separated list of percentiles, e.g. "50,99,99.9".
+     *
+     * @param value the comma separated percentiles
+     * @return the parsed percentiles or the {@link #DEFAULT_PERCENTILES} if the value is {@code null} or empty
+     */
+    public static double[] parsePercentiles(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_PERCENTILES.clone();
+        }
+        String[] items = value.split(",");
+        double[] result = new double[items.length];
+        for (int i = 0; i < items.length; i++) {
+            result[i] = parseDouble(items[i].trim());
+        }
+        return result;
+    }
 
     public void update(SimulatorAddress workerAddress, Map<String, PerformanceStats> performanceStatsMap) {
         WorkerPerformance workerPerformance = workerPerformanceInfoMap.get(workerAddress);
@@ -63,6 +120,38 @@ public class PerformanceStatsCollector {
         }
 
         workerPerformance.updateAll(performanceStatsMap);
+        updateCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of updates received from the workers.
+     *
+     * @return the update count
+     */
+    long getUpdateCount() {
+        return updateCount.get();
+    }
+
+    double[] getPercentiles() {
+        return percentiles.clone();
+    }
+
+    /**
+     * Returns the {@link PerformanceStats} of the last interval of every test, per worker.
+     *
+     * @return the map of workers to the map of test IDs to their last PerformanceStats
+     */
+    Map<SimulatorAddress, Map<String, PerformanceStats>> getLastIntervalPerformanceStats() {
+        Map<SimulatorAddress, Map<String, PerformanceStats>> result
+                = new HashMap<SimulatorAddress, Map<String, PerformanceStats>>();
+        for (Map.Entry<SimulatorAddress, WorkerPerformance> entry : workerPerformanceInfoMap.entrySet()) {
+            Map<String, PerformanceStats> testMap = new HashMap<String, PerformanceStats>();
+            for (Map.Entry<String, TestPerformance> testEntry : entry.getValue().testPerformanceMap.entrySet()) {
+                testMap.put(testEntry.getKey(), testEntry.getValue().lastDelta);
+            }
+            result.put(entry.getKey(), testMap);
+        }
+        return result;
     }
 
     public String formatIntervalPerformanceNumbers(String testId) {
@@ -71,28 +160,146 @@ public class PerformanceStatsCollector {
             return "";
         }
 
-        String latencyUnit = "µs";
-        long latencyAvg = NANOSECONDS.toMicros(round(latest.getIntervalLatencyAvgNanos()));
-        long latency999Percentile = NANOSECONDS.toMicros(latest.getIntervalLatency999PercentileNanos());
-        long latencyMax = NANOSECONDS.toMicros(latest.getIntervalLatencyMaxNanos());
+        Histogram histogram = getIntervalHistogram(testId);
+        long[] latencies = new long[percentiles.length + 2];
+        String[] labels = new String[percentiles.length + 2];
+        labels[0] = "avg";
+        labels[latencies.length - 1] = "max";
+        if (histogram == null) {
+            // no worker shipped a histogram, so fall back to the pre-calculated values
+            latencies = new long[]{
+                    round(latest.getIntervalLatencyAvgNanos()),
+                    latest.getIntervalLatency999PercentileNanos(),
+                    latest.getIntervalLatencyMaxNanos(),
+            };
+            labels = new String[]{"avg", formatPercentileLabel(INTERVAL_LATENCY_PERCENTILE), "max"};
+        } else {
+            latencies[0] = round(histogram.getMean());
+            for (int i = 0; i < percentiles.length; i++) {
+                latencies[i + 1] = histogram.getValueAtPercentile(percentiles[i]);
+                labels[i + 1] = formatPercentileLabel(percentiles[i]);
+            }
+            latencies[latencies.length - 1] = histogram.getMaxValue();
+        }
+
+        StringBuilder sb = new StringBuilder(format("%s ops %s ops/s",
+                formatLong(latest.getOperationCount(), OPERATION_COUNT_FORMAT_LENGTH),
+                formatDouble(latest.getIntervalThroughput(), THROUGHPUT_FORMAT_LENGTH)));
+        appendLatencies(sb, latencies, labels);
+        appendJvmMetrics(sb, latest);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the garbage collection time (the maximum of all workers) and the allocation rate of the test (the sum of all
+     * workers), if the workers have shipped them.
+     */
+    private static void appendJvmMetrics(StringBuilder sb, PerformanceStats stats) {
+        if (stats.getIntervalGcTimeMillis() >= 0) {
+            sb.append(format(" %s ms (gc)", formatLong(stats.getIntervalGcTimeMillis(), GC_TIME_FORMAT_LENGTH)));
+        }
+        if (stats.getIntervalAllocationRate() >= 0) {
+            sb.append(format(" %s MB/s (alloc)",
+                    formatDouble(stats.getIntervalAllocationRate() / BYTES_PER_MEGABYTE, ALLOCATION_RATE_FORMAT_LENGTH)));
+        }
+    }
 
-        if (latencyAvg > DISPLAY_LATENCY_AS_MICROS_MAX_VALUE) {
+    private static void appendLatencies(StringBuilder sb, long[] latenciesNanos, String[] labels) {
+        String latencyUnit = "µs";
+        TimeUnit displayUnit = MICROSECONDS;
+        if (NANOSECONDS.toMicros(latenciesNanos[0]) > DISPLAY_LATENCY_AS_MICROS_MAX_VALUE) {
             latencyUnit = "ms";
-            latencyAvg = MICROSECONDS.toMillis(latencyAvg);
-            latency999Percentile = MICROSECONDS.toMillis(latency999Percentile);
-            latencyMax = MICROSECONDS.toMillis(latencyMax);
+            displayUnit = MILLISECONDS;
         }
+        for (int i = 0; i < latenciesNanos.length; i++) {
+            sb.append(format(" %s %s (%s)",
+                    formatLong(displayUnit.convert(latenciesNanos[i], NANOSECONDS), LATENCY_FORMAT_LENGTH),
+                    latencyUnit,
+                    labels[i]));
+        }
+    }
 
-        return format("%s ops %s ops/s %s %s (avg) %s %s (%sth) %s %s (max)",
-                formatLong(latest.getOperationCount(), OPERATION_COUNT_FORMAT_LENGTH),
-                formatDouble(latest.getIntervalThroughput(), THROUGHPUT_FORMAT_LENGTH),
-                formatLong(latencyAvg, LATENCY_FORMAT_LENGTH),
-                latencyUnit,
-                formatLong(latency999Percentile, LATENCY_FORMAT_LENGTH),
-                latencyUnit,
-                INTERVAL_LATENCY_PERCENTILE,
-                formatLong(latencyMax, LATENCY_FORMAT_LENGTH),
-                latencyUnit);
+    static String formatPercentileLabel(double percentile) {
+        if (percentile == Math.floor(percentile)) {
+            return (long) percentile + "th";
+        }
+        return percentile + "th";
+    }
+
+    /**
+     * Merges the last interval histograms of all workers for the given test.
+     *
+     * @param testId the test to merge the histograms for
+     * @return the merged histogram or {@code null} if no worker has shipped one
+     */
+    Histogram getIntervalHistogram(String testId) {
+        Histogram result = null;
+        for (WorkerPerformance workerPerformance : workerPerformanceInfoMap.values()) {
+            TestPerformance testPerformance = workerPerformance.testPerformanceMap.get(testId);
+            if (testPerformance == null || testPerformance.lastHistogram == null) {
+                continue;
+            }
+            if (result == null) {
+                // an auto resizing histogram, since the value ranges of the worker histograms can differ
+                result = new Histogram(testPerformance.lastHistogram.getNumberOfSignificantValueDigits());
+            }
+            result.add(testPerformance.lastHistogram);
+        }
+        return result;
+    }
+
+    /**
+     * Merges all histograms the workers have shipped for the given test, so the latency distribution of the whole run.
+     *
+     * @param testId the test to merge the histograms for
+     * @return the merged histogram or {@code null} if no worker has shipped one
+     */
+    Histogram getAggregatedHistogram(String testId) {
+        return mergeHistograms(testId, false);
+    }
+
+    /**
+     * Merges all histograms the workers have shipped for the given test after they have detected its steady state.
+     *
+     * @param testId the test to merge the histograms for
+     * @return the merged histogram or {@code null} if no worker has shipped one in its steady state
+     */
+    Histogram getSteadyStateHistogram(String testId) {
+        return mergeHistograms(testId, true);
+    }
+
+    private Histogram mergeHistograms(String testId, boolean steadyState) {
+        Histogram result = null;
+        for (WorkerPerformance workerPerformance : workerPerformanceInfoMap.values()) {
+            Histogram histogram = (steadyState ? workerPerformance.steadyStateHistogramMap
+                    : workerPerformance.aggregatedHistogramMap).get(testId);
+            if (histogram == null) {
+                continue;
+            }
+            if (result == null) {
+                result = new Histogram(histogram.getNumberOfSignificantValueDigits());
+            }
+            synchronized (histogram) {
+                result.add(histogram);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the throughput of the last interval of a test on a single worker.
+     *
+     * @param workerAddress the address of the worker
+     * @param testId        the id of the test
+     * @return the interval throughput or -1 if the worker has not shipped performance stats for the test
+     */
+    double getIntervalThroughput(SimulatorAddress workerAddress, String testId) {
+        WorkerPerformance workerPerformance = workerPerformanceInfoMap.get(workerAddress);
+        if (workerPerformance == null) {
+            return -1;
+        }
+        PerformanceStats performanceStats = workerPerformance.get(testId, false);
+        return performanceStats.isEmpty() ? -1 : performanceStats.getIntervalThroughput();
     }
 
     PerformanceStats get(String testCaseId, boolean aggregated) {
@@ -129,7 +336,11 @@ public class PerformanceStatsCollector {
                 formatPercentage(1, 1),
                 formatLong(totalOperationCount, OPERATION_COUNT_FORMAT_LENGTH),
                 formatDouble(throughput, THROUGHPUT_FORMAT_LENGTH)));
-
+        boolean steadyState = appendSteadyStateThroughput(sb, totalPerformanceStats);
+        appendTotalLatency(sb, "Total latency          ", getAggregatedHistogram(testId));
+        if (steadyState) {
+            appendTotalLatency(sb, "Steady state latency   ", getSteadyStateHistogram(testId));
+        }
 
         for (SimulatorAddress address : sort(agentPerformanceStatsMap.keySet())) {
             PerformanceStats performanceStats = agentPerformanceStatsMap.get(address);
@@ -144,6 +355,39 @@ public class PerformanceStatsCollector {
         return sb.toString();
     }
 
+    private static boolean appendSteadyStateThroughput(StringBuilder sb, PerformanceStats totalPerformanceStats) {
+        long steadyStateOperationCount = totalPerformanceStats.getSteadyStateOperationCount();
+        if (steadyStateOperationCount < 0) {
+            // not all workers have reached the steady state
+            return false;
+        }
+        sb.append(format("Steady state throughput %s%% %s ops %s ops/s\n",
+                formatPercentage(steadyStateOperationCount, totalPerformanceStats.getOperationCount()),
+                formatLong(steadyStateOperationCount, OPERATION_COUNT_FORMAT_LENGTH),
+                formatDouble(totalPerformanceStats.getSteadyStateThroughput(), THROUGHPUT_FORMAT_LENGTH)));
+        return true;
+    }
+
+    private void appendTotalLatency(StringBuilder sb, String title, Histogram histogram) {
+        if (histogram == null || histogram.getTotalCount() == 0) {
+            return;
+        }
+        long[] latencies = new long[percentiles.length + 2];
+        String[] labels = new String[percentiles.length + 2];
+        latencies[0] = round(histogram.getMean());
+        labels[0] = "avg";
+        for (int i = 0; i < percentiles.length; i++) {
+            latencies[i + 1] = histogram.getValueAtPercentile(percentiles[i]);
+            labels[i + 1] = formatPercentileLabel(percentiles[i]);
+        }
+        latencies[latencies.length - 1] = histogram.getMaxValue();
+        labels[latencies.length - 1] = "max";
+
+        sb.append(title);
+        appendLatencies(sb, latencies, labels);
+        sb.append('\n');
+    }
+
     void calculatePerformanceStats(String testId,
                                    PerformanceStats totalPerformanceStats,
                                    Map<SimulatorAddress, PerformanceStats> agentPerformanceStatsMap) {
@@ -184,6 +428,12 @@ public class PerformanceStatsCollector {
         // contains the performance per test. Key is test-id.
         private final ConcurrentMap<String, TestPerformance> testPerformanceMap
                 = new ConcurrentHashMap<String, TestPerformance>();
+        // contains the merged interval histograms per test. Key is test-id.
+        private final ConcurrentMap<String, Histogram> aggregatedHistogramMap
+                = new ConcurrentHashMap<String, Histogram>();
+        // contains the merged interval histograms per test since the worker has detected the steady state. Key is test-id.
+        private final ConcurrentMap<String, Histogram> steadyStateHistogramMap
+                = new ConcurrentHashMap<String, Histogram>();
 
         private void updateAll(Map<String, PerformanceStats> deltas) {
             for (Map.Entry<String, PerformanceStats> entry : deltas.entrySet()) {
@@ -192,14 +442,21 @@ public class PerformanceStatsCollector {
         }
 
         private void update(String testId, PerformanceStats delta) {
+            Histogram histogram = delta.getIntervalHistogram();
+            if (histogram != null) {
+                aggregate(aggregatedHistogramMap, testId, histogram);
+                if (delta.getSteadyStateOperationCount() >= 0) {
+                    aggregate(steadyStateHistogramMap, testId, histogram);
+                }
+            }
             for (; ; ) {
                 TestPerformance current = testPerformanceMap.get(testId);
                 if (current == null) {
-                    if (testPerformanceMap.putIfAbsent(testId, new TestPerformance(delta, delta)) == null) {
+                    if (testPerformanceMap.putIfAbsent(testId, new TestPerformance(delta, delta, histogram)) == null) {
                         return;
                     }
                 } else {
-                    TestPerformance update = current.update(delta);
+                    TestPerformance update = current.update(delta, histogram);
                     if (testPerformanceMap.replace(testId, current, update)) {
                         return;
                     }
@@ -207,6 +464,18 @@ public class PerformanceStatsCollector {
             }
         }
 
+        private void aggregate(ConcurrentMap<String, Histogram> histogramMap, String testId, Histogram histogram) {
+            Histogram aggregated = histogramMap.get(testId);
+            if (aggregated == null) {
+                Histogram newHistogram = new Histogram(histogram.getNumberOfSignificantValueDigits());
+                Histogram found = histogramMap.putIfAbsent(testId, newHistogram);
+                aggregated = found == null ? newHistogram : found;
+            }
+            synchronized (aggregated) {
+                aggregated.add(histogram);
+            }
+        }
+
         private PerformanceStats get(String testId, boolean aggregated) {
             TestPerformance testPerformance = testPerformanceMap.get(testId);
             if (testPerformance == null) {
@@ -222,16 +491,19 @@ public class PerformanceStatsCollector {
     private final class TestPerformance {
         private final PerformanceStats aggregated;
         private final PerformanceStats lastDelta;
+        // decoded interval histogram of the lastDelta; null if the worker didn't ship one
+        private final Histogram lastHistogram;
 
-        private TestPerformance(PerformanceStats aggregated, PerformanceStats lastDelta) {
+        private TestPerformance(PerformanceStats aggregated, PerformanceStats lastDelta, Histogram lastHistogram) {
             this.aggregated = aggregated;
             this.lastDelta = lastDelta;
+            this.lastHistogram = lastHistogram;
         }
 
-        private TestPerformance update(PerformanceStats delta) {
+        private TestPerformance update(PerformanceStats delta, Histogram histogram) {
             PerformanceStats newAggregated = new PerformanceStats(aggregated);
             newAggregated.add(delta, false);
-            return new TestPerformance(newAggregated, delta);
+            return new TestPerformance(newAggregated, delta, histogram);
         }
     }
 }
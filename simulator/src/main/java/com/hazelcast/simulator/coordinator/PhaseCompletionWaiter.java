@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.coordinator;
+
+import com.hazelcast.simulator.coordinator.operations.FailureOperation;
+import com.hazelcast.simulator.protocol.ResponseCallback;
+import com.hazelcast.simulator.protocol.ResponseFuture;
+
+import java.util.Collection;
+
+import static java.lang.System.currentTimeMillis;
+
+/**
+ * Waits for the responses of the workers executing a test phase.
+ *
+ * The waiting thread is woken up as soon as the last worker has responded or a failure has been reported, so the next phase
+ * can start immediately instead of on the next poll.
+ */
+final class PhaseCompletionWaiter implements ResponseCallback, FailureListener {
+
+    private final int expectedResponses;
+
+    // guarded by this
+    private int responses;
+    private long lastResponseNanos;
+    private boolean failureReported;
+
+    PhaseCompletionWaiter(Collection<ResponseFuture> futures) {
+        this.expectedResponses = futures.size();
+        for (ResponseFuture future : futures) {
+            future.andThen(this);
+        }
+    }
+
+    /**
+     * Waits until all workers have responded, a failure has been reported or the timeout has passed.
+     *
+     * @param timeoutMillis the maximum time to wait in milliseconds
+     * @return {@code true} if all workers have responded, {@code false} otherwise
+     */
+    synchronized boolean await(long timeoutMillis) {
+        long deadlineMillis = currentTimeMillis() + timeoutMillis;
+        try {
+            while (responses < expectedResponses && !failureReported) {
+                long remainingMillis = deadlineMillis - currentTimeMillis();
+                if (remainingMillis <= 0) {
+                    break;
+                }
+                wait(remainingMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // a reported failure is only a reason to wake up; the caller decides if it should abort
+        failureReported = false;
+        return responses == expectedResponses;
+    }
+
+    synchronized int getResponses() {
+        return responses;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} of the last response.
+     *
+     * @return the time of the last response or 0 if no worker has responded yet
+     */
+    synchronized long getLastResponseNanos() {
+        return lastResponseNanos;
+    }
+
+    @Override
+    public void onResponse(String response) {
+        responseReceived();
+    }
+
+    @Override
+    public void onFailure(Throwable cause) {
+        // a failed response also completes the phase for that worker; the failure itself is reported to the FailureCollector
+        responseReceived();
+    }
+
+    @Override
+    public synchronized void onFailure(FailureOperation failure, boolean isFinishedFailure, boolean isCritical) {
+        failureReported = true;
+        notifyAll();
+    }
+
+    private synchronized void responseReceived() {
+        responses++;
+        lastResponseNanos = System.nanoTime();
+        notifyAll();
+    }
+}
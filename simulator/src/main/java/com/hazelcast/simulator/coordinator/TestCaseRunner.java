@@ -21,6 +21,7 @@ import com.hazelcast.simulator.coordinator.registry.Registry;
 import com.hazelcast.simulator.coordinator.registry.TestData;
 import com.hazelcast.simulator.coordinator.registry.WorkerData;
 import com.hazelcast.simulator.protocol.CoordinatorClient;
+import com.hazelcast.simulator.protocol.ResponseFuture;
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
 import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
 import com.hazelcast.simulator.utils.BashCommand;
@@ -35,7 +36,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 
 import static com.hazelcast.simulator.common.TestPhase.GLOBAL_PREPARE;
 import static com.hazelcast.simulator.common.TestPhase.GLOBAL_TEARDOWN;
@@ -52,7 +52,6 @@ import static com.hazelcast.simulator.utils.CommonUtils.await;
 import static com.hazelcast.simulator.utils.CommonUtils.getElapsedSeconds;
 import static com.hazelcast.simulator.utils.CommonUtils.rethrow;
 import static com.hazelcast.simulator.utils.CommonUtils.sleepSeconds;
-import static com.hazelcast.simulator.utils.CommonUtils.sleepUntilMs;
 import static com.hazelcast.simulator.utils.FileUtils.getConfigurationFile;
 import static com.hazelcast.simulator.utils.FormatUtils.formatPercentage;
 import static com.hazelcast.simulator.utils.FormatUtils.padRight;
@@ -92,6 +91,7 @@ public final class TestCaseRunner {
     private final WorkerData globalTarget;
     private final Registry registry;
     private final CoordinatorParameters coordinatorParameters;
+    private final GlobalRateController globalRateController;
 
     @SuppressWarnings("checkstyle:parameternumber")
     public TestCaseRunner(TestData test,
@@ -124,6 +124,16 @@ public final class TestCaseRunner {
         } else {
             this.logRunPhaseIntervalSeconds = RUN_PHASE_LOG_INTERVAL_SECONDS;
         }
+        this.globalRateController = newGlobalRateController(performanceStatsCollector);
+    }
+
+    private GlobalRateController newGlobalRateController(PerformanceStatsCollector performanceStatsCollector) {
+        double globalRatePerSecond = GlobalRateController.getGlobalRatePerSecond(testCase);
+        if (globalRatePerSecond <= 0) {
+            return null;
+        }
+        return new GlobalRateController(testCase.getId(), globalRatePerSecond, targets, client, registry,
+                performanceStatsCollector);
     }
 
     public boolean run() {
@@ -144,6 +154,7 @@ public final class TestCaseRunner {
             throw rethrow(e);
         } finally {
             test.setCompletedStatus(hasFailure() ? FAILED : SUCCESS);
+            logPhaseTransitionLatencies();
         }
 
         return test.getCompletedStatus() == SUCCESS;
@@ -176,24 +187,27 @@ public final class TestCaseRunner {
 
     private void createTest() {
         log("Starting Test initialization");
+        long startedNanos = System.nanoTime();
         invokeOnTargets(new CreateTestOperation(testCase));
-        log("Completed Test initialization");
+        // includes the generation of the TimeStepRunner classes on the workers
+        log(format("Completed Test initialization (%.3f ms)",
+                (System.nanoTime() - startedNanos) / (double) MILLISECONDS.toNanos(1)));
     }
 
     private void invokeOnTargets(SimulatorOperation op) {
-        Map<WorkerData, Future> futures = submitToTargets(false, op);
+        Map<WorkerData, ResponseFuture> futures = submitToTargets(false, op);
         awaitCompletion(futures);
     }
 
-    private Map<WorkerData, Future> submitToTargets(boolean singleTarget, SimulatorOperation op) {
-        Map<WorkerData, Future> futures = new HashMap<WorkerData, Future>();
+    private Map<WorkerData, ResponseFuture> submitToTargets(boolean singleTarget, SimulatorOperation op) {
+        Map<WorkerData, ResponseFuture> futures = new HashMap<WorkerData, ResponseFuture>();
 
         if (singleTarget) {
-            Future f = client.submit(globalTarget.getAddress(), op);
+            ResponseFuture f = client.submit(globalTarget.getAddress(), op);
             futures.put(globalTarget, f);
         } else {
             for (WorkerData worker : targets) {
-                Future f = client.submit(worker.getAddress(), op);
+                ResponseFuture f = client.submit(worker.getAddress(), op);
                 futures.put(worker, f);
             }
         }
@@ -201,9 +215,9 @@ public final class TestCaseRunner {
         return futures;
     }
 
-    private void awaitCompletion(Map<WorkerData, Future> futures) {
-        for (Map.Entry<WorkerData, Future> entry : futures.entrySet()) {
-            Future f = entry.getValue();
+    private void awaitCompletion(Map<WorkerData, ResponseFuture> futures) {
+        for (Map.Entry<WorkerData, ResponseFuture> entry : futures.entrySet()) {
+            ResponseFuture f = entry.getValue();
             try {
                 f.get();
             } catch (InterruptedException e) {
@@ -222,10 +236,10 @@ public final class TestCaseRunner {
         log("Starting Test " + phase.desc());
         test.setTestPhase(phase);
 
-        Map<WorkerData, Future> futures = submitToTargets(
+        Map<WorkerData, ResponseFuture> futures = submitToTargets(
                 phase.isGlobal(), new StartPhaseOperation(phase, testCase.getId()));
 
-        waitForPhaseCompletion(phase, futures);
+        waitForPhaseCompletion(phase, futures, true);
         log("Completed Test " + phase.desc());
         waitForGlobalTestPhaseCompletion(phase);
     }
@@ -238,7 +252,7 @@ public final class TestCaseRunner {
         }
 
         test.setTestPhase(RUN);
-        Map<WorkerData, Future> futures = startRun();
+        Map<WorkerData, ResponseFuture> futures = startRun();
 
         long startMs = currentTimeMillis();
 
@@ -255,46 +269,70 @@ public final class TestCaseRunner {
             timeoutMs = startMs + durationMs;
         }
 
-        long nextSleepUntilMs = startMs;
-        int iteration = 0;
-        for (; ; ) {
-            nextSleepUntilMs += SECONDS.toMillis(1);
-            sleepUntilMs(nextSleepUntilMs);
-
-            if (hasFailure()) {
-                log("Critical failure detected, aborting RUN phase");
-                break;
-            }
-
-            long nowMs = currentTimeMillis();
-            if (nowMs > timeoutMs || isAllDone(futures) || test.isStopRequested()) {
-                log("Test finished run");
-                break;
-            }
-
-            iteration++;
-            if (iteration % logRunPhaseIntervalSeconds == 0) {
-                logProgress(nowMs - startMs, durationMs);
-            }
-        }
+        boolean allDone = awaitRun(futures, startMs, durationMs, timeoutMs);
 
         stopRun();
 
-        waitForPhaseCompletion(RUN, futures);
+        // if the workers completed the run by themselves, the phase transition has been recorded already
+        waitForPhaseCompletion(RUN, futures, !allDone);
 
         logFinalPerformanceInfo(startMs);
 
         waitForGlobalTestPhaseCompletion(RUN);
     }
 
-    private boolean isAllDone(Map<WorkerData, Future> futures) {
-        for (Future f : futures.values()) {
-            if (!f.isDone()) {
-                return false;
+    private boolean awaitRun(Map<WorkerData, ResponseFuture> futures, long startMs, long durationMs, long timeoutMs) {
+        PhaseCompletionWaiter waiter = new PhaseCompletionWaiter(futures.values());
+        failureCollector.addListener(waiter);
+        try {
+            long nextSleepUntilMs = startMs + SECONDS.toMillis(1);
+            int iteration = 0;
+            for (; ; ) {
+                // wakes up early if all workers have completed the run or if a failure is reported
+                boolean allDone = waiter.await(nextSleepUntilMs - currentTimeMillis());
+
+                if (hasFailure()) {
+                    log("Critical failure detected, aborting RUN phase");
+                    return false;
+                }
+
+                long nowMs = currentTimeMillis();
+                if (allDone) {
+                    test.recordPhaseTransitionLatency(RUN, System.nanoTime() - waiter.getLastResponseNanos());
+                }
+                if (nowMs > timeoutMs || allDone || test.isStopRequested()) {
+                    log("Test finished run");
+                    return allDone;
+                }
+
+                if (nowMs >= nextSleepUntilMs) {
+                    nextSleepUntilMs += SECONDS.toMillis(1);
+                    iteration++;
+                    if (iteration % logRunPhaseIntervalSeconds == 0) {
+                        logProgress(nowMs - startMs, durationMs);
+                    }
+                    rebalanceGlobalRate(iteration);
+                }
             }
+        } finally {
+            failureCollector.removeListener(waiter);
+        }
+    }
+
+    /**
+     * Rebalances the global rate every second, so a killed worker is noticed quickly. The throughputs of the workers are only
+     * taken into account once per performance monitor interval, and not in the first interval since the workers have not
+     * reached their rate yet.
+     */
+    private void rebalanceGlobalRate(int elapsedSeconds) {
+        if (globalRateController == null) {
+            return;
         }
 
-        return true;
+        boolean refreshThroughputs = performanceMonitorIntervalSeconds > 0
+                && elapsedSeconds > performanceMonitorIntervalSeconds
+                && elapsedSeconds % performanceMonitorIntervalSeconds == 0;
+        globalRateController.rebalance(refreshThroughputs);
     }
 
     private void logFinalPerformanceInfo(long startMs) {
@@ -318,12 +356,17 @@ public final class TestCaseRunner {
      * Starts running the test. This call is asynchronous. It will not wait for the running to complete. It will
      * return a map of futures (one for each target worker) that can be used to sync on completion.
      */
-    private Map<WorkerData, Future> startRun() {
+    private Map<WorkerData, ResponseFuture> startRun() {
         log(format("Starting run on %s workers", targetType.toString(targetCount)));
         log(format("Test run using workers %s", WorkerData.toAddressString(targets)));
 
         recordTimestamp("start");
 
+        if (globalRateController != null) {
+            // the workers need their share of the global rate before they start running
+            globalRateController.rebalance(false);
+        }
+
         return submitToTargets(false, new StartPhaseOperation(RUN, testCase.getId()));
     }
 
@@ -338,10 +381,10 @@ public final class TestCaseRunner {
     private void stopRun() {
         log("Stopping test");
 
-        Map<WorkerData, Future> futures = submitToTargets(false, new StopRunOperation(testCase.getId()));
+        Map<WorkerData, ResponseFuture> futures = submitToTargets(false, new StopRunOperation(testCase.getId()));
 
         try {
-            waitForPhaseCompletion(RUN, futures);
+            waitForPhaseCompletion(RUN, futures, false);
             log("Stopping test completed");
         } catch (TestCaseAbortedException e) {
             log(e.getMessage());
@@ -367,32 +410,41 @@ public final class TestCaseRunner {
         LOGGER.info(prefix + msg);
     }
 
-    private void waitForPhaseCompletion(TestPhase testPhase, Map<WorkerData, Future> futures) {
-        int completedWorkers = 0;
+    private void waitForPhaseCompletion(TestPhase testPhase, Map<WorkerData, ResponseFuture> futures,
+                                        boolean recordTransition) {
         int expectedWorkers = futures.size();
 
-        long started = System.nanoTime();
-        while (completedWorkers < expectedWorkers) {
-            sleepSeconds(1);
+        PhaseCompletionWaiter waiter = new PhaseCompletionWaiter(futures.values());
+        failureCollector.addListener(waiter);
+        try {
+            long started = System.nanoTime();
+            for (; ; ) {
+                boolean completed = waiter.await(SECONDS.toMillis(1));
 
-            if (hasFailure()) {
-                throw new TestCaseAbortedException(
-                        format("Waiting for %s completion aborted (critical failure)", testPhase.desc()), testPhase);
-            }
+                if (hasFailure()) {
+                    throw new TestCaseAbortedException(
+                            format("Waiting for %s completion aborted (critical failure)", testPhase.desc()), testPhase);
+                }
 
-            completedWorkers = 0;
-            for (Future f : futures.values()) {
-                if (f.isDone()) {
-                    completedWorkers++;
+                if (completed) {
+                    break;
                 }
+
+                logMissingWorkers(testPhase, waiter.getResponses(), expectedWorkers, started, futures);
             }
+        } finally {
+            failureCollector.removeListener(waiter);
+        }
 
-            logMissingWorkers(testPhase, completedWorkers, expectedWorkers, started, futures);
+        if (recordTransition) {
+            // the time between the response of the last worker and the moment the coordinator noticed it
+            long transitionNanos = expectedWorkers == 0 ? 0 : System.nanoTime() - waiter.getLastResponseNanos();
+            test.recordPhaseTransitionLatency(testPhase, transitionNanos);
         }
     }
 
     private void logMissingWorkers(TestPhase testPhase, int completedWorkers, int expectedWorkers,
-                                   long started, Map<WorkerData, Future> futures) {
+                                   long started, Map<WorkerData, ResponseFuture> futures) {
         long elapsed = getElapsedSeconds(started);
         if (elapsed % WAIT_FOR_PHASE_COMPLETION_LOG_INTERVAL_SECONDS != 0) {
             return;
@@ -406,7 +458,7 @@ public final class TestCaseRunner {
 
         // verbose logging of missing workers
         List<SimulatorAddress> missingWorkers = new ArrayList<SimulatorAddress>();
-        for (Map.Entry<WorkerData, Future> entry : futures.entrySet()) {
+        for (Map.Entry<WorkerData, ResponseFuture> entry : futures.entrySet()) {
             if (!entry.getValue().isDone()) {
                 missingWorkers.add(entry.getKey().getAddress());
             }
@@ -437,6 +489,22 @@ public final class TestCaseRunner {
         return latch;
     }
 
+    private void logPhaseTransitionLatencies() {
+        Map<TestPhase, Long> latencies = test.getPhaseTransitionLatencyNanos();
+        if (latencies.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder("Phase transition latency");
+        long totalNanos = 0;
+        for (Map.Entry<TestPhase, Long> entry : latencies.entrySet()) {
+            totalNanos += entry.getValue();
+            sb.append(format(" %s %.3f ms,", entry.getKey().desc(), entry.getValue() / (double) MILLISECONDS.toNanos(1)));
+        }
+        sb.append(format(" total %.3f ms", totalNanos / (double) MILLISECONDS.toNanos(1)));
+        log(sb.toString());
+    }
+
     private void log(String msg) {
         LOGGER.info(prefix + msg);
     }
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.coordinator;
+
+import org.HdrHistogram.Histogram;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import static com.hazelcast.simulator.coordinator.PerformanceStatsCollector.MAX_PERCENTILE;
+import static com.hazelcast.simulator.coordinator.PerformanceStatsCollector.formatPercentileLabel;
+import static com.hazelcast.simulator.utils.FileUtils.writeText;
+import static java.lang.Math.min;
+import static java.lang.Math.round;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Searches the highest rate at which a test keeps a latency percentile under a SLA.
+ *
+ * Every step runs the test at a fixed rate and measures the latency over the whole run. A step passes if the latency at the
+ * configured percentile is not larger than the SLA and the measured throughput is close to the rate. The {@link Strategy#STEP}
+ * strategy increases the rate linearly until a step fails. The {@link Strategy#BINARY} strategy doubles the rate until a step
+ * fails and then bisects between the last passing and the first failing rate.
+ */
+class ThroughputSearch {
+
+    /**
+     * The strategy to select the rate of the next step.
+     */
+    public enum Strategy {
+        STEP,
+        BINARY
+    }
+
+    /**
+     * Runs a single step of the search.
+     */
+    interface StepRunner {
+
+        /**
+         * Runs the test at the given rate.
+         *
+         * @param ratePerSecond the total rate of all load generating workers
+         * @return the result of the step
+         */
+        Step run(long ratePerSecond);
+    }
+
+    // the measured throughput can be a bit lower than the rate, e.g. due to the randomized first call of each thread
+    static final double MIN_THROUGHPUT_RATIO = 0.9;
+
+    private static final int MEDIAN = 50;
+    private static final Logger LOGGER = Logger.getLogger(ThroughputSearch.class);
+
+    private final List<Step> steps = new ArrayList<Step>();
+    private final Strategy strategy;
+    private final long startRate;
+    private final long maxRate;
+    private final long stepRate;
+    private final double precision;
+    private final double percentile;
+    private final long slaNanos;
+
+    @SuppressWarnings("checkstyle:parameternumber")
+    ThroughputSearch(Strategy strategy, long startRate, long maxRate, long stepRate, double precision,
+                     double percentile, long slaNanos) {
+        if (startRate <= 0 || maxRate < startRate) {
+            throw new IllegalArgumentException(format("Invalid rate range [%d, %d]", startRate, maxRate));
+        }
+        if (stepRate <= 0) {
+            throw new IllegalArgumentException("stepRate must be larger than 0, found: " + stepRate);
+        }
+        if (precision <= 0 || precision >= 1) {
+            throw new IllegalArgumentException("precision must be in range (0, 1), found: " + precision);
+        }
+        if (percentile <= 0 || percentile > MAX_PERCENTILE) {
+            throw new IllegalArgumentException("percentile must be in range (0, 100], found: " + percentile);
+        }
+        if (slaNanos <= 0) {
+            throw new IllegalArgumentException("sla must be larger than 0, found: " + slaNanos);
+        }
+        this.strategy = strategy;
+        this.startRate = startRate;
+        this.maxRate = maxRate;
+        this.stepRate = stepRate;
+        this.precision = precision;
+        this.percentile = percentile;
+        this.slaNanos = slaNanos;
+    }
+
+    /**
+     * Runs the search.
+     *
+     * @param runner the {@link StepRunner} to run the test at a given rate
+     * @return the highest passing rate or 0 if no rate has passed
+     */
+    long search(StepRunner runner) {
+        long maxSustainableRate = strategy == Strategy.STEP ? stepSearch(runner) : binarySearch(runner);
+        LOGGER.info(format("Maximum sustainable rate: %d ops/s (%s latency <= %d µs)",
+                maxSustainableRate, formatPercentileLabel(percentile), NANOSECONDS.toMicros(slaNanos)));
+        return maxSustainableRate;
+    }
+
+    private long stepSearch(StepRunner runner) {
+        long maxSustainableRate = 0;
+        for (long rate = startRate; rate <= maxRate; rate += stepRate) {
+            if (!runStep(runner, rate)) {
+                break;
+            }
+            maxSustainableRate = rate;
+        }
+        return maxSustainableRate;
+    }
+
+    private long binarySearch(StepRunner runner) {
+        long low = 0;
+        long high = startRate;
+        while (runStep(runner, high)) {
+            low = high;
+            if (high == maxRate) {
+                return high;
+            }
+            high = min(high * 2, maxRate);
+        }
+
+        // the rate 'low' has passed and the rate 'high' has failed
+        while (high - low > precision * high) {
+            long rate = (low + high) / 2;
+            if (rate == low) {
+                break;
+            }
+            if (runStep(runner, rate)) {
+                low = rate;
+            } else {
+                high = rate;
+            }
+        }
+        return low;
+    }
+
+    private boolean runStep(StepRunner runner, long rate) {
+        LOGGER.info(format("Throughput search: running step %d at %d ops/s", steps.size() + 1, rate));
+
+        Step step = runner.run(rate);
+        Histogram histogram = step.histogram;
+        step.passed = histogram != null
+                && histogram.getValueAtPercentile(percentile) <= slaNanos
+                && step.throughput >= rate * MIN_THROUGHPUT_RATIO;
+        steps.add(step);
+
+        LOGGER.info(format("Throughput search: %s", formatStep(step)));
+        return step.passed;
+    }
+
+    List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Writes the rate-vs-latency table of all steps, sorted by rate, as CSV file.
+     *
+     * @param file the file to write to
+     */
+    void writeTable(File file) {
+        List<Step> sorted = new ArrayList<Step>(steps);
+        Collections.sort(sorted, new Comparator<Step>() {
+            @Override
+            public int compare(Step o1, Step o2) {
+                return o1.ratePerSecond < o2.ratePerSecond ? -1 : (o1.ratePerSecond == o2.ratePerSecond ? 0 : 1);
+            }
+        });
+
+        StringBuilder sb = new StringBuilder(format("rate(ops/s),throughput(ops/s),avg(us),%s(us),%s(us),max(us),passed",
+                formatPercentileLabel(MEDIAN), formatPercentileLabel(percentile))).append('\n');
+        for (Step step : sorted) {
+            Histogram histogram = step.histogram;
+            sb.append(step.ratePerSecond).append(',').append(format(Locale.US, "%.1f", step.throughput));
+            if (histogram == null) {
+                sb.append(",,,,");
+            } else {
+                sb.append(',').append(NANOSECONDS.toMicros(round(histogram.getMean())))
+                        .append(',').append(NANOSECONDS.toMicros(histogram.getValueAtPercentile(MEDIAN)))
+                        .append(',').append(NANOSECONDS.toMicros(histogram.getValueAtPercentile(percentile)))
+                        .append(',').append(NANOSECONDS.toMicros(histogram.getMaxValue()));
+            }
+            sb.append(',').append(step.passed).append('\n');
+        }
+        writeText(sb.toString(), file);
+    }
+
+    private String formatStep(Step step) {
+        Histogram histogram = step.histogram;
+        String latency = histogram == null
+                ? "no latency information"
+                : format("%s latency %d µs", formatPercentileLabel(percentile),
+                NANOSECONDS.toMicros(histogram.getValueAtPercentile(percentile)));
+        return format("rate %d ops/s, throughput %.1f ops/s, %s, %s",
+                step.ratePerSecond, step.throughput, latency, step.passed ? "passed" : "failed");
+    }
+
+    /**
+     * The result of running the test at a single rate.
+     */
+    static final class Step {
+        private final long ratePerSecond;
+        private final double throughput;
+        private final Histogram histogram;
+        private boolean passed;
+
+        /**
+         * Creates a Step.
+         *
+         * @param ratePerSecond the rate the test was running at
+         * @param throughput    the measured throughput
+         * @param histogram     the latency histogram of the whole run or {@code null} if no latencies have been measured
+         */
+        Step(long ratePerSecond, double throughput, Histogram histogram) {
+            this.ratePerSecond = ratePerSecond;
+            this.throughput = throughput;
+            this.histogram = histogram;
+        }
+
+        long getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        boolean isPassed() {
+            return passed;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.coordinator.operations;
+
+import com.hazelcast.simulator.coordinator.registry.WorkerQuery;
+import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
+
+/**
+ * Fetches the performance history of a test from the workers.
+ *
+ * The history is only available if the workers sample the performance, see the
+ * WORKER_PERFORMANCE_MONITOR_SAMPLE_INTERVAL_MILLIS property.
+ */
+public class RcPerformanceHistoryOperation implements SimulatorOperation {
+
+    private String testId;
+    private WorkerQuery workerQuery;
+    private long sinceMillis;
+
+    public RcPerformanceHistoryOperation(String testId) {
+        this(testId, new WorkerQuery(), 0);
+    }
+
+    public RcPerformanceHistoryOperation(String testId, WorkerQuery workerQuery, long sinceMillis) {
+        this.testId = testId;
+        this.workerQuery = workerQuery;
+        this.sinceMillis = sinceMillis;
+    }
+
+    public String getTestId() {
+        return testId;
+    }
+
+    public WorkerQuery getWorkerQuery() {
+        return workerQuery;
+    }
+
+    public long getSinceMillis() {
+        return sinceMillis;
+    }
+}
@@ -19,6 +19,11 @@ import com.hazelcast.simulator.common.TestCase;
 import com.hazelcast.simulator.common.TestPhase;
 import com.hazelcast.simulator.coordinator.TestSuite;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import static com.hazelcast.simulator.coordinator.registry.TestData.CompletedStatus.FAILED;
 import static com.hazelcast.simulator.coordinator.registry.TestData.CompletedStatus.IN_PROGRESS;
 import static com.hazelcast.simulator.coordinator.registry.TestData.CompletedStatus.SUCCESS;
@@ -38,6 +43,7 @@ public class TestData {
     private volatile TestPhase testPhase;
     private volatile boolean stopRequested;
     private volatile CompletedStatus completedStatus = IN_PROGRESS;
+    private final ConcurrentMap<TestPhase, Long> phaseTransitionLatencyNanos = new ConcurrentHashMap<TestPhase, Long>();
 
     TestData(int testIndex,  TestCase testCase, TestSuite testSuite) {
         this.testIndex = testIndex;
@@ -69,6 +75,26 @@ public class TestData {
         this.testPhase = testPhase;
     }
 
+    /**
+     * Records the latency of a phase transition: the time between the response of the last worker for a test phase and
+     * the moment the coordinator continued with the next phase.
+     *
+     * @param testPhase    the completed test phase
+     * @param latencyNanos the latency in nanoseconds
+     */
+    public void recordPhaseTransitionLatency(TestPhase testPhase, long latencyNanos) {
+        phaseTransitionLatencyNanos.put(testPhase, latencyNanos);
+    }
+
+    /**
+     * Returns the recorded phase transition latencies.
+     *
+     * @return a map with the latency in nanoseconds per completed test phase, in the order of the test phases
+     */
+    public Map<TestPhase, Long> getPhaseTransitionLatencyNanos() {
+        return new EnumMap<TestPhase, Long>(phaseTransitionLatencyNanos);
+    }
+
     public int getTestIndex() {
         return testIndex;
     }
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.probes;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * A {@link Probe} which records the latencies in a HdrHistogram.
+ */
+public interface HistogramProbe extends Probe {
+
+    /**
+     * Returns the latencies recorded since the last call and starts a new interval.
+     *
+     * This method is not thread-safe; it should only be called by a single thread.
+     *
+     * @return the {@link Histogram} of the interval
+     */
+    Histogram getIntervalHistogram();
+}
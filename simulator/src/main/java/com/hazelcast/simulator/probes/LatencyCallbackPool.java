@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.probes;
+
+import com.hazelcast.core.ExecutionCallback;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A pool of recyclable {@link ExecutionCallback} instances which record the latency of an asynchronous call into a
+ * {@link Probe}.
+ *
+ * Creating an anonymous callback per asynchronous call causes a lot of garbage on the load generator when millions of calls
+ * per second are made. A callback of this pool carries the probe and the start time of the call and returns itself to the
+ * pool when the call has completed, so the pool only grows to the maximum number of concurrent calls.
+ *
+ * The latency is measured from the given start time, so if the start time of the metronome is passed, the latency includes the
+ * time the call was delayed and coordinated omission is prevented.
+ *
+ * A pool should be owned by a single thread, e.g. by putting it in the thread state of a timestep method:
+ * <pre>
+ *     &#064;TimeStep
+ *     public void getAsync(ThreadState state, Probe probe, &#064;StartNanos long startNanos) {
+ *         map.getAsync(state.randomKey()).andThen(state.callbacks.&lt;String&gt;acquire(probe, startNanos));
+ *     }
+ *
+ *     public class ThreadState extends BaseThreadState {
+ *         final LatencyCallbackPool callbacks = new LatencyCallbackPool();
+ *     }
+ * </pre>
+ * The callbacks are acquired by the owning thread, but they can be completed by any thread. Each callback should be completed
+ * exactly once.
+ */
+public final class LatencyCallbackPool {
+
+    // the callbacks which have been completed by any thread
+    private final AtomicReference<LatencyCallback> completed = new AtomicReference<LatencyCallback>();
+    // the callbacks which are available for the owning thread
+    private LatencyCallback free;
+    private int size;
+
+    /**
+     * Acquires a callback which records the latency of a call into the given probe when the call completes.
+     *
+     * This method should only be called by the owning thread.
+     *
+     * @param probe      the Probe to record the latency in
+     * @param startNanos the start time of the call from {@link System#nanoTime()}
+     * @param <V>        the type of the response of the call
+     * @return the callback
+     */
+    @SuppressWarnings("unchecked")
+    public <V> ExecutionCallback<V> acquire(Probe probe, long startNanos) {
+        LatencyCallback callback = free;
+        if (callback == null) {
+            // take all callbacks completed so far at once, so there is no CAS per acquire
+            callback = completed.getAndSet(null);
+            if (callback == null) {
+                callback = new LatencyCallback(this);
+                size++;
+            }
+        }
+        free = callback.next;
+
+        callback.next = null;
+        callback.probe = probe;
+        callback.startNanos = startNanos;
+        return (ExecutionCallback<V>) callback;
+    }
+
+    /**
+     * Returns the number of callbacks created by this pool.
+     *
+     * This method should only be called by the owning thread.
+     *
+     * @return the number of callbacks
+     */
+    public int size() {
+        return size;
+    }
+
+    private void release(LatencyCallback callback) {
+        for (; ; ) {
+            LatencyCallback head = completed.get();
+            callback.next = head;
+            if (completed.compareAndSet(head, callback)) {
+                return;
+            }
+        }
+    }
+
+    private static final class LatencyCallback implements ExecutionCallback<Object> {
+
+        private final LatencyCallbackPool pool;
+        private Probe probe;
+        private long startNanos;
+        private LatencyCallback next;
+
+        private LatencyCallback(LatencyCallbackPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void onResponse(Object response) {
+            complete();
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            complete();
+        }
+
+        private void complete() {
+            long latencyNanos = System.nanoTime() - startNanos;
+            Probe callProbe = probe;
+            probe = null;
+            // the fields are read before the callback is released, since the owning thread can acquire it right away
+            pool.release(this);
+            callProbe.recordValue(latencyNanos);
+        }
+    }
+}
@@ -15,7 +15,9 @@
  */
 package com.hazelcast.simulator.probes.impl;
 
+import com.hazelcast.simulator.probes.HistogramProbe;
 import com.hazelcast.simulator.probes.Probe;
+import org.HdrHistogram.Histogram;
 import org.HdrHistogram.Recorder;
 
 import static java.util.concurrent.TimeUnit.HOURS;
@@ -24,15 +26,15 @@ import static java.util.concurrent.TimeUnit.MICROSECONDS;
 /**
  * HDR-Histogram implementation of the {@link Probe}.
  */
-public class HdrProbe implements Probe {
+public class HdrProbe implements HistogramProbe {
     // we want to track up to an hour.
     static final long HIGHEST_TRACKABLE_VALUE = HOURS.toNanos(1);
 
     // we care only about microsecond accuracy.
-    private static final long LOWEST_DISCERNIBLE_VALUE = MICROSECONDS.toNanos(1);
+    static final long LOWEST_DISCERNIBLE_VALUE = MICROSECONDS.toNanos(1);
 
     // since we care about us, the value should be 1000 according to the javadoc of Recorder.
-    private static final int NUMBER_OF_SIGNIFICANT_VALUE_DIGITS = 3;
+    static final int NUMBER_OF_SIGNIFICANT_VALUE_DIGITS = 3;
 
     // these settings come the website; just above the following link
     //https://github.com/HdrHistogram/HdrHistogram#histogram-variants-and-internal-representation
@@ -74,6 +76,24 @@ public class HdrProbe implements Probe {
         return recorder;
     }
 
+    @Override
+    public Histogram getIntervalHistogram() {
+        return recorder.getIntervalHistogram();
+    }
+
+    /**
+     * Returns the latencies recorded since the last call and starts a new interval, reusing the given {@link Histogram}.
+     *
+     * The given histogram should be the result of a previous call of this method on the same probe and should not be used
+     * afterwards, so taking an interval doesn't create any garbage. This method is not thread-safe.
+     *
+     * @param histogramToRecycle the histogram to reuse or {@code null}
+     * @return the {@link Histogram} of the interval
+     */
+    public Histogram getIntervalHistogram(Histogram histogramToRecycle) {
+        return recorder.getIntervalHistogram(histogramToRecycle);
+    }
+
     @Override
     public void reset() {
         recorder.reset();
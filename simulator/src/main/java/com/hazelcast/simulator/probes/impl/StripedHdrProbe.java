@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.probes.impl;
+
+import com.hazelcast.simulator.probes.HistogramProbe;
+import com.hazelcast.simulator.probes.Probe;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.hazelcast.simulator.probes.impl.HdrProbe.HIGHEST_TRACKABLE_VALUE;
+import static com.hazelcast.simulator.probes.impl.HdrProbe.LOWEST_DISCERNIBLE_VALUE;
+import static com.hazelcast.simulator.probes.impl.HdrProbe.NUMBER_OF_SIGNIFICANT_VALUE_DIGITS;
+
+/**
+ * HDR-Histogram implementation of the {@link Probe} which gives each recording thread its own single-writer histogram.
+ *
+ * The {@link HdrProbe} shares a single {@link org.HdrHistogram.Recorder} between all threads of a test, so with many
+ * threads the counts array and the writer phaser of the Recorder become contended. This probe records into a
+ * {@link SingleWriterRecorder} per thread and merges them when the interval histogram is taken. The stripe of a thread which
+ * has died is dropped once its last values have been taken, so short-lived threads don't leak stripes.
+ *
+ * It can be selected using the test property {@code probeClass=com.hazelcast.simulator.probes.impl.StripedHdrProbe}.
+ */
+public class StripedHdrProbe implements HistogramProbe {
+
+    private final CopyOnWriteArrayList<Stripe> stripes = new CopyOnWriteArrayList<Stripe>();
+    private final ThreadLocal<SingleWriterRecorder> threadRecorder = new ThreadLocal<SingleWriterRecorder>() {
+        @Override
+        protected SingleWriterRecorder initialValue() {
+            Stripe stripe = new Stripe();
+            stripes.add(stripe);
+            return stripe.recorder;
+        }
+    };
+
+    private final boolean partOfTotalThroughput;
+
+    public StripedHdrProbe(boolean partOfTotalThroughput) {
+        this.partOfTotalThroughput = partOfTotalThroughput;
+    }
+
+    @Override
+    public boolean isPartOfTotalThroughput() {
+        return partOfTotalThroughput;
+    }
+
+    @Override
+    public void done(long startNanos) {
+        if (startNanos <= 0) {
+            throw new IllegalArgumentException("startedNanos has to be a positive number");
+        }
+
+        long nowNanos = System.nanoTime();
+        recordValue(nowNanos - startNanos);
+    }
+
+    @Override
+    public void recordValue(long latencyNanos) {
+        if (latencyNanos > HIGHEST_TRACKABLE_VALUE) {
+            latencyNanos = HIGHEST_TRACKABLE_VALUE;
+        }
+        threadRecorder.get().recordValue(latencyNanos);
+    }
+
+    @Override
+    public Histogram getIntervalHistogram() {
+        return getIntervalHistogram(null);
+    }
+
+    /**
+     * Returns the latencies recorded since the last call and starts a new interval, reusing the given {@link Histogram}.
+     *
+     * The given histogram should be the result of a previous call of this method on the same probe and should not be used
+     * afterwards, so taking an interval doesn't create any garbage. This method is not thread-safe.
+     *
+     * @param histogramToRecycle the histogram to reuse or {@code null}
+     * @return the {@link Histogram} of the interval
+     */
+    public Histogram getIntervalHistogram(Histogram histogramToRecycle) {
+        Histogram result = histogramToRecycle;
+        if (result == null) {
+            result = newHistogram();
+        } else {
+            result.reset();
+        }
+        for (Stripe stripe : stripes) {
+            // the owner is checked before draining, so a dead owner can't have recorded after the drain
+            boolean ownerDead = stripe.isOwnerDead();
+            result.add(stripe.getIntervalHistogram());
+            if (ownerDead) {
+                stripes.remove(stripe);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        for (Stripe stripe : stripes) {
+            if (stripe.isOwnerDead()) {
+                stripes.remove(stripe);
+            } else {
+                stripe.recorder.reset();
+            }
+        }
+    }
+
+    int stripeCount() {
+        return stripes.size();
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(LOWEST_DISCERNIBLE_VALUE, HIGHEST_TRACKABLE_VALUE, NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+    }
+
+    /**
+     * The recorder of a single thread.
+     *
+     * The interval histogram is recycled, so taking an interval doesn't create garbage per thread. It is only accessed by
+     * the thread calling {@link #getIntervalHistogram()}. The owner thread is only weakly referenced, so a dead thread can be
+     * garbage collected before its stripe has been dropped.
+     */
+    private static final class Stripe {
+        private final SingleWriterRecorder recorder = new SingleWriterRecorder(
+                LOWEST_DISCERNIBLE_VALUE,
+                HIGHEST_TRACKABLE_VALUE,
+                NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+        private final WeakReference<Thread> owner = new WeakReference<Thread>(Thread.currentThread());
+        private Histogram intervalHistogram;
+
+        private boolean isOwnerDead() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+
+        private Histogram getIntervalHistogram() {
+            intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+            return intervalHistogram;
+        }
+    }
+}
@@ -19,8 +19,7 @@ import com.hazelcast.simulator.common.FailureType;
 import com.hazelcast.simulator.coordinator.FailureCollector;
 import com.hazelcast.simulator.coordinator.operations.FailureOperation;
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
-import com.hazelcast.simulator.protocol.operation.OperationCodec;
-import com.hazelcast.simulator.protocol.operation.OperationType;
+import com.hazelcast.simulator.protocol.operation.OperationEncoding;
 import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
 import com.hazelcast.simulator.utils.SimulatorUtils;
 import org.apache.log4j.Logger;
@@ -34,8 +33,10 @@ import javax.jms.MessageProducer;
 import javax.jms.Queue;
 import javax.jms.Session;
 import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
@@ -49,16 +50,23 @@ import java.util.concurrent.TimeoutException;
 
 import static com.hazelcast.simulator.common.SimulatorProperties.DEFAULT_AGENT_PORT;
 import static com.hazelcast.simulator.protocol.core.SimulatorAddress.coordinatorAddress;
-import static com.hazelcast.simulator.protocol.operation.OperationType.getOperationType;
+import static com.hazelcast.simulator.protocol.OperationMessages.createMessage;
+import static com.hazelcast.simulator.protocol.OperationMessages.readOperations;
+import static com.hazelcast.simulator.protocol.OperationMessages.writeOperation;
 import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static com.hazelcast.simulator.utils.Preconditions.checkNotNull;
 import static com.hazelcast.simulator.utils.UuidUtil.newUnsecureUuidString;
 import static java.lang.String.format;
 import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.singletonList;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static javax.jms.DeliveryMode.NON_PERSISTENT;
 
 /**
  * Responsible for connecting to the agents and sending operations or invoking operations.
+ *
+ * Depending on the {@link TransportType} the client connects to the ActiveMQ {@link Broker} of each agent, or to its
+ * {@link FrameRouter} or {@link EmbeddedRouter}.
  */
 public class CoordinatorClient implements Closeable {
 
@@ -66,15 +74,19 @@ public class CoordinatorClient implements Closeable {
 
     private final BlockingQueue<SendTask> taskQueue = new LinkedBlockingQueue<SendTask>();
     // the key is the agent-index
-    private final ConcurrentMap<Integer, RemoteBroker> remoteBrokers
-            = new ConcurrentHashMap<Integer, RemoteBroker>();
+    private final ConcurrentMap<Integer, RemoteAgent> remoteAgents
+            = new ConcurrentHashMap<Integer, RemoteAgent>();
     private final ConcurrentMap<String, FutureImpl> futures = new ConcurrentHashMap<String, FutureImpl>();
     private final SendThread sendThread;
     private final ConnectionFactory connectionFactory = new ConnectionFactory();
     private ResponseHandlerThread responseHandlerThread;
+    // the processor is not thread-safe, so the threads which receive operations from the agents take turns
+    private final Object processLock = new Object();
     private OperationProcessor processor;
     private int remoteBrokerPort = DEFAULT_AGENT_PORT;
     private FailureCollector failureCollector;
+    private OperationEncoding operationEncoding = OperationEncoding.JSON;
+    private TransportType transportType = TransportType.JMS;
     private volatile boolean stop;
 
     public CoordinatorClient() {
@@ -91,16 +103,42 @@ public class CoordinatorClient implements Closeable {
         return this;
     }
 
+    /**
+     * Sets the {@link OperationEncoding} of the operations sent by this client.
+     *
+     * @param operationEncoding the OperationEncoding
+     * @return this
+     */
+    public CoordinatorClient setOperationEncoding(OperationEncoding operationEncoding) {
+        this.operationEncoding = operationEncoding;
+        return this;
+    }
+
+    /**
+     * Sets the {@link TransportType} used to connect to the agents.
+     *
+     * @param transportType the TransportType
+     * @return this
+     */
+    public CoordinatorClient setTransportType(TransportType transportType) {
+        this.transportType = checkNotNull(transportType, "transportType can't be null");
+        return this;
+    }
+
     public CoordinatorClient setAgentBrokerPort(int port) {
         this.remoteBrokerPort = port;
         return this;
     }
 
-    public CoordinatorClient connectToAgentBroker(SimulatorAddress agentAddress, String agentIp) throws JMSException {
+    public CoordinatorClient connectToAgentBroker(SimulatorAddress agentAddress, String agentIp)
+            throws JMSException, IOException {
         if (agentIp.equals("localhost")) {
             agentIp = SimulatorUtils.localIp();
         }
-        remoteBrokers.put(agentAddress.getAgentIndex(), new RemoteBroker(agentIp, agentAddress));
+        RemoteAgent remoteAgent = transportType.usesFrames()
+                ? new FrameRemoteAgent(agentIp, agentAddress)
+                : new RemoteBroker(agentIp, agentAddress);
+        remoteAgents.put(agentAddress.getAgentIndex(), remoteAgent);
         return this;
     }
 
@@ -119,20 +157,20 @@ public class CoordinatorClient implements Closeable {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("sending " + op + " to " + target);
         }
-        taskQueue.add(new SendTask(target, getRemoteBroker(target), op, null));
+        taskQueue.add(new SendTask(target, getRemoteAgent(target), op, null));
     }
 
-    public Future<String> submit(SimulatorAddress target, SimulatorOperation op) {
+    public ResponseFuture submit(SimulatorAddress target, SimulatorOperation op) {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("sending " + op + " to " + target);
         }
 
-        RemoteBroker remoteBroker = getRemoteBroker(target);
+        RemoteAgent remoteAgent = getRemoteAgent(target);
 
-        FutureImpl future = new FutureImpl(remoteBroker);
+        FutureImpl future = new FutureImpl(remoteAgent);
         futures.put(future.messageId, future);
 
-        taskQueue.add(new SendTask(target, remoteBroker, op, future.messageId));
+        taskQueue.add(new SendTask(target, remoteAgent, op, future.messageId));
 
         return future;
     }
@@ -140,8 +178,8 @@ public class CoordinatorClient implements Closeable {
     public List<String> invokeOnAllAgents(SimulatorOperation op, long timeoutMillis)
             throws TimeoutException, InterruptedException, ExecutionException {
         Map<SimulatorAddress, Future<String>> futures = new HashMap<SimulatorAddress, Future<String>>();
-        for (RemoteBroker broker : remoteBrokers.values()) {
-            SimulatorAddress agent = broker.agentAddress;
+        for (RemoteAgent remoteAgent : remoteAgents.values()) {
+            SimulatorAddress agent = remoteAgent.agentAddress;
             futures.put(agent, submit(agent, op));
         }
 
@@ -162,14 +200,14 @@ public class CoordinatorClient implements Closeable {
         return responses;
     }
 
-    private RemoteBroker getRemoteBroker(SimulatorAddress target) {
-        RemoteBroker broker = remoteBrokers.get(target.getAgentIndex());
+    private RemoteAgent getRemoteAgent(SimulatorAddress target) {
+        RemoteAgent remoteAgent = remoteAgents.get(target.getAgentIndex());
 
-        if (broker == null) {
+        if (remoteAgent == null) {
             throw new IllegalArgumentException("Could not find a broker for [" + target + "]");
         }
 
-        return broker;
+        return remoteAgent;
     }
 
     @Override
@@ -178,17 +216,19 @@ public class CoordinatorClient implements Closeable {
         sendThread.interrupt();
         responseHandlerThread.interrupt();
 
-        closeQuietly(remoteBrokers.values());
-        remoteBrokers.clear();
+        closeQuietly(remoteAgents.values());
+        remoteAgents.clear();
     }
 
-    static class FutureImpl implements Future<String> {
-        private final RemoteBroker agentBroker;
+    static class FutureImpl implements ResponseFuture {
+        private final RemoteAgent remoteAgent;
         private final String messageId = newUnsecureUuidString();
         private volatile Object result;
+        // guarded by this; set to null once the future is completed
+        private List<ResponseCallback> callbacks = new LinkedList<ResponseCallback>();
 
-        public FutureImpl(RemoteBroker agentBroker) {
-            this.agentBroker = agentBroker;
+        public FutureImpl(RemoteAgent remoteAgent) {
+            this.remoteAgent = remoteAgent;
         }
 
         @Override
@@ -231,7 +271,7 @@ public class CoordinatorClient implements Closeable {
                     if (remainingTime <= 0) {
                         throw new TimeoutException();
                     }
-                    wait(deadlineMillis);
+                    wait(remainingTime);
                 }
             }
 
@@ -242,7 +282,22 @@ public class CoordinatorClient implements Closeable {
             }
         }
 
+        @Override
+        public void andThen(ResponseCallback callback) {
+            checkNotNull(callback, "callback can't be null");
+
+            synchronized (this) {
+                if (callbacks != null) {
+                    callbacks.add(callback);
+                    return;
+                }
+            }
+
+            notify(callback, result);
+        }
+
         public void complete(Object payload) {
+            List<ResponseCallback> completedCallbacks;
             synchronized (this) {
                 if (this.result != null) {
                     return;
@@ -250,47 +305,46 @@ public class CoordinatorClient implements Closeable {
 
                 this.result = payload;
                 notifyAll();
+
+                completedCallbacks = callbacks;
+                callbacks = null;
+            }
+
+            // the callbacks are executed outside of the lock, so they can't deadlock with a thread waiting for the result
+            for (ResponseCallback callback : completedCallbacks) {
+                notify(callback, payload);
+            }
+        }
+
+        private static void notify(ResponseCallback callback, Object payload) {
+            try {
+                if (payload instanceof Throwable) {
+                    callback.onFailure((Throwable) payload);
+                } else {
+                    callback.onResponse((String) payload);
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Failed to execute " + callback, e);
             }
         }
     }
 
     class SendTask {
 
-        private final RemoteBroker remoteBroker;
+        private final RemoteAgent remoteAgent;
         private final SimulatorOperation op;
         private final String requestId;
         private final SimulatorAddress target;
 
-        SendTask(SimulatorAddress target, RemoteBroker remoteBroker, SimulatorOperation op, String requestId) {
+        SendTask(SimulatorAddress target, RemoteAgent remoteAgent, SimulatorOperation op, String requestId) {
             this.target = target;
-            this.remoteBroker = remoteBroker;
+            this.remoteAgent = remoteAgent;
             this.op = op;
             this.requestId = requestId;
         }
 
-        private void run() throws JMSException {
-            Message message = remoteBroker.session.createMessage();
-
-            if (requestId != null) {
-                message.setJMSReplyTo(remoteBroker.replyQueue);
-                message.setJMSCorrelationID(requestId);
-            }
-
-            message.setStringProperty("source", coordinatorAddress().toString());
-            message.setStringProperty("target", target.toString());
-            message.setStringProperty("payload", OperationCodec.toJson(op));
-            message.setIntProperty("operationType", getOperationType(op).toInt());
-
-            switch (target.getAddressLevel()) {
-                case AGENT:
-                    remoteBroker.agentProducer.send(message);
-                    break;
-                case WORKER:
-                    remoteBroker.workerProducer.send(message);
-                    break;
-                default:
-                    throw new RuntimeException("unhandled target:" + target);
-            }
+        private void run() throws Exception {
+            remoteAgent.send(target, op, requestId);
         }
     }
 
@@ -309,8 +363,53 @@ public class CoordinatorClient implements Closeable {
         }
     }
 
-    final class RemoteBroker implements Closeable, ExceptionListener {
-        private volatile boolean closed;
+    /**
+     * The connection to a single agent.
+     */
+    abstract class RemoteAgent implements Closeable {
+        final SimulatorAddress agentAddress;
+        volatile boolean closed;
+
+        RemoteAgent(SimulatorAddress agentAddress) {
+            this.agentAddress = agentAddress;
+        }
+
+        abstract void send(SimulatorAddress target, SimulatorOperation op, String requestId) throws Exception;
+
+        /**
+         * Creates the exception pending futures are completed with, once the connection is closed.
+         */
+        abstract Exception newClosedException();
+
+        @Override
+        public abstract void close();
+
+        void connectionLost(Exception e, boolean connected) {
+            close();
+
+            if (connected) {
+                LOGGER.fatal("Lost connection to agent [" + agentAddress + "], cause [" + e.getMessage() + "]");
+            } else {
+                LOGGER.fatal("Failed to connect to agent [" + agentAddress + "], cause [" + e.getMessage() + "]");
+            }
+            LOGGER.debug(e.getMessage(), e);
+
+            remoteAgents.remove(agentAddress.getAgentIndex());
+
+            FailureOperation failureOperation = new FailureOperation(
+                    "Lost connection to " + agentAddress,
+                    FailureType.MESSAGING_EXCEPTION,
+                    null,
+                    agentAddress.toString(),
+                    e);
+
+            if (failureCollector != null) {
+                failureCollector.notify(failureOperation);
+            }
+        }
+    }
+
+    final class RemoteBroker extends RemoteAgent implements ExceptionListener {
         private final Session session;
         private final Connection connection;
         private final MessageProducer agentProducer;
@@ -319,11 +418,10 @@ public class CoordinatorClient implements Closeable {
         private final Queue replyQueue;
         private final MessageConsumer replyQueueConsumer;
         private final MessageConsumer coordinatorConsumer;
-        private final SimulatorAddress agentAddress;
         private boolean connected;
 
         private RemoteBroker(String ip, SimulatorAddress agentAddress) throws JMSException {
-            this.agentAddress = agentAddress;
+            super(agentAddress);
 
             connection = connectionFactory.newConnection("tcp://" + ip + ":" + remoteBrokerPort, this);
             connected = true;
@@ -344,30 +442,40 @@ public class CoordinatorClient implements Closeable {
         }
 
         @Override
-        public void onException(JMSException e) {
-            close();
+        void send(SimulatorAddress target, SimulatorOperation op, String requestId) throws JMSException {
+            Message message = createMessage(session, operationEncoding);
 
-            if (connected) {
-                LOGGER.fatal("Lost connection to agent [" + agentAddress + "], cause [" + e.getMessage() + "]");
-            } else {
-                LOGGER.fatal("Failed to connect to agent [" + agentAddress + "], cause [" + e.getMessage() + "]");
+            if (requestId != null) {
+                message.setJMSReplyTo(replyQueue);
+                message.setJMSCorrelationID(requestId);
             }
-            LOGGER.debug(e.getMessage(), e);
 
-            remoteBrokers.remove(agentAddress.getAgentIndex());
-
-            FailureOperation failureOperation = new FailureOperation(
-                    "Lost connection to " + agentAddress,
-                    FailureType.MESSAGING_EXCEPTION,
-                    null,
-                    agentAddress.toString(),
-                    e);
+            message.setStringProperty("source", coordinatorAddress().toString());
+            message.setStringProperty("target", target.toString());
+            writeOperation(message, op);
 
-            if (failureCollector != null) {
-                failureCollector.notify(failureOperation);
+            switch (target.getAddressLevel()) {
+                case AGENT:
+                    agentProducer.send(message);
+                    break;
+                case WORKER:
+                    workerProducer.send(message);
+                    break;
+                default:
+                    throw new RuntimeException("unhandled target:" + target);
             }
         }
 
+        @Override
+        Exception newClosedException() {
+            return new JMSException("Connection to broker " + agentAddress + "is closed");
+        }
+
+        @Override
+        public void onException(JMSException e) {
+            connectionLost(e, connected);
+        }
+
         @Override
         public void close() {
             closed = true;
@@ -381,6 +489,98 @@ public class CoordinatorClient implements Closeable {
         }
     }
 
+    /**
+     * The connection to the router of an agent, if the transport uses {@link Frame}s. Replies and operations from the agent
+     * and its workers are received by a dedicated thread, so they are processed as soon as they arrive. The operations of all
+     * agents are still processed one at a time, see
+     * {@link CoordinatorClient#processOperation(SimulatorOperation, SimulatorAddress)}.
+     */
+    final class FrameRemoteAgent extends RemoteAgent {
+        private final FrameChannel channel;
+        private final Thread readThread;
+
+        private FrameRemoteAgent(String ip, SimulatorAddress agentAddress) throws IOException {
+            super(agentAddress);
+
+            channel = FrameChannel.connect(transportType, ip, remoteBrokerPort, coordinatorAddress().toString());
+            readThread = new Thread("FrameRemoteAgent-" + agentAddress) {
+                @Override
+                public void run() {
+                    readFrames();
+                }
+            };
+            readThread.setDaemon(true);
+            readThread.start();
+
+            LOGGER.info(format("Successfully connected to agent [%s]", agentAddress));
+        }
+
+        @Override
+        void send(SimulatorAddress target, SimulatorOperation op, String requestId) throws IOException {
+            channel.write(Frame.operations(target.toString(), coordinatorAddress().toString(), requestId,
+                    singletonList(op), operationEncoding));
+        }
+
+        @Override
+        Exception newClosedException() {
+            return new IOException("Connection to agent " + agentAddress + " is closed");
+        }
+
+        private void readFrames() {
+            try {
+                while (!closed) {
+                    handle(Frame.decode(channel.read(), Frame.LENGTH_PREFIX_BYTES));
+                }
+            } catch (IOException e) {
+                if (!closed && !stop) {
+                    connectionLost(e, true);
+                }
+            }
+        }
+
+        private void handle(Frame frame) throws IOException {
+            if (frame.type == Frame.REPLY) {
+                FutureImpl future = futures.remove(frame.correlationId);
+                if (future == null) {
+                    LOGGER.debug("No future for " + frame.correlationId);
+                } else {
+                    future.complete(frame.readAnswer());
+                }
+                return;
+            }
+
+            SimulatorAddress source = SimulatorAddress.fromString(frame.source);
+            for (SimulatorOperation op : frame.readOperations()) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Received " + op);
+                }
+                try {
+                    processOperation(op, source);
+                } catch (Exception e) {
+                    LOGGER.fatal(e.getMessage(), e);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /**
+     * Processes an operation received from an agent or a worker.
+     *
+     * The operations are received by the ResponseHandlerThread and by a read thread per {@link FrameRemoteAgent}, but the
+     * processor of the coordinator has been written for a single thread, so the calls are serialized.
+     */
+    private void processOperation(SimulatorOperation op, SimulatorAddress source) throws Exception {
+        synchronized (processLock) {
+            processor.process(op, source, EmptyPromise.INSTANCE);
+        }
+    }
+
     private class ResponseHandlerThread extends Thread {
 
         private static final int DELAY_MILLIS = 100;
@@ -394,11 +594,9 @@ public class CoordinatorClient implements Closeable {
                         checkDeadFutures();
 
                         hasResponse = false;
-                        for (RemoteBroker remoteBroker : remoteBrokers.values()) {
-                            if (processResponses(remoteBroker)) {
-                                hasResponse = true;
-                            }
-                            if (processMessages(remoteBroker)) {
+                        for (RemoteAgent remoteAgent : remoteAgents.values()) {
+                            // the FrameRemoteAgent receives its frames itself
+                            if (remoteAgent instanceof RemoteBroker && process((RemoteBroker) remoteAgent)) {
                                 hasResponse = true;
                             }
                         }
@@ -417,13 +615,18 @@ public class CoordinatorClient implements Closeable {
         private void checkDeadFutures() {
             for (Map.Entry<String, FutureImpl> entry : futures.entrySet()) {
                 FutureImpl f = entry.getValue();
-                if (f.agentBroker.closed) {
+                if (f.remoteAgent.closed) {
                     futures.remove(entry.getKey());
-                    f.complete(new JMSException("Connection to broker " + f.agentBroker.agentAddress + "is closed"));
+                    f.complete(f.remoteAgent.newClosedException());
                 }
             }
         }
 
+        private boolean process(RemoteBroker remoteBroker) {
+            boolean hasResponse = processResponses(remoteBroker);
+            return processMessages(remoteBroker) || hasResponse;
+        }
+
         private boolean processMessages(RemoteBroker remoteBroker) {
             try {
                 Message message = remoteBroker.coordinatorConsumer.receiveNoWait();
@@ -431,17 +634,16 @@ public class CoordinatorClient implements Closeable {
                     return false;
                 }
 
-                OperationType operationType = OperationType.fromInt(message.getIntProperty("operationType"));
-                String operationData = message.getStringProperty("payload");
-
-                SimulatorOperation op = OperationCodec.fromJson(operationData, operationType.getClassType());
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Received " + op);
-                }
-
                 SimulatorAddress source = SimulatorAddress.fromString(message.getStringProperty("source"));
 
-                processor.process(op, source, EmptyPromise.INSTANCE);
+                // a worker coalesces its operations, so a single message can contain a batch of operations
+                for (SimulatorOperation op : readOperations(message)) {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Received " + op);
+                    }
+
+                    processOperation(op, source);
+                }
                 return true;
             } catch (Exception e) {
                 if (!stop) {
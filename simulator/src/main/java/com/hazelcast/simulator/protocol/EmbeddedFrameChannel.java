@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An in memory connection to the {@link EmbeddedRouter}, used for the {@link TransportType#EMBEDDED} transport.
+ *
+ * A worker running embedded is loaded by its own classloader, so it gets its own copy of this class. Only the
+ * EmbeddedRouter is shared, so only JDK types are passed to it.
+ */
+final class EmbeddedFrameChannel extends FrameChannel {
+
+    private final int port;
+    private final String address;
+    private final BlockingQueue<ByteBuffer> inbox;
+
+    EmbeddedFrameChannel(int port, String address) throws IOException {
+        this.port = port;
+        this.address = address;
+        this.inbox = EmbeddedRouter.register(port, address);
+    }
+
+    @Override
+    void write(ByteBuffer frame) throws IOException {
+        EmbeddedRouter.route(port, frame);
+    }
+
+    @Override
+    byte[] read() throws IOException {
+        ByteBuffer frame;
+        try {
+            frame = inbox.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading a frame");
+        }
+
+        if (!frame.hasRemaining()) {
+            // put back for other readers
+            inbox.offer(frame);
+            throw new EOFException("Connection closed");
+        }
+        return frame.array();
+    }
+
+    @Override
+    public void close() {
+        EmbeddedRouter.unregister(port, address, inbox);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static com.hazelcast.simulator.protocol.Frame.LENGTH_PREFIX_BYTES;
+import static java.lang.String.format;
+
+/**
+ * Routes the frames of the {@link TransportType#EMBEDDED} transport in memory. It replaces the {@link FrameRouter} if the
+ * coordinator, the agent and the workers run in a single JVM.
+ *
+ * Every registered address has an inbox; a frame is put in the inbox of its target address by the thread writing the frame,
+ * without copying it. The routers are registered by port in a static map, since the embedded workers can't get a reference
+ * to the router of the agent: they are loaded by their own classloader. For the same reason the API of this class only
+ * uses JDK types and the worker classloader always loads this class from its parent. The methods used by the
+ * {@link EmbeddedFrameChannel} are public, since the channel of a worker is in a different runtime package.
+ */
+public final class EmbeddedRouter implements Closeable {
+
+    // an empty frame is the marker for a closed connection
+    private static final ByteBuffer CLOSED = ByteBuffer.allocate(0);
+    private static final ConcurrentMap<Integer, EmbeddedRouter> ROUTERS = new ConcurrentHashMap<Integer, EmbeddedRouter>();
+    private static final Logger LOGGER = Logger.getLogger(EmbeddedRouter.class);
+
+    private final ConcurrentMap<String, BlockingQueue<ByteBuffer>> inboxes
+            = new ConcurrentHashMap<String, BlockingQueue<ByteBuffer>>();
+    private final int port;
+
+    private EmbeddedRouter(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Starts an EmbeddedRouter.
+     *
+     * @param port the port to register the router with
+     * @return the started EmbeddedRouter
+     * @throws IllegalStateException if there already is a router for the port
+     */
+    public static EmbeddedRouter start(int port) {
+        EmbeddedRouter router = new EmbeddedRouter(port);
+        if (ROUTERS.putIfAbsent(port, router) != null) {
+            throw new IllegalStateException(format("There already is an EmbeddedRouter for port %d", port));
+        }
+        LOGGER.info(format("EmbeddedRouter started for port %d", port));
+        return router;
+    }
+
+    /**
+     * Registers an address.
+     *
+     * @param port    the port of the router
+     * @param address the address to register
+     * @return the inbox of the address
+     * @throws IOException if there is no router for the port
+     */
+    public static BlockingQueue<ByteBuffer> register(int port, String address) throws IOException {
+        BlockingQueue<ByteBuffer> inbox = new LinkedBlockingQueue<ByteBuffer>();
+        BlockingQueue<ByteBuffer> old = getRouter(port).inboxes.put(address, inbox);
+        if (old != null) {
+            old.offer(CLOSED);
+        }
+        LOGGER.info(format("Registered connection for [%s]", address));
+        return inbox;
+    }
+
+    /**
+     * Unregisters an address. A pending read on the inbox fails.
+     *
+     * @param port    the port of the router
+     * @param address the address to unregister
+     * @param inbox   the inbox of the address
+     */
+    public static void unregister(int port, String address, BlockingQueue<ByteBuffer> inbox) {
+        EmbeddedRouter router = ROUTERS.get(port);
+        if (router != null && router.inboxes.remove(address, inbox)) {
+            LOGGER.info(format("Connection for [%s] closed", address));
+        }
+        inbox.offer(CLOSED);
+    }
+
+    /**
+     * Puts a frame in the inbox of its target address.
+     *
+     * @param port  the port of the router
+     * @param frame the frame including the length prefix
+     * @throws IOException if there is no router for the port or the frame is corrupt
+     */
+    public static void route(int port, ByteBuffer frame) throws IOException {
+        EmbeddedRouter router = getRouter(port);
+        byte[] bytes = frame.array();
+        String target = Frame.readTarget(bytes, LENGTH_PREFIX_BYTES);
+        BlockingQueue<ByteBuffer> inbox = router.inboxes.get(target);
+        if (inbox != null) {
+            inbox.offer(frame);
+            return;
+        }
+
+        Frame decoded = Frame.decode(bytes, LENGTH_PREFIX_BYTES);
+        LOGGER.warn(format("No connection for [%s], dropping frame from [%s]", target, decoded.source));
+        BlockingQueue<ByteBuffer> sourceInbox = router.inboxes.get(decoded.source);
+        if (decoded.type == Frame.OPERATIONS && decoded.isRequest() && sourceInbox != null) {
+            sourceInbox.offer(Frame.reply(decoded.source, target, decoded.correlationId,
+                    new IOException(format("No connection for [%s]", target))));
+        }
+    }
+
+    private static EmbeddedRouter getRouter(int port) throws IOException {
+        EmbeddedRouter router = ROUTERS.get(port);
+        if (router == null) {
+            throw new IOException(format("No EmbeddedRouter for port %d", port));
+        }
+        return router;
+    }
+
+    @Override
+    public void close() {
+        ROUTERS.remove(port, this);
+        for (BlockingQueue<ByteBuffer> inbox : inboxes.values()) {
+            inbox.offer(CLOSED);
+        }
+        inboxes.clear();
+        LOGGER.info(format("EmbeddedRouter for port %d stopped", port));
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+import com.hazelcast.simulator.protocol.operation.BinaryOperationCodec;
+import com.hazelcast.simulator.protocol.operation.OperationCodec;
+import com.hazelcast.simulator.protocol.operation.OperationEncoding;
+import com.hazelcast.simulator.protocol.operation.OperationType;
+import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hazelcast.simulator.protocol.operation.OperationType.getOperationType;
+
+/**
+ * A length prefixed frame of the {@link TransportType#NIO} transport.
+ *
+ * The frame starts with the length of the remainder of the frame, followed by the type, the target address, the source
+ * address and the correlation id. The addresses come first, so the {@link FrameRouter} only needs to read the header of a
+ * frame to forward it. The body depends on the type:
+ * <ul>
+ * <li>{@link #HELLO}: no body; the first frame on a connection which registers the source address at the router.</li>
+ * <li>{@link #OPERATIONS}: the {@link OperationEncoding} and a batch of operations. If the correlation id is not empty,
+ * the frame is a request and the receiver sends a {@link #REPLY} with the same correlation id.</li>
+ * <li>{@link #REPLY}: the error flag and the payload or the error message.</li>
+ * </ul>
+ */
+final class Frame {
+
+    static final byte HELLO = 0;
+    static final byte OPERATIONS = 1;
+    static final byte REPLY = 2;
+
+    static final int LENGTH_PREFIX_BYTES = 4;
+    static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    final byte type;
+    final String target;
+    final String source;
+    final String correlationId;
+    private final byte[] bytes;
+    private final int bodyOffset;
+
+    private Frame(byte type, String target, String source, String correlationId, byte[] bytes, int bodyOffset) {
+        this.type = type;
+        this.target = target;
+        this.source = source;
+        this.correlationId = correlationId;
+        this.bytes = bytes;
+        this.bodyOffset = bodyOffset;
+    }
+
+    static ByteBuffer hello(String source) {
+        return new Writer(HELLO, "", source, "").toByteBuffer();
+    }
+
+    static ByteBuffer operations(String target, String source, String correlationId, List<SimulatorOperation> operations,
+                                 OperationEncoding encoding) {
+        Writer writer = new Writer(OPERATIONS, target, source, correlationId);
+        try {
+            DataOutputStream out = writer.out;
+            out.writeByte(encoding.ordinal());
+            out.writeInt(operations.size());
+            for (SimulatorOperation op : operations) {
+                out.writeInt(getOperationType(op).toInt());
+                writeBytes(out, encoding == OperationEncoding.BINARY
+                        ? BinaryOperationCodec.toBytes(op)
+                        : OperationCodec.toJson(op).getBytes(UTF_8));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toByteBuffer();
+    }
+
+    static ByteBuffer reply(String target, String source, String correlationId, Object answer) {
+        Writer writer = new Writer(REPLY, target, source, correlationId);
+        try {
+            DataOutputStream out = writer.out;
+            if (answer instanceof Throwable) {
+                out.writeBoolean(true);
+                writeString(out, ((Throwable) answer).getMessage());
+            } else {
+                out.writeBoolean(false);
+                writeString(out, "" + answer);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toByteBuffer();
+    }
+
+    /**
+     * Decodes a frame.
+     *
+     * @param bytes  the bytes containing the frame
+     * @param offset the offset of the frame after the length prefix
+     * @return the decoded frame
+     * @throws IOException if the frame is corrupt
+     */
+    static Frame decode(byte[] bytes, int offset) throws IOException {
+        ByteArrayInputStream bis = new ByteArrayInputStream(bytes, offset, bytes.length - offset);
+        DataInputStream in = new DataInputStream(bis);
+        byte type = in.readByte();
+        String target = in.readUTF();
+        String source = in.readUTF();
+        String correlationId = in.readUTF();
+        return new Frame(type, target, source, correlationId, bytes, bytes.length - bis.available());
+    }
+
+    /**
+     * Reads the target address of a frame, without decoding the rest of the frame.
+     *
+     * @param bytes  the bytes containing the frame
+     * @param offset the offset of the frame after the length prefix
+     * @return the target address
+     * @throws IOException if the frame is corrupt
+     */
+    static String readTarget(byte[] bytes, int offset) throws IOException {
+        // skips the type
+        int targetOffset = offset + 1;
+        return new DataInputStream(new ByteArrayInputStream(bytes, targetOffset, bytes.length - targetOffset)).readUTF();
+    }
+
+    boolean isRequest() {
+        return !correlationId.isEmpty();
+    }
+
+    List<SimulatorOperation> readOperations() throws IOException {
+        DataInputStream in = body();
+        OperationEncoding encoding = OperationEncoding.values()[in.readByte()];
+        int count = in.readInt();
+        List<SimulatorOperation> operations = new ArrayList<SimulatorOperation>(count);
+        for (int i = 0; i < count; i++) {
+            OperationType operationType = OperationType.fromInt(in.readInt());
+            byte[] data = readBytes(in);
+            operations.add(encoding == OperationEncoding.BINARY
+                    ? BinaryOperationCodec.fromBytes(data, operationType)
+                    : OperationCodec.fromJson(new String(data, UTF_8), operationType.getClassType()));
+        }
+        return operations;
+    }
+
+    /**
+     * Reads the answer of a {@link #REPLY} frame.
+     *
+     * @return the payload or an {@link Exception} with the error message if the answer was an error
+     * @throws IOException if the frame is corrupt
+     */
+    Object readAnswer() throws IOException {
+        DataInputStream in = body();
+        boolean error = in.readBoolean();
+        String value = readString(in);
+        return error ? new Exception(value) : value;
+    }
+
+    private DataInputStream body() {
+        return new DataInputStream(new ByteArrayInputStream(bytes, bodyOffset, bytes.length - bodyOffset));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] data) throws IOException {
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return data;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            writeBytes(out, value.getBytes(UTF_8));
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return new String(data, UTF_8);
+    }
+
+    private static final class Writer {
+        private final ByteArrayOutputStream bos = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        private final DataOutputStream out = new DataOutputStream(bos);
+
+        private Writer(byte type, String target, String source, String correlationId) {
+            try {
+                // placeholder for the length prefix
+                out.writeInt(0);
+                out.writeByte(type);
+                out.writeUTF(target);
+                out.writeUTF(source);
+                out.writeUTF(correlationId == null ? "" : correlationId);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private ByteBuffer toByteBuffer() {
+            ByteBuffer buffer = ByteBuffer.wrap(bos.toByteArray());
+            buffer.putInt(0, buffer.capacity() - LENGTH_PREFIX_BYTES);
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A connection of the coordinator, an agent or a worker to the router of an agent, used by the transports which exchange
+ * {@link Frame}s.
+ *
+ * Frames can be written by multiple threads; a single thread should read the frames.
+ */
+abstract class FrameChannel implements Closeable {
+
+    /**
+     * Connects to the router of an agent and registers the given address.
+     *
+     * @param transportType the {@link TransportType#NIO} or {@link TransportType#EMBEDDED} transport
+     * @param host          the host of the router
+     * @param port          the port of the router
+     * @param address       the address to register
+     * @return the connected FrameChannel
+     * @throws IOException if the connection can't be made
+     */
+    static FrameChannel connect(TransportType transportType, String host, int port, String address) throws IOException {
+        if (transportType == TransportType.EMBEDDED) {
+            return new EmbeddedFrameChannel(port, address);
+        }
+        return SocketFrameChannel.connect(host, port, address);
+    }
+
+    /**
+     * Writes a frame.
+     *
+     * @param frame the frame including the length prefix
+     * @throws IOException if the frame could not be written
+     */
+    abstract void write(ByteBuffer frame) throws IOException;
+
+    /**
+     * Reads the next frame.
+     *
+     * @return the frame including the length prefix
+     * @throws IOException if the frame could not be read, e.g. because the connection has been closed
+     */
+    abstract byte[] read() throws IOException;
+
+    @Override
+    public abstract void close();
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+
+import static com.hazelcast.simulator.protocol.Frame.HELLO;
+import static com.hazelcast.simulator.protocol.Frame.LENGTH_PREFIX_BYTES;
+import static com.hazelcast.simulator.protocol.Frame.MAX_FRAME_LENGTH;
+import static com.hazelcast.simulator.protocol.Frame.OPERATIONS;
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static com.hazelcast.simulator.utils.CommonUtils.joinThread;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Routes the frames of the {@link TransportType#NIO} transport. It replaces the {@link Broker} of an agent.
+ *
+ * The coordinator, the agent and the workers connect to the router and register their address with a {@link Frame#HELLO}
+ * frame, which is acknowledged with a HELLO frame by the router. Every other frame is forwarded to the connection of its
+ * target address; only the header of the frame is read for that. So there are no topics and message selectors; a frame is
+ * read and written exactly once by the router.
+ *
+ * All connections are handled by a single selector thread. The frames which can't be written right away are queued per
+ * connection. The queue of a connection is bounded, so a peer which doesn't read its frames can't exhaust the memory of the
+ * router; a frame which doesn't fit in the queue is dropped, and a request is answered with an error.
+ */
+public class FrameRouter implements Closeable {
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = SECONDS.toMillis(5);
+    // the maximum number of bytes queued for a single connection
+    private static final long MAX_QUEUED_BYTES = 2L * MAX_FRAME_LENGTH;
+    private static final Logger LOGGER = Logger.getLogger(FrameRouter.class);
+
+    // only accessed by the selector thread
+    private final Map<String, RouterConnection> connections = new HashMap<String, RouterConnection>();
+    private final SelectorThread selectorThread = new SelectorThread();
+    private final String host;
+    private final int port;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile long routedFrameCount;
+    private volatile boolean stop;
+
+    /**
+     * Creates a FrameRouter.
+     *
+     * @param host the host to bind to
+     * @param port the port to bind to; 0 selects a free port
+     */
+    public FrameRouter(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public FrameRouter start() {
+        try {
+            selector = Selector.open();
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(new InetSocketAddress(host, port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            closeQuietly(serverChannel);
+            throw new IllegalStateException(format("Failed to start FrameRouter on %s:%d", host, port), e);
+        }
+
+        selectorThread.start();
+        LOGGER.info(format("FrameRouter started on %s:%d", host, getPort()));
+        return this;
+    }
+
+    /**
+     * Returns the port the router is bound to.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public long getRoutedFrameCount() {
+        return routedFrameCount;
+    }
+
+    @Override
+    public void close() {
+        stop = true;
+        if (selector != null) {
+            selector.wakeup();
+            joinThread(selectorThread, SHUTDOWN_TIMEOUT_MILLIS);
+        }
+        LOGGER.info(format("FrameRouter stopped, routed %d frames", routedFrameCount));
+    }
+
+    private final class SelectorThread extends Thread {
+
+        private SelectorThread() {
+            super("FrameRouter");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stop) {
+                    selector.select();
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        handle(key);
+                    }
+                }
+            } catch (Throwable e) {
+                if (!stop) {
+                    LOGGER.fatal(e.getMessage(), e);
+                }
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly(key.channel());
+                }
+                closeQuietly(selector);
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) {
+                return;
+            }
+
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+
+            RouterConnection connection = (RouterConnection) key.attachment();
+            try {
+                if (key.isReadable()) {
+                    connection.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.flush();
+                }
+            } catch (IOException e) {
+                LOGGER.debug(format("Connection of [%s] failed: %s", connection.address, e.getMessage()));
+                connection.close();
+            }
+        }
+
+        private void accept() {
+            SocketChannel channel = null;
+            try {
+                channel = serverChannel.accept();
+                if (channel == null) {
+                    return;
+                }
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new RouterConnection(channel, key));
+            } catch (IOException e) {
+                // e.g. the peer reset the connection before it was accepted; the other connections are not affected
+                LOGGER.warn("Failed to accept a connection: " + e.getMessage());
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    private final class RouterConnection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer lengthBuffer = ByteBuffer.allocate(LENGTH_PREFIX_BYTES);
+        private final Queue<ByteBuffer> writeQueue = new ArrayDeque<ByteBuffer>();
+        private long queuedBytes;
+        // the frame which is currently read, including the length prefix
+        private ByteBuffer frame;
+        private String address;
+
+        private RouterConnection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        private void read() throws IOException {
+            for (; ; ) {
+                if (frame == null) {
+                    if (channel.read(lengthBuffer) == -1) {
+                        close();
+                        return;
+                    }
+                    if (lengthBuffer.hasRemaining()) {
+                        return;
+                    }
+                    frame = allocateFrame(lengthBuffer.getInt(0));
+                    lengthBuffer.clear();
+                }
+
+                if (channel.read(frame) == -1) {
+                    close();
+                    return;
+                }
+                if (frame.hasRemaining()) {
+                    return;
+                }
+
+                frame.flip();
+                route(frame);
+                frame = null;
+            }
+        }
+
+        private ByteBuffer allocateFrame(int length) throws IOException {
+            if (length <= 0 || length > MAX_FRAME_LENGTH) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(LENGTH_PREFIX_BYTES + length);
+            buffer.putInt(length);
+            return buffer;
+        }
+
+        private void route(ByteBuffer frame) throws IOException {
+            byte[] bytes = frame.array();
+            byte type = bytes[LENGTH_PREFIX_BYTES];
+            if (type == HELLO) {
+                register(Frame.decode(bytes, LENGTH_PREFIX_BYTES).source);
+                return;
+            }
+
+            String target = Frame.readTarget(bytes, LENGTH_PREFIX_BYTES);
+            RouterConnection targetConnection = connections.get(target);
+            if (targetConnection == null) {
+                drop(bytes, target, "No connection for [%s]");
+                return;
+            }
+
+            if (!targetConnection.send(frame)) {
+                drop(bytes, target, "Write queue of [%s] is full");
+                return;
+            }
+            routedFrameCount++;
+        }
+
+        private void register(String address) {
+            this.address = address;
+            RouterConnection old = connections.put(address, this);
+            if (old != null && old != this) {
+                // a reconnect; the old connection is not used any longer
+                old.address = null;
+                old.close();
+            }
+            LOGGER.info(format("Registered connection for [%s]", address));
+            // acknowledges the registration, so frames sent to the address after connecting won't get lost
+            send(Frame.hello(""));
+        }
+
+        private void drop(byte[] bytes, String target, String reasonFormat) throws IOException {
+            Frame frame = Frame.decode(bytes, LENGTH_PREFIX_BYTES);
+            String reason = format(reasonFormat, target);
+            LOGGER.warn(format("%s, dropping frame from [%s]", reason, frame.source));
+            if (frame.type == OPERATIONS && frame.isRequest()) {
+                send(Frame.reply(frame.source, target, frame.correlationId, new IOException(reason)));
+            }
+        }
+
+        /**
+         * Queues the buffer and writes as much of the queue as possible.
+         *
+         * @return {@code false} if the buffer is dropped because the queue is full, {@code true} otherwise
+         */
+        private boolean send(ByteBuffer buffer) {
+            if (queuedBytes + buffer.remaining() > MAX_QUEUED_BYTES) {
+                return false;
+            }
+
+            writeQueue.add(buffer);
+            queuedBytes += buffer.remaining();
+            try {
+                flush();
+            } catch (IOException e) {
+                LOGGER.debug(format("Failed to write to [%s]: %s", address, e.getMessage()));
+                close();
+            }
+            return true;
+        }
+
+        private void flush() throws IOException {
+            while (!writeQueue.isEmpty()) {
+                ByteBuffer buffer = writeQueue.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                writeQueue.poll();
+                queuedBytes -= buffer.limit();
+            }
+            if (key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        private void close() {
+            writeQueue.clear();
+            queuedBytes = 0;
+            if (address != null && connections.get(address) == this) {
+                connections.remove(address);
+                LOGGER.info(format("Connection for [%s] closed", address));
+            }
+            key.cancel();
+            closeQuietly(channel);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+import com.hazelcast.simulator.protocol.operation.BinaryOperationCodec;
+import com.hazelcast.simulator.protocol.operation.OperationCodec;
+import com.hazelcast.simulator.protocol.operation.OperationEncoding;
+import com.hazelcast.simulator.protocol.operation.OperationType;
+import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hazelcast.simulator.protocol.operation.OperationType.getOperationType;
+import static java.util.Collections.singletonList;
+
+/**
+ * Writes {@link SimulatorOperation} instances to, and reads them from a JMS {@link Message}.
+ *
+ * A message either contains a single operation (the 'operationType' and 'payload' properties) or a batch of operations.
+ * A batch has a 'batchSize' property and the operations are stored in the 'operationType_[index]' and 'payload_[index]'
+ * properties. A batch is used to coalesce the operations from a worker to the coordinator into a single message.
+ *
+ * With the {@link OperationEncoding#BINARY} encoding a {@link BytesMessage} is used. The body contains the number of
+ * operations, followed by the classId and the length prefixed {@link BinaryOperationCodec} bytes of each operation.
+ * The encoding is detected when a message is read.
+ */
+final class OperationMessages {
+
+    static final String BATCH_SIZE = "batchSize";
+    static final String OPERATION_TYPE = "operationType";
+    static final String PAYLOAD = "payload";
+
+    private OperationMessages() {
+    }
+
+    static Message createMessage(Session session, OperationEncoding encoding) throws JMSException {
+        return encoding == OperationEncoding.BINARY ? session.createBytesMessage() : session.createMessage();
+    }
+
+    static void writeOperation(Message message, SimulatorOperation op) throws JMSException {
+        if (message instanceof BytesMessage) {
+            writeBinary((BytesMessage) message, singletonList(op));
+            return;
+        }
+
+        message.setStringProperty(PAYLOAD, OperationCodec.toJson(op));
+        message.setIntProperty(OPERATION_TYPE, getOperationType(op).toInt());
+    }
+
+    static void writeBatch(Message message, List<SimulatorOperation> batch) throws JMSException {
+        if (message instanceof BytesMessage) {
+            writeBinary((BytesMessage) message, batch);
+            return;
+        }
+
+        if (batch.size() == 1) {
+            writeOperation(message, batch.get(0));
+            return;
+        }
+
+        message.setIntProperty(BATCH_SIZE, batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            SimulatorOperation op = batch.get(i);
+            message.setStringProperty(PAYLOAD + '_' + i, OperationCodec.toJson(op));
+            message.setIntProperty(OPERATION_TYPE + '_' + i, getOperationType(op).toInt());
+        }
+    }
+
+    static SimulatorOperation readOperation(Message message) throws JMSException {
+        if (message instanceof BytesMessage) {
+            return readBinary((BytesMessage) message).get(0);
+        }
+
+        return readOperation(message, OPERATION_TYPE, PAYLOAD);
+    }
+
+    static List<SimulatorOperation> readOperations(Message message) throws JMSException {
+        if (message instanceof BytesMessage) {
+            return readBinary((BytesMessage) message);
+        }
+
+        if (!message.propertyExists(BATCH_SIZE)) {
+            return singletonList(readOperation(message));
+        }
+
+        int batchSize = message.getIntProperty(BATCH_SIZE);
+        List<SimulatorOperation> operations = new ArrayList<SimulatorOperation>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            operations.add(readOperation(message, OPERATION_TYPE + '_' + i, PAYLOAD + '_' + i));
+        }
+        return operations;
+    }
+
+    private static SimulatorOperation readOperation(Message message, String typeProperty, String payloadProperty)
+            throws JMSException {
+        OperationType operationType = OperationType.fromInt(message.getIntProperty(typeProperty));
+        String operationData = message.getStringProperty(payloadProperty);
+        return OperationCodec.fromJson(operationData, operationType.getClassType());
+    }
+
+    private static void writeBinary(BytesMessage message, List<SimulatorOperation> batch) throws JMSException {
+        message.writeInt(batch.size());
+        for (SimulatorOperation op : batch) {
+            byte[] bytes = BinaryOperationCodec.toBytes(op);
+            message.writeInt(getOperationType(op).toInt());
+            message.writeInt(bytes.length);
+            message.writeBytes(bytes);
+        }
+    }
+
+    private static List<SimulatorOperation> readBinary(BytesMessage message) throws JMSException {
+        int batchSize = message.readInt();
+        List<SimulatorOperation> operations = new ArrayList<SimulatorOperation>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            OperationType operationType = OperationType.fromInt(message.readInt());
+            byte[] bytes = new byte[message.readInt()];
+            message.readBytes(bytes);
+            operations.add(BinaryOperationCodec.fromBytes(bytes, operationType));
+        }
+        return operations;
+    }
+}
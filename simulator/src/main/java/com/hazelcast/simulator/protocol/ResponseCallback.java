@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+/**
+ * Callback for the response of an operation submitted by the {@link CoordinatorClient}.
+ *
+ * The callback is executed on the thread completing the {@link ResponseFuture}, which is the response handler thread of
+ * the {@link CoordinatorClient}. So it should not block or do anything expensive.
+ */
+public interface ResponseCallback {
+
+    /**
+     * Called when the operation completed successfully.
+     *
+     * @param response the response
+     */
+    void onResponse(String response);
+
+    /**
+     * Called when the operation failed, e.g. because of an error on the receiving side or a lost connection.
+     *
+     * @param cause the cause of the failure
+     */
+    void onFailure(Throwable cause);
+}
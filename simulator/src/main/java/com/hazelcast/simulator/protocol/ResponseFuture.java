@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+import java.util.concurrent.Future;
+
+/**
+ * The {@link Future} of an operation submitted by the {@link CoordinatorClient}.
+ *
+ * Besides blocking on the response, it is possible to register a {@link ResponseCallback} to be notified on completion.
+ */
+public interface ResponseFuture extends Future<String> {
+
+    /**
+     * Registers a callback to be notified when this future completes.
+     *
+     * If the future already is completed, the callback is executed immediately on the calling thread.
+     *
+     * @param callback the callback to register
+     */
+    void andThen(ResponseCallback callback);
+}
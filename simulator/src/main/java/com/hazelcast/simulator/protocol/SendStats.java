@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Counters for the outbound traffic of a {@link Server}.
+ *
+ * The counters are only written by the send thread of the Server, so a lazySet is sufficient; the AtomicLongs are used
+ * to get a consistent read from other threads.
+ */
+public final class SendStats {
+
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong operationsSent = new AtomicLong();
+    private final AtomicLong repliesSent = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLong totalSendLatencyNanos = new AtomicLong();
+    private final AtomicLong maxSendLatencyNanos = new AtomicLong();
+
+    void recordBatch(int batchSize, long sendLatencyNanos) {
+        messagesSent.lazySet(messagesSent.get() + 1);
+        operationsSent.lazySet(operationsSent.get() + batchSize);
+        if (batchSize > maxBatchSize.get()) {
+            maxBatchSize.lazySet(batchSize);
+        }
+        recordLatency(sendLatencyNanos);
+    }
+
+    void recordReply(long sendLatencyNanos) {
+        messagesSent.lazySet(messagesSent.get() + 1);
+        repliesSent.lazySet(repliesSent.get() + 1);
+        recordLatency(sendLatencyNanos);
+    }
+
+    private void recordLatency(long sendLatencyNanos) {
+        totalSendLatencyNanos.lazySet(totalSendLatencyNanos.get() + sendLatencyNanos);
+        if (sendLatencyNanos > maxSendLatencyNanos.get()) {
+            maxSendLatencyNanos.lazySet(sendLatencyNanos);
+        }
+    }
+
+    /**
+     * Returns the number of JMS messages sent (batches and replies).
+     *
+     * @return the number of messages sent
+     */
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    /**
+     * Returns the number of operations sent to the coordinator. Since operations are batched, this number can be larger
+     * than the number of messages sent.
+     *
+     * @return the number of operations sent
+     */
+    public long getOperationsSent() {
+        return operationsSent.get();
+    }
+
+    public long getRepliesSent() {
+        return repliesSent.get();
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    public double getAvgBatchSize() {
+        long batches = messagesSent.get() - repliesSent.get();
+        return batches == 0 ? 0 : operationsSent.get() / (double) batches;
+    }
+
+    public double getAvgSendLatencyMicros() {
+        long messages = messagesSent.get();
+        return messages == 0 ? 0 : NANOSECONDS.toMicros(totalSendLatencyNanos.get()) / (double) messages;
+    }
+
+    public long getMaxSendLatencyMicros() {
+        return NANOSECONDS.toMicros(maxSendLatencyNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "SendStats{"
+                + "messagesSent=" + getMessagesSent()
+                + ", operationsSent=" + getOperationsSent()
+                + ", repliesSent=" + getRepliesSent()
+                + ", avgBatchSize=" + getAvgBatchSize()
+                + ", maxBatchSize=" + getMaxBatchSize()
+                + ", avgSendLatencyMicros=" + getAvgSendLatencyMicros()
+                + ", maxSendLatencyMicros=" + getMaxSendLatencyMicros()
+                + '}';
+    }
+}
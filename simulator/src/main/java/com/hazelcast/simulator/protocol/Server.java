@@ -16,8 +16,7 @@
 package com.hazelcast.simulator.protocol;
 
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
-import com.hazelcast.simulator.protocol.operation.OperationCodec;
-import com.hazelcast.simulator.protocol.operation.OperationType;
+import com.hazelcast.simulator.protocol.operation.OperationEncoding;
 import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
 import org.apache.log4j.Logger;
 
@@ -31,13 +30,28 @@ import javax.jms.MessageProducer;
 import javax.jms.Session;
 import javax.jms.Topic;
 import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import static com.hazelcast.simulator.common.SimulatorProperties.DEFAULT_AGENT_PORT;
-import static com.hazelcast.simulator.protocol.operation.OperationType.getOperationType;
+import static com.hazelcast.simulator.protocol.OperationMessages.createMessage;
+import static com.hazelcast.simulator.protocol.OperationMessages.readOperation;
+import static com.hazelcast.simulator.protocol.OperationMessages.writeBatch;
+import static com.hazelcast.simulator.protocol.core.SimulatorAddress.coordinatorAddress;
 import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static com.hazelcast.simulator.utils.CommonUtils.joinThread;
 import static com.hazelcast.simulator.utils.Preconditions.checkNotNull;
 import static com.hazelcast.simulator.utils.SimulatorUtils.localIp;
 import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static javax.jms.DeliveryMode.NON_PERSISTENT;
 
 
@@ -48,13 +62,33 @@ import static javax.jms.DeliveryMode.NON_PERSISTENT;
  *
  * If you are a client, this is the class you want to study thoroughly. It contains most of the logic needed for understanding
  * how to integrate your client.
+ *
+ * All outbound traffic (operations for the coordinator and replies) is sent by a single send thread, which owns a long
+ * lived session and producers. Operations for the coordinator are coalesced into a single batched message per flush
+ * window, so a worker sending performance stats, failures and logs at the same time doesn't create a message for each.
+ *
+ * With the {@link TransportType#NIO} and {@link TransportType#EMBEDDED} transport the server doesn't use JMS, but connects
+ * to the router of the agent and exchanges {@link Frame}s with it. The topic is not used in that case, since frames are
+ * routed by address.
  */
 public class Server implements Closeable {
+
+    /**
+     * The default time the send thread waits for additional operations to add to a batch.
+     */
+    public static final long DEFAULT_FLUSH_WINDOW_MILLIS = 5;
+
+    static final int MAX_BATCH_SIZE = 100;
+
+    private static final long SEND_THREAD_SHUTDOWN_TIMEOUT_MILLIS = SECONDS.toMillis(5);
     private static final Logger LOGGER = Logger.getLogger(Server.class);
 
     private final String topic;
     private final ConnectionFactory connectionFactory = new ConnectionFactory();
     private final ServerThread serverThread = new ServerThread();
+    private final SendThread sendThread = new SendThread();
+    private final BlockingQueue<Object> outboundQueue = new LinkedBlockingQueue<Object>();
+    private final SendStats sendStats = new SendStats();
     private SimulatorAddress selfAddress;
     private OperationProcessor processor;
     private MessageConsumer consumer;
@@ -63,6 +97,10 @@ public class Server implements Closeable {
     private Connection connection;
     private String brokerURL;
     private String selfAddressString;
+    private TransportType transportType = TransportType.JMS;
+    private FrameChannel frameChannel;
+    private long flushWindowNanos = MILLISECONDS.toNanos(DEFAULT_FLUSH_WINDOW_MILLIS);
+    private OperationEncoding operationEncoding = OperationEncoding.JSON;
     private ExceptionListener exceptionListener = new ExceptionListener() {
         @Override
         public void onException(JMSException e) {
@@ -110,6 +148,44 @@ public class Server implements Closeable {
         return this;
     }
 
+    /**
+     * Sets the time the send thread waits for additional operations before the batch is sent to the coordinator.
+     *
+     * A value of 0 means that only the operations which are already pending are batched.
+     *
+     * @param flushWindowMillis the flush window in milliseconds.
+     * @return this
+     */
+    public Server setFlushWindowMillis(long flushWindowMillis) {
+        if (flushWindowMillis < 0) {
+            throw new IllegalArgumentException("flushWindowMillis can't be smaller than 0");
+        }
+        this.flushWindowNanos = MILLISECONDS.toNanos(flushWindowMillis);
+        return this;
+    }
+
+    /**
+     * Sets the {@link OperationEncoding} of the operations sent to the coordinator.
+     *
+     * @param operationEncoding the OperationEncoding
+     * @return this
+     */
+    public Server setOperationEncoding(OperationEncoding operationEncoding) {
+        this.operationEncoding = checkNotNull(operationEncoding, "operationEncoding can't be null");
+        return this;
+    }
+
+    /**
+     * Sets the {@link TransportType} used to connect to the agent.
+     *
+     * @param transportType the TransportType
+     * @return this
+     */
+    public Server setTransportType(TransportType transportType) {
+        this.transportType = checkNotNull(transportType, "transportType can't be null");
+        return this;
+    }
+
     public Server setBrokerURL(String brokerURL) {
         this.brokerURL = brokerURL;
         return this;
@@ -127,7 +203,15 @@ public class Server implements Closeable {
         return connection;
     }
 
+    public SendStats getSendStats() {
+        return sendStats;
+    }
+
     public Server start() {
+        if (transportType.usesFrames()) {
+            return startFrameChannel();
+        }
+
         LOGGER.info("Starting server [" + brokerURL + "] on topic [" + topic + "]");
 
         try {
@@ -140,7 +224,12 @@ public class Server implements Closeable {
             String selector = "target='" + selfAddress + "'";
             LOGGER.info(format("Using messageSelector [%s]", selector));
             this.consumer = session.createConsumer(destination, selector);
+
+            // a session is single threaded, so the send thread gets its own session
+            sendThread.init(connection.createSession(false, Session.AUTO_ACKNOWLEDGE));
+
             serverThread.start();
+            sendThread.start();
 
             LOGGER.info("Successfully started server for " + selfAddressString);
             return this;
@@ -151,72 +240,226 @@ public class Server implements Closeable {
         }
     }
 
+    private Server startFrameChannel() {
+        URI uri = URI.create(brokerURL);
+        LOGGER.info(format("Starting server [%s] using the %s transport", brokerURL, transportType));
+
+        try {
+            this.frameChannel = FrameChannel.connect(transportType, uri.getHost(), uri.getPort(), selfAddressString);
+        } catch (IOException e) {
+            throw new IllegalStateException(format("Failed to connect to [%s]", brokerURL), e);
+        }
+
+        serverThread.start();
+        sendThread.start();
+
+        LOGGER.info("Successfully started server for " + selfAddressString);
+        return this;
+    }
+
     @Override
     public void close() {
         stop = true;
         serverThread.interrupt();
+        // the send thread will flush the pending operations before it completes
+        sendThread.interrupt();
+        joinThread(sendThread, SEND_THREAD_SHUTDOWN_TIMEOUT_MILLIS);
         closeQuietly(connection);
-        LOGGER.info("Server Stopped");
+        closeQuietly(frameChannel);
+        LOGGER.info("Server Stopped " + sendStats);
     }
 
+    /**
+     * Sends an operation to the coordinator.
+     *
+     * This call is asynchronous; the operation is queued and sent by the send thread.
+     *
+     * @param op the operation to send.
+     */
     public void sendCoordinator(SimulatorOperation op) {
-        try {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("sending [" + op + "]");
+        }
+
+        outboundQueue.add(op);
+    }
+
+    private final class PromiseImpl implements Promise {
+        private Destination replyTo;
+        // the address to send the reply to when frames are used
+        private String replyAddress;
+        private String correlationId;
+        private SimulatorOperation op;
+        private Object answer;
+
+        @Override
+        public void answer(Object o) {
+            if (replyTo == null && replyAddress == null) {
+                return;
+            }
+
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("sending [" + op + "]");
+                LOGGER.debug(format("Sending reply [%s] for [%s] to %s", o, op, replyTo == null ? replyAddress : replyTo));
             }
 
-            Destination topic = session.createTopic("coordinator");
-            MessageProducer producer = session.createProducer(topic);
-            producer.setDeliveryMode(NON_PERSISTENT);
+            this.answer = o;
+            outboundQueue.add(this);
+        }
 
+        private Message toMessage(Session session) throws JMSException {
             Message message = session.createMessage();
-
+            message.setJMSCorrelationID(correlationId);
             message.setStringProperty("source", selfAddressString);
-            message.setStringProperty("payload", OperationCodec.toJson(op));
-            message.setIntProperty("operationType", getOperationType(op).toInt());
 
-            producer.send(message);
-        } catch (JMSException e) {
-            LOGGER.error(e);
+            if (answer instanceof Throwable) {
+                Throwable throwable = (Throwable) answer;
+                message.setBooleanProperty("error", true);
+                message.setStringProperty("message", throwable.getMessage());
+            } else {
+                message.setBooleanProperty("error", false);
+                // hack
+                message.setStringProperty("payload", "" + answer);
+            }
+            return message;
         }
     }
 
-    private class PromiseImpl implements Promise {
-        private Destination replyTo;
-        private String correlationId;
-        private SimulatorOperation op;
+    private final class SendThread extends Thread {
+
+        private final List<SimulatorOperation> batch = new ArrayList<SimulatorOperation>();
+        private Session sendSession;
+        private MessageProducer coordinatorProducer;
+        private MessageProducer replyProducer;
+
+        private SendThread() {
+            super("ServerSendThread");
+            setDaemon(true);
+        }
+
+        private void init(Session sendSession) throws JMSException {
+            this.sendSession = sendSession;
+
+            this.coordinatorProducer = sendSession.createProducer(sendSession.createTopic("coordinator"));
+            coordinatorProducer.setDeliveryMode(NON_PERSISTENT);
+
+            // the replyProducer has no destination, since each reply is sent to the replyTo of the request
+            this.replyProducer = sendSession.createProducer(null);
+        }
 
         @Override
-        public void answer(Object o) {
-            if (replyTo == null) {
-                return;
+        public void run() {
+            try {
+                while (!stop) {
+                    Object item = outboundQueue.take();
+                    if (item instanceof PromiseImpl) {
+                        sendReply((PromiseImpl) item);
+                    } else {
+                        batch.add((SimulatorOperation) item);
+                        fillBatch();
+                        sendBatch();
+                    }
+                }
+            } catch (InterruptedException e) {
+                LOGGER.debug("ServerSendThread interrupted");
+            } catch (Throwable e) {
+                if (!stop) {
+                    LOGGER.error(e.getMessage(), e);
+                }
+            } finally {
+                flushPending();
             }
 
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(format("Sending reply [%s] for [%s] to %s", o, op, replyTo));
+            LOGGER.info("ServerSendThread finished");
+        }
+
+        private void fillBatch() throws InterruptedException {
+            long deadlineNanos = nanoTime() + flushWindowNanos;
+            while (batch.size() < MAX_BATCH_SIZE) {
+                long remainingNanos = deadlineNanos - nanoTime();
+                Object item = remainingNanos > 0
+                        ? outboundQueue.poll(remainingNanos, NANOSECONDS)
+                        : outboundQueue.poll();
+                if (item == null) {
+                    return;
+                }
+
+                if (item instanceof PromiseImpl) {
+                    // replies are not delayed by the flush window
+                    sendReply((PromiseImpl) item);
+                } else {
+                    batch.add((SimulatorOperation) item);
+                }
+            }
+        }
+
+        /**
+         * Sends the current batch to the coordinator.
+         *
+         * A failing send is logged and the batch is dropped, so a single broken message doesn't kill the send thread.
+         */
+        private void sendBatch() {
+            if (batch.isEmpty()) {
+                return;
             }
 
+            long startNanos = nanoTime();
             try {
-                Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-                Message message = session.createMessage();
-                message.setJMSCorrelationID(correlationId);
-                message.setStringProperty("source", selfAddressString);
-
-                if (o instanceof Throwable) {
-                    Throwable throwable = (Throwable) o;
-                    message.setBooleanProperty("error", true);
-                    message.setStringProperty("message", throwable.getMessage());
+                if (frameChannel != null) {
+                    frameChannel.write(Frame.operations(
+                            coordinatorAddress().toString(), selfAddressString, "", batch, operationEncoding));
                 } else {
-                    message.setBooleanProperty("error", false);
-                    // hack
-                    message.setStringProperty("payload", "" + o);
+                    Message message = createMessage(sendSession, operationEncoding);
+                    message.setStringProperty("source", selfAddressString);
+                    writeBatch(message, batch);
+                    coordinatorProducer.send(message);
                 }
+                sendStats.recordBatch(batch.size(), nanoTime() - startNanos);
+            } catch (JMSException e) {
+                LOGGER.error("Failed to send batch of " + batch.size() + " operations", e);
+            } catch (IOException e) {
+                LOGGER.error("Failed to send batch of " + batch.size() + " operations", e);
+            } finally {
+                batch.clear();
+            }
+        }
 
-                MessageProducer producer = session.createProducer(replyTo);
-                producer.send(message);
-                session.close();
+        private void sendReply(PromiseImpl promise) {
+            long startNanos = nanoTime();
+            try {
+                if (frameChannel != null) {
+                    frameChannel.write(Frame.reply(promise.replyAddress, selfAddressString, promise.correlationId,
+                            promise.answer));
+                } else {
+                    replyProducer.send(promise.replyTo, promise.toMessage(sendSession));
+                }
+                sendStats.recordReply(nanoTime() - startNanos);
             } catch (JMSException e) {
                 LOGGER.error(e);
+            } catch (IOException e) {
+                LOGGER.error(e);
+            }
+        }
+
+        private void flushPending() {
+            try {
+                for (; ; ) {
+                    Object item = outboundQueue.poll();
+                    if (item == null) {
+                        break;
+                    }
+
+                    if (item instanceof PromiseImpl) {
+                        sendReply((PromiseImpl) item);
+                    } else {
+                        batch.add((SimulatorOperation) item);
+                        if (batch.size() == MAX_BATCH_SIZE) {
+                            sendBatch();
+                        }
+                    }
+                }
+                sendBatch();
+            } catch (Exception e) {
+                LOGGER.warn("Failed to flush pending operations: " + e.getMessage());
             }
         }
     }
@@ -229,6 +472,13 @@ public class Server implements Closeable {
                 while (!stop) {
                     handle();
                 }
+            } catch (IOException e) {
+                if (!stop) {
+                    // the connection to the router is lost; this is reported like a broken JMS connection
+                    JMSException jmsException = new JMSException("Lost connection to [" + brokerURL + "]");
+                    jmsException.setLinkedException(e);
+                    exceptionListener.onException(jmsException);
+                }
             } catch (Throwable e) {
                 if (!stop) {
                     LOGGER.error(e.getMessage(), e);
@@ -239,11 +489,14 @@ public class Server implements Closeable {
         }
 
         private void handle() throws Exception {
+            if (frameChannel != null) {
+                handleFrame(Frame.decode(frameChannel.read(), Frame.LENGTH_PREFIX_BYTES));
+                return;
+            }
+
             Message message = consumer.receive();
 
-            OperationType operationType = OperationType.fromInt(message.getIntProperty("operationType"));
-            String operationData = message.getStringProperty("payload");
-            SimulatorOperation op = OperationCodec.fromJson(operationData, operationType.getClassType());
+            SimulatorOperation op = readOperation(message);
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Received operation:" + op);
             }
@@ -252,8 +505,30 @@ public class Server implements Closeable {
             promise.correlationId = message.getJMSCorrelationID();
             promise.op = op;
 
-            SimulatorAddress source = SimulatorAddress.fromString(message.getStringProperty("source"));
+            process(op, SimulatorAddress.fromString(message.getStringProperty("source")), promise);
+        }
+
+        private void handleFrame(Frame frame) throws Exception {
+            SimulatorAddress source = SimulatorAddress.fromString(frame.source);
+            List<SimulatorOperation> operations = frame.type == Frame.OPERATIONS
+                    ? frame.readOperations()
+                    : Collections.<SimulatorOperation>emptyList();
+            for (SimulatorOperation op : operations) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Received operation:" + op);
+                }
+                PromiseImpl promise = new PromiseImpl();
+                if (frame.isRequest()) {
+                    promise.replyAddress = frame.source;
+                    promise.correlationId = frame.correlationId;
+                }
+                promise.op = op;
+
+                process(op, source, promise);
+            }
+        }
 
+        private void process(SimulatorOperation op, SimulatorAddress source, PromiseImpl promise) throws Exception {
             try {
                 processor.process(op, source, promise);
             } catch (Exception e) {
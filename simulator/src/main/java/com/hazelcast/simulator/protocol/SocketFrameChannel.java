@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import static com.hazelcast.simulator.protocol.Frame.LENGTH_PREFIX_BYTES;
+import static com.hazelcast.simulator.protocol.Frame.MAX_FRAME_LENGTH;
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+
+/**
+ * A blocking TCP connection to a {@link FrameRouter}, used for the {@link TransportType#NIO} transport.
+ */
+final class SocketFrameChannel extends FrameChannel {
+
+    private final SocketChannel channel;
+    private final ByteBuffer lengthBuffer = ByteBuffer.allocate(LENGTH_PREFIX_BYTES);
+    private final Object writeMutex = new Object();
+
+    private SocketFrameChannel(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Connects to a {@link FrameRouter} and registers the given address.
+     *
+     * This call blocks till the router has acknowledged the registration.
+     *
+     * @param host    the host of the router
+     * @param port    the port of the router
+     * @param address the address to register
+     * @return the connected FrameChannel
+     * @throws IOException if the connection can't be made
+     */
+    static SocketFrameChannel connect(String host, int port, String address) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().setTcpNoDelay(true);
+            channel.connect(new InetSocketAddress(host, port));
+            SocketFrameChannel frameChannel = new SocketFrameChannel(channel);
+            frameChannel.write(Frame.hello(address));
+            if (Frame.decode(frameChannel.read(), LENGTH_PREFIX_BYTES).type != Frame.HELLO) {
+                throw new IOException("Expected HELLO frame from router");
+            }
+            return frameChannel;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    @Override
+    void write(ByteBuffer frame) throws IOException {
+        synchronized (writeMutex) {
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+        }
+    }
+
+    @Override
+    byte[] read() throws IOException {
+        lengthBuffer.clear();
+        readFully(lengthBuffer);
+        int length = lengthBuffer.getInt(0);
+        if (length <= 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_PREFIX_BYTES + length);
+        frame.putInt(length);
+        readFully(frame);
+        return frame.array();
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) {
+                throw new EOFException("Connection closed");
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(channel);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol;
+
+import static java.lang.String.format;
+
+/**
+ * Defines how the coordinator, agents and workers exchange messages.
+ *
+ * The agent, the coordinator and the workers need to use the same transport.
+ */
+public enum TransportType {
+
+    /**
+     * Each agent runs an embedded ActiveMQ {@link Broker} and the messages are sent over JMS topics. A worker uses a message
+     * selector to receive the messages for its own address.
+     */
+    JMS,
+
+    /**
+     * Each agent runs a {@link FrameRouter} and the messages are sent as length prefixed frames over TCP. The router forwards
+     * each frame to the connection of its target address.
+     */
+    NIO,
+
+    /**
+     * The coordinator, the agent and the workers run in a single JVM and the frames are exchanged in memory by an
+     * {@link EmbeddedRouter}. The agent starts the workers in the same JVM, each with its own classloader.
+     */
+    EMBEDDED;
+
+    /**
+     * Checks if this transport exchanges {@link Frame}s instead of JMS messages.
+     *
+     * @return {@code true} if frames are used, {@code false} otherwise
+     */
+    boolean usesFrames() {
+        return this != JMS;
+    }
+
+    /**
+     * Returns the {@link TransportType} for the value of the TRANSPORT property.
+     *
+     * @param value the value of the property; {@code null} or an empty value results in {@link #JMS}
+     * @return the TransportType
+     * @throws IllegalArgumentException if the value is not a known transport
+     */
+    public static TransportType fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return JMS;
+        }
+
+        for (TransportType transportType : values()) {
+            if (transportType.name().equalsIgnoreCase(value.trim())) {
+                return transportType;
+            }
+        }
+        throw new IllegalArgumentException(format("Unknown TRANSPORT [%s]", value));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol.operation;
+
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static com.hazelcast.simulator.protocol.operation.OperationType.getOperationType;
+
+/**
+ * Encodes and decodes a {@link SimulatorOperation} in a compact binary format.
+ *
+ * This is the binary alternative for the {@link OperationCodec}; it avoids the Gson reflection and the string
+ * representation of the JSON codec. The serializer for each {@link OperationType} is created once and cached.
+ */
+public final class BinaryOperationCodec {
+
+    private static final Map<OperationType, ObjectCodec> CODECS = new EnumMap<OperationType, ObjectCodec>(OperationType.class);
+
+    private static final ThreadLocal<BinaryOutput> OUTPUT = new ThreadLocal<BinaryOutput>() {
+        @Override
+        protected BinaryOutput initialValue() {
+            return new BinaryOutput();
+        }
+    };
+
+    static {
+        for (OperationType operationType : OperationType.values()) {
+            CODECS.put(operationType, ObjectCodec.forClass(operationType.getClassType()));
+        }
+    }
+
+    private BinaryOperationCodec() {
+    }
+
+    public static byte[] toBytes(SimulatorOperation op) {
+        BinaryOutput out = OUTPUT.get();
+        out.clear();
+        CODECS.get(getOperationType(op)).write(out, op);
+        return out.toByteArray();
+    }
+
+    public static SimulatorOperation fromBytes(byte[] bytes, OperationType operationType) {
+        return (SimulatorOperation) CODECS.get(operationType).read(ByteBuffer.wrap(bytes));
+    }
+}
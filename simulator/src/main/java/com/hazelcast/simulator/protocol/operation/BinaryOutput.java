@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol.operation;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A growable buffer the {@link BinaryOperationCodec} writes to.
+ *
+ * Strings are written as a length prefixed UTF-8 byte array, so there is no limit on the size of a string (unlike
+ * {@link java.io.DataOutputStream#writeUTF(String)}).
+ */
+final class BinaryOutput {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_PRIMITIVE_SIZE = 8;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    void clear() {
+        buffer.clear();
+    }
+
+    void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        buffer.put((byte) value);
+    }
+
+    void writeInt(int value) {
+        ensureCapacity(MAX_PRIMITIVE_SIZE);
+        buffer.putInt(value);
+    }
+
+    void writeLong(long value) {
+        ensureCapacity(MAX_PRIMITIVE_SIZE);
+        buffer.putLong(value);
+    }
+
+    void writeDouble(double value) {
+        ensureCapacity(MAX_PRIMITIVE_SIZE);
+        buffer.putDouble(value);
+    }
+
+    void writeString(String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeInt(bytes.length);
+        ensureCapacity(bytes.length);
+        buffer.put(bytes);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private void ensureCapacity(int size) {
+        if (buffer.remaining() >= size) {
+            return;
+        }
+
+        int newCapacity = Math.max(buffer.capacity() * 2, buffer.position() + size);
+        ByteBuffer newBuffer = ByteBuffer.allocate(newCapacity);
+        buffer.flip();
+        newBuffer.put(buffer);
+        buffer = newBuffer;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol.operation;
+
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.hazelcast.simulator.utils.ReflectionException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.format;
+
+/**
+ * A {@link ValueCodec} which writes all non static and non transient fields of a Simulator class.
+ *
+ * The fields are written in a fixed order: the fields of the super class first and within a class sorted by name. There is
+ * no field name or type information in the binary format; both sides need to have the same version of the class.
+ *
+ * The codec for a class is created once and cached. A class without a default constructor is instantiated by the Gson
+ * {@link TypeAdapter} of the class, so the binary codec creates the same instances as the {@link OperationCodec}.
+ *
+ * Polymorphic values are not supported: the fields are resolved for the declared class, so writing an instance of a sub
+ * class would silently drop its fields. Such a value is rejected with a {@link ReflectionException}.
+ */
+final class ObjectCodec implements ValueCodec {
+
+    private static final String SIMULATOR_PACKAGE = "com.hazelcast.simulator.";
+    private static final Map<Class<?>, ObjectCodec> CODECS = new HashMap<Class<?>, ObjectCodec>();
+
+    private static final Comparator<Field> FIELD_NAME_COMPARATOR = new Comparator<Field>() {
+        @Override
+        public int compare(Field field1, Field field2) {
+            return field1.getName().compareTo(field2.getName());
+        }
+    };
+
+    private final Class<?> type;
+    private final Constructor<?> constructor;
+    private final TypeAdapter<?> typeAdapter;
+    private FieldCodec[] fieldCodecs;
+
+    private ObjectCodec(Class<?> type) {
+        this.type = type;
+        this.constructor = findDefaultConstructor(type);
+        this.typeAdapter = constructor == null ? ValueCodecs.GSON.getAdapter(type) : null;
+    }
+
+    static boolean isSupported(Class<?> type) {
+        return !type.isInterface()
+                && !type.isArray()
+                && !Modifier.isAbstract(type.getModifiers())
+                && type.getName().startsWith(SIMULATOR_PACKAGE);
+    }
+
+    static synchronized ObjectCodec forClass(Class<?> type) {
+        ObjectCodec codec = CODECS.get(type);
+        if (codec == null) {
+            codec = new ObjectCodec(type);
+            // the codec is registered before the fields are resolved, so a class can refer to itself
+            CODECS.put(type, codec);
+            try {
+                codec.fieldCodecs = createFieldCodecs(type);
+            } catch (RuntimeException e) {
+                CODECS.remove(type);
+                throw e;
+            }
+        }
+        return codec;
+    }
+
+    @Override
+    public void write(BinaryOutput out, Object value) {
+        if (value.getClass() != type) {
+            throw new ReflectionException(format("Could not write %s as %s, polymorphic values are not supported",
+                    value.getClass().getName(), type.getName()));
+        }
+        try {
+            for (FieldCodec fieldCodec : fieldCodecs) {
+                fieldCodec.write(out, value);
+            }
+        } catch (IllegalAccessException e) {
+            throw new ReflectionException("Could not write " + type.getName(), e);
+        }
+    }
+
+    @Override
+    public Object read(ByteBuffer in) {
+        Object value = newInstance();
+        try {
+            for (FieldCodec fieldCodec : fieldCodecs) {
+                fieldCodec.read(in, value);
+            }
+        } catch (IllegalAccessException e) {
+            throw new ReflectionException("Could not read " + type.getName(), e);
+        }
+        return value;
+    }
+
+    private Object newInstance() {
+        if (constructor != null) {
+            return ValueCodecs.newInstance(constructor);
+        }
+        try {
+            // an empty JSON object leaves all fields at their default value, the fields are read afterwards
+            return typeAdapter.fromJsonTree(new JsonObject());
+        } catch (RuntimeException e) {
+            throw new ReflectionException("Could not create instance of " + type.getName(), e);
+        }
+    }
+
+    private static Constructor<?> findDefaultConstructor(Class<?> type) {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static FieldCodec[] createFieldCodecs(Class<?> type) {
+        LinkedList<Class<?>> hierarchy = new LinkedList<Class<?>>();
+        for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            hierarchy.addFirst(clazz);
+        }
+
+        List<FieldCodec> fieldCodecs = new ArrayList<FieldCodec>();
+        for (Class<?> clazz : hierarchy) {
+            Field[] fields = clazz.getDeclaredFields();
+            Arrays.sort(fields, FIELD_NAME_COMPARATOR);
+            for (Field field : fields) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fieldCodecs.add(createFieldCodec(field));
+            }
+        }
+        return fieldCodecs.toArray(new FieldCodec[0]);
+    }
+
+    private static FieldCodec createFieldCodec(Field field) {
+        Class<?> fieldType = field.getType();
+        if (fieldType == int.class) {
+            return new IntFieldCodec(field);
+        } else if (fieldType == long.class) {
+            return new LongFieldCodec(field);
+        } else if (fieldType == double.class) {
+            return new DoubleFieldCodec(field);
+        } else if (fieldType == boolean.class) {
+            return new BooleanFieldCodec(field);
+        }
+        return new ReferenceFieldCodec(field, ValueCodecs.forType(field.getGenericType()));
+    }
+
+    private abstract static class FieldCodec {
+
+        protected final Field field;
+
+        FieldCodec(Field field) {
+            this.field = field;
+        }
+
+        abstract void write(BinaryOutput out, Object owner) throws IllegalAccessException;
+
+        abstract void read(ByteBuffer in, Object owner) throws IllegalAccessException;
+    }
+
+    private static final class IntFieldCodec extends FieldCodec {
+
+        IntFieldCodec(Field field) {
+            super(field);
+        }
+
+        @Override
+        void write(BinaryOutput out, Object owner) throws IllegalAccessException {
+            out.writeInt(field.getInt(owner));
+        }
+
+        @Override
+        void read(ByteBuffer in, Object owner) throws IllegalAccessException {
+            field.setInt(owner, in.getInt());
+        }
+    }
+
+    private static final class LongFieldCodec extends FieldCodec {
+
+        LongFieldCodec(Field field) {
+            super(field);
+        }
+
+        @Override
+        void write(BinaryOutput out, Object owner) throws IllegalAccessException {
+            out.writeLong(field.getLong(owner));
+        }
+
+        @Override
+        void read(ByteBuffer in, Object owner) throws IllegalAccessException {
+            field.setLong(owner, in.getLong());
+        }
+    }
+
+    private static final class DoubleFieldCodec extends FieldCodec {
+
+        DoubleFieldCodec(Field field) {
+            super(field);
+        }
+
+        @Override
+        void write(BinaryOutput out, Object owner) throws IllegalAccessException {
+            out.writeDouble(field.getDouble(owner));
+        }
+
+        @Override
+        void read(ByteBuffer in, Object owner) throws IllegalAccessException {
+            field.setDouble(owner, in.getDouble());
+        }
+    }
+
+    private static final class BooleanFieldCodec extends FieldCodec {
+
+        BooleanFieldCodec(Field field) {
+            super(field);
+        }
+
+        @Override
+        void write(BinaryOutput out, Object owner) throws IllegalAccessException {
+            out.writeBoolean(field.getBoolean(owner));
+        }
+
+        @Override
+        void read(ByteBuffer in, Object owner) throws IllegalAccessException {
+            field.setBoolean(owner, in.get() != 0);
+        }
+    }
+
+    private static final class ReferenceFieldCodec extends FieldCodec {
+
+        private final ValueCodec valueCodec;
+
+        ReferenceFieldCodec(Field field, ValueCodec valueCodec) {
+            super(field);
+            this.valueCodec = valueCodec;
+        }
+
+        @Override
+        void write(BinaryOutput out, Object owner) throws IllegalAccessException {
+            valueCodec.write(out, field.get(owner));
+        }
+
+        @Override
+        void read(ByteBuffer in, Object owner) throws IllegalAccessException {
+            field.set(owner, valueCodec.read(in));
+        }
+    }
+}
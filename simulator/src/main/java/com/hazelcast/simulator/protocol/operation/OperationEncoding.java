@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol.operation;
+
+import static java.lang.String.format;
+
+/**
+ * Defines how a {@link SimulatorOperation} is encoded in a message.
+ *
+ * The receiving side detects the encoding of a message, so the encoding only needs to be configured on the sending side.
+ */
+public enum OperationEncoding {
+
+    /**
+     * The operation is encoded with the {@link OperationCodec} into a string property of the message.
+     */
+    JSON,
+
+    /**
+     * The operation is encoded with the {@link BinaryOperationCodec} into the body of a bytes message.
+     */
+    BINARY;
+
+    /**
+     * Returns the {@link OperationEncoding} for the value of the OPERATION_ENCODING property.
+     *
+     * @param value the value of the property; {@code null} or an empty value results in {@link #JSON}
+     * @return the OperationEncoding
+     * @throws IllegalArgumentException if the value is not a known encoding
+     */
+    public static OperationEncoding fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return JSON;
+        }
+
+        for (OperationEncoding encoding : values()) {
+            if (encoding.name().equalsIgnoreCase(value.trim())) {
+                return encoding;
+            }
+        }
+        throw new IllegalArgumentException(format("Unknown OPERATION_ENCODING [%s]", value));
+    }
+}
@@ -21,6 +21,7 @@ import com.hazelcast.simulator.agent.operations.StopTimeoutDetectionOperation;
 import com.hazelcast.simulator.coordinator.operations.FailureOperation;
 import com.hazelcast.simulator.coordinator.operations.RcDownloadOperation;
 import com.hazelcast.simulator.coordinator.operations.RcInstallOperation;
+import com.hazelcast.simulator.coordinator.operations.RcPerformanceHistoryOperation;
 import com.hazelcast.simulator.coordinator.operations.RcPrintLayoutOperation;
 import com.hazelcast.simulator.coordinator.operations.RcStopCoordinatorOperation;
 import com.hazelcast.simulator.coordinator.operations.RcTestRunOperation;
@@ -31,6 +32,8 @@ import com.hazelcast.simulator.coordinator.operations.RcWorkerScriptOperation;
 import com.hazelcast.simulator.coordinator.operations.RcWorkerStartOperation;
 import com.hazelcast.simulator.worker.operations.CreateTestOperation;
 import com.hazelcast.simulator.worker.operations.ExecuteScriptOperation;
+import com.hazelcast.simulator.worker.operations.PerformanceHistoryOperation;
+import com.hazelcast.simulator.worker.operations.RetuneRateOperation;
 import com.hazelcast.simulator.worker.operations.PerformanceStatsOperation;
 import com.hazelcast.simulator.worker.operations.StartPhaseOperation;
 import com.hazelcast.simulator.worker.operations.StopRunOperation;
@@ -64,6 +67,7 @@ public enum OperationType {
     RC_WORKER_START(RcWorkerStartOperation.class, 2007),
     RC_PRINT_LAYOUT(RcPrintLayoutOperation.class, 2008),
     RC_DOWNLOAD(RcDownloadOperation.class, 2009),
+    RC_PERFORMANCE_HISTORY(RcPerformanceHistoryOperation.class, 2010),
 
     // Agent-Operations
     CREATE_WORKER(CreateWorkerOperation.class, 3000),
@@ -75,7 +79,9 @@ public enum OperationType {
     CREATE_TEST(CreateTestOperation.class, 4002),
     EXECUTE_SCRIPT(ExecuteScriptOperation.class, 4003),
     START_TEST_PHASE(StartPhaseOperation.class, 4004),
-    STOP_TEST(StopRunOperation.class, 4005);
+    STOP_TEST(StopRunOperation.class, 4005),
+    PERFORMANCE_HISTORY(PerformanceHistoryOperation.class, 4006),
+    RETUNE_RATE(RetuneRateOperation.class, 4007);
 
     private final Class<? extends SimulatorOperation> classType;
     private final int classId;
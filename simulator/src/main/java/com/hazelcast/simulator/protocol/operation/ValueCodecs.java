@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol.operation;
+
+import com.google.gson.Gson;
+import com.hazelcast.simulator.utils.ReflectionException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Creates the {@link ValueCodec} for a (generic) type.
+ *
+ * Strings, primitives, enums, collections, maps and Simulator classes are written in a binary format. All other types
+ * fall back to Gson, so the binary codec can deal with any type the {@link OperationCodec} can deal with.
+ */
+final class ValueCodecs {
+
+    static final ValueCodec STRING_CODEC = new ValueCodec() {
+        @Override
+        public void write(BinaryOutput out, Object value) {
+            out.writeString((String) value);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return BinaryOutput.readString(in);
+        }
+    };
+
+    static final ValueCodec BOOLEAN_CODEC = new ValueCodec() {
+        @Override
+        public void write(BinaryOutput out, Object value) {
+            out.writeBoolean((Boolean) value);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return in.get() != 0;
+        }
+    };
+
+    static final ValueCodec INTEGER_CODEC = new ValueCodec() {
+        @Override
+        public void write(BinaryOutput out, Object value) {
+            out.writeInt((Integer) value);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return in.getInt();
+        }
+    };
+
+    static final ValueCodec LONG_CODEC = new ValueCodec() {
+        @Override
+        public void write(BinaryOutput out, Object value) {
+            out.writeLong((Long) value);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return in.getLong();
+        }
+    };
+
+    static final ValueCodec DOUBLE_CODEC = new ValueCodec() {
+        @Override
+        public void write(BinaryOutput out, Object value) {
+            out.writeDouble((Double) value);
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return in.getDouble();
+        }
+    };
+
+    static final Gson GSON = new Gson();
+
+    private static final Map<Class<?>, ValueCodec> SIMPLE_CODECS = new HashMap<Class<?>, ValueCodec>();
+
+    static {
+        SIMPLE_CODECS.put(String.class, STRING_CODEC);
+        SIMPLE_CODECS.put(Boolean.class, BOOLEAN_CODEC);
+        SIMPLE_CODECS.put(boolean.class, BOOLEAN_CODEC);
+        SIMPLE_CODECS.put(Integer.class, INTEGER_CODEC);
+        SIMPLE_CODECS.put(int.class, INTEGER_CODEC);
+        SIMPLE_CODECS.put(Long.class, LONG_CODEC);
+        SIMPLE_CODECS.put(long.class, LONG_CODEC);
+        SIMPLE_CODECS.put(Double.class, DOUBLE_CODEC);
+        SIMPLE_CODECS.put(double.class, DOUBLE_CODEC);
+    }
+
+    private ValueCodecs() {
+    }
+
+    /**
+     * Returns the {@link ValueCodec} for a type. The codec of a non primitive type deals with {@code null} values.
+     *
+     * @param type the type to create the codec for
+     * @return the created ValueCodec
+     */
+    static ValueCodec forType(Type type) {
+        Class<?> rawType = rawType(type);
+        ValueCodec codec = SIMPLE_CODECS.get(rawType);
+        if (codec != null && rawType.isPrimitive()) {
+            return codec;
+        }
+        if (codec == null) {
+            codec = forComplexType(type, rawType);
+        }
+        return new NullSafeCodec(codec);
+    }
+
+    private static ValueCodec forComplexType(Type type, Class<?> rawType) {
+        if (rawType.isEnum()) {
+            return new EnumCodec(rawType);
+        }
+        if (Map.class.isAssignableFrom(rawType)) {
+            Constructor<?> constructor = containerConstructor(rawType, SortedMap.class, TreeMap.class, LinkedHashMap.class);
+            return new MapCodec(constructor, forType(typeArgument(type, 0)), forType(typeArgument(type, 1)));
+        }
+        if (Collection.class.isAssignableFrom(rawType)) {
+            Class<?> defaultType = Set.class.isAssignableFrom(rawType) ? LinkedHashSet.class : ArrayList.class;
+            Constructor<?> constructor = containerConstructor(rawType, SortedSet.class, TreeSet.class, defaultType);
+            return new CollectionCodec(constructor, forType(typeArgument(type, 0)));
+        }
+        if (ObjectCodec.isSupported(rawType)) {
+            return ObjectCodec.forClass(rawType);
+        }
+        return new JsonCodec(type);
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return Object.class;
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            return ((ParameterizedType) type).getActualTypeArguments()[index];
+        }
+        return Object.class;
+    }
+
+    private static Constructor<?> containerConstructor(Class<?> rawType, Class<?> sortedType, Class<?> sortedDefault,
+                                                       Class<?> defaultType) {
+        Class<?> containerType = rawType;
+        if (rawType.isInterface() || Modifier.isAbstract(rawType.getModifiers())) {
+            containerType = sortedType.isAssignableFrom(rawType) ? sortedDefault : defaultType;
+        }
+        try {
+            Constructor<?> constructor = containerType.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException e) {
+            throw new ReflectionException("No default constructor found for " + containerType.getName(), e);
+        }
+    }
+
+    static Object newInstance(Constructor<?> constructor) {
+        try {
+            return constructor.newInstance();
+        } catch (Exception e) {
+            throw new ReflectionException("Could not create instance of " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    private static final class NullSafeCodec implements ValueCodec {
+
+        private final ValueCodec codec;
+
+        private NullSafeCodec(ValueCodec codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public void write(BinaryOutput out, Object value) {
+            if (value == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                codec.write(out, value);
+            }
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return in.get() == 0 ? null : codec.read(in);
+        }
+    }
+
+    private static final class EnumCodec implements ValueCodec {
+
+        private final Object[] constants;
+
+        private EnumCodec(Class<?> enumType) {
+            this.constants = enumType.getEnumConstants();
+        }
+
+        @Override
+        public void write(BinaryOutput out, Object value) {
+            out.writeInt(((Enum) value).ordinal());
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return constants[in.getInt()];
+        }
+    }
+
+    private static final class CollectionCodec implements ValueCodec {
+
+        private final Constructor<?> constructor;
+        private final ValueCodec elementCodec;
+
+        private CollectionCodec(Constructor<?> constructor, ValueCodec elementCodec) {
+            this.constructor = constructor;
+            this.elementCodec = elementCodec;
+        }
+
+        @Override
+        public void write(BinaryOutput out, Object value) {
+            Collection<?> collection = (Collection<?>) value;
+            out.writeInt(collection.size());
+            for (Object element : collection) {
+                elementCodec.write(out, element);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object read(ByteBuffer in) {
+            Collection<Object> collection = (Collection<Object>) newInstance(constructor);
+            int size = in.getInt();
+            for (int i = 0; i < size; i++) {
+                collection.add(elementCodec.read(in));
+            }
+            return collection;
+        }
+    }
+
+    private static final class MapCodec implements ValueCodec {
+
+        private final Constructor<?> constructor;
+        private final ValueCodec keyCodec;
+        private final ValueCodec valueCodec;
+
+        private MapCodec(Constructor<?> constructor, ValueCodec keyCodec, ValueCodec valueCodec) {
+            this.constructor = constructor;
+            this.keyCodec = keyCodec;
+            this.valueCodec = valueCodec;
+        }
+
+        @Override
+        public void write(BinaryOutput out, Object value) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                keyCodec.write(out, entry.getKey());
+                valueCodec.write(out, entry.getValue());
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object read(ByteBuffer in) {
+            Map<Object, Object> map = (Map<Object, Object>) newInstance(constructor);
+            int size = in.getInt();
+            for (int i = 0; i < size; i++) {
+                Object key = keyCodec.read(in);
+                map.put(key, valueCodec.read(in));
+            }
+            return map;
+        }
+    }
+
+    private static final class JsonCodec implements ValueCodec {
+
+        private final Type type;
+
+        private JsonCodec(Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(BinaryOutput out, Object value) {
+            out.writeString(GSON.toJson(value, type));
+        }
+
+        @Override
+        public Object read(ByteBuffer in) {
+            return GSON.fromJson(BinaryOutput.readString(in), type);
+        }
+    }
+}
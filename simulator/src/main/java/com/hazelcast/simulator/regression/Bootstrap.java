@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.regression;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Calculates bootstrap confidence intervals for the relative difference of the means of two series of interval values.
+ *
+ * The intervals of both series are resampled with replacement, and the relative difference of the means of the resampled
+ * series is calculated for every iteration. The confidence interval is taken from the percentiles of these differences, so no
+ * assumption about the distribution of the interval values is needed.
+ *
+ * This class is not thread-safe, since it shares its {@link Random}.
+ */
+final class Bootstrap {
+
+    private final int iterations;
+    private final double confidence;
+    private final Random random;
+
+    /**
+     * Creates a Bootstrap.
+     *
+     * @param iterations the number of resamples
+     * @param confidence the confidence level, e.g. 0.95
+     * @param seed       the seed of the random resampling, so the results can be reproduced
+     * @throws IllegalArgumentException if iterations is smaller than 1 or the confidence is not between 0 and 1
+     */
+    Bootstrap(int iterations, double confidence, long seed) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations should be larger than 0, but was " + iterations);
+        }
+        if (confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("confidence should be between 0 and 1, but was " + confidence);
+        }
+        this.iterations = iterations;
+        this.confidence = confidence;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Calculates the relative difference of the mean of the candidate to the mean of the baseline, e.g. 0.1 if the candidate
+     * is 10% higher, and its confidence interval.
+     *
+     * @param baseline  the interval values of the baseline
+     * @param candidate the interval values of the candidate
+     * @return the difference as array of the lower bound, the estimate and the upper bound
+     * @throws IllegalArgumentException if a series is empty
+     */
+    double[] relativeDifference(double[] baseline, double[] candidate) {
+        if (baseline.length == 0 || candidate.length == 0) {
+            throw new IllegalArgumentException("the series should not be empty");
+        }
+
+        double[] differences = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            differences[i] = relativeDifference(resampledMean(baseline), resampledMean(candidate));
+        }
+        Arrays.sort(differences);
+
+        double alpha = 1 - confidence;
+        int lower = (int) Math.floor(alpha / 2 * iterations);
+        int upper = Math.min(iterations - 1, (int) Math.ceil((1 - alpha / 2) * iterations) - 1);
+        return new double[]{differences[lower], relativeDifference(mean(baseline), mean(candidate)), differences[upper]};
+    }
+
+    private double resampledMean(double[] values) {
+        double sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[random.nextInt(values.length)];
+        }
+        return sum / values.length;
+    }
+
+    static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double relativeDifference(double baseline, double candidate) {
+        if (baseline == 0) {
+            return candidate == 0 ? 0 : Double.POSITIVE_INFINITY;
+        }
+        return (candidate - baseline) / baseline;
+    }
+}
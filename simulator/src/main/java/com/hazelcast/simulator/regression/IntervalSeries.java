@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.regression;
+
+import com.hazelcast.simulator.utils.UncheckedIOException;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.isBeforeSteadyState;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.readSteadyStateStartTimeMillis;
+import static java.lang.String.format;
+
+/**
+ * The interval values of a single probe of a session, loaded from its merged HDR file.
+ *
+ * Per interval the throughput and the latency percentiles are taken; the intervals are the samples of the bootstrap, see
+ * {@link Bootstrap}. Intervals without any recorded latency only count for the throughput.
+ *
+ * The warmup is skipped: if the HDR file has a start of the steady state, see
+ * {@link com.hazelcast.simulator.utils.HistogramLogMerger}, the intervals before it are skipped. A fixed warmup period can be
+ * skipped in addition, e.g. for HDR files of workers without steady state detection.
+ */
+final class IntervalSeries {
+
+    // the recorded values are in nanoseconds, the latencies are reported in microseconds
+    private static final double LATENCY_UNIT_RATIO = 1000;
+    private static final double MILLIS_PER_SECOND = 1000;
+
+    private final double[] throughputs;
+    private final double[][] latencies;
+
+    private IntervalSeries(double[] throughputs, double[][] latencies) {
+        this.throughputs = throughputs;
+        this.latencies = latencies;
+    }
+
+    /**
+     * Returns the throughput of each interval in operations per second.
+     *
+     * @return the throughputs
+     */
+    double[] getThroughputs() {
+        return throughputs;
+    }
+
+    /**
+     * Returns the latency of each interval with recorded values at a percentile in microseconds.
+     *
+     * @param percentileIndex the index of the percentile passed to {@link #load(File, double[], long)}
+     * @return the latencies
+     */
+    double[] getLatencies(int percentileIndex) {
+        return latencies[percentileIndex];
+    }
+
+    /**
+     * Loads the interval values of a HDR file.
+     *
+     * @param hdrFile      the HDR file
+     * @param percentiles  the latency percentiles to take of each interval
+     * @param warmupMillis the intervals starting within this period after the start of the first interval are skipped,
+     *                     in addition to the intervals before the start of the steady state
+     * @return the loaded IntervalSeries
+     * @throws UncheckedIOException  if the file could not be read
+     * @throws IllegalStateException if the file is malformed
+     */
+    static IntervalSeries load(File hdrFile, double[] percentiles, long warmupMillis) {
+        List<Double> throughputs = new ArrayList<Double>();
+        List<List<Double>> latencies = new ArrayList<List<Double>>(percentiles.length);
+        for (int i = 0; i < percentiles.length; i++) {
+            latencies.add(new ArrayList<Double>());
+        }
+
+        InputStream inputStream = null;
+        try {
+            inputStream = new BufferedInputStream(new FileInputStream(hdrFile));
+            HistogramLogReader reader = new HistogramLogReader(inputStream);
+            long steadyStateStartTimeMillis = readSteadyStateStartTimeMillis(hdrFile);
+            long warmupEndMillis = -1;
+            Histogram histogram;
+            while ((histogram = nextIntervalHistogram(reader, hdrFile)) != null) {
+                if (warmupEndMillis == -1) {
+                    warmupEndMillis = histogram.getStartTimeStamp() + warmupMillis;
+                }
+                boolean empty = histogram.getEndTimeStamp() <= histogram.getStartTimeStamp();
+                if (empty || histogram.getStartTimeStamp() < warmupEndMillis
+                        || isBeforeSteadyState(histogram, steadyStateStartTimeMillis)) {
+                    continue;
+                }
+                add(histogram, percentiles, throughputs, latencies);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            closeQuietly(inputStream);
+        }
+
+        double[][] latencyArrays = new double[percentiles.length][];
+        for (int i = 0; i < percentiles.length; i++) {
+            latencyArrays[i] = toArray(latencies.get(i));
+        }
+        return new IntervalSeries(toArray(throughputs), latencyArrays);
+    }
+
+    private static Histogram nextIntervalHistogram(HistogramLogReader reader, File hdrFile) {
+        try {
+            return (Histogram) reader.nextIntervalHistogram();
+        } catch (RuntimeException e) {
+            throw new IllegalStateException(format("%s is malformed", hdrFile), e);
+        }
+    }
+
+    private static void add(Histogram histogram, double[] percentiles, List<Double> throughputs, List<List<Double>> latencies) {
+        long durationMillis = histogram.getEndTimeStamp() - histogram.getStartTimeStamp();
+        throughputs.add(histogram.getTotalCount() * MILLIS_PER_SECOND / durationMillis);
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        for (int i = 0; i < percentiles.length; i++) {
+            latencies.get(i).add(histogram.getValueAtPercentile(percentiles[i]) / LATENCY_UNIT_RATIO);
+        }
+    }
+
+    private static double[] toArray(List<Double> values) {
+        double[] result = new double[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.regression;
+
+import com.hazelcast.simulator.regression.Verdict.Comparison;
+import com.hazelcast.simulator.regression.Verdict.Result;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.hazelcast.simulator.regression.Bootstrap.mean;
+
+/**
+ * Compares the merged HDR files of sessions against a baseline session to find statistically significant regressions.
+ *
+ * The merged HDR files are written to the session directory by the
+ * {@link com.hazelcast.simulator.utils.HistogramLogPostProcessor}; every file is a probe. For each probe the throughput and
+ * the latency percentiles of the intervals are compared, see {@link IntervalSeries}. The relative difference of the means and
+ * its confidence interval are calculated with a {@link Bootstrap} over the intervals.
+ *
+ * A metric is a regression if the confidence interval doesn't contain zero, so the difference is significant, and the candidate
+ * is worse than the baseline by more than the threshold; so noise and tiny differences don't fail a pipeline. A lower
+ * throughput and a higher latency are worse.
+ *
+ * A probe of the baseline which is missing in a session or has too few intervals, and a session without any merged HDR files
+ * make the Verdict insufficient data, since a broken benchmark must not pass as no regression. A probe which only exists in a
+ * session is reported as new probe.
+ */
+public class RegressionDetector {
+
+    static final String THROUGHPUT = "throughput";
+
+    private static final Logger LOGGER = Logger.getLogger(RegressionDetector.class);
+    private static final String HDR_EXTENSION = ".hdr";
+
+    private final Bootstrap bootstrap;
+    private final double confidence;
+    private final double threshold;
+    private final double[] percentiles;
+    private final long warmupMillis;
+
+    /**
+     * Creates a RegressionDetector.
+     *
+     * @param bootstrap    the Bootstrap to calculate the confidence intervals
+     * @param confidence   the confidence level of the bootstrap, e.g. 0.95
+     * @param threshold    the minimal relative difference to report a regression or improvement, e.g. 0.05
+     * @param percentiles  the latency percentiles to compare, e.g. 50, 99 and 99.9
+     * @param warmupMillis the period at the start of each HDR file which is skipped
+     */
+    RegressionDetector(Bootstrap bootstrap, double confidence, double threshold, double[] percentiles, long warmupMillis) {
+        this.bootstrap = bootstrap;
+        this.confidence = confidence;
+        this.threshold = threshold;
+        this.percentiles = percentiles;
+        this.warmupMillis = warmupMillis;
+    }
+
+    /**
+     * Compares the sessions against the baseline session.
+     *
+     * @param baselineDirectory  the session directory of the baseline
+     * @param sessionDirectories the session directories to compare
+     * @return the Verdict
+     */
+    public Verdict compare(File baselineDirectory, List<File> sessionDirectories) {
+        Verdict verdict = new Verdict(baselineDirectory.getPath(), confidence, threshold);
+        Map<String, File> baselineFiles = findHdrFiles(baselineDirectory);
+        if (baselineFiles.isEmpty()) {
+            LOGGER.warn("No merged HDR files found in " + baselineDirectory);
+            verdict.setInsufficientData();
+        }
+
+        for (File sessionDirectory : sessionDirectories) {
+            String session = sessionDirectory.getPath();
+            Map<String, File> sessionFiles = findHdrFiles(sessionDirectory);
+            if (sessionFiles.isEmpty()) {
+                LOGGER.warn("No merged HDR files found in " + sessionDirectory);
+                verdict.setInsufficientData();
+            }
+            for (Map.Entry<String, File> entry : baselineFiles.entrySet()) {
+                String probe = entry.getKey();
+                File sessionFile = sessionFiles.get(probe);
+                if (sessionFile == null) {
+                    verdict.add(log(new Comparison(session, probe, THROUGHPUT, Result.INSUFFICIENT_DATA)));
+                    continue;
+                }
+                compare(verdict, session, probe,
+                        IntervalSeries.load(entry.getValue(), percentiles, warmupMillis),
+                        IntervalSeries.load(sessionFile, percentiles, warmupMillis));
+            }
+            for (String probe : sessionFiles.keySet()) {
+                if (!baselineFiles.containsKey(probe)) {
+                    verdict.add(log(new Comparison(session, probe, THROUGHPUT, Result.NEW_PROBE)));
+                }
+            }
+        }
+        return verdict;
+    }
+
+    private void compare(Verdict verdict, String session, String probe, IntervalSeries baseline, IntervalSeries candidate) {
+        verdict.add(compare(session, probe, THROUGHPUT, baseline.getThroughputs(), candidate.getThroughputs(), true));
+        for (int i = 0; i < percentiles.length; i++) {
+            verdict.add(compare(session, probe, percentileMetric(percentiles[i]),
+                    baseline.getLatencies(i), candidate.getLatencies(i), false));
+        }
+    }
+
+    Comparison compare(String session, String probe, String metric, double[] baseline, double[] candidate,
+                       boolean higherIsBetter) {
+        // a single interval has no variance to base a confidence interval on
+        if (baseline.length < 2 || candidate.length < 2 || mean(baseline) == 0) {
+            return log(new Comparison(session, probe, metric, Result.INSUFFICIENT_DATA));
+        }
+
+        double[] difference = bootstrap.relativeDifference(baseline, candidate);
+        return log(new Comparison(session, probe, metric, judge(difference, higherIsBetter))
+                .setMeans(mean(baseline), mean(candidate))
+                .setChange(difference));
+    }
+
+    private static Comparison log(Comparison comparison) {
+        if (comparison.getResult() == Result.INSUFFICIENT_DATA) {
+            LOGGER.warn(comparison);
+        } else {
+            LOGGER.info(comparison);
+        }
+        return comparison;
+    }
+
+    /**
+     * Judges a relative difference.
+     *
+     * @param difference     the lower bound, the estimate and the upper bound of the relative difference
+     * @param higherIsBetter {@code true} if a higher value of the metric is better, {@code false} otherwise
+     * @return the Result
+     */
+    Result judge(double[] difference, boolean higherIsBetter) {
+        double lower = difference[0];
+        double estimate = difference[1];
+        double upper = difference[2];
+        if (lower > 0 && estimate > threshold) {
+            return higherIsBetter ? Result.IMPROVEMENT : Result.REGRESSION;
+        }
+        if (upper < 0 && estimate < -threshold) {
+            return higherIsBetter ? Result.REGRESSION : Result.IMPROVEMENT;
+        }
+        return Result.NO_CHANGE;
+    }
+
+    static String percentileMetric(double percentile) {
+        if (percentile == Math.rint(percentile)) {
+            return "p" + (long) percentile;
+        }
+        return "p" + percentile;
+    }
+
+    /**
+     * Finds the merged HDR files of a session, by probe name.
+     *
+     * @param sessionDirectory the session directory
+     * @return the HDR files sorted by probe name
+     */
+    static Map<String, File> findHdrFiles(File sessionDirectory) {
+        Map<String, File> result = new TreeMap<String, File>();
+        File[] files = sessionDirectory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(HDR_EXTENSION);
+            }
+        });
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                result.put(name.substring(0, name.length() - HDR_EXTENSION.length()), file);
+            }
+        }
+        return result;
+    }
+}
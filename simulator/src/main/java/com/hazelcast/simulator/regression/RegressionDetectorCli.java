@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.regression;
+
+import com.hazelcast.simulator.utils.CliUtils;
+import com.hazelcast.simulator.utils.CommandLineExitException;
+import joptsimple.NonOptionArgumentSpec;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hazelcast.simulator.utils.CommonUtils.exitWithError;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+@SuppressWarnings({"checkstyle:hideutilityclassconstructor", "FieldCanBeLocal"})
+final class RegressionDetectorCli {
+
+    private static final Logger LOGGER = Logger.getLogger(RegressionDetectorCli.class);
+
+    private final OptionParser parser = new OptionParser();
+
+    private final OptionSpec<Double> confidenceSpec = parser.accepts("confidence",
+            "The confidence level of the confidence intervals.")
+            .withRequiredArg().ofType(Double.class).defaultsTo(0.95);
+
+    private final OptionSpec<Double> thresholdSpec = parser.accepts("threshold",
+            "The minimal relative difference to report a significant difference as regression, e.g. 0.05 for 5%.")
+            .withRequiredArg().ofType(Double.class).defaultsTo(0.05);
+
+    private final OptionSpec<Integer> iterationsSpec = parser.accepts("iterations",
+            "The number of bootstrap resamples.")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(1000);
+
+    private final OptionSpec<Double> percentilesSpec = parser.accepts("percentiles",
+            "The comma separated latency percentiles to compare.")
+            .withRequiredArg().ofType(Double.class).withValuesSeparatedBy(',').defaultsTo(50.0, 99.0, 99.9);
+
+    private final OptionSpec<Integer> warmupSecondsSpec = parser.accepts("warmupSeconds",
+            "The number of seconds at the start of each HDR file which are skipped. The intervals before the start of the"
+                    + " steady state, which is detected by the workers, are always skipped.")
+            .withRequiredArg().ofType(Integer.class).defaultsTo(0);
+
+    private final OptionSpec<Long> seedSpec = parser.accepts("seed",
+            "The seed of the bootstrap resampling, so a verdict can be reproduced.")
+            .withRequiredArg().ofType(Long.class).defaultsTo(0L);
+
+    private final OptionSpec allowInsufficientDataSpec = parser.accepts("allowInsufficientData",
+            "Don't fail if a probe is missing or has too few intervals, or if a session has no merged HDR files."
+                    + " By default only a run without regressions and with sufficient data passes.");
+
+    private final OptionSpec<String> verdictFileSpec = parser.accepts("verdictFile",
+            "The file to write the verdict to in JSON format.")
+            .withRequiredArg().ofType(String.class).defaultsTo("verdict.json");
+
+    private final NonOptionArgumentSpec<String> directoriesSpec = parser
+            .nonOptions("baseline session directory and session directories").ofType(String.class);
+
+    private final RegressionDetector regressionDetector;
+    private final File baselineDirectory;
+    private final List<File> sessionDirectories = new ArrayList<File>();
+    private final File verdictFile;
+    private final boolean allowInsufficientData;
+
+    RegressionDetectorCli(String[] args) {
+        OptionSet options = CliUtils.initOptionsWithHelp(parser,
+                "Usage: regression-detector [options] <baseline session directory> <session directory>...", args);
+
+        List<String> directories = options.valuesOf(directoriesSpec);
+        if (directories.size() < 2) {
+            throw new CommandLineExitException("You have to provide a baseline session directory and a session directory");
+        }
+        baselineDirectory = new File(directories.get(0));
+        for (String directory : directories.subList(1, directories.size())) {
+            sessionDirectories.add(new File(directory));
+        }
+        verdictFile = new File(options.valueOf(verdictFileSpec));
+        allowInsufficientData = options.has(allowInsufficientDataSpec);
+
+        List<Double> percentileList = options.valuesOf(percentilesSpec);
+        double[] percentiles = new double[percentileList.size()];
+        for (int i = 0; i < percentiles.length; i++) {
+            percentiles[i] = percentileList.get(i);
+        }
+
+        double confidence = options.valueOf(confidenceSpec);
+        Bootstrap bootstrap = new Bootstrap(options.valueOf(iterationsSpec), confidence, options.valueOf(seedSpec));
+        regressionDetector = new RegressionDetector(bootstrap, confidence, options.valueOf(thresholdSpec), percentiles,
+                SECONDS.toMillis(options.valueOf(warmupSecondsSpec)));
+    }
+
+    /**
+     * Compares the sessions and writes the Verdict.
+     *
+     * @return {@code true} if the Verdict is a failure, {@code false} otherwise
+     */
+    boolean run() {
+        Verdict verdict = regressionDetector.compare(baselineDirectory, sessionDirectories);
+        verdict.writeTo(verdictFile);
+        LOGGER.info(format("Verdict written to %s: %s%s", verdictFile.getAbsolutePath(),
+                verdict.isRegression() ? "regression" : "no regression",
+                verdict.isInsufficientData() ? " (insufficient data)" : ""));
+        return verdict.isFailure(allowInsufficientData);
+    }
+
+    public static void main(String[] args) {
+        boolean failure;
+        try {
+            failure = new RegressionDetectorCli(args).run();
+        } catch (Exception e) {
+            exitWithError(LOGGER, "Could not detect regressions!", e);
+            return;
+        }
+        if (failure) {
+            // a pipeline can fail on the exit code
+            exitWithError();
+        }
+    }
+}
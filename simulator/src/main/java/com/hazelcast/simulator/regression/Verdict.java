@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.regression;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hazelcast.simulator.utils.FileUtils.writeText;
+
+/**
+ * The machine readable result of a {@link RegressionDetector} run.
+ *
+ * It is written as a JSON file, so a pipeline can fail on the {@code regression} and {@code insufficientData} flags and show
+ * the comparisons which caused it.
+ * The changes are relative to the baseline, e.g. -0.1 if the throughput of the candidate is 10% lower; the latencies are in
+ * microseconds.
+ */
+public final class Verdict {
+
+    /**
+     * The result of a single comparison.
+     */
+    public enum Result {
+        /**
+         * The candidate is significantly worse than the baseline, by more than the threshold.
+         */
+        REGRESSION,
+        /**
+         * The candidate is significantly better than the baseline, by more than the threshold.
+         */
+        IMPROVEMENT,
+        /**
+         * The difference is not significant or smaller than the threshold.
+         */
+        NO_CHANGE,
+        /**
+         * The probe is missing in the candidate session or has too few intervals.
+         */
+        INSUFFICIENT_DATA,
+        /**
+         * The probe only exists in the candidate session, so there is no baseline to compare it with.
+         */
+        NEW_PROBE
+    }
+
+    private static final Gson GSON = new GsonBuilder()
+            .setPrettyPrinting()
+            .serializeSpecialFloatingPointValues()
+            .create();
+
+    private final String baseline;
+    private final double confidence;
+    private final double threshold;
+    private boolean regression;
+    private boolean insufficientData;
+    private final List<Comparison> comparisons = new ArrayList<Comparison>();
+
+    Verdict(String baseline, double confidence, double threshold) {
+        this.baseline = baseline;
+        this.confidence = confidence;
+        this.threshold = threshold;
+    }
+
+    void add(Comparison comparison) {
+        comparisons.add(comparison);
+        if (comparison.result == Result.REGRESSION) {
+            regression = true;
+        } else if (comparison.result == Result.INSUFFICIENT_DATA) {
+            insufficientData = true;
+        }
+    }
+
+    /**
+     * Marks the Verdict as based on insufficient data, e.g. if a session has no merged HDR files at all.
+     */
+    void setInsufficientData() {
+        insufficientData = true;
+    }
+
+    public boolean isRegression() {
+        return regression;
+    }
+
+    /**
+     * Checks if a probe is missing, has too few intervals or if a session has no merged HDR files at all.
+     *
+     * @return {@code true} if the Verdict is based on insufficient data, {@code false} otherwise
+     */
+    public boolean isInsufficientData() {
+        return insufficientData;
+    }
+
+    /**
+     * Checks if the Verdict should fail a pipeline.
+     *
+     * @param allowInsufficientData {@code true} if only a regression fails, {@code false} if insufficient data fails as well
+     * @return {@code true} if the Verdict is a failure, {@code false} otherwise
+     */
+    public boolean isFailure(boolean allowInsufficientData) {
+        return regression || (insufficientData && !allowInsufficientData);
+    }
+
+    public List<Comparison> getComparisons() {
+        return comparisons;
+    }
+
+    String toJson() {
+        return GSON.toJson(this);
+    }
+
+    void writeTo(File file) {
+        writeText(toJson(), file);
+    }
+
+    /**
+     * The comparison of a metric of a probe between the baseline and a candidate session.
+     */
+    public static final class Comparison {
+
+        private static final double PERCENT = 100;
+
+        private final String session;
+        private final String probe;
+        private final String metric;
+        private final Result result;
+        private Double baseline;
+        private Double candidate;
+        private Double change;
+        private Double lower;
+        private Double upper;
+
+        Comparison(String session, String probe, String metric, Result result) {
+            this.session = session;
+            this.probe = probe;
+            this.metric = metric;
+            this.result = result;
+        }
+
+        Comparison setMeans(double baseline, double candidate) {
+            this.baseline = baseline;
+            this.candidate = candidate;
+            return this;
+        }
+
+        Comparison setChange(double[] difference) {
+            this.lower = difference[0];
+            this.change = difference[1];
+            this.upper = difference[2];
+            return this;
+        }
+
+        public String getSession() {
+            return session;
+        }
+
+        public String getProbe() {
+            return probe;
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+
+        public Double getChange() {
+            return change;
+        }
+
+        @Override
+        public String toString() {
+            if (change == null) {
+                return String.format("%-10s %s %s %s", result, session, probe, metric);
+            }
+            return String.format("%-10s %s %s %s: %+.2f%% [%+.2f%%, %+.2f%%]", result, session, probe, metric,
+                    change * PERCENT, lower * PERCENT, upper * PERCENT);
+        }
+    }
+}
@@ -53,6 +53,10 @@ public final class FileUtils {
 
     private static final Pattern VALID_FILE_NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9-_]+$");
 
+    // the working directory of a worker running embedded in the JVM of the agent; every embedded worker is loaded by its own
+    // classloader, so it has its own copy of this field
+    private static volatile File embeddedUserDir;
+
     private FileUtils() {
     }
 
@@ -332,7 +336,21 @@ public final class FileUtils {
         }
     }
 
+    /**
+     * Sets the directory returned by {@link #getUserDir()} for a worker running embedded in the JVM of the agent.
+     *
+     * @param userDir the working directory of the worker
+     */
+    public static void setEmbeddedUserDir(File userDir) {
+        embeddedUserDir = userDir;
+    }
+
     public static File getUserDir() {
+        File userDir = embeddedUserDir;
+        if (userDir != null) {
+            return userDir;
+        }
+
         String userDirTest = System.getProperty("user.dir.test");
         return userDirTest == null ? new File(System.getProperty("user.dir")) : new File(userDirTest);
     }
@@ -20,69 +20,429 @@ import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramLogReader;
 import org.HdrHistogram.HistogramLogWriter;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.Locale;
 
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
 import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
-import static com.hazelcast.simulator.utils.FileUtils.ensureExistingFile;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.round;
+import static java.lang.Double.parseDouble;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
- * The HistogramLogMerger merges the Histograms of multiple HDR files. This will be done based under the assumption that
- * every histogram spans the same duration.
+ * The HistogramLogMerger merges the Histograms of multiple HDR files.
  *
- * It works like this; from each HistogramLogReader a Histogram is read and merged into a final Histogram and this Histogram
- * is written into the merged HDR. Once round is complete, the next Histogram is retrieved. The different HDR files don't need
- * to have the same length; as soon as a HDR is finished, it is ignored and this continues till all HDR files are fully processed.
+ * The Histograms are merged by their start timestamp: the time is divided in buckets of a fixed resolution and all Histograms
+ * starting in the same bucket are merged into a single Histogram, which is written into the merged HDR. So the merged
+ * Histograms only contain values recorded in the same period, also if the workers have been started at different times or
+ * if a worker has missed an interval. The different HDR files don't need to have the same length.
+ *
+ * By default the resolution is the duration of the Histograms, rounded to whole seconds. The clocks of the agents can be
+ * corrected by a clock offset per HDR file.
+ *
+ * A worker writes the end of the warmup of a test as a {@code SteadyStateStartTime} comment into its HDR files. If all HDR
+ * files have one, the latest of them is the start of the steady state of the merged HDR file and is written into its header.
+ *
+ * The HDR files are streamed; only the next Histogram of each HDR file is kept in memory.
+ *
+ * Usage: {@code HistogramLogMerger [--resolution <millis>] <output.hdr> <input.hdr>[@<clockOffsetMillis>]...}
  */
 public final class HistogramLogMerger {
 
+    /**
+     * Start time of the steady state of a HDR file without a {@code SteadyStateStartTime}.
+     */
+    public static final long NO_STEADY_STATE = -1;
+
+    /**
+     * Resolution to detect the resolution from the duration of the Histograms.
+     */
+    static final long AUTO_RESOLUTION = 0;
+
+    private static final long MILLIS_PER_SECOND = SECONDS.toMillis(1);
+    private static final String STEADY_STATE_START_TIME_COMMENT = "[SteadyStateStartTime: ";
+
     private HistogramLogMerger() {
     }
 
-    public static void main(String[] args) throws IOException {
-        File outputFile = new File(args[0]);
+    public static void main(String[] args) {
+        int index = 0;
+        long resolutionMillis = AUTO_RESOLUTION;
+        if (args.length > 1 && "--resolution".equals(args[0])) {
+            resolutionMillis = Long.parseLong(args[1]);
+            index = 2;
+        }
+
+        File outputFile = new File(args[index]);
+        Input[] inputs = new Input[args.length - index - 1];
+        try {
+            for (int k = 0; k < inputs.length; k++) {
+                inputs[k] = newInput(args[index + 1 + k]);
+            }
+            merge(outputFile, inputs, resolutionMillis);
+        } finally {
+            closeQuietly(inputs);
+        }
+    }
+
+    private static Input newInput(String arg) {
+        int separator = arg.lastIndexOf('@');
+        if (separator == -1) {
+            return new Input(new File(arg), 0);
+        }
+        return new Input(new File(arg.substring(0, separator)), Long.parseLong(arg.substring(separator + 1)));
+    }
+
+    /**
+     * Merges the Histograms of the inputs into a HDR file.
+     *
+     * @param outputFile       the merged HDR file
+     * @param inputs           the inputs to merge
+     * @param resolutionMillis the resolution of the buckets in ms or {@link #AUTO_RESOLUTION}
+     */
+    static void merge(File outputFile, Input[] inputs, long resolutionMillis) {
         deleteQuiet(outputFile);
-        ensureExistingFile(outputFile);
+        PrintStream stream = null;
+        try {
+            stream = new PrintStream(outputFile, "UTF-8");
+            HistogramLogWriter writer = new HistogramLogWriter(stream);
+            long resolution = resolutionMillis == AUTO_RESOLUTION ? detectResolutionMillis(inputs) : resolutionMillis;
+            Histogram merged = mergeNextInterval(inputs, resolution);
+            writeHeader(writer, outputFile, getStartTimeMillis(inputs), getSteadyStateStartTimeMillis(inputs));
+            while (merged != null) {
+                writer.outputIntervalHistogram(merged);
+                merged = mergeNextInterval(inputs, resolution);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + outputFile.getAbsolutePath(), e);
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Merges all Histograms of the inputs which start in the first bucket of the remaining Histograms.
+     *
+     * @param inputs           the inputs to merge
+     * @param resolutionMillis the resolution of the buckets in ms
+     * @return the merged Histogram or {@code null} if all inputs are exhausted
+     */
+    static Histogram mergeNextInterval(Input[] inputs, long resolutionMillis) {
+        long bucket = Long.MAX_VALUE;
+        for (Input input : inputs) {
+            Histogram histogram = input.peek();
+            if (histogram != null) {
+                bucket = min(bucket, getBucket(histogram, resolutionMillis));
+            }
+        }
+        if (bucket == Long.MAX_VALUE) {
+            return null;
+        }
 
-        HistogramLogReader[] readers = new HistogramLogReader[args.length - 1];
-        for (int k = 1; k < args.length; k++) {
-            String inputFile = args[k];
-            readers[k - 1] = new HistogramLogReader(inputFile);
+        Histogram merged = null;
+        for (Input input : inputs) {
+            // a Histogram of an earlier bucket can only be found if the timestamps of a HDR file are not ascending
+            Histogram histogram = input.peek();
+            while (histogram != null && getBucket(histogram, resolutionMillis) <= bucket) {
+                merged = merge(merged, input.poll());
+                histogram = input.peek();
+            }
         }
+        return merged;
+    }
+
+    private static long getBucket(Histogram histogram, long resolutionMillis) {
+        return histogram.getStartTimeStamp() / resolutionMillis;
+    }
 
-        HistogramLogWriter writer = new HistogramLogWriter(outputFile);
+    /**
+     * Detects the resolution from the duration of the first Histogram of the inputs.
+     *
+     * The workers write the Histograms at an interval of whole seconds, so the duration is rounded to whole seconds.
+     *
+     * @param inputs the inputs to merge
+     * @return the resolution in ms
+     */
+    static long detectResolutionMillis(Input[] inputs) {
+        long durationMillis = 0;
+        for (Input input : inputs) {
+            Histogram histogram = input.peek();
+            if (histogram != null) {
+                durationMillis = max(durationMillis, histogram.getEndTimeStamp() - histogram.getStartTimeStamp());
+            }
+        }
+        return max(1, round((double) durationMillis / MILLIS_PER_SECOND)) * MILLIS_PER_SECOND;
+    }
+
+    /**
+     * Returns the earliest start time of the inputs, corrected by their clock offset.
+     *
+     * The start time of an input is known once its first Histogram has been read.
+     *
+     * @param inputs the merged inputs
+     * @return the start time in ms since epoch or 0 if none of the inputs has a start time
+     */
+    static long getStartTimeMillis(Input[] inputs) {
+        long startTimeMillis = Long.MAX_VALUE;
+        for (Input input : inputs) {
+            if (input.getStartTimeSec() > 0) {
+                startTimeMillis = min(startTimeMillis, input.getStartTimeMillis());
+            }
+        }
+        return startTimeMillis == Long.MAX_VALUE ? 0 : startTimeMillis;
+    }
+
+    /**
+     * Returns the start of the steady state of the merged inputs, so the latest start of the steady state of the inputs.
+     *
+     * @param inputs the merged inputs
+     * @return the start time of the steady state in ms since epoch or {@link #NO_STEADY_STATE} if an input has none
+     */
+    static long getSteadyStateStartTimeMillis(Input[] inputs) {
+        long steadyStateStartTimeMillis = NO_STEADY_STATE;
+        for (Input input : inputs) {
+            if (input.getSteadyStateStartTimeMillis() == NO_STEADY_STATE) {
+                return NO_STEADY_STATE;
+            }
+            steadyStateStartTimeMillis = max(steadyStateStartTimeMillis, input.getSteadyStateStartTimeMillis());
+        }
+        return steadyStateStartTimeMillis;
+    }
+
+    static void writeHeader(HistogramLogWriter writer, File outputFile, long startTimeMillis, long steadyStateStartTimeMillis) {
+        if (startTimeMillis > 0) {
+            writer.outputStartTime(startTimeMillis);
+        }
         writer.outputComment("[Latency histograms for " + getBaseName(outputFile) + ']');
         writer.outputLogFormatVersion();
         writer.outputLegend();
+        if (steadyStateStartTimeMillis != NO_STEADY_STATE) {
+            writer.outputComment(steadyStateStartTimeComment(steadyStateStartTimeMillis));
+        }
+    }
 
-        for (; ; ) {
-            Histogram merged = null;
-            for (HistogramLogReader reader : readers) {
-                Histogram histogram = (Histogram) reader.nextIntervalHistogram();
-                if (histogram == null) {
-                    continue;
-                }
+    /**
+     * Returns the comment which marks the start of the steady state in a HDR file.
+     *
+     * @param steadyStateStartTimeMillis the start time of the steady state in ms since epoch
+     * @return the comment without the leading {@code #}
+     */
+    public static String steadyStateStartTimeComment(long steadyStateStartTimeMillis) {
+        return format(Locale.US, STEADY_STATE_START_TIME_COMMENT + "%.3f (seconds since epoch)]",
+                steadyStateStartTimeMillis / (double) MILLIS_PER_SECOND);
+    }
 
-                if (merged == null) {
-                    merged = new Histogram(
-                            histogram.getLowestDiscernibleValue(),
-                            histogram.getHighestTrackableValue(),
-                            histogram.getNumberOfSignificantValueDigits());
+    /**
+     * Reads the start of the steady state from the {@code SteadyStateStartTime} comment of a HDR file.
+     *
+     * The comment is written once the steady state has been detected, so it can be anywhere in the HDR file. The file is only
+     * scanned for the comment; the Histograms are not decoded.
+     *
+     * @param hdrFile the HDR file
+     * @return the start time of the steady state in ms since epoch or {@link #NO_STEADY_STATE} if the file has none
+     * @throws UncheckedIOException  if the HDR file could not be read
+     * @throws IllegalStateException if the comment is malformed
+     */
+    public static long readSteadyStateStartTimeMillis(File hdrFile) {
+        String prefix = '#' + STEADY_STATE_START_TIME_COMMENT;
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(hdrFile), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(prefix)) {
+                    return parseSteadyStateStartTimeMillis(hdrFile, line.substring(prefix.length()));
                 }
-                merged.add(histogram);
             }
+            return NO_STEADY_STATE;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + hdrFile.getAbsolutePath(), e);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
 
-            if (merged == null) {
-                break;
-            }
+    private static long parseSteadyStateStartTimeMillis(File hdrFile, String value) {
+        int end = value.indexOf(' ');
+        try {
+            return round(parseDouble(end == -1 ? value : value.substring(0, end)) * MILLIS_PER_SECOND);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException(format("%s has a malformed steady state start time", hdrFile.getAbsolutePath()), e);
+        }
+    }
+
+    /**
+     * Checks if a Histogram has been recorded before the start of the steady state.
+     *
+     * The timestamps of the Histograms and the start of the steady state are taken at slightly different moments, so a
+     * Histogram belongs to the steady state if the middle of its interval is in the steady state.
+     *
+     * @param histogram                  the Histogram
+     * @param steadyStateStartTimeMillis the start time of the steady state in ms since epoch or {@link #NO_STEADY_STATE}
+     * @return {@code true} if there is a steady state and the Histogram has been recorded before it, {@code false} otherwise
+     */
+    public static boolean isBeforeSteadyState(Histogram histogram, long steadyStateStartTimeMillis) {
+        if (steadyStateStartTimeMillis == NO_STEADY_STATE) {
+            return false;
+        }
+        long middleMillis = histogram.getStartTimeStamp() + (histogram.getEndTimeStamp() - histogram.getStartTimeStamp()) / 2;
+        return middleMillis < steadyStateStartTimeMillis;
+    }
 
-            writer.outputIntervalHistogram(merged);
+    /**
+     * Merges a Histogram into the merged Histogram of an interval.
+     *
+     * The merged Histogram spans the time range of all merged Histograms.
+     *
+     * @param merged    the merged Histogram or {@code null} if the histogram is the first one of the interval
+     * @param histogram the Histogram to merge
+     * @return the merged Histogram
+     */
+    static Histogram merge(Histogram merged, Histogram histogram) {
+        if (merged == null) {
+            merged = new Histogram(
+                    histogram.getLowestDiscernibleValue(),
+                    histogram.getHighestTrackableValue(),
+                    histogram.getNumberOfSignificantValueDigits());
+            // the Histograms of the inputs don't need to have the same range
+            merged.setAutoResize(true);
         }
+        merged.add(histogram);
+        return merged;
     }
 
-    private static String getBaseName(File file) {
+    static String getBaseName(File file) {
         String name = file.getName();
         int pos = name.lastIndexOf('.');
         return pos == -1 ? name : name.substring(0, pos);
     }
+
+    /**
+     * A HDR file to merge.
+     *
+     * The timestamps of the Histograms are corrected by the clock offset of the agent which has written the HDR file.
+     */
+    static class Input implements Closeable {
+
+        private final File file;
+        private final InputStream stream;
+        private final HistogramLogReader reader;
+        private final long clockOffsetMillis;
+        private final long steadyStateStartTimeMillis;
+        private Histogram next;
+
+        /**
+         * Creates an Input.
+         *
+         * @param file              the HDR file
+         * @param clockOffsetMillis the number of ms the clock of the agent was ahead of the clock of the other agents
+         * @throws UncheckedIOException  if the HDR file could not be opened
+         * @throws IllegalStateException if the steady state start time of the HDR file is malformed
+         */
+        Input(File file, long clockOffsetMillis) {
+            this(file, clockOffsetMillis, readSteadyStateStartTimeMillis(file));
+        }
+
+        /**
+         * Creates an Input with a known start of the steady state.
+         *
+         * @param file                       the HDR file
+         * @param clockOffsetMillis          the number of ms the clock of the agent was ahead of the clock of the other agents
+         * @param steadyStateStartTimeMillis the start of the steady state as written in the HDR file
+         *                                   or {@link #NO_STEADY_STATE}
+         * @throws UncheckedIOException if the HDR file could not be opened
+         */
+        Input(File file, long clockOffsetMillis, long steadyStateStartTimeMillis) {
+            this.file = file;
+            this.clockOffsetMillis = clockOffsetMillis;
+            this.steadyStateStartTimeMillis = steadyStateStartTimeMillis;
+            try {
+                this.stream = new BufferedInputStream(new FileInputStream(file));
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException("Could not open " + file.getAbsolutePath(), e);
+            }
+            this.reader = new HistogramLogReader(stream);
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        double getStartTimeSec() {
+            return reader.getStartTimeSec();
+        }
+
+        long getStartTimeMillis() {
+            return round(reader.getStartTimeSec() * MILLIS_PER_SECOND) - clockOffsetMillis;
+        }
+
+        /**
+         * Returns the start of the steady state, corrected by the clock offset.
+         *
+         * @return the start time of the steady state in ms since epoch or {@link #NO_STEADY_STATE}
+         */
+        long getSteadyStateStartTimeMillis() {
+            if (steadyStateStartTimeMillis == NO_STEADY_STATE) {
+                return NO_STEADY_STATE;
+            }
+            return steadyStateStartTimeMillis - clockOffsetMillis;
+        }
+
+        /**
+         * Returns the next Histogram without consuming it.
+         *
+         * @return the next Histogram with corrected timestamps or {@code null} if the HDR file is exhausted
+         * @throws IllegalStateException if the HDR file is malformed
+         */
+        Histogram peek() {
+            if (next == null) {
+                Histogram histogram;
+                try {
+                    histogram = (Histogram) reader.nextIntervalHistogram();
+                } catch (RuntimeException e) {
+                    throw new IllegalStateException(format("%s is malformed", file.getAbsolutePath()), e);
+                }
+                if (histogram == null) {
+                    return null;
+                }
+
+                onRead(histogram);
+                histogram.setStartTimeStamp(histogram.getStartTimeStamp() - clockOffsetMillis);
+                histogram.setEndTimeStamp(histogram.getEndTimeStamp() - clockOffsetMillis);
+                next = histogram;
+            }
+            return next;
+        }
+
+        Histogram poll() {
+            Histogram histogram = peek();
+            next = null;
+            return histogram;
+        }
+
+        /**
+         * Is called for every Histogram read from the HDR file, before its timestamps are corrected.
+         *
+         * @param histogram the Histogram
+         */
+        protected void onRead(Histogram histogram) {
+        }
+
+        @Override
+        public void close() {
+            closeQuietly(stream);
+        }
+    }
 }
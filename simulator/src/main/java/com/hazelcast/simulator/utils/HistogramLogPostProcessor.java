@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.simulator.utils;
+
+import com.hazelcast.simulator.utils.HistogramLogMerger.Input;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static com.hazelcast.simulator.utils.CommonUtils.rethrow;
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.AUTO_RESOLUTION;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.NO_STEADY_STATE;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.detectResolutionMillis;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.getBaseName;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.getStartTimeMillis;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.getSteadyStateStartTimeMillis;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.isBeforeSteadyState;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.mergeNextInterval;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.readSteadyStateStartTimeMillis;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.writeHeader;
+import static com.hazelcast.simulator.utils.SimulatorHistogramLogProcessor.buildStatistics;
+import static com.hazelcast.simulator.utils.SimulatorHistogramLogProcessor.legend;
+import static com.hazelcast.simulator.utils.SimulatorHistogramLogProcessor.logFormat;
+import static java.lang.String.format;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+/**
+ * Post processes all HDR files of a session in a single pass.
+ *
+ * The HDR files of the workers are found in the worker directories of the session; all files with the same name are the
+ * histograms of the same probe. For each probe, the HDR files of the workers are merged into a HDR file with the same name
+ * in the session directory. For every HDR file, so the files of the workers and the merged file, an interval percentile log
+ * in the csv format is written to a file named like the HDR file without the extension, and the overall percentile
+ * distribution is written to the {@code .hgrm} file.
+ *
+ * If a HDR file has a start of the steady state, see {@link HistogramLogMerger}, the {@code .hgrm} file still contains the
+ * warmup and the percentile distribution of the steady state only is written to the {@code .steady-state.hgrm} file. The
+ * merged HDR file only has a steady state if all HDR files of the workers have one.
+ *
+ * Each HDR file is decoded only once: the interval histograms of the workers are merged by their timestamps, see
+ * {@link HistogramLogMerger}, and processed while they are read.
+ * The probes are processed in parallel; per probe only the current interval histogram of each worker and the accumulated
+ * histograms are kept in memory, so the memory usage doesn't depend on the duration of the benchmark.
+ */
+public final class HistogramLogPostProcessor {
+
+    // the recorded values are in nanoseconds, the output in microseconds
+    static final double OUTPUT_VALUE_UNIT_RATIO = 1000;
+
+    private static final Logger LOGGER = Logger.getLogger(HistogramLogPostProcessor.class);
+
+    private static final int PERCENTILES_OUTPUT_TICKS_PER_HALF = 5;
+    private static final int MILLIS_PER_SECOND = 1000;
+    private static final long EMPTY_HISTOGRAM_HIGHEST_TRACKABLE_VALUE = 1000000L;
+    private static final String HDR_EXTENSION = ".hdr";
+    private static final String STEADY_STATE_EXTENSION = ".steady-state.hgrm";
+
+    private HistogramLogPostProcessor() {
+    }
+
+    public static void main(String[] args) {
+        int index = 0;
+        long resolutionMillis = AUTO_RESOLUTION;
+        if (args.length > 1 && "--resolution".equals(args[0])) {
+            resolutionMillis = Long.parseLong(args[1]);
+            index = 2;
+        }
+
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        for (int i = index; i < args.length; i++) {
+            process(new File(args[i]), threadCount, resolutionMillis);
+        }
+    }
+
+    /**
+     * Merges and processes all HDR files of a session.
+     *
+     * @param sessionDirectory the session directory
+     * @param threadCount      the number of probes to process in parallel
+     * @param resolutionMillis the resolution used to merge the histograms by their timestamps in ms,
+     *                         or {@link HistogramLogMerger#AUTO_RESOLUTION}
+     * @return the merged HDR files
+     * @throws UncheckedIOException  if a file could not be read or written
+     * @throws IllegalStateException if a HDR file is malformed
+     */
+    public static List<File> process(File sessionDirectory, int threadCount, long resolutionMillis) {
+        Map<String, List<File>> hdrFiles = findHdrFiles(sessionDirectory);
+        if (hdrFiles.isEmpty()) {
+            return new ArrayList<File>();
+        }
+
+        ExecutorService executor = newFixedThreadPool(Math.min(threadCount, hdrFiles.size()));
+        try {
+            List<Future<File>> futures = new ArrayList<Future<File>>(hdrFiles.size());
+            for (Map.Entry<String, List<File>> entry : hdrFiles.entrySet()) {
+                File mergedFile = new File(sessionDirectory, entry.getKey());
+                futures.add(executor.submit(new ProbeTask(mergedFile, entry.getValue(), resolutionMillis)));
+            }
+
+            List<File> mergedFiles = new ArrayList<File>(futures.size());
+            for (Future<File> future : futures) {
+                mergedFiles.add(future.get());
+            }
+            return mergedFiles;
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            throw rethrow(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds the HDR files of the workers, grouped by file name.
+     *
+     * The HDR files directly in the session directory are the merged files of a previous run, so they are ignored.
+     *
+     * @param sessionDirectory the session directory
+     * @return the HDR files of the workers, grouped by file name
+     */
+    static Map<String, List<File>> findHdrFiles(File sessionDirectory) {
+        Map<String, List<File>> hdrFiles = new TreeMap<String, List<File>>();
+        LinkedList<File> directories = new LinkedList<File>();
+        addSubDirectories(sessionDirectory, directories);
+        while (!directories.isEmpty()) {
+            File directory = directories.removeFirst();
+            File[] files = directory.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    directories.add(file);
+                } else if (file.getName().endsWith(HDR_EXTENSION)) {
+                    List<File> probeFiles = hdrFiles.get(file.getName());
+                    if (probeFiles == null) {
+                        probeFiles = new ArrayList<File>();
+                        hdrFiles.put(file.getName(), probeFiles);
+                    }
+                    probeFiles.add(file);
+                }
+            }
+        }
+        return hdrFiles;
+    }
+
+    private static void addSubDirectories(File directory, List<File> directories) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new UncheckedIOException(format("Could not list the files of %s", directory.getAbsolutePath()));
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                directories.add(file);
+            }
+        }
+    }
+
+    private static PrintStream newPrintStream(File file) {
+        try {
+            return new PrintStream(new BufferedOutputStream(new FileOutputStream(file)), false, "UTF-8");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Merges and processes the HDR files of a single probe.
+     */
+    private static final class ProbeTask implements Callable<File> {
+
+        private final File mergedFile;
+        private final List<File> workerFiles;
+        private final long resolutionMillis;
+        private final Input[] inputs;
+        private final PercentileLogs[] workerLogs;
+
+        private ProbeTask(File mergedFile, List<File> workerFiles, long resolutionMillis) {
+            this.mergedFile = mergedFile;
+            this.workerFiles = workerFiles;
+            this.resolutionMillis = resolutionMillis;
+            this.inputs = new Input[workerFiles.size()];
+            this.workerLogs = new PercentileLogs[workerFiles.size()];
+        }
+
+        @Override
+        public File call() throws Exception {
+            LOGGER.info("Processing " + mergedFile.getName());
+
+            deleteQuiet(mergedFile);
+            PrintStream mergedStream = newPrintStream(mergedFile);
+            PercentileLogs mergedLogs = null;
+            try {
+                for (int i = 0; i < inputs.length; i++) {
+                    File workerFile = workerFiles.get(i);
+                    long steadyStateStartTimeMillis = readSteadyStateStartTimeMillis(workerFile);
+                    workerLogs[i] = new PercentileLogs(workerFile, steadyStateStartTimeMillis);
+                    inputs[i] = new WorkerInput(workerFile, workerLogs[i], steadyStateStartTimeMillis);
+                }
+                long steadyStateStartTimeMillis = getSteadyStateStartTimeMillis(inputs);
+                mergedLogs = new PercentileLogs(mergedFile, steadyStateStartTimeMillis);
+
+                long resolution = resolutionMillis == AUTO_RESOLUTION ? detectResolutionMillis(inputs) : resolutionMillis;
+                Histogram merged = mergeNextInterval(inputs, resolution);
+
+                // the start time of the workers is known once the first histogram of each worker has been read
+                long startTimeMillis = getStartTimeMillis(inputs);
+                HistogramLogWriter writer = new HistogramLogWriter(mergedStream);
+                writeHeader(writer, mergedFile, startTimeMillis, steadyStateStartTimeMillis);
+
+                double startTimeSec = (double) startTimeMillis / MILLIS_PER_SECOND;
+                while (merged != null) {
+                    writer.outputIntervalHistogram(merged);
+                    mergedLogs.add(merged, startTimeSec);
+                    merged = mergeNextInterval(inputs, resolution);
+                }
+                return mergedFile;
+            } finally {
+                closeQuietly(mergedStream);
+                closeQuietly(mergedLogs);
+                closeQuietly(workerLogs);
+                closeQuietly(inputs);
+            }
+        }
+    }
+
+    /**
+     * Writes the histograms of a worker to its percentile logs while they are read for merging.
+     */
+    private static final class WorkerInput extends Input {
+
+        private final PercentileLogs logs;
+
+        private WorkerInput(File file, PercentileLogs logs, long steadyStateStartTimeMillis) {
+            super(file, 0, steadyStateStartTimeMillis);
+            this.logs = logs;
+        }
+
+        @Override
+        protected void onRead(Histogram histogram) {
+            logs.add(histogram, getStartTimeSec());
+        }
+    }
+
+    /**
+     * Writes the interval percentile log and the overall percentile distributions of a HDR file.
+     */
+    private static final class PercentileLogs implements Closeable {
+
+        private final long steadyStateStartTimeMillis;
+        private final PrintStream intervalLog;
+        private final PrintStream percentileLog;
+        private final PrintStream steadyStatePercentileLog;
+        private Histogram accumulated;
+        private Histogram steadyStateAccumulated;
+
+        private PercentileLogs(File hdrFile, long steadyStateStartTimeMillis) {
+            this.steadyStateStartTimeMillis = steadyStateStartTimeMillis;
+            File intervalLogFile = new File(hdrFile.getParentFile(), getBaseName(hdrFile));
+            File steadyStatePercentileLogFile = new File(intervalLogFile.getPath() + STEADY_STATE_EXTENSION);
+            // remove the steady state distribution of a previous run, which had a steady state
+            deleteQuiet(steadyStatePercentileLogFile);
+            this.intervalLog = newPrintStream(intervalLogFile);
+            this.percentileLog = newPrintStream(new File(intervalLogFile.getPath() + ".hgrm"));
+            this.steadyStatePercentileLog = steadyStateStartTimeMillis == NO_STEADY_STATE
+                    ? null : newPrintStream(steadyStatePercentileLogFile);
+
+            intervalLog.println("#[Interval percentile log between 0.000 and <Infinite> seconds (relative to StartTime)]");
+            percentileLog.println("#[Overall percentile distribution between 0.000 and <Infinite> seconds"
+                    + " (relative to StartTime)]");
+        }
+
+        private void add(Histogram intervalHistogram, double startTimeSec) {
+            if (accumulated == null) {
+                accumulated = newAccumulatedHistogram(intervalHistogram);
+                if (startTimeSec != 0) {
+                    outputStartTime(percentileLog, startTimeSec);
+                    outputStartTime(intervalLog, startTimeSec);
+                }
+                intervalLog.println(legend(true));
+            }
+            accumulated.add(intervalHistogram);
+
+            if (steadyStatePercentileLog != null && !isBeforeSteadyState(intervalHistogram, steadyStateStartTimeMillis)) {
+                if (steadyStateAccumulated == null) {
+                    steadyStateAccumulated = newAccumulatedHistogram(intervalHistogram);
+                }
+                steadyStateAccumulated.add(intervalHistogram);
+            }
+
+            intervalLog.format(Locale.US, logFormat(true),
+                    buildStatistics(intervalHistogram, accumulated, startTimeSec, OUTPUT_VALUE_UNIT_RATIO));
+        }
+
+        @Override
+        public void close() {
+            try {
+                outputPercentileDistribution(percentileLog, accumulated);
+                if (steadyStatePercentileLog != null) {
+                    steadyStatePercentileLog.format(Locale.US, "#[Overall percentile distribution of the steady state since"
+                            + " %.3f (seconds since epoch)]\n", steadyStateStartTimeMillis / (double) MILLIS_PER_SECOND);
+                    outputPercentileDistribution(steadyStatePercentileLog, steadyStateAccumulated);
+                }
+            } finally {
+                closeQuietly(intervalLog, percentileLog, steadyStatePercentileLog);
+            }
+        }
+
+        private static Histogram newAccumulatedHistogram(Histogram intervalHistogram) {
+            // shape the accumulated histogram like the interval histograms
+            Histogram histogram = intervalHistogram.copy();
+            histogram.reset();
+            histogram.setAutoResize(true);
+            return histogram;
+        }
+
+        private static void outputPercentileDistribution(PrintStream log, Histogram histogram) {
+            if (histogram == null) {
+                // an empty histogram still gives the one line output
+                histogram = new Histogram(EMPTY_HISTOGRAM_HIGHEST_TRACKABLE_VALUE, 2);
+            }
+            histogram.outputPercentileDistribution(log, PERCENTILES_OUTPUT_TICKS_PER_HALF, OUTPUT_VALUE_UNIT_RATIO, false);
+        }
+
+        private static void outputStartTime(PrintStream log, double startTimeSec) {
+            log.format(Locale.US, "#[StartTime: %.3f (seconds since epoch), %s]\n",
+                    startTimeSec, new Date((long) (startTimeSec * MILLIS_PER_SECOND)).toString());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fast, non thread-safe pseudo random number generator (xorshift64*).
+ *
+ * Unlike {@link java.util.Random} there is no atomic update of the seed, so this generator is meant to be confined to a
+ * single thread, e.g. the thread running a timestep loop. The quality is good enough for selecting operations; it should not
+ * be used for anything security related.
+ */
+public final class XorShiftRandom {
+
+    private static final long MULTIPLIER = 0x2545F4914F6CDD1DL;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long MIX_MULTIPLIER_1 = 0xBF58476D1CE4E5B9L;
+    private static final long MIX_MULTIPLIER_2 = 0x94D049BB133111EBL;
+    private static final int SHIFT_A = 12;
+    private static final int SHIFT_B = 25;
+    private static final int SHIFT_C = 27;
+    private static final int MIX_SHIFT_1 = 30;
+    private static final int MIX_SHIFT_2 = 27;
+    private static final int MIX_SHIFT_3 = 31;
+    private static final int INT_BITS = 32;
+    private static final int DOUBLE_SHIFT = 11;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private static final AtomicLong SEED_UNIQUIFIER = new AtomicLong(System.nanoTime());
+
+    private long seed;
+
+    public XorShiftRandom() {
+        this(SEED_UNIQUIFIER.addAndGet(GOLDEN_GAMMA) ^ System.nanoTime());
+    }
+
+    public XorShiftRandom(long seed) {
+        long mixed = mix(seed);
+        // the all-zero state is the only state xorshift can't leave
+        this.seed = mixed == 0 ? GOLDEN_GAMMA : mixed;
+    }
+
+    /**
+     * Returns the next pseudo random long; all 64 bits are usable.
+     *
+     * @return the next pseudo random long
+     */
+    public long nextLong() {
+        long x = seed;
+        x ^= x >>> SHIFT_A;
+        x ^= x << SHIFT_B;
+        x ^= x >>> SHIFT_C;
+        seed = x;
+        return x * MULTIPLIER;
+    }
+
+    /**
+     * Returns a pseudo random int between 0 (inclusive) and the bound (exclusive).
+     *
+     * @param bound the upper bound (exclusive); must be positive
+     * @return the pseudo random int
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive, but was " + bound);
+        }
+        return (int) (((nextLong() >>> INT_BITS) * bound) >>> INT_BITS);
+    }
+
+    /**
+     * Returns a pseudo random double between 0.0 (inclusive) and 1.0 (exclusive).
+     *
+     * @return the pseudo random double
+     */
+    public double nextDouble() {
+        return (nextLong() >>> DOUBLE_SHIFT) * DOUBLE_UNIT;
+    }
+
+    // the SplitMix64 finalizer, so similar seeds result in unrelated sequences
+    private static long mix(long seed) {
+        long z = seed;
+        z = (z ^ (z >>> MIX_SHIFT_1)) * MIX_MULTIPLIER_1;
+        z = (z ^ (z >>> MIX_SHIFT_2)) * MIX_MULTIPLIER_2;
+        return z ^ (z >>> MIX_SHIFT_3);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Represents a {@link Worker} running embedded in the JVM of the agent as a {@link Process}, so the agent can monitor and
+ * shutdown the worker like a worker process.
+ *
+ * The process has exited once the worker has completed its shutdown; the exit value is always 0.
+ */
+final class EmbeddedWorkerProcess extends Process {
+
+    private final CountDownLatch exited = new CountDownLatch(1);
+    private final Worker worker;
+
+    EmbeddedWorkerProcess(Worker worker) {
+        this.worker = worker;
+    }
+
+    void exited() {
+        exited.countDown();
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return new ByteArrayOutputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        exited.await();
+        return 0;
+    }
+
+    @Override
+    public int exitValue() {
+        if (exited.getCount() > 0) {
+            throw new IllegalThreadStateException("Worker " + worker.getWorkerAddress() + " has not exited");
+        }
+        return 0;
+    }
+
+    @Override
+    public void destroy() {
+        worker.shutdownEmbedded();
+    }
+}
@@ -19,15 +19,19 @@ import com.hazelcast.simulator.agent.workerprocess.WorkerParameters;
 import com.hazelcast.simulator.common.ProcessSuicideThread;
 import com.hazelcast.simulator.common.ShutdownThread;
 import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.protocol.TransportType;
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.protocol.operation.OperationEncoding;
 import com.hazelcast.simulator.utils.ExceptionReporter;
 import com.hazelcast.simulator.vendors.VendorDriver;
 import com.hazelcast.simulator.worker.operations.TerminateWorkerOperation;
+import com.hazelcast.simulator.worker.performance.PerformanceLogFormat;
 import com.hazelcast.simulator.worker.performance.PerformanceMonitor;
 import com.hazelcast.simulator.worker.testcontainer.TestManager;
 import org.apache.log4j.Logger;
 
 import java.io.File;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.hazelcast.simulator.agent.workerprocess.WorkerParameters.loadParameters;
@@ -38,13 +42,18 @@ import static com.hazelcast.simulator.utils.CommonUtils.exitWithError;
 import static com.hazelcast.simulator.utils.CommonUtils.getSimulatorVersion;
 import static com.hazelcast.simulator.utils.FileUtils.getSimulatorHome;
 import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.setEmbeddedUserDir;
 import static com.hazelcast.simulator.utils.FormatUtils.fillString;
 import static com.hazelcast.simulator.utils.NativeUtils.getInputArgs;
 import static com.hazelcast.simulator.utils.NativeUtils.getPID;
 import static com.hazelcast.simulator.utils.NativeUtils.writePid;
 import static com.hazelcast.simulator.utils.SimulatorUtils.localIp;
 import static com.hazelcast.simulator.vendors.VendorDriver.loadVendorDriver;
+import static com.hazelcast.simulator.worker.performance.PerformanceMonitor.DEFAULT_HISTORY_SIZE;
+import static com.hazelcast.simulator.worker.performance.PerformanceMonitor.DEFAULT_STEADY_STATE_MAX_CV;
+import static java.lang.Double.parseDouble;
 import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
 import static java.lang.String.format;
 
 public class Worker {
@@ -60,26 +69,60 @@ public class Worker {
     private final VendorDriver vendorDriver;
     private final WorkerParameters parameters;
     private final SimulatorAddress workerAddress;
+    private final boolean embedded;
+    private volatile EmbeddedWorkerProcess embeddedProcess;
     private ShutdownThread shutdownThread;
 
     public Worker(WorkerParameters parameters) throws Exception {
+        this(parameters, false);
+    }
+
+    private Worker(WorkerParameters parameters, boolean embedded) throws Exception {
         this.parameters = parameters;
+        this.embedded = embedded;
         this.publicAddress = parameters.get("PUBLIC_ADDRESS");
         this.workerAddress = SimulatorAddress.fromString(parameters.get("WORKER_ADDRESS"));
         this.vendorDriver = loadVendorDriver(parameters.get("VENDOR"))
                 .setAll(parameters.asMap());
         this.server = new Server("workers")
                 .setBrokerURL(localIp(), parseInt(parameters.get("AGENT_PORT")))
-                .setSelfAddress(workerAddress);
+                .setSelfAddress(workerAddress)
+                .setOperationEncoding(OperationEncoding.fromString(parameters.get("OPERATION_ENCODING")))
+                .setTransportType(TransportType.fromString(parameters.get("TRANSPORT")));
+        String flushWindowMillis = parameters.get("WORKER_FLUSH_WINDOW_MILLIS");
+        if (flushWindowMillis != null) {
+            server.setFlushWindowMillis(parseLong(flushWindowMillis));
+        }
         this.testManager = new TestManager(server, vendorDriver);
 
         ScriptExecutor scriptExecutor = new ScriptExecutor(vendorDriver);
         server.setProcessor(new WorkerOperationProcessor(this, testManager, scriptExecutor));
 
-        Runtime.getRuntime().addShutdownHook(new WorkerShutdownThread(true));
+        if (!embedded) {
+            Runtime.getRuntime().addShutdownHook(new WorkerShutdownThread(true));
+        }
 
         int interval = Integer.parseInt(parameters.get("WORKER_PERFORMANCE_MONITOR_INTERVAL_SECONDS"));
-        this.performanceMonitor = new PerformanceMonitor(server, testManager, interval);
+        PerformanceLogFormat logFormat = PerformanceLogFormat.fromString(parameters.get("WORKER_PERFORMANCE_LOG_FORMAT"));
+        String sampleIntervalMillis = parameters.get("WORKER_PERFORMANCE_MONITOR_SAMPLE_INTERVAL_MILLIS");
+        String historySize = parameters.get("WORKER_PERFORMANCE_HISTORY_SIZE");
+        this.performanceMonitor = new PerformanceMonitor(server, testManager, interval, logFormat,
+                sampleIntervalMillis == null ? 0 : parseInt(sampleIntervalMillis),
+                historySize == null ? DEFAULT_HISTORY_SIZE : parseInt(historySize));
+        enableSteadyStateDetection(parameters);
+    }
+
+    private void enableSteadyStateDetection(WorkerParameters parameters) {
+        String windowSize = parameters.get("WORKER_STEADY_STATE_WINDOW");
+        String maxCoefficientOfVariation = parameters.get("WORKER_STEADY_STATE_MAX_CV");
+        if (windowSize != null && parseInt(windowSize) > 0) {
+            performanceMonitor.enableSteadyStateDetection(parseInt(windowSize),
+                    maxCoefficientOfVariation == null ? DEFAULT_STEADY_STATE_MAX_CV : parseDouble(maxCoefficientOfVariation));
+        }
+    }
+
+    public PerformanceMonitor getPerformanceMonitor() {
+        return performanceMonitor;
     }
 
     public void start() throws Exception {
@@ -89,11 +132,13 @@ public class Worker {
         performanceMonitor.start();
         vendorDriver.startVendorInstance();
 
-        new ProcessSuicideThread(parameters.get("agent.pid"), parameters.intGet("WORKER_ORPHAN_INTERVAL_SECONDS")).start();
+        if (!embedded) {
+            new ProcessSuicideThread(parameters.get("agent.pid"), parameters.intGet("WORKER_ORPHAN_INTERVAL_SECONDS")).start();
 
-        // we need to signal start after everything has completed. Otherwise messages could be send on the agent topic
-        // without the agent being subscribed.
-        writePid(new File(getUserDir(), "worker.pid"));
+            // we need to signal start after everything has completed. Otherwise messages could be send on the agent topic
+            // without the agent being subscribed.
+            writePid(new File(getUserDir(), "worker.pid"));
+        }
 
         logHeader("Successfully started Worker #" + workerAddress);
     }
@@ -101,10 +146,45 @@ public class Worker {
     public void shutdown(TerminateWorkerOperation op) {
         LOGGER.warn("Terminating worker");
         closeQuietly(server);
-        shutdownThread = new WorkerShutdownThread(op.isRealShutdown());
+        // an embedded worker shares the JVM and log4j with the agent
+        shutdownThread = new WorkerShutdownThread(op.isRealShutdown() && !embedded);
         shutdownThread.start();
     }
 
+    void shutdownEmbedded() {
+        closeQuietly(server);
+        new WorkerShutdownThread(false).run();
+    }
+
+    SimulatorAddress getWorkerAddress() {
+        return workerAddress;
+    }
+
+    /**
+     * Starts a worker embedded in the JVM of the agent.
+     *
+     * The worker is loaded by its own classloader, so the agent calls this method with reflection and only JDK types are
+     * passed. The working directory of the worker is set for its classloader only.
+     *
+     * @param parameters the parameters of the worker
+     * @param workerHome the working directory of the worker
+     * @return the {@link Process} representing the started worker
+     * @throws Exception if the worker failed to start
+     */
+    public static Process startEmbedded(Map<String, String> parameters, File workerHome) throws Exception {
+        setEmbeddedUserDir(workerHome);
+
+        Worker worker = new Worker(new WorkerParameters(parameters), true);
+        worker.embeddedProcess = new EmbeddedWorkerProcess(worker);
+        try {
+            worker.start();
+        } catch (Exception e) {
+            worker.shutdownEmbedded();
+            throw e;
+        }
+        return worker.embeddedProcess;
+    }
+
     // just for testing
     void awaitShutdown() throws Exception {
         if (shutdownThread != null) {
@@ -180,6 +260,11 @@ public class Worker {
         public void doRun() {
             closeQuietly(vendorDriver);
             closeQuietly(performanceMonitor);
+
+            EmbeddedWorkerProcess process = embeddedProcess;
+            if (process != null) {
+                process.exited();
+            }
         }
     }
 }
@@ -23,6 +23,8 @@ import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
 import com.hazelcast.simulator.utils.ExceptionReporter;
 import com.hazelcast.simulator.worker.operations.CreateTestOperation;
 import com.hazelcast.simulator.worker.operations.ExecuteScriptOperation;
+import com.hazelcast.simulator.worker.operations.PerformanceHistoryOperation;
+import com.hazelcast.simulator.worker.operations.RetuneRateOperation;
 import com.hazelcast.simulator.worker.operations.StartPhaseOperation;
 import com.hazelcast.simulator.worker.operations.StopRunOperation;
 import com.hazelcast.simulator.worker.operations.TerminateWorkerOperation;
@@ -53,6 +55,14 @@ public class WorkerOperationProcessor implements OperationProcessor {
                 scriptExecutor.execute((ExecuteScriptOperation) op, promise);
             } else if (op instanceof StartPhaseOperation) {
                 testManager.startTestPhase((StartPhaseOperation) op, promise);
+            } else if (op instanceof PerformanceHistoryOperation) {
+                PerformanceHistoryOperation historyOperation = (PerformanceHistoryOperation) op;
+                String history = worker.getPerformanceMonitor()
+                        .getHistory(historyOperation.getTestId(), historyOperation.getSinceMillis());
+                promise.answer(history == null ? "" : history);
+            } else if (op instanceof RetuneRateOperation) {
+                testManager.retuneRate((RetuneRateOperation) op);
+                promise.answer("ok");
             } else if (op instanceof StopRunOperation) {
                 testManager.stopRun((StopRunOperation) op);
                 promise.answer("ok");
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.metronome;
+
+import com.hazelcast.simulator.worker.testcontainer.PropertyBinding;
+
+import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.lang3.RandomUtils.nextLong;
+
+/**
+ * {@link Metronome} implementation which generates on/off bursty traffic.
+ * <p>
+ * During an on-period the calls are made with the configured interval; during an off-period no calls are made. So the
+ * configured rate is the rate of a burst and the average rate is {@code rate * onDurationMs / (onDurationMs + offDurationMs)}.
+ * The periods are configured with the {@code onDurationMs} and {@code offDurationMs} properties (both default to 1000).
+ * <p>
+ * All threads of an execution group share the same on/off periods, so they burst at the same time. A call which would be
+ * made during an off-period is moved to the start of the next on-period. The first on-period starts when the first thread
+ * starts waiting for the metronome, and a retune of the rate doesn't shift the periods.
+ */
+public final class BurstyMetronome extends ScheduledMetronome implements RetunableMetronome {
+
+    private static final long DEFAULT_DURATION_MS = 1000;
+
+    private final long intervalNanos;
+    private final long onDurationNanos;
+    private final long periodNanos;
+    private final int threadCount;
+    private final Epoch epoch;
+
+    BurstyMetronome(long intervalNanos, long onDurationNanos, long offDurationNanos, boolean accountForCoordinatedOmission) {
+        this(intervalNanos, onDurationNanos, onDurationNanos + offDurationNanos, 1, new Epoch(),
+                accountForCoordinatedOmission);
+    }
+
+    public BurstyMetronome(long intervalNanos, int threadCount, PropertyBinding binding, String prefix) {
+        this(intervalNanos * threadCount,
+                MILLISECONDS.toNanos(binding.loadAsLong(toPropertyName(prefix, "onDurationMs"), DEFAULT_DURATION_MS)),
+                MILLISECONDS.toNanos(binding.loadAsLong(toPropertyName(prefix, "onDurationMs"), DEFAULT_DURATION_MS))
+                        + MILLISECONDS.toNanos(binding.loadAsLong(toPropertyName(prefix, "offDurationMs"), DEFAULT_DURATION_MS)),
+                threadCount,
+                new Epoch(),
+                binding.loadAsBoolean(toPropertyName(prefix, "accountForCoordinatedOmission"), true));
+    }
+
+    public BurstyMetronome(Metronome m) {
+        this(((BurstyMetronome) m).intervalNanos,
+                ((BurstyMetronome) m).onDurationNanos,
+                ((BurstyMetronome) m).periodNanos,
+                ((BurstyMetronome) m).threadCount,
+                ((BurstyMetronome) m).epoch,
+                ((BurstyMetronome) m).isAccountForCoordinatedOmission());
+    }
+
+    BurstyMetronome(long intervalNanos, long onDurationNanos, long periodNanos, long epochNanos,
+                    boolean accountForCoordinatedOmission) {
+        this(intervalNanos, onDurationNanos, periodNanos, 1, new Epoch(epochNanos), accountForCoordinatedOmission);
+    }
+
+    private BurstyMetronome(long intervalNanos, long onDurationNanos, long periodNanos, int threadCount, Epoch epoch,
+                            boolean accountForCoordinatedOmission) {
+        super(accountForCoordinatedOmission);
+        if (onDurationNanos <= 0 || periodNanos <= onDurationNanos) {
+            throw new IllegalArgumentException("onDurationMs and offDurationMs need to be larger than 0");
+        }
+        this.intervalNanos = intervalNanos;
+        this.onDurationNanos = onDurationNanos;
+        this.periodNanos = periodNanos;
+        this.threadCount = threadCount;
+        this.epoch = epoch;
+    }
+
+    @Override
+    public Metronome retune(long intervalNanos) {
+        return new BurstyMetronome(intervalNanos * threadCount, onDurationNanos, periodNanos, threadCount, epoch,
+                isAccountForCoordinatedOmission());
+    }
+
+    @Override
+    long firstStartNanos(long nowNanos) {
+        epoch.anchor(nowNanos);
+        // the first start is randomized, so the threads don't all fire at the same moment
+        return skipOffPeriod(nowNanos + nextLong(0, intervalNanos));
+    }
+
+    @Override
+    long nextStartNanos(long expectedStartNanos) {
+        return skipOffPeriod(expectedStartNanos + intervalNanos);
+    }
+
+    long skipOffPeriod(long startNanos) {
+        long position = (startNanos - epoch.get()) % periodNanos;
+        if (position < 0) {
+            position += periodNanos;
+        }
+        return position < onDurationNanos ? startNanos : startNanos + periodNanos - position;
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.metronome;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * The start of a schedule which is shared by all threads of an execution group, e.g. the steps of the {@link RampMetronome}
+ * or the on/off periods of the {@link BurstyMetronome}.
+ * <p>
+ * The epoch is anchored by the first thread which waits for the metronome and not when the metronome is created, so the time
+ * between the setup of the test and the start of the run phase doesn't count. Since the copies of a master metronome and the
+ * metronomes created by a retune share the same Epoch, they all follow the same schedule.
+ */
+final class Epoch {
+
+    private static final long NOT_ANCHORED = Long.MIN_VALUE;
+
+    private final AtomicLong epochNanos;
+
+    Epoch() {
+        this(NOT_ANCHORED);
+    }
+
+    Epoch(long epochNanos) {
+        this.epochNanos = new AtomicLong(epochNanos);
+    }
+
+    /**
+     * Anchors the epoch at the given time, unless it already has been anchored.
+     *
+     * @param nowNanos the current time in nanos
+     * @return the epoch in nanos
+     */
+    long anchor(long nowNanos) {
+        epochNanos.compareAndSet(NOT_ANCHORED, nowNanos);
+        return epochNanos.get();
+    }
+
+    /**
+     * Returns the epoch; if the epoch has not been anchored yet, it is anchored at the current time.
+     *
+     * @return the epoch in nanos
+     */
+    long get() {
+        long nanos = epochNanos.get();
+        return nanos == NOT_ANCHORED ? anchor(nanoTime()) : nanos;
+    }
+
+    boolean isAnchored() {
+        return epochNanos.get() != NOT_ANCHORED;
+    }
+}
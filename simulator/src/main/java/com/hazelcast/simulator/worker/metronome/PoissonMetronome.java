@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.metronome;
+
+import com.hazelcast.simulator.utils.XorShiftRandom;
+import com.hazelcast.simulator.worker.testcontainer.PropertyBinding;
+
+import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
+import static java.lang.Math.log;
+import static java.lang.Math.round;
+
+/**
+ * {@link Metronome} implementation with exponentially distributed intervals, so the calls arrive as a Poisson process.
+ * <p>
+ * A fixed interval never lets calls arrive close to each other, which hides the queueing effects of real traffic. The mean
+ * interval of each thread is the configured interval times the thread count; since the combination of independent Poisson
+ * processes is a Poisson process again, all threads of the execution group together produce the configured rate.
+ */
+public final class PoissonMetronome extends ScheduledMetronome {
+
+    private final long meanIntervalNanos;
+    private final XorShiftRandom random = new XorShiftRandom();
+
+    PoissonMetronome(long meanIntervalNanos, boolean accountForCoordinatedOmission) {
+        super(accountForCoordinatedOmission);
+        this.meanIntervalNanos = meanIntervalNanos;
+    }
+
+    public PoissonMetronome(long intervalNanos, int threadCount, PropertyBinding binding, String prefix) {
+        this(intervalNanos * threadCount, binding.loadAsBoolean(toPropertyName(prefix, "accountForCoordinatedOmission"), true));
+    }
+
+    public PoissonMetronome(Metronome m) {
+        this(((PoissonMetronome) m).meanIntervalNanos, ((PoissonMetronome) m).isAccountForCoordinatedOmission());
+    }
+
+    @Override
+    long firstStartNanos(long nowNanos) {
+        return nowNanos + nextIntervalNanos();
+    }
+
+    @Override
+    long nextStartNanos(long expectedStartNanos) {
+        return expectedStartNanos + nextIntervalNanos();
+    }
+
+    private long nextIntervalNanos() {
+        // nextDouble() is in [0, 1), so the argument of the log is in (0, 1]
+        return round(-meanIntervalNanos * log(1 - random.nextDouble()));
+    }
+
+    public long getMeanIntervalNanos() {
+        return meanIntervalNanos;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.metronome;
+
+import com.hazelcast.simulator.worker.testcontainer.PropertyBinding;
+
+import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.round;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.lang3.RandomUtils.nextLong;
+
+/**
+ * {@link Metronome} implementation which increases the rate in steps.
+ * <p>
+ * The configured rate is the initial rate. Every {@code rampStepSeconds} (default 10) the rate is increased with
+ * {@code rampStepRatePerSecond} (defaults to the initial rate), until the optional {@code rampMaxRatePerSecond} is reached.
+ * This makes it possible to see at which rate the latency starts to degrade in a single run.
+ * <p>
+ * All threads of an execution group share the same steps; the interval of each thread is the interval of the step times
+ * the thread count. The first step starts when the first thread starts waiting for the metronome, and a retune of the rate
+ * scales all rates without restarting the steps.
+ */
+public final class RampMetronome extends ScheduledMetronome implements RetunableMetronome {
+
+    private static final long DEFAULT_STEP_SECONDS = 10;
+    private static final double NANOS_PER_SECOND = SECONDS.toNanos(1);
+
+    private final double initialRatePerSecond;
+    private final double stepRatePerSecond;
+    private final double maxRatePerSecond;
+    private final long stepNanos;
+    private final int threadCount;
+    private final Epoch epoch;
+
+    RampMetronome(double initialRatePerSecond, double stepRatePerSecond, double maxRatePerSecond, long stepNanos,
+                  int threadCount, long epochNanos, boolean accountForCoordinatedOmission) {
+        this(initialRatePerSecond, stepRatePerSecond, maxRatePerSecond, stepNanos, threadCount, new Epoch(epochNanos),
+                accountForCoordinatedOmission);
+    }
+
+    private RampMetronome(double initialRatePerSecond, double stepRatePerSecond, double maxRatePerSecond, long stepNanos,
+                          int threadCount, Epoch epoch, boolean accountForCoordinatedOmission) {
+        super(accountForCoordinatedOmission);
+        if (stepNanos <= 0) {
+            throw new IllegalArgumentException("rampStepSeconds needs to be larger than 0");
+        }
+        this.initialRatePerSecond = initialRatePerSecond;
+        this.stepRatePerSecond = stepRatePerSecond;
+        this.maxRatePerSecond = maxRatePerSecond;
+        this.stepNanos = stepNanos;
+        this.threadCount = threadCount;
+        this.epoch = epoch;
+    }
+
+    public RampMetronome(long intervalNanos, int threadCount, PropertyBinding binding, String prefix) {
+        this(NANOS_PER_SECOND / intervalNanos,
+                binding.loadAsDouble(toPropertyName(prefix, "rampStepRatePerSecond"), NANOS_PER_SECOND / intervalNanos),
+                binding.loadAsDouble(toPropertyName(prefix, "rampMaxRatePerSecond"), 0),
+                SECONDS.toNanos(binding.loadAsLong(toPropertyName(prefix, "rampStepSeconds"), DEFAULT_STEP_SECONDS)),
+                threadCount,
+                new Epoch(),
+                binding.loadAsBoolean(toPropertyName(prefix, "accountForCoordinatedOmission"), true));
+    }
+
+    public RampMetronome(Metronome m) {
+        this(((RampMetronome) m).initialRatePerSecond,
+                ((RampMetronome) m).stepRatePerSecond,
+                ((RampMetronome) m).maxRatePerSecond,
+                ((RampMetronome) m).stepNanos,
+                ((RampMetronome) m).threadCount,
+                ((RampMetronome) m).epoch,
+                ((RampMetronome) m).isAccountForCoordinatedOmission());
+    }
+
+    @Override
+    public Metronome retune(long intervalNanos) {
+        double factor = NANOS_PER_SECOND / intervalNanos / initialRatePerSecond;
+        return new RampMetronome(initialRatePerSecond * factor, stepRatePerSecond * factor, maxRatePerSecond * factor,
+                stepNanos, threadCount, epoch, isAccountForCoordinatedOmission());
+    }
+
+    @Override
+    long firstStartNanos(long nowNanos) {
+        epoch.anchor(nowNanos);
+        // the first start is randomized, so the threads don't all fire at the same moment
+        return nowNanos + nextLong(0, intervalNanos(nowNanos));
+    }
+
+    @Override
+    long nextStartNanos(long expectedStartNanos) {
+        return expectedStartNanos + intervalNanos(expectedStartNanos);
+    }
+
+    private long intervalNanos(long timeNanos) {
+        return round(NANOS_PER_SECOND * threadCount / getRatePerSecond(timeNanos));
+    }
+
+    /**
+     * Returns the rate of all threads together at the given time.
+     *
+     * @param timeNanos the time in nanos
+     * @return the rate per second
+     */
+    double getRatePerSecond(long timeNanos) {
+        long step = max(0, (timeNanos - epoch.get()) / stepNanos);
+        double ratePerSecond = initialRatePerSecond + step * stepRatePerSecond;
+        return maxRatePerSecond > 0 ? min(ratePerSecond, maxRatePerSecond) : ratePerSecond;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.metronome;
+
+/**
+ * A {@link Metronome} which can change its rate without restarting its schedule.
+ */
+public interface RetunableMetronome extends Metronome {
+
+    /**
+     * Creates a new master metronome with the given interval, which keeps the schedule of this metronome. E.g. the steps of
+     * a {@link RampMetronome} continue where they were, instead of starting over with the initial rate.
+     *
+     * @param intervalNanos the new interval of all threads of the execution group together in nanos
+     * @return the new master metronome
+     */
+    Metronome retune(long intervalNanos);
+}
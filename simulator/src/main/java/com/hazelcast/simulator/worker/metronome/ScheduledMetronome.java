@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.metronome;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+
+/**
+ * Base class for {@link Metronome} implementations which sleep until the next start time of a schedule.
+ * <p>
+ * The next start time is calculated from the previous expected start time and not from the time the call was made. So a
+ * delayed thread catches up with the schedule, and the expected start time can be used to account for coordinated omission.
+ */
+abstract class ScheduledMetronome implements Metronome {
+
+    private final boolean accountForCoordinatedOmission;
+    private boolean started;
+    private long nextNanos;
+
+    ScheduledMetronome(boolean accountForCoordinatedOmission) {
+        this.accountForCoordinatedOmission = accountForCoordinatedOmission;
+    }
+
+    @Override
+    public final long waitForNext() {
+        if (!started) {
+            nextNanos = firstStartNanos(nanoTime());
+            started = true;
+        }
+
+        long now;
+        while ((now = nanoTime()) < nextNanos) {
+            parkNanos(nextNanos - now);
+        }
+
+        long expectedStartNanos = nextNanos;
+        nextNanos = nextStartNanos(expectedStartNanos);
+        return accountForCoordinatedOmission ? expectedStartNanos : nanoTime();
+    }
+
+    boolean isAccountForCoordinatedOmission() {
+        return accountForCoordinatedOmission;
+    }
+
+    /**
+     * Returns the first start time.
+     *
+     * @param nowNanos the current time in nanos
+     * @return the first start time in nanos
+     */
+    abstract long firstStartNanos(long nowNanos);
+
+    /**
+     * Returns the start time following the given expected start time.
+     *
+     * @param expectedStartNanos the previous expected start time in nanos
+     * @return the next start time in nanos
+     */
+    abstract long nextStartNanos(long expectedStartNanos);
+}
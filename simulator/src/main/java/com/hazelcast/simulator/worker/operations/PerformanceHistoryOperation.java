@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.operations;
+
+import com.google.gson.annotations.SerializedName;
+import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
+import com.hazelcast.simulator.worker.performance.PerformanceHistory;
+
+/**
+ * Fetches the {@link PerformanceHistory} of a Simulator Test from a worker.
+ *
+ * The worker answers with the samples in csv format, or an empty string if the worker has no history for the test.
+ */
+public class PerformanceHistoryOperation implements SimulatorOperation {
+
+    /**
+     * The name of the test.
+     */
+    @SerializedName("testId")
+    private final String testId;
+
+    /**
+     * Only the samples taken after this epoch time in millis are returned.
+     */
+    @SerializedName("sinceMillis")
+    private final long sinceMillis;
+
+    public PerformanceHistoryOperation(String testId, long sinceMillis) {
+        this.testId = testId;
+        this.sinceMillis = sinceMillis;
+    }
+
+    public String getTestId() {
+        return testId;
+    }
+
+    public long getSinceMillis() {
+        return sinceMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "PerformanceHistoryOperation{testId='" + testId + "', sinceMillis=" + sinceMillis + '}';
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.operations;
+
+import com.google.gson.annotations.SerializedName;
+import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
+
+/**
+ * Changes the rate of a running Simulator Test on a worker.
+ *
+ * If a test is configured with a globalRatePerSecond, the coordinator divides this rate between the load generating workers
+ * and sends each worker its share. The share is rebalanced when a worker is killed or falls behind, so the rate of the cluster
+ * stays the same.
+ */
+public class RetuneRateOperation implements SimulatorOperation {
+
+    /**
+     * The name of the test.
+     */
+    @SerializedName("testId")
+    private final String testId;
+
+    /**
+     * The share of the globalRatePerSecond the worker should run at, e.g. 0.25 if there are 4 workers.
+     */
+    @SerializedName("rateShare")
+    private final double rateShare;
+
+    public RetuneRateOperation(String testId, double rateShare) {
+        this.testId = testId;
+        this.rateShare = rateShare;
+    }
+
+    public String getTestId() {
+        return testId;
+    }
+
+    public double getRateShare() {
+        return rateShare;
+    }
+
+    @Override
+    public String toString() {
+        return "RetuneRateOperation{testId='" + testId + "', rateShare=" + rateShare + '}';
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.TimeZone;
+
+/**
+ * Responsible for writing the performance stats to disk in a compact binary columnar format.
+ *
+ * The file starts with {@link #MAGIC}, {@link #VERSION} and the ID of the time zone of the worker, which is needed to restore
+ * the timestamp column. It is followed by blocks of up to {@link #BLOCK_ROWS} intervals. Each block starts with its number of
+ * rows, followed by the columns:
+ * <ol>
+ * <li>epoch millis: delta encoded variable length longs</li>
+ * <li>operations: delta encoded variable length longs</li>
+ * <li>operations-delta: variable length longs</li>
+ * <li>operations/second: doubles</li>
+ * <li>steady-state: a byte, 0 during the warmup and 1 once the steady state has been detected (since version 2)</li>
+ * </ol>
+ * The variable length longs are zig-zag encoded, so a row typically takes less than 20 bytes.
+ *
+ * A block is written when it is full or when the writer is closed. So if the worker gets killed, the intervals of the last
+ * block are lost. The {@link PerformanceLogConverter} converts the file to the csv format.
+ */
+final class BinaryPerformanceLogWriter extends PerformanceLogWriter {
+
+    static final int MAGIC = 0x53504C47;
+    static final byte VERSION = 2;
+    static final int BLOCK_ROWS = 60;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int INT_BYTES = Integer.SIZE / Byte.SIZE;
+    private static final int SHORT_BYTES = Short.SIZE / Byte.SIZE;
+    private static final int DOUBLE_BYTES = Double.SIZE / Byte.SIZE;
+    private static final int MAX_VAR_LONG_BYTES = 10;
+    private static final int MAX_ROW_BYTES = 3 * MAX_VAR_LONG_BYTES + DOUBLE_BYTES + 1;
+    private static final int VAR_LONG_SHIFT = 7;
+    private static final int VAR_LONG_PAYLOAD_MASK = 0x7F;
+    private static final int VAR_LONG_CONTINUATION_BIT = 0x80;
+    private static final int SIGN_SHIFT = 63;
+
+    private final long[] timeMillisColumn = new long[BLOCK_ROWS];
+    private final long[] operationsTotalColumn = new long[BLOCK_ROWS];
+    private final long[] operationsDeltaColumn = new long[BLOCK_ROWS];
+    private final double[] operationsPerSecondColumn = new double[BLOCK_ROWS];
+    private final boolean[] steadyStateColumn = new boolean[BLOCK_ROWS];
+    private final ByteBuffer buffer = ByteBuffer.allocate(INT_BYTES + BLOCK_ROWS * MAX_ROW_BYTES);
+    private int rows;
+    private boolean headerWritten;
+
+    BinaryPerformanceLogWriter(File file) {
+        super(file);
+    }
+
+    @Override
+    void write(long timeMillis,
+               String timestamp,
+               long operationsTotal,
+               long operationsDelta,
+               double operationsPerSecond,
+               boolean steadyState) {
+
+        timeMillisColumn[rows] = timeMillis;
+        operationsTotalColumn[rows] = operationsTotal;
+        operationsDeltaColumn[rows] = operationsDelta;
+        operationsPerSecondColumn[rows] = operationsPerSecond;
+        steadyStateColumn[rows] = steadyState;
+        rows++;
+
+        if (rows == BLOCK_ROWS) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (rows > 0) {
+                writeBlock();
+            }
+        } finally {
+            super.close();
+        }
+    }
+
+    private void writeHeader() {
+        byte[] timeZoneId = TimeZone.getDefault().getID().getBytes(UTF8);
+        ByteBuffer header = ByteBuffer.allocate(INT_BYTES + 1 + SHORT_BYTES + timeZoneId.length);
+        header.putInt(MAGIC);
+        header.put(VERSION);
+        header.putShort((short) timeZoneId.length);
+        header.put(timeZoneId);
+        header.flip();
+        writeBuffer(header);
+    }
+
+    private void writeBlock() {
+        if (!headerWritten) {
+            // the blocks are appended to an existing file without repeating the header
+            if (getFile().length() == 0) {
+                writeHeader();
+            }
+            headerWritten = true;
+        }
+
+        buffer.clear();
+        buffer.putInt(rows);
+        putDeltaColumn(timeMillisColumn);
+        putDeltaColumn(operationsTotalColumn);
+        for (int row = 0; row < rows; row++) {
+            putVarLong(buffer, operationsDeltaColumn[row]);
+        }
+        for (int row = 0; row < rows; row++) {
+            buffer.putDouble(operationsPerSecondColumn[row]);
+        }
+        for (int row = 0; row < rows; row++) {
+            buffer.put((byte) (steadyStateColumn[row] ? 1 : 0));
+        }
+        buffer.flip();
+        rows = 0;
+
+        writeBuffer(buffer);
+    }
+
+    private void putDeltaColumn(long[] column) {
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            putVarLong(buffer, column[row] - previous);
+            previous = column[row];
+        }
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        long zigZag = (value << 1) ^ (value >> SIGN_SHIFT);
+        while ((zigZag & ~VAR_LONG_PAYLOAD_MASK) != 0) {
+            buffer.put((byte) ((zigZag & VAR_LONG_PAYLOAD_MASK) | VAR_LONG_CONTINUATION_BIT));
+            zigZag >>>= VAR_LONG_SHIFT;
+        }
+        buffer.put((byte) zigZag);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long zigZag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            zigZag |= (long) (b & VAR_LONG_PAYLOAD_MASK) << shift;
+            shift += VAR_LONG_SHIFT;
+        } while ((b & VAR_LONG_CONTINUATION_BIT) != 0);
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.text.DecimalFormat;
+import java.text.FieldPosition;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Responsible for writing to performance stats to disk in csv format.
+ *
+ * The steady-state column is 0 for the intervals written during the warmup of the test and 1 once the steady state has been
+ * detected, see {@link SteadyStateDetector}.
+ *
+ * Each line is formatted into a reused {@link StringBuffer} and encoded into a reused {@link ByteBuffer}, so writing an interval
+ * doesn't create any intermediate strings.
+ */
+final class CsvPerformanceLogWriter extends PerformanceLogWriter {
+
+    static final String HEADER = "epoch,timestamp,operations,operations-delta,operations/second,steady-state\n";
+
+    private static final int INITIAL_BUFFER_CAPACITY = 256;
+
+    private final StringBuffer sb = new StringBuffer();
+    private final DecimalFormat format = new DecimalFormat("#.###");
+    private final FieldPosition fieldPosition = new FieldPosition(0);
+    private final CharsetEncoder encoder = Charset.defaultCharset().newEncoder();
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_CAPACITY);
+    private boolean headerWritten;
+
+    CsvPerformanceLogWriter(File file) {
+        super(file);
+    }
+
+    @Override
+    void write(long timeMillis,
+               String timestamp,
+               long operationsTotal,
+               long operationsDelta,
+               double operationsPerSecond,
+               boolean steadyState) {
+
+        sb.setLength(0);
+        if (!headerWritten) {
+            sb.append(HEADER);
+            headerWritten = true;
+        }
+
+        // ms are expressed in epoch time after the decimal point
+        format.format(timeMillis * 1d / SECONDS.toMillis(1), sb, fieldPosition);
+        sb.append(',').append(timestamp);
+        sb.append(',').append(operationsTotal);
+        sb.append(',').append(operationsDelta);
+        sb.append(',');
+        format.format(operationsPerSecond, sb, fieldPosition);
+        sb.append(',').append(steadyState ? '1' : '0');
+        sb.append('\n');
+
+        writeBuffer(encode());
+    }
+
+    private ByteBuffer encode() {
+        int maxBytes = (int) Math.ceil(sb.length() * encoder.maxBytesPerChar());
+        if (buffer.capacity() < maxBytes) {
+            buffer = ByteBuffer.allocate(maxBytes);
+        }
+
+        buffer.clear();
+        encoder.reset();
+        encoder.encode(CharBuffer.wrap(sb), buffer, true);
+        encoder.flush(buffer);
+        buffer.flip();
+        return buffer;
+    }
+}
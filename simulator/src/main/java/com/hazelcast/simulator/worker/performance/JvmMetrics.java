@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Samples the runtime metrics of the worker JVM: the garbage collections, the heap usage and the cpu time and allocated
+ * bytes of single threads.
+ *
+ * The cpu time and the allocated bytes are read from the {@code com.sun.management.ThreadMXBean}; if the JVM doesn't provide
+ * it, or the measurement is disabled, the thread values are -1.
+ *
+ * This class is not thread-safe; it is only used by the {@link PerformanceMonitor} thread.
+ */
+public final class JvmMetrics {
+
+    private final List<GarbageCollectorMXBean> garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final List<MemoryPoolMXBean> memoryPools = ManagementFactory.getMemoryPoolMXBeans();
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final com.sun.management.ThreadMXBean extendedThreadMXBean;
+    private final boolean threadCpuTimeEnabled;
+
+    private long gcCount;
+    private long gcTimeMillis;
+    private long intervalGcCount;
+    private long intervalGcTimeMillis;
+    private long heapUsedBytes;
+    private long heapCommittedBytes;
+
+    public JvmMetrics() {
+        this.extendedThreadMXBean = getAllocationMXBean(threadMXBean);
+        this.threadCpuTimeEnabled = threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+
+        long[] gc = readGarbageCollectors();
+        this.gcCount = gc[0];
+        this.gcTimeMillis = gc[1];
+    }
+
+    /**
+     * Returns the {@code com.sun.management.ThreadMXBean} to read the bytes allocated by a thread.
+     *
+     * The extended ThreadMXBean is not part of the Java SE API, so on a JVM which doesn't provide it or which can't measure the
+     * allocated bytes, {@code null} is returned instead of failing.
+     *
+     * @param threadMXBean the ThreadMXBean of the JVM
+     * @return the extended ThreadMXBean or {@code null} if the allocated bytes can't be measured
+     */
+    public static com.sun.management.ThreadMXBean getAllocationMXBean(ThreadMXBean threadMXBean) {
+        try {
+            if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+            com.sun.management.ThreadMXBean extended = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (!extended.isThreadAllocatedMemorySupported() || !extended.isThreadAllocatedMemoryEnabled()) {
+                return null;
+            }
+            return extended;
+        } catch (LinkageError e) {
+            // the JVM doesn't have the com.sun.management classes
+            return null;
+        }
+    }
+
+    /**
+     * Samples the garbage collections and the heap usage; the interval values are relative to the previous update.
+     */
+    public void update() {
+        long[] gc = readGarbageCollectors();
+        intervalGcCount = gc[0] - gcCount;
+        intervalGcTimeMillis = gc[1] - gcTimeMillis;
+        gcCount = gc[0];
+        gcTimeMillis = gc[1];
+
+        long used = 0;
+        long committed = 0;
+        for (MemoryPoolMXBean memoryPool : memoryPools) {
+            if (memoryPool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            MemoryUsage usage = memoryPool.getUsage();
+            if (usage != null) {
+                used += usage.getUsed();
+                committed += usage.getCommitted();
+            }
+        }
+        heapUsedBytes = used;
+        heapCommittedBytes = committed;
+    }
+
+    private long[] readGarbageCollectors() {
+        long count = 0;
+        long timeMillis = 0;
+        for (GarbageCollectorMXBean garbageCollector : garbageCollectors) {
+            // the values are -1 if the collector doesn't support them
+            count += Math.max(0, garbageCollector.getCollectionCount());
+            timeMillis += Math.max(0, garbageCollector.getCollectionTime());
+        }
+        return new long[]{count, timeMillis};
+    }
+
+    public long getIntervalGcCount() {
+        return intervalGcCount;
+    }
+
+    public long getIntervalGcTimeMillis() {
+        return intervalGcTimeMillis;
+    }
+
+    public long getHeapUsedBytes() {
+        return heapUsedBytes;
+    }
+
+    public long getHeapCommittedBytes() {
+        return heapCommittedBytes;
+    }
+
+    /**
+     * Returns the cpu time of a thread.
+     *
+     * @param threadId the ID of the thread
+     * @return the cpu time in nanoseconds or -1 if the thread isn't alive or the measurement isn't available
+     */
+    public long getThreadCpuTimeNanos(long threadId) {
+        return threadCpuTimeEnabled ? threadMXBean.getThreadCpuTime(threadId) : -1;
+    }
+
+    /**
+     * Returns the number of bytes allocated by a thread.
+     *
+     * @param threadId the ID of the thread
+     * @return the allocated bytes or -1 if the thread isn't alive or the measurement isn't available
+     */
+    public long getThreadAllocatedBytes(long threadId) {
+        return extendedThreadMXBean == null ? -1 : extendedThreadMXBean.getThreadAllocatedBytes(threadId);
+    }
+}
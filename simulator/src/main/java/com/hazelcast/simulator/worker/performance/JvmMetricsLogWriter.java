@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import com.hazelcast.simulator.utils.UncheckedIOException;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Writes the JVM runtime metrics of each test per update interval to a csv file of the worker.
+ *
+ * The worker wide values (garbage collections and heap) are repeated for each test, so each line can be correlated with the
+ * performance log of the test by its epoch.
+ */
+final class JvmMetricsLogWriter implements Closeable {
+
+    static final String HEADER = "epoch,timestamp,test,gc-count,gc-time(ms),heap-used(bytes),heap-committed(bytes),"
+            + "thread-cpu-time(ms),allocated(bytes),allocation-rate(bytes/s)\n";
+
+    private final File file;
+    private PrintStream out;
+
+    JvmMetricsLogWriter(File file) {
+        this.file = file;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    void write(long timeMillis, String timestamp, String testId, JvmMetrics jvmMetrics, TestPerformanceTracker tracker) {
+        PrintStream stream = getStream();
+        long cpuTimeNanos = tracker.intervalCpuTimeNanos();
+        stream.print(timeMillis);
+        stream.print(',');
+        stream.print(timestamp);
+        stream.print(',');
+        stream.print(testId);
+        stream.print(',');
+        stream.print(jvmMetrics.getIntervalGcCount());
+        stream.print(',');
+        stream.print(jvmMetrics.getIntervalGcTimeMillis());
+        stream.print(',');
+        stream.print(jvmMetrics.getHeapUsedBytes());
+        stream.print(',');
+        stream.print(jvmMetrics.getHeapCommittedBytes());
+        stream.print(',');
+        stream.print(cpuTimeNanos < 0 ? -1 : NANOSECONDS.toMillis(cpuTimeNanos));
+        stream.print(',');
+        stream.print(tracker.intervalAllocatedBytes());
+        stream.print(',');
+        stream.print(Math.round(tracker.intervalAllocationRate()));
+        stream.print('\n');
+    }
+
+    void flush() {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    private PrintStream getStream() {
+        if (out == null) {
+            try {
+                boolean writeHeader = !file.exists() || file.length() == 0;
+                out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+                if (writeHeader) {
+                    out.print(HEADER);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open " + file.getAbsolutePath(), e);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(out);
+        out = null;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import java.util.Locale;
+
+import static com.hazelcast.simulator.utils.Preconditions.checkPositive;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A fixed size ring buffer with the most recent performance samples of a single Simulator Test.
+ *
+ * The samples are stored in primitive arrays, so adding a sample doesn't create any garbage. When the buffer is full, the
+ * oldest sample is overwritten. The samples are only written by the {@link PerformanceMonitor}, but they can be read
+ * concurrently when the coordinator fetches the history.
+ */
+public final class PerformanceHistory {
+
+    static final String HEADER = "epoch-millis,operations,operations/second,latency-50(us),latency-99(us),latency-99.9(us),"
+            + "latency-max(us)\n";
+
+    private final long[] timeMillis;
+    private final long[] operations;
+    private final double[] throughput;
+    private final long[] latency50PercentileNanos;
+    private final long[] latency99PercentileNanos;
+    private final long[] latency999PercentileNanos;
+    private final long[] latencyMaxNanos;
+    private int next;
+    private int size;
+
+    public PerformanceHistory(int capacity) {
+        checkPositive(capacity, "capacity");
+        this.timeMillis = new long[capacity];
+        this.operations = new long[capacity];
+        this.throughput = new double[capacity];
+        this.latency50PercentileNanos = new long[capacity];
+        this.latency99PercentileNanos = new long[capacity];
+        this.latency999PercentileNanos = new long[capacity];
+        this.latencyMaxNanos = new long[capacity];
+    }
+
+    /**
+     * Adds a sample; the latencies are -1 if the test has no latency probes.
+     */
+    synchronized void add(long timeMillis, long operations, double throughput, long latency50PercentileNanos,
+                          long latency99PercentileNanos, long latency999PercentileNanos, long latencyMaxNanos) {
+        this.timeMillis[next] = timeMillis;
+        this.operations[next] = operations;
+        this.throughput[next] = throughput;
+        this.latency50PercentileNanos[next] = latency50PercentileNanos;
+        this.latency99PercentileNanos[next] = latency99PercentileNanos;
+        this.latency999PercentileNanos[next] = latency999PercentileNanos;
+        this.latencyMaxNanos[next] = latencyMaxNanos;
+
+        next = (next + 1) % this.timeMillis.length;
+        if (size < this.timeMillis.length) {
+            size++;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the samples in csv format, from the oldest to the most recent sample.
+     *
+     * @param sinceMillis only the samples taken after this epoch time in millis are returned; 0 returns all samples
+     * @return the samples in csv format
+     */
+    public synchronized String toCsv(long sinceMillis) {
+        StringBuilder sb = new StringBuilder(HEADER);
+        int capacity = timeMillis.length;
+        for (int i = 0; i < size; i++) {
+            int index = (next - size + i + capacity) % capacity;
+            if (timeMillis[index] <= sinceMillis) {
+                continue;
+            }
+            sb.append(timeMillis[index])
+                    .append(',').append(operations[index])
+                    .append(',').append(format(Locale.US, "%.2f", throughput[index]))
+                    .append(',').append(toMicros(latency50PercentileNanos[index]))
+                    .append(',').append(toMicros(latency99PercentileNanos[index]))
+                    .append(',').append(toMicros(latency999PercentileNanos[index]))
+                    .append(',').append(toMicros(latencyMaxNanos[index]))
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static long toMicros(long nanos) {
+        return nanos < 0 ? -1 : NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import com.hazelcast.simulator.utils.UncheckedIOException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.worker.performance.BinaryPerformanceLogWriter.BLOCK_ROWS;
+import static com.hazelcast.simulator.worker.performance.BinaryPerformanceLogWriter.MAGIC;
+import static com.hazelcast.simulator.worker.performance.BinaryPerformanceLogWriter.UTF8;
+import static com.hazelcast.simulator.worker.performance.BinaryPerformanceLogWriter.VERSION;
+import static com.hazelcast.simulator.worker.performance.BinaryPerformanceLogWriter.getVarLong;
+import static com.hazelcast.simulator.worker.performance.PerformanceLogWriter.TIMESTAMP_FORMAT;
+import static java.lang.String.format;
+
+/**
+ * Converts performance logs in the {@link PerformanceLogFormat#BINARY} format to the {@link PerformanceLogFormat#CSV} format.
+ *
+ * Each file is converted to a csv file with the same base name in the same directory, e.g. {@code performance.bin} is
+ * converted to {@code performance.csv}. The timestamps are restored in the time zone of the worker which wrote the file.
+ *
+ * If the last block of a file is incomplete, because the worker was killed while writing it, the block is ignored.
+ */
+public final class PerformanceLogConverter {
+
+    private PerformanceLogConverter() {
+    }
+
+    public static void main(String[] args) {
+        for (String fileName : args) {
+            convert(new File(fileName));
+        }
+    }
+
+    /**
+     * Converts a binary performance log to a csv file.
+     *
+     * @param binaryFile the binary performance log
+     * @return the created csv file
+     * @throws IllegalArgumentException if the file is not a binary performance log
+     * @throws UncheckedIOException     if the file could not be read or the csv file could not be written
+     */
+    public static File convert(File binaryFile) {
+        ByteBuffer buffer = readFile(binaryFile);
+        byte version = readVersion(binaryFile, buffer);
+        SimpleDateFormat dateFormat = readDateFormat(binaryFile, buffer);
+
+        File csvFile = new File(binaryFile.getParentFile(), getBaseName(binaryFile) + ".csv");
+        deleteQuiet(csvFile);
+
+        CsvPerformanceLogWriter writer = new CsvPerformanceLogWriter(csvFile);
+        try {
+            while (buffer.hasRemaining()) {
+                if (!convertBlock(binaryFile, buffer, writer, dateFormat, version)) {
+                    break;
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        return csvFile;
+    }
+
+    private static byte readVersion(File binaryFile, ByteBuffer buffer) {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException(format("[%s] is not a binary performance log", binaryFile));
+            }
+            byte version = buffer.get();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalArgumentException(format("[%s] has unsupported version %d", binaryFile, version));
+            }
+            return version;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException(format("[%s] is not a binary performance log", binaryFile), e);
+        }
+    }
+
+    private static SimpleDateFormat readDateFormat(File binaryFile, ByteBuffer buffer) {
+        try {
+            byte[] timeZoneId = new byte[buffer.getShort()];
+            buffer.get(timeZoneId);
+
+            SimpleDateFormat dateFormat = new SimpleDateFormat(TIMESTAMP_FORMAT);
+            dateFormat.setTimeZone(TimeZone.getTimeZone(new String(timeZoneId, UTF8)));
+            return dateFormat;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException(format("[%s] is not a binary performance log", binaryFile), e);
+        }
+    }
+
+    private static boolean convertBlock(File binaryFile, ByteBuffer buffer, PerformanceLogWriter writer,
+                                        SimpleDateFormat dateFormat, byte version) {
+        long[] timeMillisColumn;
+        long[] operationsTotalColumn;
+        long[] operationsDeltaColumn;
+        double[] operationsPerSecondColumn;
+        boolean[] steadyStateColumn;
+        try {
+            int rows = buffer.getInt();
+            if (rows < 1 || rows > BLOCK_ROWS) {
+                throw new IllegalArgumentException(format("[%s] contains a block with %d rows", binaryFile, rows));
+            }
+
+            timeMillisColumn = getDeltaColumn(buffer, rows);
+            operationsTotalColumn = getDeltaColumn(buffer, rows);
+            operationsDeltaColumn = new long[rows];
+            for (int row = 0; row < rows; row++) {
+                operationsDeltaColumn[row] = getVarLong(buffer);
+            }
+            operationsPerSecondColumn = new double[rows];
+            for (int row = 0; row < rows; row++) {
+                operationsPerSecondColumn[row] = buffer.getDouble();
+            }
+            // the steady state isn't known in version 1
+            steadyStateColumn = new boolean[rows];
+            for (int row = 0; row < rows && version > 1; row++) {
+                steadyStateColumn[row] = buffer.get() != 0;
+            }
+        } catch (BufferUnderflowException e) {
+            return false;
+        }
+
+        for (int row = 0; row < timeMillisColumn.length; row++) {
+            long timeMillis = timeMillisColumn[row];
+            writer.write(timeMillis, dateFormat.format(new Date(timeMillis)),
+                    operationsTotalColumn[row], operationsDeltaColumn[row], operationsPerSecondColumn[row],
+                    steadyStateColumn[row]);
+        }
+        return true;
+    }
+
+    private static long[] getDeltaColumn(ByteBuffer buffer, int rows) {
+        long[] column = new long[rows];
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            previous += getVarLong(buffer);
+            column[row] = previous;
+        }
+        return column;
+    }
+
+    private static ByteBuffer readFile(File file) {
+        FileInputStream stream = null;
+        try {
+            stream = new FileInputStream(file);
+            FileChannel channel = stream.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            int bytesRead;
+            do {
+                bytesRead = channel.read(buffer);
+            } while (bytesRead != -1 && buffer.hasRemaining());
+            buffer.flip();
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file.getAbsolutePath(), e);
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    private static String getBaseName(File file) {
+        String name = file.getName();
+        int index = name.lastIndexOf('.');
+        return index == -1 ? name : name.substring(0, index);
+    }
+}
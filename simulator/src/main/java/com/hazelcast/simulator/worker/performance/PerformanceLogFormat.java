@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import static java.lang.String.format;
+
+/**
+ * Defines the format of the performance logs written by the {@link PerformanceMonitor}.
+ */
+public enum PerformanceLogFormat {
+
+    /**
+     * Each interval is written as a line of comma separated values.
+     */
+    CSV("csv"),
+
+    /**
+     * The intervals are written in a compact binary columnar format. The {@link PerformanceLogConverter} converts the files
+     * to the {@link #CSV} format.
+     */
+    BINARY("bin");
+
+    private final String fileExtension;
+
+    PerformanceLogFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Returns the {@link PerformanceLogFormat} for the value of the WORKER_PERFORMANCE_LOG_FORMAT property.
+     *
+     * @param value the value of the property; {@code null} or an empty value results in {@link #CSV}
+     * @return the PerformanceLogFormat
+     * @throws IllegalArgumentException if the value is not a known format
+     */
+    public static PerformanceLogFormat fromString(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return CSV;
+        }
+
+        for (PerformanceLogFormat logFormat : values()) {
+            if (logFormat.name().equalsIgnoreCase(value.trim())) {
+                return logFormat;
+            }
+        }
+        throw new IllegalArgumentException(format("Unknown WORKER_PERFORMANCE_LOG_FORMAT [%s]", value));
+    }
+}
@@ -15,51 +15,86 @@
  */
 package com.hazelcast.simulator.worker.performance;
 
+import com.hazelcast.simulator.utils.UncheckedIOException;
+
+import java.io.Closeable;
 import java.io.File;
-import java.text.DecimalFormat;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
-import static com.hazelcast.simulator.utils.FileUtils.appendText;
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
 import static com.hazelcast.simulator.utils.Preconditions.checkNotNull;
-import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
- * Responsible for writing to performance stats to disk in csv format.
+ * Responsible for writing the performance stats to disk.
+ *
+ * The file is opened on the first write and kept open till the writer is closed, so an interval costs a single write to the
+ * {@link FileChannel} instead of opening and closing the file.
  */
-final class PerformanceLogWriter {
+abstract class PerformanceLogWriter implements Closeable {
+
+    static final String TIMESTAMP_FORMAT = "dd/MM/yyyy HH:mm:ss";
 
-    private final StringBuffer sb = new StringBuffer();
-    private final DecimalFormat format = new DecimalFormat("#.###");
     private final File file;
-    private boolean headerWritten;
+    private FileChannel channel;
 
     PerformanceLogWriter(File file) {
         this.file = checkNotNull(file, "file can't be null");
     }
 
-    private void writeHeader() {
-        String columns = "epoch,timestamp,operations,operations-delta,operations/second\n";
-        appendText(columns, file);
+    static PerformanceLogWriter newPerformanceLogWriter(File directory, String baseName, PerformanceLogFormat logFormat) {
+        File file = new File(directory, baseName + '.' + logFormat.getFileExtension());
+        if (logFormat == PerformanceLogFormat.BINARY) {
+            return new BinaryPerformanceLogWriter(file);
+        }
+        return new CsvPerformanceLogWriter(file);
     }
 
-    void write(long timeMillis,
-               String timestamp,
-               long operationsTotal,
-               long operationsDelta,
-               double operationsPerSecond) {
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the performance stats of an interval.
+     *
+     * @param timeMillis          the end of the interval
+     * @param timestamp           the formatted end of the interval
+     * @param operationsTotal     the total number of operations
+     * @param operationsDelta     the number of operations in the interval
+     * @param operationsPerSecond the throughput of the interval
+     * @param steadyState         {@code true} if the warmup has ended, {@code false} otherwise
+     */
+    abstract void write(long timeMillis,
+                        String timestamp,
+                        long operationsTotal,
+                        long operationsDelta,
+                        double operationsPerSecond,
+                        boolean steadyState);
 
-        if (!headerWritten) {
-            writeHeader();
-            headerWritten = true;
+    /**
+     * Appends the remaining bytes of the buffer to the file.
+     *
+     * @param buffer the buffer to write
+     * @throws UncheckedIOException if the bytes could not be written
+     */
+    final void writeBuffer(ByteBuffer buffer) {
+        try {
+            if (channel == null) {
+                channel = new FileOutputStream(file, true).getChannel();
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to " + file.getAbsolutePath(), e);
         }
+    }
 
-        sb.setLength(0);
-        // ms are expressed in epoch time after the decimal point
-        sb.append(format.format(timeMillis * 1d / SECONDS.toMillis(1)));
-        sb.append(',').append(timestamp);
-        sb.append(',').append(operationsTotal);
-        sb.append(',').append(operationsDelta);
-        sb.append(',').append(format.format(operationsPerSecond));
-        sb.append('\n');
-        appendText(sb.toString(), file);
+    @Override
+    public void close() {
+        closeQuietly(channel);
+        channel = null;
     }
 }
@@ -26,14 +26,23 @@ import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
 import static com.hazelcast.simulator.utils.CommonUtils.joinThread;
 import static com.hazelcast.simulator.utils.CommonUtils.sleepNanos;
 import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.worker.performance.PerformanceLogWriter.TIMESTAMP_FORMAT;
+import static com.hazelcast.simulator.worker.performance.PerformanceLogWriter.newPerformanceLogWriter;
 import static java.lang.String.format;
 import static java.lang.System.currentTimeMillis;
+import static java.lang.Math.min;
 import static java.lang.System.nanoTime;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
@@ -42,9 +51,27 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * Monitors the performance of all running Simulator Tests.
+ *
+ * The performance logs are written in the configured {@link PerformanceLogFormat}. The logs of a test are closed as soon as
+ * the test has been removed from the {@link TestManager}, the global performance log is closed when the monitor is closed.
+ *
+ * If a sample interval is configured, the monitor also samples the performance of each test at this interval into a
+ * {@link PerformanceHistory}. The sample interval can be much shorter than the update interval, e.g. 100 ms to see the dips
+ * caused by GC or partition migration. The samples are not sent to the coordinator; the coordinator fetches the history on
+ * demand. The history of a test is kept after the test has completed, till the worker is shut down.
+ *
+ * At each update interval the monitor also samples the {@link JvmMetrics}: the garbage collections and heap usage of the worker
+ * and the cpu time and allocated bytes of the threads running each test. They are written to the jvm-metrics log of the
+ * worker and the garbage collection time and allocation rate are sent to the coordinator with the {@link PerformanceStats}.
+ *
+ * If enabled, the monitor detects the end of the warmup of each test with a {@link SteadyStateDetector}. An interval of the
+ * global performance log is marked as steady state if all tests updated in that interval are in steady state.
  */
 public class PerformanceMonitor implements Closeable {
 
+    public static final int DEFAULT_HISTORY_SIZE = 6000;
+    public static final double DEFAULT_STEADY_STATE_MAX_CV = 0.1;
+
     private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
     private static final long WAIT_FOR_TEST_CONTAINERS_DELAY_NANOS = MILLISECONDS.toNanos(100);
     private static final Logger LOGGER = Logger.getLogger(PerformanceMonitor.class);
@@ -54,13 +81,45 @@ public class PerformanceMonitor implements Closeable {
     private final TestManager testManager;
     private final Server server;
     private final int updateIntervalSeconds;
+    private final PerformanceLogFormat logFormat;
+    private final int sampleIntervalMillis;
+    private final int historySize;
+    private volatile int steadyStateWindowSize;
+    private volatile double steadyStateMaxCoefficientOfVariation;
+    private final ConcurrentMap<String, PerformanceHistory> histories = new ConcurrentHashMap<String, PerformanceHistory>();
 
     public PerformanceMonitor(Server server,
                               TestManager testManager,
                               int updateIntervalSeconds) {
+        this(server, testManager, updateIntervalSeconds, PerformanceLogFormat.CSV, 0, 0);
+    }
+
+    /**
+     * Creates a PerformanceMonitor.
+     *
+     * @param server                the server to send the performance stats to the coordinator
+     * @param testManager           the TestManager with the tests to monitor
+     * @param updateIntervalSeconds the interval to send the performance stats to the coordinator and to write them to disk;
+     *                              0 disables the monitor
+     * @param logFormat             the format of the performance logs
+     * @param sampleIntervalMillis  the interval to sample the performance into the history; 0 disables the history
+     * @param historySize           the number of samples kept per test
+     */
+    public PerformanceMonitor(Server server,
+                              TestManager testManager,
+                              int updateIntervalSeconds,
+                              PerformanceLogFormat logFormat,
+                              int sampleIntervalMillis,
+                              int historySize) {
+        if (sampleIntervalMillis > 0 && historySize < 1) {
+            throw new IllegalArgumentException("historySize should be larger than 0, but was " + historySize);
+        }
         this.testManager = testManager;
         this.server = server;
         this.updateIntervalSeconds = updateIntervalSeconds;
+        this.logFormat = logFormat;
+        this.sampleIntervalMillis = sampleIntervalMillis;
+        this.historySize = historySize;
         this.thread = new PerformanceMonitorThread();
         thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
             @Override
@@ -70,15 +129,50 @@ public class PerformanceMonitor implements Closeable {
         });
     }
 
+    /**
+     * Enables the steady state detection for the tests which are started after this call.
+     *
+     * @param windowSize                the number of update intervals which need to be stable
+     * @param maxCoefficientOfVariation the maximum coefficient of variation of the throughput and latency of a stable window
+     * @throws IllegalArgumentException if the windowSize is smaller than 2 or maxCoefficientOfVariation is not positive
+     */
+    public void enableSteadyStateDetection(int windowSize, double maxCoefficientOfVariation) {
+        // fails fast on invalid arguments, instead of failing in the monitor thread
+        new SteadyStateDetector(windowSize, maxCoefficientOfVariation);
+        this.steadyStateMaxCoefficientOfVariation = maxCoefficientOfVariation;
+        this.steadyStateWindowSize = windowSize;
+    }
+
     public void start() {
         if (updateIntervalSeconds < 1) {
             LOGGER.info("PerformanceMonitor disabled");
             return;
         }
-        LOGGER.info(format("PerformanceMonitor enabled with interval: %d seconds", updateIntervalSeconds));
+        LOGGER.info(format("PerformanceMonitor enabled with interval: %d seconds, log format: %s", updateIntervalSeconds,
+                logFormat));
+        if (sampleIntervalMillis > 0) {
+            LOGGER.info(format("PerformanceMonitor history enabled with sample interval: %d ms, size: %d", sampleIntervalMillis,
+                    historySize));
+        }
+        if (steadyStateWindowSize > 0) {
+            LOGGER.info(format("PerformanceMonitor steady state detection enabled with window: %d intervals, max cv: %.3f",
+                    steadyStateWindowSize, steadyStateMaxCoefficientOfVariation));
+        }
         thread.start();
     }
 
+    /**
+     * Returns the performance history of a test in csv format.
+     *
+     * @param testId      the ID of the test
+     * @param sinceMillis only the samples taken after this epoch time in millis are returned; 0 returns all samples
+     * @return the samples in csv format or {@code null} if there is no history for the test
+     */
+    public String getHistory(String testId, long sinceMillis) {
+        PerformanceHistory history = histories.get(testId);
+        return history == null ? null : history.toCsv(sinceMillis);
+    }
+
     @Override
     public void close() {
         if (!shutdown.compareAndSet(false, true)) {
@@ -93,55 +187,115 @@ public class PerformanceMonitor implements Closeable {
      */
     private final class PerformanceMonitorThread extends Thread {
 
-        private final long scanIntervalNanos = SECONDS.toNanos(1);
+        private final long scanIntervalNanos;
+        private final long waitForTestContainersDelayNanos;
         private final PerformanceLogWriter globalPerformanceLogWriter;
-        private final SimpleDateFormat simpleDateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
+        private final JvmMetrics jvmMetrics = new JvmMetrics();
+        private final JvmMetricsLogWriter jvmMetricsLogWriter
+                = new JvmMetricsLogWriter(new File(getUserDir(), "jvm-metrics.csv"));
+        private final SimpleDateFormat simpleDateFormat = new SimpleDateFormat(TIMESTAMP_FORMAT);
         private final long updateIntervalMillis;
         private final List<TestContainer> dirtyContainers = new ArrayList<TestContainer>();
+        private final Set<TestPerformanceTracker> openTrackers = new HashSet<TestPerformanceTracker>();
+        private final Set<TestPerformanceTracker> activeTrackers = new HashSet<TestPerformanceTracker>();
 
         private PerformanceMonitorThread() {
             super("WorkerPerformanceMonitor");
             setDaemon(true);
             this.updateIntervalMillis = SECONDS.toMillis(updateIntervalSeconds);
-            this.globalPerformanceLogWriter = new PerformanceLogWriter(new File(getUserDir(), "performance.csv"));
+            if (sampleIntervalMillis > 0) {
+                this.scanIntervalNanos = min(SECONDS.toNanos(1), MILLISECONDS.toNanos(sampleIntervalMillis));
+                this.waitForTestContainersDelayNanos = min(WAIT_FOR_TEST_CONTAINERS_DELAY_NANOS, scanIntervalNanos);
+            } else {
+                this.scanIntervalNanos = SECONDS.toNanos(1);
+                this.waitForTestContainersDelayNanos = WAIT_FOR_TEST_CONTAINERS_DELAY_NANOS;
+            }
+            this.globalPerformanceLogWriter = newPerformanceLogWriter(getUserDir(), "performance", logFormat);
         }
 
         @Override
         public void run() {
-            while (!shutdown.get()) {
-                long startNanos = nanoTime();
-                long currentTimeMillis = currentTimeMillis();
+            try {
+                while (!shutdown.get()) {
+                    scan();
+                }
+            } finally {
+                closeQuietly(openTrackers);
+                closeQuietly(globalPerformanceLogWriter);
+                closeQuietly(jvmMetricsLogWriter);
+            }
+        }
 
-                updateTrackers(currentTimeMillis);
+        private void scan() {
+            long startNanos = nanoTime();
+            long currentTimeMillis = currentTimeMillis();
 
-                if (!dirtyContainers.isEmpty()) {
-                    coordinatorUpdate();
-                    persist(currentTimeMillis);
-                }
+            updateTrackers(currentTimeMillis);
 
-                long elapsedNanos = nanoTime() - startNanos;
+            if (!dirtyContainers.isEmpty()) {
+                updateJvmMetrics();
+                coordinatorUpdate();
+                persist(currentTimeMillis);
+            }
 
-                if (scanIntervalNanos > elapsedNanos) {
-                    if (dirtyContainers.isEmpty()) {
-                        sleepNanos(WAIT_FOR_TEST_CONTAINERS_DELAY_NANOS - elapsedNanos);
-                    } else {
-                        sleepNanos(scanIntervalNanos - elapsedNanos);
-                    }
+            long elapsedNanos = nanoTime() - startNanos;
+
+            if (scanIntervalNanos > elapsedNanos) {
+                if (dirtyContainers.isEmpty()) {
+                    sleepNanos(waitForTestContainersDelayNanos - elapsedNanos);
                 } else {
-                    LOGGER.warn(getName() + ".run() took " + NANOSECONDS.toMillis(elapsedNanos) + " ms");
+                    sleepNanos(scanIntervalNanos - elapsedNanos);
                 }
+            } else {
+                LOGGER.warn(getName() + ".run() took " + NANOSECONDS.toMillis(elapsedNanos) + " ms");
             }
         }
 
         private void updateTrackers(long currentTimeMillis) {
             dirtyContainers.clear();
+            activeTrackers.clear();
 
             for (TestContainer container : testManager.getContainers()) {
                 TestPerformanceTracker tracker = container.getTestPerformanceTracker();
+                activeTrackers.add(tracker);
+                if (openTrackers.add(tracker)) {
+                    openTracker(container, tracker);
+                }
                 if (tracker.update(updateIntervalMillis, currentTimeMillis)) {
                     dirtyContainers.add(container);
                 }
             }
+
+            closeRemovedTrackers();
+        }
+
+        private void openTracker(TestContainer container, TestPerformanceTracker tracker) {
+            if (sampleIntervalMillis > 0) {
+                PerformanceHistory history = new PerformanceHistory(historySize);
+                tracker.enableHistory(history, sampleIntervalMillis);
+                histories.put(container.getTestCase().getId(), history);
+            }
+            if (steadyStateWindowSize > 0) {
+                tracker.enableSteadyStateDetection(steadyStateWindowSize, steadyStateMaxCoefficientOfVariation);
+            }
+        }
+
+        private void closeRemovedTrackers() {
+            Iterator<TestPerformanceTracker> iterator = openTrackers.iterator();
+            while (iterator.hasNext()) {
+                TestPerformanceTracker tracker = iterator.next();
+                if (!activeTrackers.contains(tracker)) {
+                    closeQuietly(tracker);
+                    iterator.remove();
+                }
+            }
+        }
+
+        private void updateJvmMetrics() {
+            jvmMetrics.update();
+            for (TestContainer container : dirtyContainers) {
+                container.getTestPerformanceTracker().updateJvmMetrics(jvmMetrics);
+            }
         }
 
         private void coordinatorUpdate() {
@@ -162,14 +316,17 @@ public class PerformanceMonitor implements Closeable {
             long globalIntervalOperationCount = 0;
             long globalOperationsCount = 0;
             double globalIntervalThroughput = 0;
+            boolean globalSteadyState = !dirtyContainers.isEmpty();
 
             for (TestContainer container : dirtyContainers) {
                 TestPerformanceTracker tracker = container.getTestPerformanceTracker();
-                tracker.persist(currentTimestamp, dateString);
+                tracker.persist(currentTimestamp, dateString, logFormat);
+                jvmMetricsLogWriter.write(currentTimestamp, dateString, container.getTestCase().getId(), jvmMetrics, tracker);
 
                 globalIntervalOperationCount += tracker.intervalOperationCount();
                 globalOperationsCount += tracker.totalOperationCount();
                 globalIntervalThroughput += tracker.intervalThroughput();
+                globalSteadyState &= tracker.isSteadyState();
             }
 
             // global performance stats
@@ -178,7 +335,9 @@ public class PerformanceMonitor implements Closeable {
                     dateString,
                     globalOperationsCount,
                     globalIntervalOperationCount,
-                    globalIntervalThroughput);
+                    globalIntervalThroughput,
+                    globalSteadyState);
+            jvmMetricsLogWriter.flush();
         }
     }
 }
@@ -16,6 +16,12 @@
 package com.hazelcast.simulator.worker.performance;
 
 import com.hazelcast.simulator.common.TestPhase;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.codec.binary.Base64;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
 
 import static java.lang.Math.max;
 
@@ -32,6 +38,9 @@ public class PerformanceStats {
 
     private static final long EMPTY_OPERATION_COUNT = -1;
     private static final double EMPTY_THROUGHPUT = -1;
+    private static final long NO_GC_TIME = -1;
+    private static final double NO_ALLOCATION_RATE = -1;
+    private static final long NO_STEADY_STATE = -1;
 
     private long operationCount;
     private double intervalThroughput;
@@ -39,6 +48,17 @@ public class PerformanceStats {
     private double intervalLatencyAvgNanos;
     private long intervalLatencyMaxNanos;
     private long intervalLatency999PercentileNanos;
+    // the compressed and Base64 encoded latency Histogram of the interval; null if there is no latency information
+    private String intervalHistogram;
+    // the decoded intervalHistogram; transient so it is not serialized and decoded at most once per instance
+    private transient Histogram decodedIntervalHistogram;
+    // the garbage collection time of the worker in the interval; -1 if not available
+    private long intervalGcTimeMillis = NO_GC_TIME;
+    // the bytes per second allocated by the threads of the test in the interval; -1 if not available
+    private double intervalAllocationRate = NO_ALLOCATION_RATE;
+    // the operation count and throughput since the test reached steady state; -1 if not (yet) detected
+    private long steadyStateOperationCount = NO_STEADY_STATE;
+    private double steadyStateThroughput = NO_STEADY_STATE;
 
     /**
      * Creates an empty {@link PerformanceStats} instance.
@@ -81,6 +101,12 @@ public class PerformanceStats {
         this.intervalLatencyAvgNanos = original.intervalLatencyAvgNanos;
         this.intervalLatency999PercentileNanos = original.intervalLatency999PercentileNanos;
         this.intervalLatencyMaxNanos = original.intervalLatencyMaxNanos;
+        this.intervalHistogram = original.intervalHistogram;
+        this.decodedIntervalHistogram = original.decodedIntervalHistogram;
+        this.intervalGcTimeMillis = original.intervalGcTimeMillis;
+        this.intervalAllocationRate = original.intervalAllocationRate;
+        this.steadyStateOperationCount = original.steadyStateOperationCount;
+        this.steadyStateThroughput = original.steadyStateThroughput;
     }
 
     /**
@@ -102,7 +128,10 @@ public class PerformanceStats {
      * For the total performance number and the performance per Simulator Agent, the added values should be set, so we get the
      * summed up operation count and throughput values.
      * <p>
-     * The method always sets the maximum values for latency.
+     * The method always sets the maximum values for latency and garbage collection time. The allocation rate is handled like
+     * the throughput. The steady state values are handled like the operation count and throughput, but when they are added the
+     * result only has a steady state if both instances have one. The interval {@link Histogram} is not combined; latency
+     * percentiles over multiple Simulator Workers need to be calculated on the merged histograms.
      *
      * @param other                          {@link PerformanceStats} which should be added to this instance
      * @param addOperationCountAndThroughput {@code true} if operation count and throughput should be added,
@@ -121,6 +150,9 @@ public class PerformanceStats {
             intervalLatencyAvgNanos = other.intervalLatencyAvgNanos;
             intervalLatency999PercentileNanos = other.intervalLatency999PercentileNanos;
             intervalLatencyMaxNanos = other.intervalLatencyMaxNanos;
+
+            steadyStateOperationCount = other.steadyStateOperationCount;
+            steadyStateThroughput = other.steadyStateThroughput;
         } else {
             if (addOperationCountAndThroughput) {
                 operationCount += other.operationCount;
@@ -135,6 +167,34 @@ public class PerformanceStats {
             intervalLatencyAvgNanos = max(intervalLatencyAvgNanos, other.intervalLatencyAvgNanos);
             intervalLatency999PercentileNanos = max(intervalLatency999PercentileNanos, other.intervalLatency999PercentileNanos);
             intervalLatencyMaxNanos = max(intervalLatencyMaxNanos, other.intervalLatencyMaxNanos);
+            addSteadyState(other, addOperationCountAndThroughput);
+        }
+        addJvmMetrics(other, addOperationCountAndThroughput);
+    }
+
+    private void addJvmMetrics(PerformanceStats other, boolean addAllocationRate) {
+        intervalGcTimeMillis = max(intervalGcTimeMillis, other.intervalGcTimeMillis);
+
+        if (other.intervalAllocationRate == NO_ALLOCATION_RATE) {
+            return;
+        }
+        if (intervalAllocationRate == NO_ALLOCATION_RATE || !addAllocationRate) {
+            intervalAllocationRate = max(intervalAllocationRate, other.intervalAllocationRate);
+        } else {
+            intervalAllocationRate += other.intervalAllocationRate;
+        }
+    }
+
+    private void addSteadyState(PerformanceStats other, boolean addSteadyState) {
+        if (!addSteadyState) {
+            steadyStateOperationCount = max(steadyStateOperationCount, other.steadyStateOperationCount);
+            steadyStateThroughput = max(steadyStateThroughput, other.steadyStateThroughput);
+        } else if (steadyStateOperationCount == NO_STEADY_STATE || other.steadyStateOperationCount == NO_STEADY_STATE) {
+            steadyStateOperationCount = NO_STEADY_STATE;
+            steadyStateThroughput = NO_STEADY_STATE;
+        } else {
+            steadyStateOperationCount += other.steadyStateOperationCount;
+            steadyStateThroughput += other.steadyStateThroughput;
         }
     }
 
@@ -171,6 +231,93 @@ public class PerformanceStats {
         return intervalLatencyMaxNanos;
     }
 
+    public long getIntervalGcTimeMillis() {
+        return intervalGcTimeMillis;
+    }
+
+    public double getIntervalAllocationRate() {
+        return intervalAllocationRate;
+    }
+
+    /**
+     * Sets the JVM runtime metrics of the interval.
+     *
+     * @param gcTimeMillis   the garbage collection time of the worker or -1 if not available
+     * @param allocationRate the bytes per second allocated by the threads of the test or -1 if not available
+     * @return this
+     */
+    public PerformanceStats setIntervalJvmMetrics(long gcTimeMillis, double allocationRate) {
+        this.intervalGcTimeMillis = gcTimeMillis;
+        this.intervalAllocationRate = allocationRate;
+        return this;
+    }
+
+    public long getSteadyStateOperationCount() {
+        return steadyStateOperationCount;
+    }
+
+    public double getSteadyStateThroughput() {
+        return steadyStateThroughput;
+    }
+
+    /**
+     * Sets the operation count and throughput since the test reached steady state.
+     *
+     * @param operationCount the operation count since the start of the steady state or -1 if not detected
+     * @param throughput     the throughput since the start of the steady state or -1 if not detected
+     * @return this
+     */
+    public PerformanceStats setSteadyState(long operationCount, double throughput) {
+        this.steadyStateOperationCount = operationCount;
+        this.steadyStateThroughput = throughput;
+        return this;
+    }
+
+    /**
+     * Sets the latency {@link Histogram} of the interval.
+     *
+     * The histogram is stored in the compressed encoding of HdrHistogram, so it can be transferred cheaply.
+     *
+     * @param histogram the Histogram to set or {@code null} if there is no latency information
+     * @return this
+     */
+    public PerformanceStats setIntervalHistogram(Histogram histogram) {
+        this.decodedIntervalHistogram = null;
+        if (histogram == null) {
+            this.intervalHistogram = null;
+        } else {
+            ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+            int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+            this.intervalHistogram = Base64.encodeBase64String(Arrays.copyOf(buffer.array(), length));
+        }
+        return this;
+    }
+
+    /**
+     * Returns the latency {@link Histogram} of the interval.
+     *
+     * The histogram is decoded on the first call and cached afterwards, so the returned instance must not be modified.
+     *
+     * @return the Histogram or {@code null} if there is no latency information
+     */
+    public Histogram getIntervalHistogram() {
+        if (intervalHistogram == null) {
+            return null;
+        }
+
+        Histogram histogram = decodedIntervalHistogram;
+        if (histogram == null) {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.decodeBase64(intervalHistogram));
+            try {
+                histogram = Histogram.decodeFromCompressedByteBuffer(buffer, 0);
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Could not decode interval histogram", e);
+            }
+            decodedIntervalHistogram = histogram;
+        }
+        return histogram;
+    }
+
     @Override
     public String toString() {
         return "PerformanceStats{"
@@ -180,6 +327,10 @@ public class PerformanceStats {
                 + ", intervalAvgLatencyNanos=" + intervalLatencyAvgNanos
                 + ", intervalLatency999PercentileNanos=" + intervalLatency999PercentileNanos
                 + ", intervalMaxLatencyNanos=" + intervalLatencyMaxNanos
+                + ", intervalGcTimeMillis=" + intervalGcTimeMillis
+                + ", intervalAllocationRate=" + intervalAllocationRate
+                + ", steadyStateOperationCount=" + steadyStateOperationCount
+                + ", steadyStateThroughput=" + steadyStateThroughput
                 + '}';
     }
 
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.simulator.worker.performance;
+
+import static java.lang.Math.sqrt;
+
+/**
+ * Detects the end of the warmup of a test from the series of its update intervals.
+ *
+ * The warmup, e.g. JIT compilation, partition migration and filling caches, makes the throughput and latency of the first
+ * intervals fluctuate. The test is considered to be in steady state as soon as the coefficient of variation (the standard
+ * deviation divided by the mean) of the throughput and of the mean latency over the last {@code windowSize} intervals are not
+ * larger than {@code maxCoefficientOfVariation}. The steady state starts at the start of the first interval of that window.
+ *
+ * Once the steady state has been detected, it is never revoked.
+ *
+ * This class is not thread-safe; it is only used by the thread of the {@link PerformanceMonitor}.
+ */
+final class SteadyStateDetector {
+
+    static final long NOT_DETECTED = -1;
+
+    private final int windowSize;
+    private final double maxCoefficientOfVariation;
+    private final long[] startMillis;
+    private final long[] startOperationCounts;
+    private final double[] throughputs;
+    private final double[] latencies;
+    private int count;
+    private long steadyStateStartMillis = NOT_DETECTED;
+    private long steadyStateStartOperationCount = NOT_DETECTED;
+
+    /**
+     * Creates a SteadyStateDetector.
+     *
+     * @param windowSize                the number of intervals which need to be stable
+     * @param maxCoefficientOfVariation the maximum coefficient of variation of a stable window, e.g. 0.1
+     * @throws IllegalArgumentException if the windowSize is smaller than 2 or maxCoefficientOfVariation is not positive
+     */
+    SteadyStateDetector(int windowSize, double maxCoefficientOfVariation) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("windowSize should be at least 2, but was " + windowSize);
+        }
+        if (maxCoefficientOfVariation <= 0) {
+            throw new IllegalArgumentException(
+                    "maxCoefficientOfVariation should be larger than 0, but was " + maxCoefficientOfVariation);
+        }
+        this.windowSize = windowSize;
+        this.maxCoefficientOfVariation = maxCoefficientOfVariation;
+        this.startMillis = new long[windowSize];
+        this.startOperationCounts = new long[windowSize];
+        this.throughputs = new double[windowSize];
+        this.latencies = new double[windowSize];
+    }
+
+    /**
+     * Adds an interval.
+     *
+     * @param intervalStartMillis   the start of the interval
+     * @param startOperationCount   the total operation count at the start of the interval
+     * @param throughput            the throughput of the interval
+     * @param latency               the mean latency of the interval or a negative value if the test has no latency information
+     * @return {@code true} if the steady state has been detected with this interval, {@code false} otherwise
+     */
+    boolean add(long intervalStartMillis, long startOperationCount, double throughput, double latency) {
+        if (isSteadyState()) {
+            return false;
+        }
+
+        int index = count % windowSize;
+        startMillis[index] = intervalStartMillis;
+        startOperationCounts[index] = startOperationCount;
+        throughputs[index] = throughput;
+        latencies[index] = latency;
+        count++;
+
+        if (count < windowSize || !isStable(throughputs) || (hasLatencies() && !isStable(latencies))) {
+            return false;
+        }
+
+        int oldest = count % windowSize;
+        steadyStateStartMillis = startMillis[oldest];
+        steadyStateStartOperationCount = startOperationCounts[oldest];
+        return true;
+    }
+
+    boolean isSteadyState() {
+        return steadyStateStartMillis != NOT_DETECTED;
+    }
+
+    /**
+     * Returns the start of the steady state.
+     *
+     * @return the start of the steady state in millis or {@link #NOT_DETECTED}
+     */
+    long getSteadyStateStartMillis() {
+        return steadyStateStartMillis;
+    }
+
+    /**
+     * Returns the total operation count at the start of the steady state.
+     *
+     * @return the operation count or {@link #NOT_DETECTED}
+     */
+    long getSteadyStateStartOperationCount() {
+        return steadyStateStartOperationCount;
+    }
+
+    private boolean hasLatencies() {
+        for (double latency : latencies) {
+            if (latency < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isStable(double[] values) {
+        return coefficientOfVariation(values) <= maxCoefficientOfVariation;
+    }
+
+    static double coefficientOfVariation(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        double mean = sum / values.length;
+        if (mean <= 0) {
+            // nothing is happening, so there is no steady state
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double squaredDeviations = 0;
+        for (double value : values) {
+            squaredDeviations += (value - mean) * (value - mean);
+        }
+        return sqrt(squaredDeviations / values.length) / mean;
+    }
+}
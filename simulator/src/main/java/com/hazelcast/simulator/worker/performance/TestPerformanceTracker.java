@@ -15,20 +15,31 @@
  */
 package com.hazelcast.simulator.worker.performance;
 
+import com.hazelcast.simulator.probes.HistogramProbe;
 import com.hazelcast.simulator.probes.Probe;
 import com.hazelcast.simulator.probes.impl.HdrProbe;
+import com.hazelcast.simulator.probes.impl.StripedHdrProbe;
 import com.hazelcast.simulator.test.TestException;
 import com.hazelcast.simulator.worker.testcontainer.TestContainer;
 import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramLogWriter;
+import org.apache.log4j.Logger;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.HashMap;
 import java.util.Map;
 
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
 import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.steadyStateStartTimeComment;
+import static com.hazelcast.simulator.worker.performance.PerformanceLogWriter.newPerformanceLogWriter;
 import static com.hazelcast.simulator.worker.performance.PerformanceStats.INTERVAL_LATENCY_PERCENTILE;
+import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
@@ -41,16 +52,42 @@ import static java.util.concurrent.TimeUnit.SECONDS;
  * This class has a shitty design due to conflated concerns due to file writing and remoting sending the histograms.
  * This is caused by the Recorder that gets reset when getIntervalHistogram is called. Meaning that writing to file
  * and sending to remote, needs to rely on the same set of Histograms to write/send.
+ *
+ * The files are kept open till the tracker is closed by the {@link PerformanceMonitor}.
+ *
+ * If a {@link PerformanceHistory} is enabled, the latencies are also taken from the probes at the sample interval, which can be
+ * much shorter than the update interval. The samples are added to the history and merged into the histograms of the update
+ * interval, so the files and the stats sent to the coordinator don't change. Without a history the interval histograms are
+ * taken from the probes once per update interval, so nothing is copied or merged.
+ *
+ * The JVM runtime metrics of the test, the garbage collection time of the worker and the cpu time and allocated bytes of the
+ * threads running the test, are updated by the {@link PerformanceMonitor} after each update interval.
+ *
+ * If a {@link SteadyStateDetector} is enabled, the end of the warmup is detected from the update intervals. From then on the
+ * intervals in the performance log are marked as steady state, the start of the steady state is written as a comment to the
+ * histogram logs and the stats contain the throughput of the steady state only.
  */
-public final class TestPerformanceTracker {
+public final class TestPerformanceTracker implements Closeable {
 
     private static final long ONE_SECOND_IN_MILLIS = SECONDS.toMillis(1);
+    private static final double SAMPLE_LATENCY_MEDIAN = 50;
+    private static final double SAMPLE_LATENCY_PERCENTILE = 99;
+    private static final Logger LOGGER = Logger.getLogger(TestPerformanceTracker.class);
 
     private final TestContainer testContainer;
     private final Map<String, HistogramLogWriter> histogramLogWriterMap = new HashMap<String, HistogramLogWriter>();
-    private final PerformanceLogWriter performanceLogWriter;
+    private final Map<String, PrintStream> histogramLogStreamMap = new HashMap<String, PrintStream>();
+    private PerformanceLogWriter performanceLogWriter;
     private long lastUpdateMillis;
     private Map<String, Histogram> intervalHistogramMap;
+    // the latencies of each probe taken since the last update
+    private Map<String, Histogram> pendingHistogramMap = new HashMap<String, Histogram>();
+    // the recycled latencies of each probe of the last sample
+    private final Map<String, Histogram> sampleHistogramMap = new HashMap<String, Histogram>();
+    // the latencies of all probes of the test in the last sample
+    private Histogram sampleTestHistogram;
+    // the latencies of all probes of the test in the last interval
+    private Histogram intervalTestHistogram;
 
     private long iterationsDuringWarmup;
     private long lastIterations;
@@ -62,11 +99,48 @@ public final class TestPerformanceTracker {
     private double intervalThroughput;
     private double totalThroughput;
     private long nextUpdateMillis;
+    private long intervalMillis;
+
+    private final ThreadMetrics threadMetrics = new ThreadMetrics();
+    private long intervalGcTimeMillis = -1;
+    private double intervalAllocationRate = -1;
+
+    private PerformanceHistory history;
+    private long sampleIntervalMillis;
+    private long lastSampleMillis;
+    private long lastSampleIterations;
+    private long nextSampleMillis;
+
+    private SteadyStateDetector steadyStateDetector;
+    private long steadyStateOperationCount = -1;
+    private double steadyStateThroughput = -1;
 
     public TestPerformanceTracker(TestContainer container) {
         this.testContainer = container;
-        this.performanceLogWriter = new PerformanceLogWriter(
-                new File(getUserDir(), "performance-" + container.getTestCase().getId() + ".csv"));
+    }
+
+    /**
+     * Enables sampling the performance of the test into the given history.
+     *
+     * @param history              the history to add the samples to
+     * @param sampleIntervalMillis sample interval in millis
+     */
+    void enableHistory(PerformanceHistory history, long sampleIntervalMillis) {
+        if (sampleIntervalMillis <= 0) {
+            throw new IllegalArgumentException("sampleIntervalMillis should be larger than 0, but was " + sampleIntervalMillis);
+        }
+        this.history = history;
+        this.sampleIntervalMillis = sampleIntervalMillis;
+    }
+
+    /**
+     * Enables the detection of the steady state of the test.
+     *
+     * @param windowSize                the number of update intervals which need to be stable
+     * @param maxCoefficientOfVariation the maximum coefficient of variation of the throughput and latency of a stable window
+     */
+    void enableSteadyStateDetection(int windowSize, double maxCoefficientOfVariation) {
+        this.steadyStateDetector = new SteadyStateDetector(windowSize, maxCoefficientOfVariation);
     }
 
     private long startMeasuringTime() {
@@ -82,6 +156,9 @@ public final class TestPerformanceTracker {
      */
     public boolean update(long updateIntervalMillis, long currentTimeMillis) {
         if (skipUpdate(updateIntervalMillis, currentTimeMillis)) {
+            if (isSampleDue(currentTimeMillis)) {
+                sample(currentTimeMillis);
+            }
             return false;
         }
 
@@ -105,15 +182,29 @@ public final class TestPerformanceTracker {
             }
             lastUpdateMillis = currentTimeMillis;
             nextUpdateMillis = lastUpdateMillis + updateIntervalMillis;
+            lastSampleMillis = currentTimeMillis;
+            nextSampleMillis = currentTimeMillis + sampleIntervalMillis;
             return true;
         }
 
         return nextUpdateMillis > currentTimeMillis;
     }
 
+    private boolean isSampleDue(long currentTimeMillis) {
+        return history != null && lastUpdateMillis != 0 && testContainer.isRunning() && nextSampleMillis <= currentTimeMillis;
+    }
+
     private void makeUpdate(long updateIntervalMillis, long currentTimeMillis) {
+        if (history == null) {
+            takeIntervalHistograms();
+        } else {
+            // the last sample of the interval takes the remaining latencies from the probes
+            sample(currentTimeMillis);
+        }
+
         Map<String, Probe> probeMap = testContainer.getProbeMap();
-        Map<String, Histogram> intervalHistograms = new HashMap<String, Histogram>(probeMap.size());
+        Map<String, Histogram> intervalHistograms = pendingHistogramMap;
+        pendingHistogramMap = new HashMap<String, Histogram>(intervalHistograms.size());
 
         long intervalPercentileLatency = -1;
         double intervalMean = -1;
@@ -122,18 +213,13 @@ public final class TestPerformanceTracker {
         long iterations = testContainer.iteration() - iterationsDuringWarmup;
         long intervalOperationCount = iterations - lastIterations;
 
-        for (Map.Entry<String, Probe> entry : probeMap.entrySet()) {
-            String probeName = entry.getKey();
-            Probe probe = entry.getValue();
-            if (!(probe instanceof HdrProbe)) {
-                continue;
-            }
-
-            HdrProbe hdrProbe = (HdrProbe) probe;
-            Histogram intervalHistogram = hdrProbe.getRecorder().getIntervalHistogram();
+        Histogram testHistogram = null;
+        for (Map.Entry<String, Histogram> entry : intervalHistograms.entrySet()) {
+            Probe probe = probeMap.get(entry.getKey());
+            Histogram intervalHistogram = entry.getValue();
             intervalHistogram.setStartTimeStamp(lastUpdateMillis);
             intervalHistogram.setEndTimeStamp(currentTimeMillis);
-            intervalHistograms.put(probeName, intervalHistogram);
+            testHistogram = merge(testHistogram, intervalHistogram);
 
             long percentileValue = intervalHistogram.getValueAtPercentile(INTERVAL_LATENCY_PERCENTILE);
             if (percentileValue > intervalPercentileLatency) {
@@ -156,6 +242,7 @@ public final class TestPerformanceTracker {
         }
 
         this.intervalHistogramMap = intervalHistograms;
+        this.intervalTestHistogram = testHistogram;
 
         this.intervalLatency999PercentileNanos = intervalPercentileLatency;
         this.intervalLatencyAvgNanos = intervalMean;
@@ -165,16 +252,135 @@ public final class TestPerformanceTracker {
         this.totalOperationCount += intervalOperationCount;
 
         long intervalTimeDelta = currentTimeMillis - lastUpdateMillis;
+        this.intervalMillis = intervalTimeDelta;
         long totalTimeDelta = currentTimeMillis - startMeasuringTime();
 
         this.intervalThroughput = (intervalOperationCount * ONE_SECOND_IN_MILLIS) / (double) intervalTimeDelta;
         this.totalThroughput = (totalOperationCount * ONE_SECOND_IN_MILLIS / (double) totalTimeDelta);
+        updateSteadyState(currentTimeMillis);
 
         this.lastIterations = iterations;
         this.nextUpdateMillis += updateIntervalMillis;
         this.lastUpdateMillis = currentTimeMillis;
     }
 
+    private void updateSteadyState(long currentTimeMillis) {
+        if (steadyStateDetector == null) {
+            return;
+        }
+
+        if (steadyStateDetector.add(lastUpdateMillis, totalOperationCount - intervalOperationCount, intervalThroughput,
+                intervalLatencyAvgNanos)) {
+            LOGGER.info(format("%s reached steady state after %d seconds of warmup", testContainer.getTestCase().getId(),
+                    (steadyStateDetector.getSteadyStateStartMillis() - startMeasuringTime()) / ONE_SECOND_IN_MILLIS));
+            for (HistogramLogWriter histogramLogWriter : histogramLogWriterMap.values()) {
+                outputSteadyStateStartTime(histogramLogWriter);
+            }
+        }
+
+        if (steadyStateDetector.isSteadyState()) {
+            long steadyStateStartMillis = steadyStateDetector.getSteadyStateStartMillis();
+            steadyStateOperationCount = totalOperationCount - steadyStateDetector.getSteadyStateStartOperationCount();
+            steadyStateThroughput = currentTimeMillis <= steadyStateStartMillis ? 0
+                    : (steadyStateOperationCount * ONE_SECOND_IN_MILLIS) / (double) (currentTimeMillis - steadyStateStartMillis);
+        }
+    }
+
+    private void outputSteadyStateStartTime(HistogramLogWriter histogramLogWriter) {
+        histogramLogWriter.outputComment(steadyStateStartTimeComment(steadyStateDetector.getSteadyStateStartMillis()));
+    }
+
+    boolean isSteadyState() {
+        return steadyStateDetector != null && steadyStateDetector.isSteadyState();
+    }
+
+    /**
+     * Takes the latencies of the update interval from the probes, if there is no history.
+     */
+    private void takeIntervalHistograms() {
+        for (Map.Entry<String, Probe> entry : testContainer.getProbeMap().entrySet()) {
+            Probe probe = entry.getValue();
+            if (probe instanceof HistogramProbe) {
+                pendingHistogramMap.put(entry.getKey(), ((HistogramProbe) probe).getIntervalHistogram());
+            }
+        }
+    }
+
+    /**
+     * Takes the latencies from the probes, adds them to the pending histograms of the update interval and adds a sample to
+     * the history.
+     */
+    private void sample(long currentTimeMillis) {
+        if (sampleTestHistogram != null) {
+            sampleTestHistogram.reset();
+        }
+
+        long histogramOperationCount = 0;
+        for (Map.Entry<String, Probe> entry : testContainer.getProbeMap().entrySet()) {
+            String probeName = entry.getKey();
+            Probe probe = entry.getValue();
+            if (!(probe instanceof HistogramProbe)) {
+                continue;
+            }
+
+            Histogram histogram = getIntervalHistogram((HistogramProbe) probe, sampleHistogramMap.get(probeName));
+            sampleHistogramMap.put(probeName, histogram);
+            pendingHistogramMap.put(probeName, merge(pendingHistogramMap.get(probeName), histogram));
+
+            sampleTestHistogram = merge(sampleTestHistogram, histogram);
+            if (probe.isPartOfTotalThroughput()) {
+                histogramOperationCount += histogram.getTotalCount();
+            }
+        }
+
+        addSample(currentTimeMillis, histogramOperationCount);
+    }
+
+    /**
+     * Takes the interval histogram of a probe, recycling the histogram of the previous sample if the probe supports it.
+     */
+    private static Histogram getIntervalHistogram(HistogramProbe probe, Histogram histogramToRecycle) {
+        if (probe instanceof HdrProbe) {
+            return ((HdrProbe) probe).getIntervalHistogram(histogramToRecycle);
+        }
+        if (probe instanceof StripedHdrProbe) {
+            return ((StripedHdrProbe) probe).getIntervalHistogram(histogramToRecycle);
+        }
+        return probe.getIntervalHistogram();
+    }
+
+    private void addSample(long currentTimeMillis, long histogramOperationCount) {
+        long iterations = testContainer.iteration() - iterationsDuringWarmup;
+        long operationCount = iterations - lastSampleIterations + histogramOperationCount;
+        long durationMillis = currentTimeMillis - lastSampleMillis;
+        double throughput = durationMillis == 0 ? 0 : (operationCount * ONE_SECOND_IN_MILLIS) / (double) durationMillis;
+
+        Histogram histogram = sampleTestHistogram;
+        if (histogram == null) {
+            history.add(currentTimeMillis, operationCount, throughput, -1, -1, -1, -1);
+        } else {
+            history.add(currentTimeMillis, operationCount, throughput,
+                    histogram.getValueAtPercentile(SAMPLE_LATENCY_MEDIAN),
+                    histogram.getValueAtPercentile(SAMPLE_LATENCY_PERCENTILE),
+                    histogram.getValueAtPercentile(INTERVAL_LATENCY_PERCENTILE),
+                    histogram.getMaxValue());
+        }
+
+        lastSampleIterations = iterations;
+        lastSampleMillis = currentTimeMillis;
+        while (nextSampleMillis <= currentTimeMillis) {
+            nextSampleMillis += sampleIntervalMillis;
+        }
+    }
+
+
+    private static Histogram merge(Histogram merged, Histogram histogram) {
+        if (merged == null) {
+            return histogram.copy();
+        }
+        merged.add(histogram);
+        return merged;
+    }
 
     long intervalOperationCount() {
         return intervalOperationCount;
@@ -188,13 +394,47 @@ public final class TestPerformanceTracker {
         return intervalThroughput;
     }
 
-    void persist(long currentTimeMillis, String currentTimeString) {
+    /**
+     * Updates the JVM runtime metrics of the last interval.
+     *
+     * @param jvmMetrics the JvmMetrics which have been updated for the interval
+     */
+    void updateJvmMetrics(JvmMetrics jvmMetrics) {
+        threadMetrics.update(testContainer.getThreadIds(), jvmMetrics);
+        intervalGcTimeMillis = jvmMetrics.getIntervalGcTimeMillis();
+
+        long allocatedBytes = threadMetrics.getIntervalAllocatedBytes();
+        if (allocatedBytes < 0 || intervalMillis <= 0) {
+            intervalAllocationRate = -1;
+        } else {
+            intervalAllocationRate = (allocatedBytes * ONE_SECOND_IN_MILLIS) / (double) intervalMillis;
+        }
+    }
+
+    long intervalCpuTimeNanos() {
+        return threadMetrics.getIntervalCpuTimeNanos();
+    }
+
+    long intervalAllocatedBytes() {
+        return threadMetrics.getIntervalAllocatedBytes();
+    }
+
+    double intervalAllocationRate() {
+        return intervalAllocationRate;
+    }
+
+    void persist(long currentTimeMillis, String currentTimeString, PerformanceLogFormat logFormat) {
+        if (performanceLogWriter == null) {
+            performanceLogWriter = newPerformanceLogWriter(
+                    getUserDir(), "performance-" + testContainer.getTestCase().getId(), logFormat);
+        }
         performanceLogWriter.write(
                 currentTimeMillis,
                 currentTimeString,
                 totalOperationCount,
                 intervalOperationCount,
-                intervalThroughput);
+                intervalThroughput,
+                isSteadyState());
 
         // dumps all the Histograms that have been collected to file.
         for (Map.Entry<String, Histogram> histogramEntry : intervalHistogramMap.entrySet()) {
@@ -207,6 +447,20 @@ public final class TestPerformanceTracker {
             Histogram intervalHistogram = histogramEntry.getValue();
             histogramLogWriter.outputIntervalHistogram(intervalHistogram);
         }
+
+        // the histogram logs are buffered, so each interval is written with a single write per file
+        for (PrintStream histogramLogStream : histogramLogStreamMap.values()) {
+            histogramLogStream.flush();
+        }
+    }
+
+    /**
+     * Closes the performance log and the histogram logs of the test.
+     */
+    @Override
+    public void close() {
+        closeQuietly(performanceLogWriter);
+        closeQuietly(histogramLogStreamMap.values());
     }
 
     PerformanceStats createPerformanceStats() {
@@ -216,19 +470,27 @@ public final class TestPerformanceTracker {
                 totalThroughput,
                 intervalLatencyAvgNanos,
                 intervalLatency999PercentileNanos,
-                intervalLatencyMaxNanos);
+                intervalLatencyMaxNanos)
+                .setIntervalHistogram(intervalTestHistogram)
+                .setIntervalJvmMetrics(intervalGcTimeMillis, intervalAllocationRate)
+                .setSteadyState(steadyStateOperationCount, steadyStateThroughput);
     }
 
     HistogramLogWriter createHistogramLogWriter(String probeName) {
         String testId = testContainer.getTestCase().getId();
         try {
             File latencyFile = getLatencyFile(testId, probeName);
-            HistogramLogWriter histogramLogWriter = new HistogramLogWriter(latencyFile);
+            PrintStream histogramLogStream = new PrintStream(new BufferedOutputStream(new FileOutputStream(latencyFile)));
+            histogramLogStreamMap.put(probeName, histogramLogStream);
+            HistogramLogWriter histogramLogWriter = new HistogramLogWriter(histogramLogStream);
             histogramLogWriter.setBaseTime(startMeasuringTime());
             histogramLogWriter.outputStartTime(startMeasuringTime());
             histogramLogWriter.outputComment("[Latency histograms for " + testId + '.' + probeName + ']');
             histogramLogWriter.outputLogFormatVersion();
             histogramLogWriter.outputLegend();
+            if (isSteadyState()) {
+                outputSteadyStateStartTime(histogramLogWriter);
+            }
             return histogramLogWriter;
         } catch (IOException e) {
             throw new TestException("Could not initialize HistogramLogWriter for test " + testId, e);
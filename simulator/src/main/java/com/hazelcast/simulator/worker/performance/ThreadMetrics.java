@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+/**
+ * Tracks the cpu time and the allocated bytes of the threads running a single Simulator Test.
+ *
+ * The values of each thread are remembered, so the interval values are the sum of the deltas per thread. Threads which have
+ * terminated are skipped, so their values don't turn into negative deltas.
+ */
+final class ThreadMetrics {
+
+    private long[] threadIds = new long[0];
+    private long[] lastCpuTimeNanos = new long[0];
+    private long[] lastAllocatedBytes = new long[0];
+    private long intervalCpuTimeNanos = -1;
+    private long intervalAllocatedBytes = -1;
+
+    /**
+     * Updates the interval values.
+     *
+     * @param threadIds  the IDs of the threads running the test; a new array means a new set of threads
+     * @param jvmMetrics the JvmMetrics to read the thread values from
+     */
+    void update(long[] threadIds, JvmMetrics jvmMetrics) {
+        if (threadIds != this.threadIds) {
+            // the threads have been created for this run, so all their values belong to the test
+            this.threadIds = threadIds;
+            this.lastCpuTimeNanos = new long[threadIds.length];
+            this.lastAllocatedBytes = new long[threadIds.length];
+        }
+
+        long cpuTimeNanos = -1;
+        long allocatedBytes = -1;
+        for (int i = 0; i < threadIds.length; i++) {
+            long threadCpuTimeNanos = jvmMetrics.getThreadCpuTimeNanos(threadIds[i]);
+            if (threadCpuTimeNanos >= 0) {
+                cpuTimeNanos = Math.max(cpuTimeNanos, 0) + threadCpuTimeNanos - lastCpuTimeNanos[i];
+                lastCpuTimeNanos[i] = threadCpuTimeNanos;
+            }
+
+            long threadAllocatedBytes = jvmMetrics.getThreadAllocatedBytes(threadIds[i]);
+            if (threadAllocatedBytes >= 0) {
+                allocatedBytes = Math.max(allocatedBytes, 0) + threadAllocatedBytes - lastAllocatedBytes[i];
+                lastAllocatedBytes[i] = threadAllocatedBytes;
+            }
+        }
+        this.intervalCpuTimeNanos = cpuTimeNanos;
+        this.intervalAllocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Returns the cpu time of the threads in the last interval.
+     *
+     * @return the cpu time in nanoseconds or -1 if not available
+     */
+    long getIntervalCpuTimeNanos() {
+        return intervalCpuTimeNanos;
+    }
+
+    /**
+     * Returns the bytes allocated by the threads in the last interval.
+     *
+     * @return the allocated bytes or -1 if not available
+     */
+    long getIntervalAllocatedBytes() {
+        return intervalAllocatedBytes;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import java.util.Arrays;
+
+/**
+ * Selects the index of a {@link com.hazelcast.simulator.test.annotations.TimeStep} method based on its probability, using
+ * the alias method (Vose).
+ *
+ * The table has a single column per method; a random long picks a column with its low 32 bits and decides between the
+ * column and its alias with its high 32 bits. So a selection costs a multiply, a compare and two loads from arrays which
+ * fit in a single cache line for any realistic number of timestep methods.
+ *
+ * This class is immutable and can be shared between the timestep threads.
+ */
+public final class AliasTable {
+
+    private static final int INT_BITS = 32;
+    private static final long LOW_INT_MASK = 0xFFFFFFFFL;
+    private static final double THRESHOLD_SCALE = 1L << INT_BITS;
+
+    // if the high bits of the random value are below the threshold, the column is selected; otherwise its alias
+    private final long[] thresholds;
+    private final int[] aliases;
+
+    /**
+     * Creates an AliasTable.
+     *
+     * @param probabilities the probabilities of the methods; they are normalized, so they don't need to add up to exactly 1
+     * @throws IllegalArgumentException if there are no probabilities, if a probability is negative or if all probabilities
+     *                                  are 0
+     */
+    public AliasTable(double... probabilities) {
+        int length = probabilities.length;
+        double total = checkProbabilities(probabilities);
+
+        this.thresholds = new long[length];
+        this.aliases = new int[length];
+
+        double[] scaled = new double[length];
+        for (int i = 0; i < length; i++) {
+            scaled[i] = probabilities[i] * length / total;
+        }
+        build(scaled);
+    }
+
+    private void build(double[] scaled) {
+        int length = scaled.length;
+        int[] small = new int[length];
+        int[] large = new int[length];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < length; i++) {
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            thresholds[less] = (long) (scaled[less] * THRESHOLD_SCALE);
+            aliases[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // whatever remains has (apart from rounding errors) a probability of 1
+        for (int i = 0; i < largeCount; i++) {
+            fill(large[i]);
+        }
+        for (int i = 0; i < smallCount; i++) {
+            fill(small[i]);
+        }
+    }
+
+    private void fill(int column) {
+        thresholds[column] = 1L << INT_BITS;
+        aliases[column] = column;
+    }
+
+    private static double checkProbabilities(double[] probabilities) {
+        if (probabilities.length == 0) {
+            throw new IllegalArgumentException("At least one probability is required");
+        }
+
+        double total = 0;
+        for (double probability : probabilities) {
+            if (probability < 0 || Double.isNaN(probability)) {
+                throw new IllegalArgumentException("Probability can't be negative, found: " + probability);
+            }
+            total += probability;
+        }
+
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one probability needs to be larger than 0");
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of methods in this table.
+     *
+     * @return the number of methods
+     */
+    public int size() {
+        return thresholds.length;
+    }
+
+    /**
+     * Selects a method index.
+     *
+     * @param random a (pseudo) random long, e.g. from {@link com.hazelcast.simulator.utils.XorShiftRandom#nextLong()}
+     * @return the selected index between 0 (inclusive) and {@link #size()} (exclusive)
+     */
+    public int select(long random) {
+        int column = (int) (((random & LOW_INT_MASK) * thresholds.length) >>> INT_BITS);
+        return (random >>> INT_BITS) < thresholds[column] ? column : aliases[column];
+    }
+
+    @Override
+    public String toString() {
+        return "AliasTable{"
+                + "thresholds=" + Arrays.toString(thresholds)
+                + ", aliases=" + Arrays.toString(aliases)
+                + '}';
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.probes.Probe;
+import com.hazelcast.simulator.probes.impl.EmptyProbe;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Bounds the number of in-flight asynchronous calls of an execution group running in open-loop mode.
+ *
+ * In open-loop mode the timestep threads fire a call at every tick of their metronome, independent of the completion of
+ * previous calls. If the configured maximum of in-flight calls is reached, the arrival is dropped. An arrival is late when it
+ * is fired after the intended start of the next arrival of the same thread, e.g. because the calling thread got blocked.
+ * The dropped and late arrivals are counted and their delay is recorded in the given probes, so they show up in the
+ * performance stats and latency files of the test.
+ *
+ * A slot is released when the latency of the call is recorded. If calls don't complete, e.g. because a timestep method
+ * doesn't record the latency when the call fails, the slots leak. So if no slot becomes available within the stall timeout,
+ * an {@link IllegalStateException} is thrown instead of silently dropping all further arrivals.
+ *
+ * The InFlightLimiter is shared between all timestep threads of an execution group.
+ */
+public final class InFlightLimiter {
+
+    /**
+     * The default stall timeout; it is larger than the default invocation timeout of Hazelcast, so calls which time out are
+     * not considered as leaked.
+     */
+    public static final long DEFAULT_STALL_TIMEOUT_SECONDS = 300;
+
+    private static final long NOT_EXHAUSTED = -1;
+
+    private final int maxInFlight;
+    private final long stallTimeoutNanos;
+    private final Probe droppedProbe;
+    private final Probe lateProbe;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong lateCount = new AtomicLong();
+    // the time since which all slots are in use; NOT_EXHAUSTED if a slot has been acquired since the last drop
+    private final AtomicLong exhaustedSinceNanos = new AtomicLong(NOT_EXHAUSTED);
+    private volatile long lateThresholdNanos;
+
+    /**
+     * Creates an InFlightLimiter which doesn't record the dropped and late arrivals in a probe.
+     *
+     * @param maxInFlight        the maximum number of in-flight calls
+     * @param lateThresholdNanos the delay after the intended start from which an arrival is considered late
+     */
+    public InFlightLimiter(int maxInFlight, long lateThresholdNanos) {
+        this(maxInFlight, lateThresholdNanos, SECONDS.toNanos(DEFAULT_STALL_TIMEOUT_SECONDS), EmptyProbe.INSTANCE,
+                EmptyProbe.INSTANCE);
+    }
+
+    /**
+     * Creates an InFlightLimiter.
+     *
+     * @param maxInFlight        the maximum number of in-flight calls
+     * @param lateThresholdNanos the delay after the intended start from which an arrival is considered late
+     * @param stallTimeoutNanos  the time all slots can be in use before the limiter considers the calls as leaked
+     * @param droppedProbe       the Probe to record the delay of the dropped arrivals in
+     * @param lateProbe          the Probe to record the delay of the late arrivals in
+     */
+    public InFlightLimiter(int maxInFlight, long lateThresholdNanos, long stallTimeoutNanos, Probe droppedProbe,
+                           Probe lateProbe) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be larger than 0, found: " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+        this.lateThresholdNanos = lateThresholdNanos;
+        this.stallTimeoutNanos = stallTimeoutNanos;
+        this.droppedProbe = droppedProbe;
+        this.lateProbe = lateProbe;
+    }
+
+    /**
+     * Tries to acquire a slot for a call.
+     *
+     * @param intendedStartNanos the time the call was supposed to start in nanos
+     * @return {@code true} if the call can be fired, {@code false} if the arrival is dropped
+     * @throws IllegalStateException if all slots have been in use for longer than the stall timeout
+     */
+    public boolean tryAcquire(long intendedStartNanos) {
+        long nowNanos = System.nanoTime();
+        long delayNanos = nowNanos - intendedStartNanos;
+        if (delayNanos > lateThresholdNanos) {
+            lateCount.incrementAndGet();
+            lateProbe.recordValue(delayNanos);
+        }
+
+        for (; ; ) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                drop(nowNanos, delayNanos);
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                if (exhaustedSinceNanos.get() != NOT_EXHAUSTED) {
+                    exhaustedSinceNanos.set(NOT_EXHAUSTED);
+                }
+                return true;
+            }
+        }
+    }
+
+    private void drop(long nowNanos, long delayNanos) {
+        droppedCount.incrementAndGet();
+        droppedProbe.recordValue(delayNanos < 0 ? 0 : delayNanos);
+
+        long exhaustedSince = exhaustedSinceNanos.get();
+        if (exhaustedSince == NOT_EXHAUSTED) {
+            exhaustedSinceNanos.compareAndSet(NOT_EXHAUSTED, nowNanos);
+        } else if (nowNanos - exhaustedSince > stallTimeoutNanos) {
+            throw new IllegalStateException(format("All %d in-flight slots have been in use for %d seconds, so calls are not"
+                    + " completing. Make sure every call records its latency, also when it fails.",
+                    maxInFlight, NANOSECONDS.toSeconds(nowNanos - exhaustedSince)));
+        }
+    }
+
+    /**
+     * Changes the delay after the intended start from which an arrival is considered late, e.g. when the rate is retuned.
+     *
+     * @param lateThresholdNanos the new threshold in nanos
+     */
+    public void setLateThresholdNanos(long lateThresholdNanos) {
+        this.lateThresholdNanos = lateThresholdNanos;
+    }
+
+    /**
+     * Releases the slot of a completed call.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Wraps a {@link Probe} which is passed to a timestep method, so the slot of a call is released when its latency is
+     * recorded.
+     *
+     * @param probe the Probe to wrap
+     * @return the wrapping Probe
+     */
+    public Probe wrap(Probe probe) {
+        return new InFlightProbe(probe, this);
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getLateCount() {
+        return lateCount.get();
+    }
+
+    public long getLateThresholdNanos() {
+        return lateThresholdNanos;
+    }
+
+    private static final class InFlightProbe implements Probe {
+
+        private final Probe probe;
+        private final InFlightLimiter limiter;
+
+        private InFlightProbe(Probe probe, InFlightLimiter limiter) {
+            this.probe = probe;
+            this.limiter = limiter;
+        }
+
+        @Override
+        public boolean isPartOfTotalThroughput() {
+            return probe.isPartOfTotalThroughput();
+        }
+
+        @Override
+        public void done(long startNanos) {
+            try {
+                probe.done(startNanos);
+            } finally {
+                limiter.release();
+            }
+        }
+
+        @Override
+        public void recordValue(long latencyNanos) {
+            try {
+                probe.recordValue(latencyNanos);
+            } finally {
+                limiter.release();
+            }
+        }
+
+        @Override
+        public void reset() {
+            probe.reset();
+        }
+    }
+}
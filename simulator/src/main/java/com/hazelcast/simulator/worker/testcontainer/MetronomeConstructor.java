@@ -17,12 +17,14 @@ package com.hazelcast.simulator.worker.testcontainer;
 
 import com.hazelcast.simulator.worker.metronome.EmptyMetronome;
 import com.hazelcast.simulator.worker.metronome.Metronome;
+import com.hazelcast.simulator.worker.metronome.RetunableMetronome;
 import com.hazelcast.simulator.worker.metronome.SleepingMetronome;
 
 import java.lang.reflect.Constructor;
 import java.util.concurrent.TimeUnit;
 
 import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
+import static java.lang.Math.max;
 import static java.lang.Math.round;
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.DAYS;
@@ -33,52 +35,125 @@ import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+/**
+ * Creates the {@link Metronome} instances of an execution group based on the interval, ratePerSecond or globalRatePerSecond
+ * property.
+ *
+ * The globalRatePerSecond is the rate of all load generating workers together. The coordinator assigns each worker a share of
+ * this rate using {@link #retune(double)}, so the rate of the cluster stays the same when workers are added, killed or fall
+ * behind. Until the first retune a worker runs at the full globalRatePerSecond.
+ */
 public class MetronomeConstructor {
 
     private final Class<? extends Metronome> metronomeClass;
-    private final Metronome masterMetronome;
-    private final long intervalNanos;
+    private final Constructor<? extends Metronome> constructor;
+    private final PropertyBinding binding;
+    private final String executionGroup;
+    private final int threadCount;
+    private final double globalRatePerSecond;
+    private volatile Metronome masterMetronome;
+    private volatile long intervalNanos;
 
     public MetronomeConstructor(String executionGroup, PropertyBinding binding, int threadCount) {
-        String property = toPropertyName(executionGroup, "interval");
-        String intervalString = binding.load(property);
-
-        long intervalNanos = intervalString == null ? 0 : parseInterval(property, intervalString);
-
-        double ratePerSecond = binding.loadAsDouble(
-                toPropertyName(executionGroup, "ratePerSecond"), 0);
-
-        if (ratePerSecond > 0) {
-            intervalNanos = round(SECONDS.toNanos(1) / ratePerSecond);
-        }
+        this.globalRatePerSecond = binding.loadAsDouble(toPropertyName(executionGroup, "globalRatePerSecond"), 0);
+        long intervalNanos = loadIntervalNanos(executionGroup, binding, globalRatePerSecond);
 
         // we read the metronome up front so we doing get an unused properties error if interval is 0,
         // but the user did configure a metronome.
         Class<SleepingMetronome> configuredMetronomeClass = binding.loadAsClass(
                 toPropertyName(executionGroup, "metronomeClass"), SleepingMetronome.class);
 
+        this.binding = binding;
+        this.executionGroup = executionGroup;
+        this.threadCount = threadCount;
         this.intervalNanos = intervalNanos;
         if (intervalNanos == 0) {
             this.metronomeClass = EmptyMetronome.class;
+            this.constructor = null;
             this.masterMetronome = EmptyMetronome.INSTANCE;
         } else {
             this.metronomeClass = configuredMetronomeClass;
 
-            Constructor<? extends Metronome> constructor;
             try {
                 constructor = this.metronomeClass.getConstructor(Long.TYPE, Integer.TYPE, PropertyBinding.class, String.class);
             } catch (NoSuchMethodException e) {
                 throw new IllegalTestException("Metronome [%s], does not have the right constructor", e);
             }
 
-            try {
-                masterMetronome = constructor.newInstance(intervalNanos, threadCount, binding, executionGroup);
-            } catch (Exception e) {
-                throw new IllegalTestException("Failed to create a master metronome instance", e);
+            masterMetronome = newMasterMetronome(intervalNanos);
+        }
+    }
+
+    private static long loadIntervalNanos(String executionGroup, PropertyBinding binding, double globalRatePerSecond) {
+        String property = toPropertyName(executionGroup, "interval");
+        String intervalString = binding.load(property);
+
+        long intervalNanos = intervalString == null ? 0 : parseInterval(property, intervalString);
+
+        double ratePerSecond = binding.loadAsDouble(
+                toPropertyName(executionGroup, "ratePerSecond"), 0);
+
+        if (ratePerSecond > 0) {
+            intervalNanos = round(SECONDS.toNanos(1) / ratePerSecond);
+        }
+
+        if (globalRatePerSecond > 0) {
+            if (intervalNanos > 0) {
+                throw new IllegalTestException(format("%s can't be combined with %s or %s",
+                        toPropertyName(executionGroup, "globalRatePerSecond"), property,
+                        toPropertyName(executionGroup, "ratePerSecond")));
             }
+            intervalNanos = toIntervalNanos(globalRatePerSecond);
+        }
+        return intervalNanos;
+    }
+
+    private Metronome newMasterMetronome(long intervalNanos) {
+        try {
+            return constructor.newInstance(intervalNanos, threadCount, binding, executionGroup);
+        } catch (Exception e) {
+            throw new IllegalTestException("Failed to create a master metronome instance", e);
         }
     }
 
+    /**
+     * Checks if the rate of the execution group is configured using the globalRatePerSecond property.
+     *
+     * @return {@code true} if a global rate is configured, {@code false} otherwise
+     */
+    public boolean hasGlobalRate() {
+        return globalRatePerSecond > 0;
+    }
+
+    /**
+     * Changes the interval to the given share of the globalRatePerSecond. The Metronome instances created afterwards use the
+     * new interval; the existing instances are not changed. A {@link RetunableMetronome} keeps its schedule, so e.g. the steps
+     * of a ramp or the periods of a burst are not restarted by a retune.
+     *
+     * @param rateShare the share of the globalRatePerSecond this worker should run at, e.g. 0.25 if there are 4 workers
+     * @return {@code true} if the interval has been changed, {@code false} if no global rate is configured
+     */
+    public synchronized boolean retune(double rateShare) {
+        if (!hasGlobalRate()) {
+            return false;
+        }
+        if (rateShare <= 0 || rateShare > 1) {
+            throw new IllegalArgumentException("rateShare must be in range (0, 1], found: " + rateShare);
+        }
+
+        long newIntervalNanos = toIntervalNanos(globalRatePerSecond * rateShare);
+        Metronome currentMetronome = masterMetronome;
+        masterMetronome = currentMetronome instanceof RetunableMetronome
+                ? ((RetunableMetronome) currentMetronome).retune(newIntervalNanos)
+                : newMasterMetronome(newIntervalNanos);
+        intervalNanos = newIntervalNanos;
+        return true;
+    }
+
+    private static long toIntervalNanos(double ratePerSecond) {
+        return max(1, round(SECONDS.toNanos(1) / ratePerSecond));
+    }
+
     public long getIntervalNanos() {
         return intervalNanos;
     }
@@ -130,8 +205,8 @@ public class MetronomeConstructor {
         }
 
         try {
-            Constructor<? extends Metronome> constructor = metronomeClass.getConstructor(Metronome.class);
-            return constructor.newInstance(masterMetronome);
+            Constructor<? extends Metronome> slaveConstructor = metronomeClass.getConstructor(Metronome.class);
+            return slaveConstructor.newInstance(masterMetronome);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
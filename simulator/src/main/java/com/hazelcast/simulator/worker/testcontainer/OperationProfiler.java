@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.hazelcast.simulator.worker.performance.JvmMetrics.getAllocationMXBean;
+import static java.lang.String.format;
+
+/**
+ * Profiles the cost of single timestep method calls: the bytes allocated and the cpu time used by the calling thread.
+ *
+ * The generated {@link TimeStepRunner} takes a profile of every n-th call, see the {@code profileInterval} property. The
+ * values of an execution group are recorded into a histogram per timestep method, so the report contains the allocated bytes
+ * and cpu time per operation. The histograms have a resolution of 1 byte and 1 ns, since the costs of a single call are
+ * often far below the microsecond resolution of the latency probes.
+ *
+ * Reading the allocated bytes of a thread allocates a few bytes itself on some JVMs. This bias is measured when the profiler
+ * is created and subtracted from the recorded values. If the JVM can't measure the allocated bytes or the cpu time of a
+ * thread, the profiler returns -1 and nothing is recorded.
+ *
+ * If the profileInterval is not set, the runner doesn't contain any profiling code, so there is no overhead.
+ */
+public final class OperationProfiler {
+
+    static final String HEADER = "method,operations,allocated-bytes/op,allocated-bytes/op-50,allocated-bytes/op-99,"
+            + "cpu-nanos/op,cpu-nanos/op-50,cpu-nanos/op-99\n";
+
+    private static final int NUMBER_OF_SIGNIFICANT_VALUE_DIGITS = 3;
+    private static final int CALIBRATION_ROUNDS = 100;
+    private static final double MEDIAN = 50;
+    private static final double PERCENTILE = 99;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final com.sun.management.ThreadMXBean allocationMXBean;
+    private final boolean cpuTimeSupported;
+    private final long allocationBias;
+    private final Map<String, Recorder> allocationRecorders = new LinkedHashMap<String, Recorder>();
+    private final Map<String, Recorder> cpuRecorders = new LinkedHashMap<String, Recorder>();
+
+    public OperationProfiler(Iterable<String> methodNames) {
+        this.allocationMXBean = getAllocationMXBean(threadMXBean);
+        this.cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+        this.allocationBias = calibrateAllocationBias();
+
+        for (String methodName : methodNames) {
+            allocationRecorders.put(methodName, new Recorder(NUMBER_OF_SIGNIFICANT_VALUE_DIGITS));
+            cpuRecorders.put(methodName, new Recorder(NUMBER_OF_SIGNIFICANT_VALUE_DIGITS));
+        }
+    }
+
+    private long calibrateAllocationBias() {
+        if (allocationMXBean == null) {
+            return 0;
+        }
+        long bias = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            long start = allocatedBytes();
+            bias = Math.min(bias, allocatedBytes() - start);
+        }
+        return bias;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread.
+     *
+     * @return the allocated bytes or -1 if not supported
+     */
+    public long allocatedBytes() {
+        return allocationMXBean == null ? -1 : allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the cpu time of the current thread.
+     *
+     * @return the cpu time in nanoseconds or -1 if not supported
+     */
+    public long cpuTimeNanos() {
+        return cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * Returns the recorder for the allocated bytes per call of a timestep method.
+     *
+     * @param methodName the name of the timestep method
+     * @return the recorder
+     */
+    public Recorder getAllocationRecorder(String methodName) {
+        return getRecorder(allocationRecorders, methodName);
+    }
+
+    /**
+     * Returns the recorder for the cpu time per call of a timestep method.
+     *
+     * @param methodName the name of the timestep method
+     * @return the recorder
+     */
+    public Recorder getCpuRecorder(String methodName) {
+        return getRecorder(cpuRecorders, methodName);
+    }
+
+    private static Recorder getRecorder(Map<String, Recorder> recorders, String methodName) {
+        Recorder recorder = recorders.get(methodName);
+        if (recorder == null) {
+            throw new IllegalArgumentException("No profile for method: " + methodName);
+        }
+        return recorder;
+    }
+
+    /**
+     * Records the profile of a single call. The cpu time is read before the allocated bytes, so the cpu time doesn't include
+     * reading the allocated bytes.
+     *
+     * @param allocationRecorder  the recorder for the allocated bytes of the method
+     * @param cpuRecorder         the recorder for the cpu time of the method
+     * @param startAllocatedBytes the allocated bytes of the thread before the call
+     * @param startCpuTimeNanos   the cpu time of the thread before the call
+     */
+    public void record(Recorder allocationRecorder, Recorder cpuRecorder, long startAllocatedBytes, long startCpuTimeNanos) {
+        long cpuTimeNanos = cpuTimeNanos();
+        long allocatedBytes = allocatedBytes();
+
+        if (startCpuTimeNanos >= 0) {
+            cpuRecorder.recordValue(Math.max(0, cpuTimeNanos - startCpuTimeNanos));
+        }
+        if (startAllocatedBytes >= 0) {
+            allocationRecorder.recordValue(Math.max(0, allocatedBytes - startAllocatedBytes - allocationBias));
+        }
+    }
+
+    /**
+     * Creates the report with the allocated bytes and the cpu time per operation of each profiled timestep method, one csv
+     * line per method; see {@link #HEADER} for the columns. The histograms are drained, so the next report only contains the
+     * calls profiled after this one.
+     *
+     * @return the report in csv format
+     */
+    public String createReport() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Recorder> entry : allocationRecorders.entrySet()) {
+            String methodName = entry.getKey();
+            Histogram allocation = entry.getValue().getIntervalHistogram();
+            Histogram cpu = cpuRecorders.get(methodName).getIntervalHistogram();
+            long operations = Math.max(allocation.getTotalCount(), cpu.getTotalCount());
+            if (operations == 0) {
+                continue;
+            }
+            sb.append(methodName).append(',').append(operations);
+            appendHistogram(sb, allocation);
+            appendHistogram(sb, cpu);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            // the JVM can't measure the value
+            sb.append(",-1,-1,-1");
+            return;
+        }
+        sb.append(',').append(format(Locale.US, "%.1f", histogram.getMean()))
+                .append(',').append(histogram.getValueAtPercentile(MEDIAN))
+                .append(',').append(histogram.getValueAtPercentile(PERCENTILE));
+    }
+}
@@ -38,6 +38,7 @@ public class PrimordialRunStrategy extends RunStrategy {
         return new Callable() {
             @Override
             public Object call() throws Exception {
+                setThreadIds(new long[]{Thread.currentThread().getId()});
                 onRunStarted();
                 try {
                     return method.invoke(instance, args);
@@ -77,15 +77,26 @@ public class Probability {
             return null;
         }
 
+        int[] methodRatios = methodProbabilitiesToMethodRatios(loadMethodProbabilities(methods, activeMethods));
+        return ratiosToMethodProbabilityArray(methodRatios);
+    }
+
+    public static AliasTable loadTimeStepAliasTable(Map<Method, Probability> methods, List<Method> activeMethods) {
+        if (activeMethods.size() < 2) {
+            return null;
+        }
+
+        return new AliasTable(loadMethodProbabilities(methods, activeMethods));
+    }
+
+    private static double[] loadMethodProbabilities(Map<Method, Probability> methods, List<Method> activeMethods) {
         double[] methodProbabilities = new double[activeMethods.size()];
         for (int methodIndex = 0; methodIndex < activeMethods.size(); methodIndex++) {
             Method method = activeMethods.get(methodIndex);
             Probability probability = methods.get(method);
             methodProbabilities[methodIndex] = probability.getValue();
         }
-
-        int[] methodRatios = methodProbabilitiesToMethodRatios(methodProbabilities);
-        return ratiosToMethodProbabilityArray(methodRatios);
+        return methodProbabilities;
     }
 
     public static int[] methodProbabilitiesToMethodRatios(double... methodProbabilities) {
@@ -65,7 +65,8 @@ public class PropertyBinding {
 
     // this can be removed as soon as the @InjectMetronome/worker functionality is dropped
     private MetronomeConstructor workerMetronomeConstructor;
-    private final Class<? extends Probe> probeClass;
+    // not named probeClass, since that would be bound to the probeClass test property
+    private final Class<? extends Probe> probeType;
     private TestContextImpl testContext;
     private final Map<String, Probe> probeMap = new ConcurrentHashMap<String, Probe>();
     private final TestCase testCase;
@@ -86,7 +87,7 @@ public class PropertyBinding {
 
         this.workerMetronomeConstructor = new MetronomeConstructor(
                 "", this, loadAsInt("threadCount", DEFAULT_THREAD_COUNT));
-        this.probeClass = loadProbeClass();
+        this.probeType = loadProbeClass();
     }
 
     public PropertyBinding setVendorInstance(Object vendorInstance) {
@@ -238,21 +239,43 @@ public class PropertyBinding {
     }
 
     public Class<? extends Probe> getProbeClass() {
-        return probeClass;
+        return probeType;
     }
 
     private Class<? extends Probe> loadProbeClass() {
-        return measureLatency ? HdrProbe.class : null;
+        // we read the probe class up front so we don't get an unused properties error if latency isn't measured
+        Class<? extends Probe> configuredProbeClass = loadAsClass("probeClass", HdrProbe.class);
+        if (!Probe.class.isAssignableFrom(configuredProbeClass)) {
+            throw new IllegalTestException(format("probeClass [%s] is not a %s",
+                    configuredProbeClass.getName(), Probe.class.getName()));
+        }
+
+        try {
+            configuredProbeClass.getConstructor(Boolean.TYPE);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalTestException(format("Probe [%s] does not have the right constructor",
+                    configuredProbeClass.getName()), e);
+        }
+
+        return measureLatency ? configuredProbeClass : null;
+    }
+
+    private Probe newProbe(boolean partOfTotalThroughput) {
+        try {
+            return probeType.getConstructor(Boolean.TYPE).newInstance(partOfTotalThroughput);
+        } catch (Exception e) {
+            throw new IllegalTestException("Failed to create a probe instance", e);
+        }
     }
 
     public Probe getOrCreateProbe(String probeName, boolean partOfTotalThroughput) {
-        if (probeClass == null) {
+        if (probeType == null) {
             return EmptyProbe.INSTANCE;
         }
 
         Probe probe = probeMap.get(probeName);
         if (probe == null) {
-            probe = new HdrProbe(partOfTotalThroughput);
+            probe = newProbe(partOfTotalThroughput);
             probeMap.put(probeName, probe);
         }
         return probe;
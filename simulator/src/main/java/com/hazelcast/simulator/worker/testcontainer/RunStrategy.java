@@ -28,6 +28,7 @@ abstract class RunStrategy {
 
     private volatile boolean running;
     private volatile long startedMillis;
+    private volatile long[] threadIds = new long[0];
 
     public abstract Callable getRunCallable();
 
@@ -67,6 +68,34 @@ abstract class RunStrategy {
         running = false;
     }
 
+    /**
+     * Returns the IDs of the threads running the test, e.g. to measure their cpu time and allocated bytes. As long as the
+     * test has not started, the returned array is empty.
+     *
+     * This method is thread-safe.
+     *
+     * @return the thread IDs.
+     */
+    public final long[] getThreadIds() {
+        return threadIds;
+    }
+
+    final void setThreadIds(long[] threadIds) {
+        this.threadIds = threadIds;
+    }
+
+    /**
+     * Changes the rate of the execution groups configured with a globalRatePerSecond to the given share of that rate.
+     *
+     * This method is thread-safe.
+     *
+     * @param rateShare the share of the globalRatePerSecond this worker should run at
+     * @return {@code true} if the rate of an execution group has been changed, {@code false} otherwise
+     */
+    public boolean retuneRate(double rateShare) {
+        return false;
+    }
+
     /**
      * Returns the timestap when the test started running. As long as the test has not started, the returned value is 0.
      *
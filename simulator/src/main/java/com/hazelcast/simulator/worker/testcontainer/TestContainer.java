@@ -166,6 +166,14 @@ public class TestContainer {
         return runStrategy == null ? 0 : runStrategy.iterations();
     }
 
+    public long[] getThreadIds() {
+        return runStrategy == null ? new long[0] : runStrategy.getThreadIds();
+    }
+
+    public boolean retuneRate(double rateShare) {
+        return runStrategy == null ? false : runStrategy.retuneRate(rateShare);
+    }
+
     public Map<String, Probe> getProbeMap() {
         return propertyBinding.getProbeMap();
     }
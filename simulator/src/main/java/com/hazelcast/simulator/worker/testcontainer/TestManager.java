@@ -22,6 +22,7 @@ import com.hazelcast.simulator.protocol.Server;
 import com.hazelcast.simulator.utils.ExceptionReporter;
 import com.hazelcast.simulator.vendors.VendorDriver;
 import com.hazelcast.simulator.worker.operations.CreateTestOperation;
+import com.hazelcast.simulator.worker.operations.RetuneRateOperation;
 import com.hazelcast.simulator.worker.operations.StartPhaseOperation;
 import com.hazelcast.simulator.worker.operations.StopRunOperation;
 import org.apache.log4j.Logger;
@@ -91,6 +92,19 @@ public class TestManager {
         testContainer.getTestContext().stop();
     }
 
+    public void retuneRate(RetuneRateOperation op) {
+        String testId = op.getTestId();
+
+        TestContainer testContainer = tests.get(testId);
+        if (testContainer == null) {
+            throw new IllegalArgumentException(format("Could not retune rate, test [%s] is not found.", testId));
+        }
+
+        if (!testContainer.retuneRate(op.getRateShare())) {
+            LOGGER.warn(format("Test [%s] has no globalRatePerSecond configured, the rate can't be retuned", testId));
+        }
+    }
+
     public void startTestPhase(StartPhaseOperation op, Promise promise) throws Exception {
         TestPhase testPhase = op.getTestPhase();
 
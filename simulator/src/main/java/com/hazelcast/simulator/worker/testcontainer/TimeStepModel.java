@@ -21,7 +21,6 @@ import com.hazelcast.simulator.test.annotations.BeforeRun;
 import com.hazelcast.simulator.test.annotations.StartNanos;
 import com.hazelcast.simulator.test.annotations.TimeStep;
 import com.hazelcast.simulator.utils.AnnotatedMethodRetriever;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Constructor;
@@ -35,6 +34,7 @@ import java.util.Map;
 import java.util.Set;
 
 import static com.hazelcast.simulator.utils.EmptyStatement.ignore;
+import static com.hazelcast.simulator.worker.testcontainer.Probability.loadTimeStepAliasTable;
 import static com.hazelcast.simulator.worker.testcontainer.Probability.loadTimeStepProbabilityArray;
 import static java.lang.String.format;
 import static java.lang.reflect.Modifier.isAbstract;
@@ -325,13 +325,28 @@ public class TimeStepModel {
      * The value in the byte refers to the index of the method in the {@link #getActiveTimeStepMethods(String)}.
      * If a method has 0.5 probability and index 15, then 50% of the values in the array will point to 15.
      *
+     * The array can be up to 1MB, so it is created on every call; the {@link TimeStepRunner} uses the
+     * {@link #getTimeStepAliasTable(String)}.
+     *
      * @param group the name of the execution group to get the probability array for
      * @return the array of probabilities for each {@link TimeStep} method or {@code null} if there is only a
      * single {@link TimeStep} method.
      */
-    @SuppressFBWarnings("EI_EXPOSE_REP")
     public byte[] getTimeStepProbabilityArray(String group) {
-        return executionGroups.get(group).timeStepProbabilityArray;
+        ExecutionGroup executionGroup = executionGroups.get(group);
+        return loadTimeStepProbabilityArray(executionGroup.probabilities, getActiveTimeStepMethods(group));
+    }
+
+    /**
+     * Returns the {@link AliasTable} to select a {@link TimeStep} method based on its probability.
+     *
+     * The selected index refers to the index of the method in the {@link #getActiveTimeStepMethods(String)}.
+     *
+     * @param group the name of the execution group to get the alias table for
+     * @return the alias table or {@code null} if there is only a single {@link TimeStep} method.
+     */
+    public AliasTable getTimeStepAliasTable(String group) {
+        return executionGroups.get(group).timeStepAliasTable;
     }
 
     private final class ExecutionGroup {
@@ -342,7 +357,7 @@ public class TimeStepModel {
         private Class threadStateClass;
         private Constructor threadStateConstructor;
         private Map<Method, Probability> probabilities;
-        private byte[] timeStepProbabilityArray;
+        private AliasTable timeStepAliasTable;
 
         private ExecutionGroup(String name) {
             this.name = name;
@@ -352,7 +367,7 @@ public class TimeStepModel {
             threadStateClass = loadThreadStateClass();
             threadStateConstructor = loadThreadStateConstructor();
             probabilities = loadProbabilities();
-            timeStepProbabilityArray = loadTimeStepProbabilityArray(probabilities, getActiveTimeStepMethods(name));
+            timeStepAliasTable = loadTimeStepAliasTable(probabilities, getActiveTimeStepMethods(name));
         }
 
         private Class loadThreadStateClass() {
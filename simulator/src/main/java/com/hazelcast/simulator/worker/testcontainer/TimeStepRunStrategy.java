@@ -20,13 +20,22 @@ import com.hazelcast.simulator.test.TestContext;
 import com.hazelcast.simulator.utils.ThreadSpawner;
 import org.apache.log4j.Logger;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.writeText;
 import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
+import static com.hazelcast.simulator.worker.testcontainer.TimeStepRunnerCodeGenerator.hasProbe;
+import static com.hazelcast.simulator.worker.testcontainer.TimeStepRunnerCodeGenerator.isAsyncResult;
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * A {@link RunStrategy} used for tests containing methods with {@link com.hazelcast.simulator.test.annotations.TimeStep}
@@ -50,6 +59,8 @@ class TimeStepRunStrategy extends RunStrategy {
     private final Map<String, Class> runnerClassMap = new HashMap<String, Class>();
     private final Map<String, Integer> threadCountMap = new HashMap<String, Integer>();
     private final Map<String, Long> runIterationMap = new HashMap<String, Long>();
+    private final Map<String, InFlightLimiter> inFlightLimiterMap = new HashMap<String, InFlightLimiter>();
+    private final Map<String, OperationProfiler> profilerMap = new HashMap<String, OperationProfiler>();
     private int totalThreadCount;
 
     TimeStepRunStrategy(TestContainer testContainer) {
@@ -69,12 +80,16 @@ class TimeStepRunStrategy extends RunStrategy {
             LOGGER.info(format("executionGroup [%s] using interval: %s class=%s",
                     executionGroup, metronomeConstructor.getIntervalNanos(), metronomeConstructor.getMetronomeClass().getName()));
 
+            boolean openLoop = initInFlightLimiter(executionGroup, metronomeConstructor, threadCount);
+
             long logFrequency = binding.loadAsLong(toPropertyName(executionGroup, "logFrequency"), DEFAULT_LOG_FREQUENCY);
             long logRateMs = binding.loadAsLong(toPropertyName(executionGroup, "logRateMs"), DEFAULT_LOG_RATE_MS);
 
             long iterations = binding.loadAsLong(toPropertyName(executionGroup, "iterations"), 0);
             runIterationMap.put(executionGroup, iterations);
 
+            long profileInterval = initProfiler(executionGroup);
+
             Class runnerClass = new TimeStepRunnerCodeGenerator().compile(
                     testContainer.getTestCase().getId(),
                     executionGroup,
@@ -83,12 +98,131 @@ class TimeStepRunStrategy extends RunStrategy {
                     binding.getProbeClass(),
                     logFrequency,
                     logRateMs,
-                    iterations > 0);
+                    iterations > 0,
+                    openLoop,
+                    profileInterval);
 
             runnerClassMap.put(executionGroup, runnerClass);
         }
     }
 
+    /**
+     * Creates the {@link InFlightLimiter} if the execution group is configured to run open-loop using the maxInFlight property.
+     *
+     * In open-loop mode the timestep threads fire calls at the configured rate, independent of the completion of the previous
+     * calls. So it requires a rate and timestep methods which are asynchronous: either returning an ICompletableFuture or
+     * recording their latency using the {@link com.hazelcast.simulator.probes.Probe} parameter.
+     */
+    private boolean initInFlightLimiter(String executionGroup, MetronomeConstructor metronomeConstructor, int threadCount) {
+        int maxInFlight = binding.loadAsInt(toPropertyName(executionGroup, "maxInFlight"), 0);
+        if (maxInFlight <= 0) {
+            return false;
+        }
+
+        if (metronomeConstructor.getIntervalNanos() == 0) {
+            throw new IllegalTestException(format(
+                    "executionGroup [%s] configures maxInFlight, but open-loop mode requires a ratePerSecond or interval",
+                    executionGroup));
+        }
+
+        for (Method method : timeStepModel.getActiveTimeStepMethods(executionGroup)) {
+            if (isAsyncResult(method) == hasProbe(method)) {
+                throw new IllegalTestException(format("Method [%s] can't be used in open-loop mode. It should either return"
+                        + " an ICompletableFuture or have a Probe parameter to record its latency", method));
+            }
+        }
+
+        // the interval of the metronome of a single thread
+        long lateThresholdNanos = metronomeConstructor.getIntervalNanos() * threadCount;
+        long stallTimeoutSeconds = binding.loadAsLong(toPropertyName(executionGroup, "inFlightStallTimeoutSeconds"),
+                InFlightLimiter.DEFAULT_STALL_TIMEOUT_SECONDS);
+        inFlightLimiterMap.put(executionGroup, new InFlightLimiter(maxInFlight, lateThresholdNanos,
+                SECONDS.toNanos(stallTimeoutSeconds),
+                binding.getOrCreateProbe(toPropertyName(executionGroup, "droppedArrivals"), false),
+                binding.getOrCreateProbe(toPropertyName(executionGroup, "lateArrivals"), false)));
+
+        LOGGER.info(format("executionGroup [%s] running open-loop with maxInFlight: %d", executionGroup, maxInFlight));
+        return true;
+    }
+
+    /**
+     * Creates the {@link OperationProfiler} if the execution group is configured to profile every n-th call of the timestep
+     * methods using the profileInterval property.
+     */
+    private long initProfiler(String executionGroup) {
+        long profileInterval = binding.loadAsLong(toPropertyName(executionGroup, "profileInterval"), 0);
+        if (profileInterval <= 0) {
+            return 0;
+        }
+
+        List<String> methodNames = new ArrayList<String>();
+        for (Method method : timeStepModel.getActiveTimeStepMethods(executionGroup)) {
+            methodNames.add(method.getName());
+        }
+        profilerMap.put(executionGroup, new OperationProfiler(methodNames));
+
+        LOGGER.info(format("executionGroup [%s] profiling every %d-th call of the timestep methods",
+                executionGroup, profileInterval));
+        return profileInterval;
+    }
+
+    private void writeProfiles() {
+        if (profilerMap.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder(OperationProfiler.HEADER);
+        for (OperationProfiler profiler : profilerMap.values()) {
+            sb.append(profiler.createReport());
+        }
+        String report = sb.toString();
+
+        File file = new File(getUserDir(), "profile-" + testContext.getTestId() + ".csv");
+        writeText(report, file);
+        LOGGER.info(format("Profile of %s written to %s\n%s", testContext.getTestId(), file.getAbsolutePath(), report));
+    }
+
+    private void logInFlightLimiters() {
+        for (Map.Entry<String, InFlightLimiter> entry : inFlightLimiterMap.entrySet()) {
+            InFlightLimiter limiter = entry.getValue();
+            LOGGER.info(format("executionGroup [%s] open-loop: %d arrivals dropped because maxInFlight %d was reached,"
+                            + " %d arrivals late",
+                    entry.getKey(), limiter.getDroppedCount(), limiter.getMaxInFlight(), limiter.getLateCount()));
+        }
+    }
+
+    @Override
+    public synchronized boolean retuneRate(double rateShare) {
+        boolean retuned = false;
+        for (Map.Entry<String, MetronomeConstructor> entry : metronomeSettingsMap.entrySet()) {
+            MetronomeConstructor metronomeConstructor = entry.getValue();
+            if (!metronomeConstructor.retune(rateShare)) {
+                continue;
+            }
+            retuned = true;
+
+            LOGGER.info(format("executionGroup [%s] retuned to %.3f of the global rate, using interval: %s",
+                    entry.getKey(), rateShare, metronomeConstructor.getIntervalNanos()));
+
+            InFlightLimiter limiter = inFlightLimiterMap.get(entry.getKey());
+            if (limiter != null) {
+                // the late threshold is the interval of the metronome of a single thread, so it changes with the rate
+                limiter.setLateThresholdNanos(metronomeConstructor.getIntervalNanos() * threadCountMap.get(entry.getKey()));
+            }
+
+            // the runners pick up the new metronome on their next iteration
+            TimeStepRunner[] localRunners = runners;
+            if (localRunners != null) {
+                for (TimeStepRunner runner : localRunners) {
+                    if (runner.executionGroup.equals(entry.getKey())) {
+                        runner.metronome = metronomeConstructor.newInstance();
+                    }
+                }
+            }
+        }
+        return retuned;
+    }
+
     @Override
     public long iterations() {
         TimeStepRunner[] localRunners = runners;
@@ -112,10 +246,15 @@ class TimeStepRunStrategy extends RunStrategy {
                     if (totalThreadCount <= 0) {
                         return null;
                     }
-                    runners = createRunners();
+                    synchronized (TimeStepRunStrategy.this) {
+                        // a concurrent retune either happens before the runners are created or is applied to them
+                        runners = createRunners();
+                    }
                     onRunStarted();
                     ThreadSpawner spawner = spawnThreads(runners);
                     spawner.awaitCompletion();
+                    logInFlightLimiters();
+                    writeProfiles();
                     return null;
                 } finally {
                     onRunCompleted();
@@ -126,17 +265,20 @@ class TimeStepRunStrategy extends RunStrategy {
 
     private ThreadSpawner spawnThreads(TimeStepRunner[] runners) {
         ThreadSpawner spawner = new ThreadSpawner(testContext.getTestId());
+        long[] threadIds = new long[runners.length];
 
-        for (TimeStepRunner runner : runners) {
+        for (int i = 0; i < runners.length; i++) {
+            TimeStepRunner runner = runners[i];
             String executionGroup = runner.executionGroup;
             String name = testContext.getTestId();
             if (!executionGroup.equals("")) {
                 name += "-" + executionGroup;
             }
             name += "-timestepThread";
-            spawner.spawn(name, runner);
+            threadIds[i] = spawner.spawn(name, runner).getId();
         }
 
+        setThreadIds(threadIds);
         return spawner;
     }
 
@@ -157,6 +299,8 @@ class TimeStepRunStrategy extends RunStrategy {
                 runner.testContext = binding.getTestContext();
                 runner.maxIterations = runIterationMap.get(executionGroup);
                 runner.metronome = metronomeConstructor.newInstance();
+                runner.inFlightLimiter = inFlightLimiterMap.get(executionGroup);
+                runner.profiler = profilerMap.get(executionGroup);
                 runner.bind(binding);
                 runners[k] = runner;
                 k++;
@@ -38,7 +38,12 @@ import static java.lang.String.format;
 public abstract class TimeStepRunner implements Runnable {
 
     protected TestContext testContext;
-    protected Metronome metronome;
+    // volatile since the metronome is replaced when the rate is retuned
+    protected volatile Metronome metronome;
+    // only set in open-loop mode
+    protected InFlightLimiter inFlightLimiter;
+    // only set in profile mode
+    protected OperationProfiler profiler;
 
     protected final Logger logger = Logger.getLogger(getClass());
     protected final String executionGroup;
@@ -46,7 +51,7 @@ public abstract class TimeStepRunner implements Runnable {
     protected final Object testInstance;
     protected final AtomicLong iterations = new AtomicLong();
     protected final TimeStepModel timeStepModel;
-    protected final byte[] timeStepProbabilities;
+    protected final AliasTable timeStepAliasTable;
     protected final Map<String, Probe> probeMap = new HashMap<String, Probe>();
     protected long maxIterations;
 
@@ -55,7 +60,7 @@ public abstract class TimeStepRunner implements Runnable {
         this.timeStepModel = timeStepModel;
         this.executionGroup = executionGroup;
         this.threadState = initThreadState();
-        this.timeStepProbabilities = timeStepModel.getTimeStepProbabilityArray(executionGroup);
+        this.timeStepAliasTable = timeStepModel.getTimeStepAliasTable(executionGroup);
     }
 
     public String getExecutionGroup() {
@@ -27,6 +27,7 @@ import freemarker.template.Template;
 import freemarker.template.TemplateExceptionHandler;
 import freemarker.template.TemplateMethodModelEx;
 import freemarker.template.TemplateModelException;
+import org.apache.log4j.Logger;
 
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticCollector;
@@ -41,23 +42,67 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.security.MessageDigest;
 import java.security.PrivilegedAction;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import static com.hazelcast.simulator.utils.CommonUtils.getSimulatorVersion;
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
 import static com.hazelcast.simulator.utils.FileUtils.ensureExistingDirectory;
-import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.getSimulatorHome;
 import static com.hazelcast.simulator.utils.FileUtils.writeText;
+import static com.hazelcast.simulator.utils.UuidUtil.newUnsecureUuidString;
+import static java.lang.String.format;
 import static java.security.AccessController.doPrivileged;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Generates and compiles the {@link TimeStepRunner} for an execution group of a test.
+ *
+ * Compiling is expensive and needs a JDK, so the runners are cached. The name of the runner class contains a hash of its
+ * generated source, which covers everything the runner depends on: the test class and its timestep methods, the execution
+ * group, the metronome, the probe class, the log options, the iteration cap, the open-loop mode and the profile interval.
+ * So a runner is reused by every test with the same configuration in this JVM, and the compiled classes are stored in a
+ * directory which is shared by all workers and sessions on the machine, so a runner is compiled only once. Runners which have
+ * not been used for a week are removed from this directory when a new runner is compiled.
+ */
 class TimeStepRunnerCodeGenerator {
 
+    private static final Logger LOGGER = Logger.getLogger(TimeStepRunnerCodeGenerator.class);
+
+    private static final String ASYNC_RESULT_CLASS_NAME = "com.hazelcast.core.ICompletableFuture";
+    private static final String CLASS_NAME_PLACEHOLDER = "TimeStepRunnerClassNamePlaceholder";
+    private static final int HASH_LENGTH = 16;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int HEX_BYTE_OFFSET = 0x100;
+    private static final int HEX_RADIX = 16;
+    private static final String COMPILE_DIRECTORY_PREFIX = "compile-";
+    private static final String CLASS_FILE_EXTENSION = ".class";
+    // runners which have not been used for this period are removed from the disk cache
+    private static final long CACHE_RETENTION_MILLIS = DAYS.toMillis(7);
+
+    // the loaded runners by the path of their class file
+    private static final ConcurrentMap<String, Class> RUNNER_CLASSES = new ConcurrentHashMap<String, Class>();
+
     private final JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
-    private final File targetDirectory = new File(getUserDir(), "timestep-worker-classes");
+    private final File targetDirectory;
+
+    TimeStepRunnerCodeGenerator() {
+        this(new File(getSimulatorHome(), "workers/timestep-runner-cache"));
+    }
+
+    TimeStepRunnerCodeGenerator(File targetDirectory) {
+        this.targetDirectory = targetDirectory;
+    }
 
+    @SuppressWarnings("checkstyle:parameternumber")
     Class compile(
             String testCaseId,
             String executionGroup,
@@ -66,58 +111,175 @@ class TimeStepRunnerCodeGenerator {
             Class<? extends Probe> probeClass,
             long logFrequency,
             long logRateMs,
-            boolean hasIterationCap) {
+            boolean hasIterationCap,
+            boolean openLoop,
+            long profileInterval) {
 
-        ensureExistingDirectory(targetDirectory);
+        long startedNanos = System.nanoTime();
+
+        String javaCode = createJavaCode(executionGroup, metronomeClass, timeStepModel, probeClass,
+                logFrequency, logRateMs, hasIterationCap, openLoop, profileInterval);
 
         String className = timeStepModel.getTestClass().getSimpleName();
         if (!"".equals(executionGroup)) {
             className += "_" + executionGroup + "_";
-
         }
-        className += "Runner";
-
-        if (!"".equals(testCaseId)) {
-            className += testCaseId;
+        className += "Runner_" + hash(javaCode, timeStepModel.getActiveTimeStepMethods(executionGroup));
+
+        String origin = "found in the memory cache";
+        File classFile = new File(targetDirectory, className + CLASS_FILE_EXTENSION);
+        Class clazz = RUNNER_CLASSES.get(classFile.getAbsolutePath());
+        if (clazz == null) {
+            ensureExistingDirectory(targetDirectory);
+            if (classFile.isFile()) {
+                origin = "loaded from the disk cache";
+                // the modification time tells the eviction when the runner was used for the last time
+                if (!classFile.setLastModified(System.currentTimeMillis())) {
+                    LOGGER.warn("Could not update the modification time of " + classFile);
+                }
+                clazz = loadClass(className);
+            } else {
+                origin = "compiled";
+                evictUnusedRunners(System.currentTimeMillis());
+                javaCode = javaCode.replace(CLASS_NAME_PLACEHOLDER, className);
+                writeText(javaCode, new File(targetDirectory, className + ".java"));
+                clazz = compile(javaCompiler, new JavaSourceFromString(className, javaCode), className);
+            }
+            Class found = RUNNER_CLASSES.putIfAbsent(classFile.getAbsolutePath(), clazz);
+            clazz = found == null ? clazz : found;
         }
-        JavaFileObject file = createJavaFileObject(
-                className, executionGroup, metronomeClass, timeStepModel, probeClass, logFrequency, logRateMs, hasIterationCap);
-        return compile(javaCompiler, file, className);
+
+        LOGGER.info(format("%s using %s for executionGroup [%s], %s in %.3f ms", testCaseId, className, executionGroup,
+                origin, (System.nanoTime() - startedNanos) / (double) MILLISECONDS.toNanos(1)));
+        return clazz;
     }
 
-    Class compile(JavaCompiler compiler, JavaFileObject file, final String className) {
+    /**
+     * Compiles the runner into the target directory and loads it.
+     *
+     * The classes are compiled into a private directory first and then moved into the target directory, with the class of
+     * the runner itself as last one. So a worker which finds the runner in the target directory never sees an incomplete
+     * set of classes, even if other workers compile the same runner concurrently.
+     */
+    Class compile(JavaCompiler compiler, JavaFileObject file, String className) {
         if (compiler == null) {
             throw new IllegalStateException("Could not get Java compiler in TimeStepRunnerCodeGenerator."
                     + " You need to use a JDK to run Simulator! Version found: " + System.getProperty("java.version"));
         }
 
-        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
-        JavaCompiler.CompilationTask task = compiler.getTask(
-                null,
-                null,
-                diagnostics,
-                asList("-d", targetDirectory.getAbsolutePath()),
-                null,
-                singletonList(file));
-
-        boolean success = task.call();
-        if (!success) {
-            StringBuilder sb = new StringBuilder();
-            for (Diagnostic diagnostic : diagnostics.getDiagnostics()) {
-                sb.append("Error on line ")
-                        .append(diagnostic.getLineNumber())
-                        .append(" in ")
-                        .append(diagnostic)
-                        .append('\n');
+        File compileDirectory = ensureExistingDirectory(
+                new File(targetDirectory, COMPILE_DIRECTORY_PREFIX + newUnsecureUuidString()));
+        try {
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                    null,
+                    null,
+                    diagnostics,
+                    asList("-d", compileDirectory.getAbsolutePath()),
+                    null,
+                    singletonList(file));
+
+            boolean success = task.call();
+            if (!success) {
+                StringBuilder sb = new StringBuilder();
+                for (Diagnostic diagnostic : diagnostics.getDiagnostics()) {
+                    sb.append("Error on line ")
+                            .append(diagnostic.getLineNumber())
+                            .append(" in ")
+                            .append(diagnostic)
+                            .append('\n');
+                }
+                throw new IllegalTestException(sb.toString());
             }
-            throw new IllegalTestException(sb.toString());
+
+            moveClassFiles(compileDirectory, className);
+        } finally {
+            deleteQuiet(compileDirectory);
+        }
+
+        return loadClass(className);
+    }
+
+    private void moveClassFiles(File compileDirectory, String className) {
+        File[] files = compileDirectory.listFiles();
+        if (files == null) {
+            throw new IllegalTestException("Could not list the compiled classes in " + compileDirectory);
+        }
+
+        File runnerClassFile = null;
+        for (File file : files) {
+            if (file.getName().equals(className + CLASS_FILE_EXTENSION)) {
+                runnerClassFile = file;
+            } else {
+                moveClassFile(file);
+            }
+        }
+        if (runnerClassFile == null) {
+            throw new IllegalTestException("Could not find the compiled class " + className);
         }
+        moveClassFile(runnerClassFile);
+    }
+
+    private void moveClassFile(File file) {
+        File target = new File(targetDirectory, file.getName());
+        // a concurrent compilation of the same runner could have won the race; its classes are identical
+        if (!file.renameTo(target) && !target.isFile()) {
+            throw new IllegalTestException(format("Could not move [%s] to [%s]", file, target));
+        }
+    }
+
+    /**
+     * Removes the runners which have not been used within the retention period from the disk cache, so the cache doesn't grow
+     * with every changed test. The source and the nested classes of a runner are removed together with its class file.
+     *
+     * @param nowMillis the current time in millis
+     */
+    void evictUnusedRunners(long nowMillis) {
+        File[] files = targetDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long expiryMillis = nowMillis - CACHE_RETENTION_MILLIS;
+        for (File file : files) {
+            String name = file.getName();
+            if (file.lastModified() >= expiryMillis) {
+                continue;
+            }
 
+            if (file.isDirectory() && name.startsWith(COMPILE_DIRECTORY_PREFIX)) {
+                // left behind by a worker which died while compiling
+                deleteQuiet(file);
+            } else if (name.endsWith(CLASS_FILE_EXTENSION) && name.indexOf('$') == -1) {
+                evictRunner(files, name.substring(0, name.length() - CLASS_FILE_EXTENSION.length()));
+            }
+        }
+    }
+
+    private static void evictRunner(File[] files, String className) {
+        LOGGER.info(format("Removing unused %s from the runner cache", className));
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(className + "$") || name.equals(className + ".java")) {
+                deleteQuiet(file);
+            }
+        }
+        // the class file of the runner is removed last, so a concurrent lookup never finds an incomplete runner
+        for (File file : files) {
+            if (file.getName().equals(className + CLASS_FILE_EXTENSION)) {
+                deleteQuiet(file);
+            }
+        }
+    }
+
+    private Class loadClass(final String className) {
         return (Class) doPrivileged(new PrivilegedAction() {
             @Override
             public Object run() {
                 try {
-                    URLClassLoader classLoader = new URLClassLoader(new URL[]{targetDirectory.toURI().toURL()});
+                    // the parent is the classloader of the worker, which is not the system classloader for an embedded worker
+                    URLClassLoader classLoader = new URLClassLoader(new URL[]{targetDirectory.toURI().toURL()},
+                            TimeStepRunnerCodeGenerator.class.getClassLoader());
                     return (Class) classLoader.loadClass(className);
                 } catch (ClassNotFoundException e) {
                     throw new IllegalTestException(e.getMessage(), e);
@@ -128,15 +290,20 @@ class TimeStepRunnerCodeGenerator {
         });
     }
 
-    private JavaFileObject createJavaFileObject(
-            String className,
+    /**
+     * Creates the source of the runner. The class name is a placeholder, since it depends on the hash of the source.
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    private String createJavaCode(
             String executionGroup,
             Class<? extends Metronome> metronomeClass,
             TimeStepModel timeStepModel,
             Class<? extends Probe> probeClass,
             long logFrequency,
             long logRateMs,
-            boolean hasIterationCap) {
+            boolean hasIterationCap,
+            boolean openLoop,
+            long profileInterval) {
         try {
             Configuration cfg = new Configuration(Configuration.VERSION_2_3_24);
             cfg.setClassForTemplateLoading(this.getClass(), "/");
@@ -155,7 +322,7 @@ class TimeStepRunnerCodeGenerator {
             root.put("Probe", Probe.class);
             root.put("threadStateClass", getClassName(timeStepModel.getThreadStateClass(executionGroup)));
             root.put("hasProbe", new HasProbeMethod());
-            root.put("className", className);
+            root.put("className", CLASS_NAME_PLACEHOLDER);
             if (logFrequency > 0) {
                 root.put("logFrequency", "" + logFrequency);
             }
@@ -168,22 +335,75 @@ class TimeStepRunnerCodeGenerator {
                 root.put("hasIterationCap", "true");
             }
 
+            if (openLoop) {
+                root.put("openLoop", "true");
+            }
+
+            if (profileInterval > 0) {
+                root.put("profileInterval", "" + profileInterval);
+            }
+
             Template temp = cfg.getTemplate("TimeStepRunner.ftl");
             StringWriter out = new StringWriter();
             temp.process(root, out);
 
-            String javaCode = out.toString();
-
-            File javaFile = new File(targetDirectory, className + ".java");
+            return out.toString();
+        } catch (Exception e) {
+            throw new IllegalTestException(timeStepModel.getTestClass().getName() + " ran into a code generation problem: "
+                    + e.getMessage(), e);
+        }
+    }
 
-            writeText(javaCode, javaFile);
+    /**
+     * Hashes the generated source. The Java and Simulator versions are included, since the compiled classes are shared
+     * between sessions which could use a different JDK or Simulator release.
+     *
+     * The descriptors of the timestep methods are included as well, since the source doesn't contain all types the compiled
+     * runner links against. E.g. if only the return type of a timestep method changes, the source stays the same, but the
+     * old runner would fail with a {@link NoSuchMethodError}.
+     */
+    static String hash(String javaCode, List<Method> timeStepMethods) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(System.getProperty("java.version").getBytes("UTF-8"));
+            digest.update(getSimulatorVersion().getBytes("UTF-8"));
+            for (Method method : timeStepMethods) {
+                digest.update(getDescriptor(method).getBytes("UTF-8"));
+            }
+            byte[] bytes = digest.digest(javaCode.getBytes("UTF-8"));
 
-            return new JavaSourceFromString(className, javaCode);
+            StringBuilder sb = new StringBuilder();
+            for (byte b : bytes) {
+                sb.append(Integer.toString((b & BYTE_MASK) + HEX_BYTE_OFFSET, HEX_RADIX).substring(1));
+            }
+            return sb.substring(0, HASH_LENGTH);
         } catch (Exception e) {
-            throw new IllegalTestException(className + " ran into a code generation problem: " + e.getMessage(), e);
+            throw new IllegalStateException(e);
         }
     }
 
+    private static String getDescriptor(Method method) {
+        StringBuilder sb = new StringBuilder()
+                .append(method.getDeclaringClass().getName()).append('#').append(method.getName()).append('(');
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            sb.append(parameterType.getName()).append(';');
+        }
+        return sb.append(')').append(method.getReturnType().getName()).append('\n').toString();
+    }
+
+    static boolean isAsyncResult(Method method) {
+        return ASYNC_RESULT_CLASS_NAME.equals(method.getReturnType().getName());
+    }
+
+    static boolean hasProbe(Method method) {
+        for (Class paramType : method.getParameterTypes()) {
+            if (Probe.class.isAssignableFrom(paramType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static String getClassName(Class clazz) {
         return clazz == null ? null : clazz.getName().replace('$', '.');
     }
@@ -245,7 +465,7 @@ class TimeStepRunnerCodeGenerator {
             }
 
             String resultTypeName = ((SimpleScalar) list.get(0)).getAsString();
-            return "com.hazelcast.core.ICompletableFuture".equals(resultTypeName);
+            return ASYNC_RESULT_CLASS_NAME.equals(resultTypeName);
         }
     }
 
@@ -296,14 +516,7 @@ class TimeStepRunnerCodeGenerator {
                         + " It should be Method. Found: " + arg1.getClass());
             }
 
-            Method method = (Method) arg1;
-            for (Class paramType : method.getParameterTypes()) {
-                if (Probe.class.isAssignableFrom(paramType)) {
-                    return true;
-                }
-            }
-
-            return false;
+            return hasProbe((Method) arg1);
         }
     }
 }
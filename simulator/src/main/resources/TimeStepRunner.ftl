@@ -22,19 +22,33 @@ public class ${className} extends TimeStepRunner {
     @Override
     public void timeStepLoop() throws Exception {
 <#if timeStepMethods?size gt 1>
-        final Random random = new Random();
+        final XorShiftRandom random = new XorShiftRandom();
 </#if>
         final AtomicLong iterations = this.iterations;
         final TestContextImpl testContext = (TestContextImpl)this.testContext;
         final ${testInstanceClass} testInstance = (${testInstanceClass})this.testInstance;
 <#if metronomeClass??>
-        final ${metronomeClass} metronome = (${metronomeClass})this.metronome;
+        ${metronomeClass} metronome = (${metronomeClass})this.metronome;
 </#if>
 <#if probeClass??>
     <#list timeStepMethods as method>
         final ${probeClass} ${method.name}Probe = (${probeClass})probeMap.get("${method.name}");
     </#list>
 </#if>
+<#if openLoop??>
+        final InFlightLimiter inFlightLimiter = this.inFlightLimiter;
+    <#list timeStepMethods as method>
+        <#if hasProbe(method) || isAsyncResult(method.getReturnType().getName())>
+        final Probe ${method.name}InFlightProbe = inFlightLimiter.wrap(<#if probeClass??>${method.name}Probe<#else>com.hazelcast.simulator.probes.impl.EmptyProbe.INSTANCE</#if>);
+        </#if>
+    </#list>
+</#if>
+<#list timeStepMethods as method>
+    <#if isAsyncResult(method.getReturnType().getName()) && !callbackPoolDeclared??>
+        <#assign callbackPoolDeclared = true>
+        final LatencyCallbackPool callbackPool = new LatencyCallbackPool();
+    </#if>
+</#list>
 <#if threadStateClass??>
         final ${threadStateClass} threadState = (${threadStateClass})this.threadState;
 </#if>
@@ -45,8 +59,16 @@ public class ${className} extends TimeStepRunner {
         final ThrottlingLogger throttlingLogger = new ThrottlingLogger(logger, ${logRateMs});
 </#if>
 
+<#if profileInterval??>
+        final OperationProfiler profiler = this.profiler;
+    <#list timeStepMethods as method>
+        final org.HdrHistogram.Recorder ${method.name}AllocationRecorder = profiler.getAllocationRecorder("${method.name}");
+        final org.HdrHistogram.Recorder ${method.name}CpuRecorder = profiler.getCpuRecorder("${method.name}");
+    </#list>
+        long profileCountdown = ${profileInterval};
+</#if>
 <#if timeStepMethods?size gt 1>
-        final byte[] probs  = this.timeStepProbabilities;
+        final AliasTable aliasTable = this.timeStepAliasTable;
 </#if>
 
 <#if hasIterationCap??>
@@ -55,48 +77,65 @@ public class ${className} extends TimeStepRunner {
 
         long iteration = 0;
         while (!testContext.isStopped()) {
-<#if probeClass??>
-    <#if metronomeClass??>
+<#if metronomeClass??>
+            if (metronome != this.metronome) {
+                // the rate has been retuned
+                metronome = (${metronomeClass})this.metronome;
+            }
             final long startNanos = metronome.waitForNext();
-    <#else>
-            final long startNanos = System.nanoTime();
+    <#if openLoop??>
+            if (!inFlightLimiter.tryAcquire(startNanos)) {
+                continue;
+            }
     </#if>
+            <#-- the reads follow the wait, so waiting isn't profiled; the latency is measured from the expected start -->
+            <@profileStart/>
 <#else>
-    <#if metronomeClass??>
-            metronome.waitForNext();
+            <#-- the reads are done before the start time is taken, so they are not part of the latency -->
+            <@profileStart/>
+    <#if probeClass??>
+            final long startNanos = System.nanoTime();
     </#if>
 </#if>
 
 <#if timeStepMethods?size==1>
     <#assign method=timeStepMethods?first>
     <#assign resultType=method.getReturnType().getName()>
-    <#if hasProbe(method)|| !probeClass?? || isAsyncResult(resultType)>
+    <#if openLoop??>
+            <@openLoopMethodCall m=method resultName="result"/>
+    <#elseif hasProbe(method)|| !probeClass?? || isAsyncResult(resultType)>
             <#assign resultName = "result">
             <#if isAsyncResult(resultType)>${resultType} ${resultName} = </#if><@timestepMethodCall m=method/>;
+            <@profileCall m=method/>
             <#if isAsyncResult(resultType)>
                 <@handleAsyncResult m=method/>
             </#if>
     <#else>
             <@timestepMethodCall m=method/>;
             ${method.name}Probe.recordValue(System.nanoTime() - startNanos);
+            <@profileCall m=method/>
     </#if>
 <#else>
 
-            switch(probs[random.nextInt(probs.length)]){
+            switch(aliasTable.select(random.nextLong())){
     <#list timeStepMethods as method>
         <#assign index = method?counter-1>
                 case ${index}:
         <#assign resultType=method.getReturnType().getName()>
-        <#if hasProbe(method) || !probeClass?? || isAsyncResult(resultType)>
+        <#if openLoop??>
+                    <@openLoopMethodCall m=method resultName="result" + index/>
+        <#elseif hasProbe(method) || !probeClass?? || isAsyncResult(resultType)>
             <#assign resultName = "result" + index>
             <#if isAsyncResult(resultType)>
                     ${resultType} ${resultName} = </#if><@timestepMethodCall m=method/>;
+                    <@profileCall m=method/>
             <#if isAsyncResult(resultType)>
                     <@handleAsyncResult m=method/>
             </#if>
         <#else>
                     <@timestepMethodCall m=method/>;
                     ${method.name}Probe.recordValue(System.nanoTime() - startNanos);
+                    <@profileCall m=method/>
         </#if>
                     break;
     </#list>
@@ -125,12 +164,47 @@ public class ${className} extends TimeStepRunner {
     }
 
 <#macro handleAsyncResult m>
-                    ${resultName}.andThen(new com.hazelcast.spi.impl.SimpleExecutionCallback() {
-                        @Override
-                        public void notify(Object o) {
-                           ${m.getName()}Probe.recordValue(System.nanoTime() - startNanos);
-                         }
-                    });
+                    ${resultName}.andThen(callbackPool.acquire(<#if probeClass??>${m.getName()}Probe<#else>com.hazelcast.simulator.probes.impl.EmptyProbe.INSTANCE</#if>, startNanos));
+</#macro>
+
+<#macro openLoopMethodCall m resultName>
+    <#if isAsyncResult(m.getReturnType().getName())>
+                    final ${m.getReturnType().getName()} ${resultName};
+                    try {
+                        ${resultName} = <@timestepMethodCall m=m/>;
+                    } catch (Exception e) {
+                        // there is no future to complete the call, so its slot is released right away
+                        inFlightLimiter.release();
+                        throw e;
+                    }
+                    <@profileCall m=m/>
+                    ${resultName}.andThen(callbackPool.acquire(${m.getName()}InFlightProbe, startNanos));
+    <#else>
+                    <@timestepMethodCall m=m/>;
+                    <@profileCall m=m/>
+    </#if>
+</#macro>
+
+<#macro profileStart>
+<#if profileInterval??>
+            profileCountdown--;
+            final boolean profiling = profileCountdown == 0;
+            long profileStartAllocatedBytes = 0;
+            long profileStartCpuTimeNanos = 0;
+            if (profiling) {
+                profileCountdown = ${profileInterval};
+                profileStartAllocatedBytes = profiler.allocatedBytes();
+                profileStartCpuTimeNanos = profiler.cpuTimeNanos();
+            }
+</#if>
+</#macro>
+
+<#macro profileCall m>
+<#if profileInterval??>
+                    if (profiling) {
+                        profiler.record(${m.name}AllocationRecorder, ${m.name}CpuRecorder, profileStartAllocatedBytes, profileStartCpuTimeNanos);
+                    }
+</#if>
 </#macro>
 
 <#macro timestepMethodCall m>
@@ -142,7 +216,7 @@ public class ${className} extends TimeStepRunner {
             <#if isStartNanos(m, param?counter)>
                 <#if metronomeClass??>startNanos<#else>System.nanoTime()</#if>
             <#elseif isAssignableFrom(param, Probe)>
-                <#if probeClass??>${m.name}Probe<#else>com.hazelcast.simulator.probes.impl.EmptyProbe.INSTANCE</#if>
+                <#if openLoop??>${m.name}InFlightProbe<#elseif probeClass??>${m.name}Probe<#else>com.hazelcast.simulator.probes.impl.EmptyProbe.INSTANCE</#if>
             <#else>
                 threadState
             </#if>
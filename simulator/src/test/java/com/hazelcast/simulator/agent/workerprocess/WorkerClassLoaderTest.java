@@ -0,0 +1,89 @@
+package com.hazelcast.simulator.agent.workerprocess;
+
+import com.hazelcast.simulator.protocol.EmbeddedRouter;
+import com.hazelcast.simulator.utils.FileUtils;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URL;
+
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.FileUtils.ensureExistingDirectory;
+import static com.hazelcast.simulator.utils.FileUtils.ensureExistingFile;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static java.io.File.pathSeparator;
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class WorkerClassLoaderTest {
+
+    private File directory;
+    private String classpath;
+
+    @Before
+    public void before() {
+        directory = ensureExistingDirectory(new File(getUserDir(), randomUUID().toString()));
+        classpath = System.getProperty("java.class.path");
+    }
+
+    @After
+    public void after() {
+        deleteQuiet(directory);
+    }
+
+    @Test
+    public void toUrls_expandsWildcard() throws Exception {
+        ensureExistingFile(directory, "a.jar");
+        ensureExistingFile(directory, "b.jar");
+        ensureExistingFile(directory, "c.txt");
+
+        URL[] urls = WorkerClassLoader.toUrls(directory.getAbsolutePath() + "/*");
+
+        assertEquals(2, urls.length);
+    }
+
+    @Test
+    public void toUrls_skipsMissingEntries() throws Exception {
+        URL[] urls = WorkerClassLoader.toUrls(
+                new File(directory, "missing").getAbsolutePath() + pathSeparator + directory.getAbsolutePath() + pathSeparator);
+
+        assertEquals(1, urls.length);
+        assertEquals(directory.toURI().toURL(), urls[0]);
+    }
+
+    @Test
+    public void loadClass_isolated() throws Exception {
+        WorkerClassLoader classLoader1 = new WorkerClassLoader(classpath, getClass().getClassLoader());
+        WorkerClassLoader classLoader2 = new WorkerClassLoader(classpath, getClass().getClassLoader());
+
+        Class<?> class1 = classLoader1.loadClass(FileUtils.class.getName());
+        Class<?> class2 = classLoader2.loadClass(FileUtils.class.getName());
+
+        assertSame(classLoader1, class1.getClassLoader());
+        assertNotSame(FileUtils.class, class1);
+        assertNotSame(class1, class2);
+        assertSame(class1, classLoader1.loadClass(FileUtils.class.getName()));
+    }
+
+    @Test
+    public void loadClass_shared() throws Exception {
+        WorkerClassLoader classLoader = new WorkerClassLoader(classpath, getClass().getClassLoader());
+
+        assertSame(EmbeddedRouter.class, classLoader.loadClass(EmbeddedRouter.class.getName()));
+        assertSame(Logger.class, classLoader.loadClass(Logger.class.getName()));
+        assertSame(String.class, classLoader.loadClass(String.class.getName()));
+    }
+
+    @Test
+    public void getParent_isHidden() {
+        WorkerClassLoader classLoader = new WorkerClassLoader(classpath, getClass().getClassLoader());
+
+        assertNull(classLoader.getParent());
+    }
+}
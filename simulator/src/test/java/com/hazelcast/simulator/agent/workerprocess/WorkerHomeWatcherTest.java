@@ -0,0 +1,90 @@
+package com.hazelcast.simulator.agent.workerprocess;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static com.hazelcast.simulator.TestEnvironmentUtils.setupFakeEnvironment;
+import static com.hazelcast.simulator.TestEnvironmentUtils.tearDownFakeEnvironment;
+import static com.hazelcast.simulator.protocol.core.SimulatorAddress.workerAddress;
+import static com.hazelcast.simulator.utils.FileUtils.ensureExistingDirectory;
+import static com.hazelcast.simulator.utils.FileUtils.ensureExistingFile;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WorkerHomeWatcherTest {
+
+    private static final int NO_EVENT_TIMEOUT_MILLIS = 500;
+
+    private final BlockingQueue<WorkerProcess> failureCandidates = new LinkedBlockingQueue<WorkerProcess>();
+    private WorkerHomeWatcher watcher;
+    private WorkerProcess workerProcess;
+
+    @Before
+    public void before() throws Exception {
+        File simulatorHome = setupFakeEnvironment();
+        File workerHome = ensureExistingDirectory(new File(simulatorHome, "workers/session/worker1"));
+        workerProcess = new WorkerProcess(workerAddress(1, 1), "worker1", workerHome);
+
+        watcher = new WorkerHomeWatcher(failureCandidates);
+        watcher.start();
+    }
+
+    @After
+    public void after() {
+        watcher.close();
+        tearDownFakeEnvironment();
+    }
+
+    @Test
+    public void testIsFailureFile() {
+        assertTrue(WorkerHomeWatcher.isFailureFile("1.exception"));
+        assertTrue(WorkerHomeWatcher.isFailureFile("java_pid3140.hprof"));
+        assertTrue(WorkerHomeWatcher.isFailureFile("worker.oome"));
+        assertFalse(WorkerHomeWatcher.isFailureFile("1.exception.tmp"));
+        assertFalse(WorkerHomeWatcher.isFailureFile("worker.log"));
+    }
+
+    @Test
+    public void testRegister_whenFailureFileCreated() throws Exception {
+        assertTrue(watcher.register(workerProcess));
+
+        ensureExistingFile(workerProcess.getWorkerHome(), "worker.oome");
+
+        assertSame(workerProcess, failureCandidates.poll(1, SECONDS));
+    }
+
+    @Test
+    public void testRegister_whenOtherFileCreated() throws Exception {
+        assertTrue(watcher.register(workerProcess));
+
+        ensureExistingFile(workerProcess.getWorkerHome(), "worker.log");
+
+        assertNull(failureCandidates.poll(NO_EVENT_TIMEOUT_MILLIS, MILLISECONDS));
+    }
+
+    @Test
+    public void testRegister_whenDirectoryDoesNotExist() {
+        WorkerProcess missing = new WorkerProcess(workerAddress(1, 2), "worker2", new File("notFound"));
+
+        assertFalse(watcher.register(missing));
+    }
+
+    @Test
+    public void testUnregister() throws Exception {
+        watcher.register(workerProcess);
+        watcher.unregister(workerProcess);
+
+        ensureExistingFile(workerProcess.getWorkerHome(), "worker.oome");
+
+        assertNull(failureCandidates.poll(NO_EVENT_TIMEOUT_MILLIS, MILLISECONDS));
+    }
+}
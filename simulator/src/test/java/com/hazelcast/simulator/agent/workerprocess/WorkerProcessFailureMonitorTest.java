@@ -7,9 +7,12 @@ import com.hazelcast.simulator.utils.AssertTask;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.mockito.verification.VerificationMode;
 
 import java.io.File;
+import java.util.concurrent.CountDownLatch;
 
 import static com.hazelcast.simulator.TestEnvironmentUtils.setupFakeEnvironment;
 import static com.hazelcast.simulator.TestEnvironmentUtils.tearDownFakeEnvironment;
@@ -266,6 +269,81 @@ public class WorkerProcessFailureMonitorTest {
         assertFailureType(failureHandler, WORKER_ABNORMAL_EXIT);
     }
 
+    @Test
+    public void testRun_shouldDetectOomeFailure_withoutPolling() {
+        workerProcessFailureMonitor.shutdown();
+        final WorkerProcess workerProcess = addRunningWorkerProcess();
+        startMonitorWithoutPolling();
+
+        sleepMillis(DEFAULT_SLEEP_TIME);
+        ensureExistingFile(workerProcess.getWorkerHome(), "worker.oome");
+
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                assertTrue(workerProcess.isOomeDetected());
+            }
+        });
+        assertFailureType(failureHandler, WORKER_OOME);
+    }
+
+    @Test
+    public void testRun_shouldDetectException_withoutPolling() {
+        workerProcessFailureMonitor.shutdown();
+        WorkerProcess workerProcess = addRunningWorkerProcess();
+        startMonitorWithoutPolling();
+
+        sleepMillis(DEFAULT_SLEEP_TIME);
+        File exceptionFile = createExceptionFile(workerProcess.getWorkerHome(), "", throwableToString(new RuntimeException()));
+
+        assertThatExceptionFileDoesNotExist(exceptionFile);
+        assertFailureType(failureHandler, WORKER_EXCEPTION);
+    }
+
+    @Test
+    public void testRun_shouldDetectException_whenWorkerHomeCouldNotBeWatched() {
+        // the home directory doesn't exist yet, so registering it at the WorkerHomeWatcher fails
+        WorkerProcess workerProcess = addWorkerProcess(null, false);
+
+        sleepMillis(DEFAULT_SLEEP_TIME);
+        ensureExistingDirectory(workerProcess.getWorkerHome());
+        File exceptionFile = createExceptionFile(workerProcess.getWorkerHome(), "", throwableToString(new RuntimeException()));
+
+        assertThatExceptionFileDoesNotExist(exceptionFile);
+        assertFailureType(failureHandler, WORKER_EXCEPTION);
+    }
+
+    @Test
+    public void testRun_shouldDetectWorkerFinished_withoutPolling() throws Exception {
+        workerProcessFailureMonitor.shutdown();
+        final WorkerProcess workerProcess = addRunningWorkerProcess();
+        final CountDownLatch exited = new CountDownLatch(1);
+        Process process = workerProcess.getProcess();
+        when(process.waitFor()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                exited.await();
+                return 0;
+            }
+        });
+        startMonitorWithoutPolling();
+
+        sleepMillis(DEFAULT_SLEEP_TIME);
+        verifyZeroInteractions(failureHandler);
+
+        reset(process);
+        when(process.exitValue()).thenReturn(0);
+        exited.countDown();
+
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                assertTrue(workerProcess.isFinished());
+            }
+        });
+        assertFailureType(failureHandler, WORKER_NORMAL_EXIT);
+    }
+
     @Test
     public void testExceptionExtensionFilter_shouldReturnEmptyFileListIfDirectoryDoesNotExist() {
         File[] files = WorkerProcessFailureMonitor.ExceptionExtensionFilter.listFiles(new File("notFound"));
@@ -280,6 +358,13 @@ public class WorkerProcessFailureMonitorTest {
         assertEquals(0, files.length);
     }
 
+    // the workers can only be checked because of a created file or an exit of the process
+    private void startMonitorWithoutPolling() {
+        workerProcessFailureMonitor = new WorkerProcessFailureMonitor(failureHandler, workerProcessManager,
+                DEFAULT_LAST_SEEN_TIMEOUT_SECONDS, (int) HOURS.toMillis(1));
+        workerProcessFailureMonitor.start();
+    }
+
     private SimulatorAddress createWorkerAddress() {
         return workerAddress(1, ++addressIndex);
     }
@@ -289,11 +374,17 @@ public class WorkerProcessFailureMonitorTest {
     }
 
     private WorkerProcess addWorkerProcess(Integer exitCode) {
+        return addWorkerProcess(exitCode, true);
+    }
+
+    private WorkerProcess addWorkerProcess(Integer exitCode, boolean createWorkerHome) {
         SimulatorAddress address = createWorkerAddress();
 
         File sessionHome = new File(workersHome, "sessions");
         File workerHome = new File(sessionHome, "worker" + address.getAddressIndex());
-        ensureExistingDirectory(workerHome);
+        if (createWorkerHome) {
+            ensureExistingDirectory(workerHome);
+        }
 
         WorkerProcess workerProcess = new WorkerProcess(address, "WorkerProcessFailureMonitorTest" + address.getAddressIndex(), workerHome);
         Process process = mock(Process.class);
@@ -37,6 +37,8 @@ import static java.util.concurrent.TimeUnit.DAYS;
 import static java.util.concurrent.TimeUnit.HOURS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class CoordinatorCliTest {
 
@@ -215,6 +217,52 @@ public class CoordinatorCliTest {
         assertEquals(0, testSuite.getDurationSeconds());
     }
 
+    @Test
+    public void testInit_throughputSearch() {
+        args.add("--throughputSearch");
+        args.add("BINARY");
+        args.add("--throughputSearchSlaMicros");
+        args.add("1000");
+        args.add(testSuiteFile.getAbsolutePath());
+
+        CoordinatorCli cli = createCoordinatorCli();
+
+        assertNotNull(cli.throughputSearch);
+    }
+
+    @Test
+    public void testInit_withoutThroughputSearch() {
+        args.add(testSuiteFile.getAbsolutePath());
+
+        CoordinatorCli cli = createCoordinatorCli();
+
+        assertNull(cli.throughputSearch);
+    }
+
+    @Test(expected = CommandLineExitException.class)
+    public void testInit_throughputSearch_withoutSla() {
+        args.add("--throughputSearch");
+        args.add("STEP");
+        args.add(testSuiteFile.getAbsolutePath());
+
+        createCoordinatorCli();
+    }
+
+    @Test(expected = CommandLineExitException.class)
+    public void testInit_throughputSearch_withInvalidRateRange() {
+        args.add("--throughputSearch");
+        args.add("STEP");
+        args.add("--throughputSearchSlaMicros");
+        args.add("1000");
+        args.add("--throughputSearchStartRate");
+        args.add("2000");
+        args.add("--throughputSearchMaxRate");
+        args.add("1000");
+        args.add(testSuiteFile.getAbsolutePath());
+
+        createCoordinatorCli();
+    }
+
     @Test(expected = CommandLineExitException.class)
     public void testInit_duration_withNegativeTime() {
         args.add("--duration");
@@ -3,6 +3,7 @@ package com.hazelcast.simulator.coordinator;
 import com.hazelcast.simulator.agent.operations.CreateWorkerOperation;
 import com.hazelcast.simulator.coordinator.operations.RcDownloadOperation;
 import com.hazelcast.simulator.coordinator.operations.RcInstallOperation;
+import com.hazelcast.simulator.coordinator.operations.RcPerformanceHistoryOperation;
 import com.hazelcast.simulator.coordinator.operations.RcPrintLayoutOperation;
 import com.hazelcast.simulator.coordinator.operations.RcStopCoordinatorOperation;
 import com.hazelcast.simulator.coordinator.operations.RcTestRunOperation;
@@ -123,6 +124,18 @@ public class CoordinatorRemoteImplTest {
         assertSame(expected, result);
     }
 
+    @Test
+    public void test_RcPerformanceHistoryOperation() throws Exception {
+        RcPerformanceHistoryOperation op = new RcPerformanceHistoryOperation("foo");
+
+        String expected = "history";
+        when(coordinator.performanceHistory(op)).thenReturn(expected);
+
+        String result = remote.execute(op);
+
+        assertSame(expected, result);
+    }
+
     @Test
     public void test_RcWorkerScriptOperation() throws Exception {
         RcWorkerScriptOperation op = new RcWorkerScriptOperation("bla");
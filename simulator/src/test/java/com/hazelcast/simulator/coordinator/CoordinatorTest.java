@@ -3,6 +3,7 @@ package com.hazelcast.simulator.coordinator;
 import com.hazelcast.simulator.agent.Agent;
 import com.hazelcast.simulator.common.SimulatorProperties;
 import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.coordinator.operations.RcPerformanceHistoryOperation;
 import com.hazelcast.simulator.coordinator.operations.RcTestRunOperation;
 import com.hazelcast.simulator.coordinator.operations.RcTestStatusOperation;
 import com.hazelcast.simulator.coordinator.operations.RcTestStopOperation;
@@ -35,6 +36,7 @@ import static com.hazelcast.simulator.utils.TestUtils.assertTrueEventually;
 import static java.lang.String.format;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class CoordinatorTest {
 
@@ -56,6 +58,7 @@ public class CoordinatorTest {
 
         File simulatorPropertiesFile = new File(getUserDir(), "simulator.properties");
         appendText("CLOUD_PROVIDER=embedded\n", simulatorPropertiesFile);
+        appendText("WORKER_PERFORMANCE_MONITOR_SAMPLE_INTERVAL_MILLIS=100\n", simulatorPropertiesFile);
 
         SimulatorProperties simulatorProperties = loadSimulatorProperties();
 
@@ -208,4 +211,19 @@ public class CoordinatorTest {
 
         assertEquals(format("A1_W%s=a", (initialWorkerIndex + 1)), result.replace("\n", ""));
     }
+
+    @Test
+    public void performanceHistory() throws Exception {
+        String worker = coordinator.workerStart(new RcWorkerStartOperation().setHzConfig(hzConfig));
+
+        // the test id gets a suffix if the test suite has been run before
+        String testId = coordinator.testRun(new RcTestRunOperation(newBasicTestSuite()).setAsync(true));
+        assertTestCompletesEventually(testId);
+
+        String history = coordinator.performanceHistory(new RcPerformanceHistoryOperation(testId));
+
+        assertTrue(history, history.startsWith("# " + worker + "\nepoch-millis,"));
+        // the header of the worker, the csv header and at least 10 samples
+        assertTrue(history, history.split("\n").length > 12);
+    }
 }
@@ -0,0 +1,169 @@
+package com.hazelcast.simulator.coordinator;
+
+import com.hazelcast.simulator.agent.workerprocess.WorkerParameters;
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.coordinator.registry.AgentData;
+import com.hazelcast.simulator.coordinator.registry.Registry;
+import com.hazelcast.simulator.coordinator.registry.WorkerData;
+import com.hazelcast.simulator.protocol.CoordinatorClient;
+import com.hazelcast.simulator.protocol.ResponseFuture;
+import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
+import com.hazelcast.simulator.worker.operations.RetuneRateOperation;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.hazelcast.simulator.protocol.core.SimulatorAddress.workerAddress;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GlobalRateControllerTest {
+
+    private static final double DELTA = 0.0001;
+
+    private Registry registry;
+    private CoordinatorClient client;
+    private PerformanceStatsCollector performanceStatsCollector;
+    private List<WorkerData> workers;
+    private GlobalRateController controller;
+
+    @Before
+    public void before() throws Exception {
+        registry = new Registry();
+        AgentData agent = registry.addAgent("127.0.0.1", "127.0.0.1");
+        List<WorkerParameters> parametersList = new ArrayList<WorkerParameters>();
+        for (int k = 1; k <= 3; k++) {
+            parametersList.add(new WorkerParameters()
+                    .set("WORKER_TYPE", "member")
+                    .set("WORKER_INDEX", k)
+                    .set("WORKER_ADDRESS", workerAddress(agent.getAddress().getAgentIndex(), k)));
+        }
+        workers = registry.addWorkers(parametersList);
+
+        ResponseFuture future = mock(ResponseFuture.class);
+        when(future.get(anyLong(), any(TimeUnit.class))).thenReturn("ok");
+        client = mock(CoordinatorClient.class);
+        when(client.submit(any(SimulatorAddress.class), any(SimulatorOperation.class))).thenReturn(future);
+
+        performanceStatsCollector = mock(PerformanceStatsCollector.class);
+        controller = new GlobalRateController("foo", 3000, workers, client, registry, performanceStatsCollector);
+    }
+
+    @Test
+    public void testGetGlobalRatePerSecond() {
+        TestCase testCase = new TestCase("foo")
+                .setProperty("globalRatePerSecond", 1000)
+                .setProperty("putGlobalRatePerSecond", 500)
+                .setProperty("ratePerSecond", 10);
+
+        assertEquals(1500, GlobalRateController.getGlobalRatePerSecond(testCase), DELTA);
+    }
+
+    @Test
+    public void testGetGlobalRatePerSecond_whenNotConfigured() {
+        assertEquals(0, GlobalRateController.getGlobalRatePerSecond(new TestCase("foo").setProperty("ratePerSecond", 10)), DELTA);
+    }
+
+    @Test
+    public void testDivide_equalShares() {
+        assertArrayEquals(new double[]{0.25, 0.25, 0.25, 0.25},
+                GlobalRateController.divide(1000, new double[]{-1, 250, 240, -1}), DELTA);
+    }
+
+    @Test
+    public void testDivide_whenWorkerFallsBehind() {
+        double[] shares = GlobalRateController.divide(3000, new double[]{1000, 400, 1000});
+
+        // the falling worker keeps its share to catch up, the others take over the 600 ops/s it doesn't make
+        assertArrayEquals(new double[]{1300d / 3000, 1d / 3, 1300d / 3000}, shares, DELTA);
+    }
+
+    @Test
+    public void testDivide_whenAllWorkersFallBehind() {
+        assertArrayEquals(new double[]{0.5, 0.5}, GlobalRateController.divide(1000, new double[]{100, 200}), DELTA);
+    }
+
+    @Test
+    public void testRebalance() {
+        controller.rebalance(false);
+
+        ArgumentCaptor<SimulatorOperation> captor = ArgumentCaptor.forClass(SimulatorOperation.class);
+        verify(client, times(3)).submit(any(SimulatorAddress.class), captor.capture());
+        for (SimulatorOperation op : captor.getAllValues()) {
+            assertEquals(1d / 3, ((RetuneRateOperation) op).getRateShare(), DELTA);
+        }
+    }
+
+    @Test
+    public void testRebalance_whenNothingChanged_thenNoRetune() {
+        controller.rebalance(false);
+        reset(client);
+
+        controller.rebalance(false);
+
+        verify(client, never()).submit(any(SimulatorAddress.class), any(SimulatorOperation.class));
+    }
+
+    @Test
+    public void testRebalance_whenWorkerDoesNotAnswer_thenSkippedAndRetriedOnNextRebalance() throws Exception {
+        SimulatorAddress slowWorker = workers.get(0).getAddress();
+        ResponseFuture timeoutFuture = mock(ResponseFuture.class);
+        when(timeoutFuture.get(anyLong(), any(TimeUnit.class))).thenThrow(new TimeoutException());
+        when(client.submit(eq(slowWorker), any(SimulatorOperation.class))).thenReturn(timeoutFuture);
+
+        controller.rebalance(false);
+
+        assertFalse(controller.getShares().containsKey(slowWorker));
+        assertEquals(1d / 3, controller.getShares().get(workers.get(1).getAddress()), DELTA);
+
+        reset(client);
+        controller.rebalance(false);
+
+        verify(client).submit(eq(slowWorker), any(SimulatorOperation.class));
+        verify(client, times(1)).submit(any(SimulatorAddress.class), any(SimulatorOperation.class));
+    }
+
+    @Test
+    public void testRebalance_whenWorkerKilled() {
+        controller.rebalance(false);
+
+        registry.removeWorker(workers.get(0).getAddress());
+        controller.rebalance(false);
+
+        assertEquals(2, controller.getShares().size());
+        assertEquals(0.5, controller.getShares().get(workers.get(1).getAddress()), DELTA);
+        assertEquals(0.5, controller.getShares().get(workers.get(2).getAddress()), DELTA);
+    }
+
+    @Test
+    public void testRebalance_whenWorkerFallsBehind() {
+        when(performanceStatsCollector.getIntervalThroughput(workers.get(0).getAddress(), "foo")).thenReturn(1000d);
+        when(performanceStatsCollector.getIntervalThroughput(workers.get(1).getAddress(), "foo")).thenReturn(400d);
+        when(performanceStatsCollector.getIntervalThroughput(workers.get(2).getAddress(), "foo")).thenReturn(1000d);
+
+        controller.rebalance(true);
+
+        assertEquals(1300d / 3000, controller.getShares().get(workers.get(0).getAddress()), DELTA);
+        assertEquals(1d / 3, controller.getShares().get(workers.get(1).getAddress()), DELTA);
+
+        // the previous throughputs are used until they are refreshed
+        controller.rebalance(false);
+        assertEquals(1300d / 3000, controller.getShares().get(workers.get(0).getAddress()), DELTA);
+    }
+}
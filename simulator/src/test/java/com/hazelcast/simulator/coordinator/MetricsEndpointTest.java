@@ -0,0 +1,153 @@
+package com.hazelcast.simulator.coordinator;
+
+import com.hazelcast.simulator.coordinator.operations.FailureOperation;
+import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import org.HdrHistogram.Histogram;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static com.hazelcast.simulator.common.FailureType.WORKER_EXCEPTION;
+import static com.hazelcast.simulator.protocol.core.SimulatorAddress.workerAddress;
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsEndpointTest {
+
+    private static final String TEST_ID = "testId";
+
+    private PerformanceStatsCollector performanceStatsCollector;
+    private MetricsEndpoint metricsEndpoint;
+
+    @Before
+    public void before() {
+        performanceStatsCollector = new PerformanceStatsCollector(50, 99, 99.9);
+        metricsEndpoint = new MetricsEndpoint(performanceStatsCollector, 0);
+        metricsEndpoint.start();
+    }
+
+    @After
+    public void after() {
+        closeQuietly(metricsEndpoint);
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        Histogram histogram = new Histogram(3);
+        histogram.recordValueWithCount(2000, 100);
+        update(workerAddress(1, 1), new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram)
+                .setIntervalJvmMetrics(15, 1024));
+        update(workerAddress(2, 1), new PerformanceStats(3000, 300, 500, 1900.0d, 1800, 2500));
+        metricsEndpoint.onFailure(failure(), false, true);
+
+        String metrics = get(false);
+
+        assertTrue(metrics, metrics.contains("# TYPE simulator_test_throughput gauge\n"));
+        assertTrue(metrics, metrics.contains("simulator_test_throughput{test=\"testId\"} 500.0\n"));
+        assertTrue(metrics, metrics.contains("simulator_test_operations_total{test=\"testId\"} 4000\n"));
+        assertTrue(metrics, metrics.contains("# TYPE simulator_test_latency_microseconds summary\n"));
+        assertTrue(metrics, metrics.contains("simulator_test_latency_microseconds{test=\"testId\",quantile=\"0.5\"} 2.0"));
+        assertTrue(metrics, metrics.contains("simulator_test_latency_microseconds{test=\"testId\",quantile=\"0.999\"} 2.0"));
+        assertTrue(metrics, metrics.contains("simulator_test_latency_microseconds{test=\"testId\",quantile=\"1\"} 2.0"));
+        assertTrue(metrics, metrics.contains("simulator_test_latency_microseconds_count{test=\"testId\"} 100\n"));
+        assertTrue(metrics, metrics.contains("simulator_agent_throughput{agent=\"A2\",test=\"testId\"} 300.0\n"));
+        assertTrue(metrics, metrics.contains("simulator_worker_throughput{worker=\"A1_W1\",test=\"testId\"} 200.0\n"));
+        assertTrue(metrics, metrics.contains("simulator_worker_gc_time_milliseconds{worker=\"A1_W1\"} 15\n"));
+        assertTrue(metrics, metrics.contains("simulator_failures_total{test=\"testId\",type=\"workerException\"} 1\n"));
+    }
+
+    @Test
+    public void testMetrics_gzip() throws Exception {
+        update(workerAddress(1, 1), new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500));
+
+        assertEquals(get(false), get(true));
+    }
+
+    @Test
+    public void testGetResponse_isCachedTillUpdate() {
+        update(workerAddress(1, 1), new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500));
+        MetricsEndpoint.Response response = metricsEndpoint.getResponse();
+
+        assertSame(response, metricsEndpoint.getResponse());
+
+        update(workerAddress(1, 1), new PerformanceStats(2000, 200, 500, 1900.0d, 1800, 2500));
+        assertNotSame(response, metricsEndpoint.getResponse());
+
+        response = metricsEndpoint.getResponse();
+        metricsEndpoint.onFailure(failure(), false, true);
+        assertNotSame(response, metricsEndpoint.getResponse());
+    }
+
+    @Test
+    public void testMetrics_gcTimeOncePerWorker() throws Exception {
+        Map<String, PerformanceStats> performanceStatsMap = new HashMap<String, PerformanceStats>();
+        performanceStatsMap.put("test1", new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500).setIntervalJvmMetrics(15, 1024));
+        performanceStatsMap.put("test2", new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500).setIntervalJvmMetrics(15, 2048));
+        performanceStatsCollector.update(workerAddress(1, 1), performanceStatsMap);
+
+        String metrics = get(false);
+
+        assertEquals(metrics, 1, metrics.split("simulator_worker_gc_time_milliseconds\\{").length - 1);
+    }
+
+    @Test
+    public void testQuantile() {
+        assertEquals("0.5", MetricsFormatter.quantile(50));
+        assertEquals("0.999", MetricsFormatter.quantile(99.9));
+        assertEquals("0.9999", MetricsFormatter.quantile(99.99));
+        assertEquals("1", MetricsFormatter.quantile(100));
+    }
+
+    @Test
+    public void testLabel_isEscaped() {
+        assertEquals("test=\"a\\\"b\\\\c\\nd\"", MetricsFormatter.label("test", "a\"b\\c\nd"));
+    }
+
+    private void update(SimulatorAddress workerAddress, PerformanceStats performanceStats) {
+        Map<String, PerformanceStats> performanceStatsMap = new HashMap<String, PerformanceStats>();
+        performanceStatsMap.put(TEST_ID, performanceStats);
+        performanceStatsCollector.update(workerAddress, performanceStatsMap);
+    }
+
+    private static FailureOperation failure() {
+        SimulatorAddress workerAddress = workerAddress(1, 1);
+        return new FailureOperation("exception", WORKER_EXCEPTION, workerAddress, workerAddress.getParent().toString(),
+                "workerId", TEST_ID, null);
+    }
+
+    private String get(boolean gzip) throws Exception {
+        URL url = new URL("http://localhost:" + metricsEndpoint.getPort() + MetricsEndpoint.PATH);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (gzip) {
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+        }
+        assertEquals(200, connection.getResponseCode());
+        assertEquals(MetricsEndpoint.CONTENT_TYPE, connection.getContentType());
+
+        InputStream in = gzip ? new GZIPInputStream(connection.getInputStream()) : connection.getInputStream();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.hazelcast.simulator.coordinator;
 
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
 import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import org.HdrHistogram.Histogram;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -11,9 +12,12 @@ import java.util.Map;
 import static com.hazelcast.simulator.protocol.core.SimulatorAddress.workerAddress;
 import static com.hazelcast.simulator.worker.performance.PerformanceStats.aggregateAll;
 import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class PerformanceStatsCollectorTest {
@@ -83,6 +87,217 @@ public class PerformanceStatsCollectorTest {
         assertFalse(performance.contains("µs"));
     }
 
+    @Test
+    public void testFormatPerformanceNumbers_withJvmMetrics() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalJvmMetrics(15, 1024 * 1024));
+        update(a2w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalJvmMetrics(40, 2 * 1024 * 1024));
+
+        String performance = performanceStatsCollector.formatIntervalPerformanceNumbers(TEST_CASE_ID_1);
+        assertTrue(performance, performance.contains(" 40 ms (gc)"));
+        assertTrue(performance, performance.contains(" 3.00 MB/s (alloc)"));
+    }
+
+    @Test
+    public void testDetailedPerformanceInfo_withSteadyState() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500).setSteadyState(800, 400));
+        update(a2w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500).setSteadyState(700, 350));
+
+        String info = performanceStatsCollector.detailedPerformanceInfo(TEST_CASE_ID_1, SECONDS.toMillis(10));
+        assertTrue(info, info.contains("Steady state throughput"));
+        assertTrue(info, info.replaceAll(" +", " ").contains(" 1,500 ops"));
+    }
+
+    @Test
+    public void testDetailedPerformanceInfo_whenNotAllWorkersInSteadyState() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500).setSteadyState(800, 400));
+        update(a2w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500));
+
+        String info = performanceStatsCollector.detailedPerformanceInfo(TEST_CASE_ID_1, SECONDS.toMillis(10));
+        assertFalse(info, info.contains("Steady state throughput"));
+    }
+
+    @Test
+    public void testGetIntervalThroughput() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500));
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1500, 300, 500, 1900.0d, 1800, 2500));
+
+        assertEquals(300, performanceStatsCollector.getIntervalThroughput(a1w1, TEST_CASE_ID_1), ASSERT_EQUALS_DELTA);
+        assertEquals(-1, performanceStatsCollector.getIntervalThroughput(a1w1, TEST_CASE_ID_2), ASSERT_EQUALS_DELTA);
+        assertEquals(-1, emptyPerformanceStatsCollector.getIntervalThroughput(a1w1, TEST_CASE_ID_1), ASSERT_EQUALS_DELTA);
+    }
+
+    @Test
+    public void testFormatPerformanceNumbers_withoutJvmMetrics() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500));
+
+        String performance = performanceStatsCollector.formatIntervalPerformanceNumbers(TEST_CASE_ID_1);
+        assertFalse(performance.contains("(gc)"));
+        assertFalse(performance.contains("(alloc)"));
+    }
+
+    @Test
+    public void testFormatPerformanceNumbers_withHistogram() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(MICROSECONDS.toNanos(10), 1000)));
+
+        String performance = performanceStatsCollector.formatIntervalPerformanceNumbers(TEST_CASE_ID_1);
+        assertTrue(performance.contains("(50th)"));
+        assertTrue(performance.contains("(99th)"));
+        assertTrue(performance.contains("(99.9th)"));
+        assertTrue(performance.contains("(99.99th)"));
+        assertTrue(performance.contains("(max)"));
+    }
+
+    @Test
+    public void testFormatPerformanceNumbers_customPercentiles() {
+        performanceStatsCollector = new PerformanceStatsCollector(90, 99.5);
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(MICROSECONDS.toNanos(10), 1000)));
+
+        String performance = performanceStatsCollector.formatIntervalPerformanceNumbers(TEST_CASE_ID_1);
+        assertTrue(performance.contains("(90th)"));
+        assertTrue(performance.contains("(99.5th)"));
+        assertFalse(performance.contains("(50th)"));
+    }
+
+    @Test
+    public void testGetIntervalHistogram_mergedOverWorkers() {
+        // a fast worker and a slow worker: the percentiles of the cluster are not the sum/avg of the worker percentiles
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(900, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(1000, 900)));
+        update(a2w1, TEST_CASE_ID_1, new PerformanceStats(100, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(1000000, 100)));
+
+        Histogram merged = performanceStatsCollector.getIntervalHistogram(TEST_CASE_ID_1);
+
+        assertEquals(1000, merged.getTotalCount());
+        assertTrue(merged.valuesAreEquivalent(1000, merged.getValueAtPercentile(50)));
+        assertTrue(merged.valuesAreEquivalent(1000, merged.getValueAtPercentile(90)));
+        assertTrue(merged.valuesAreEquivalent(1000000, merged.getValueAtPercentile(99)));
+        assertTrue(merged.valuesAreEquivalent(1000000, merged.getMaxValue()));
+    }
+
+    @Test
+    public void testGetIntervalHistogram_usesLatestInterval() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(100, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(1000000, 100)));
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(100, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(1000, 100)));
+
+        Histogram merged = performanceStatsCollector.getIntervalHistogram(TEST_CASE_ID_1);
+
+        assertEquals(100, merged.getTotalCount());
+        assertTrue(merged.valuesAreEquivalent(1000, merged.getMaxValue()));
+    }
+
+    @Test
+    public void testGetIntervalHistogram_noHistogram() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500));
+
+        assertNull(performanceStatsCollector.getIntervalHistogram(TEST_CASE_ID_1));
+    }
+
+    @Test
+    public void testGetAggregatedHistogram() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(100, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(1000000, 100)));
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(100, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(1000, 100)));
+        update(a2w1, TEST_CASE_ID_1, new PerformanceStats(100, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(1000, 200)));
+
+        Histogram merged = performanceStatsCollector.getAggregatedHistogram(TEST_CASE_ID_1);
+
+        assertEquals(400, merged.getTotalCount());
+        assertTrue(merged.valuesAreEquivalent(1000, merged.getValueAtPercentile(75)));
+        assertTrue(merged.valuesAreEquivalent(1000000, merged.getMaxValue()));
+        assertNull(performanceStatsCollector.getAggregatedHistogram(TEST_CASE_ID_2));
+    }
+
+    @Test
+    public void testGetSteadyStateHistogram() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(100, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(1000000, 100)));
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(200, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(1000, 100))
+                .setSteadyState(100, 200));
+
+        Histogram steadyState = performanceStatsCollector.getSteadyStateHistogram(TEST_CASE_ID_1);
+
+        assertEquals(100, steadyState.getTotalCount());
+        assertTrue(steadyState.valuesAreEquivalent(1000, steadyState.getMaxValue()));
+        assertEquals(200, performanceStatsCollector.getAggregatedHistogram(TEST_CASE_ID_1).getTotalCount());
+        assertNull(performanceStatsCollector.getSteadyStateHistogram(TEST_CASE_ID_2));
+    }
+
+    @Test
+    public void testDetailedPerformanceInfo_withSteadyStateLatency() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(100, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(MILLISECONDS.toNanos(10), 100)));
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(200, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(MICROSECONDS.toNanos(10), 100))
+                .setSteadyState(100, 200));
+
+        String info = performanceStatsCollector.detailedPerformanceInfo(TEST_CASE_ID_1, SECONDS.toMillis(10));
+
+        String totalLatency = getLine(info, "Total latency").replaceAll(" +", " ");
+        assertTrue(totalLatency, totalLatency.contains(" µs (max)"));
+        assertFalse(totalLatency, totalLatency.contains(" 10 µs (max)"));
+        String steadyStateLatency = getLine(info, "Steady state latency").replaceAll(" +", " ");
+        assertTrue(steadyStateLatency, steadyStateLatency.contains(" 10 µs (max)"));
+    }
+
+    @Test
+    public void testDetailedPerformanceInfo_whenNotInSteadyState_thenNoSteadyStateLatency() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(100, 200, 500, 1900.0d, 1800, 2500)
+                .setIntervalHistogram(histogram(MICROSECONDS.toNanos(10), 100)));
+
+        String info = performanceStatsCollector.detailedPerformanceInfo(TEST_CASE_ID_1, SECONDS.toMillis(10));
+
+        assertTrue(info, info.contains("Total latency"));
+        assertFalse(info, info.contains("Steady state latency"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_invalidPercentile() {
+        new PerformanceStatsCollector(50, 101);
+    }
+
+    @Test
+    public void testParsePercentiles() {
+        assertArrayEquals(new double[]{50, 99.9}, PerformanceStatsCollector.parsePercentiles("50, 99.9"), 0);
+    }
+
+    @Test
+    public void testParsePercentiles_default() {
+        double[] expected = PerformanceStatsCollector.DEFAULT_PERCENTILES;
+        assertArrayEquals(expected, PerformanceStatsCollector.parsePercentiles(null), 0);
+        assertArrayEquals(expected, PerformanceStatsCollector.parsePercentiles(" "), 0);
+    }
+
+    @Test
+    public void testFormatPercentileLabel() {
+        assertEquals("99th", PerformanceStatsCollector.formatPercentileLabel(99));
+        assertEquals("99.99th", PerformanceStatsCollector.formatPercentileLabel(99.99));
+    }
+
+    private static String getLine(String text, String prefix) {
+        for (String line : text.split("\n")) {
+            if (line.startsWith(prefix)) {
+                return line;
+            }
+        }
+        throw new AssertionError("No line starting with '" + prefix + "' in: " + text);
+    }
+
+    private static Histogram histogram(long value, int count) {
+        Histogram histogram = new Histogram(3);
+        histogram.recordValueWithCount(value, count);
+        return histogram;
+    }
+
     private void update(SimulatorAddress address, String testId, PerformanceStats performanceStats) {
         Map<String, PerformanceStats> performanceStatsMap = new HashMap<String, PerformanceStats>();
         performanceStatsMap.put(testId, performanceStats);
@@ -0,0 +1,153 @@
+package com.hazelcast.simulator.coordinator;
+
+import com.hazelcast.simulator.protocol.ResponseCallback;
+import com.hazelcast.simulator.protocol.ResponseFuture;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.hazelcast.simulator.utils.CommonUtils.sleepMillis;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PhaseCompletionWaiterTest {
+
+    private static final long LONG_TIMEOUT_MILLIS = 30000;
+
+    @Test
+    public void testAwait_noFutures() {
+        PhaseCompletionWaiter waiter = new PhaseCompletionWaiter(Collections.<ResponseFuture>emptyList());
+
+        assertTrue(waiter.await(0));
+    }
+
+    @Test
+    public void testAwait_timeout() {
+        StubFuture future = new StubFuture();
+        PhaseCompletionWaiter waiter = new PhaseCompletionWaiter(Collections.<ResponseFuture>singletonList(future));
+
+        assertFalse(waiter.await(10));
+        assertEquals(0, waiter.getResponses());
+    }
+
+    @Test
+    public void testAwait_alreadyCompleted() {
+        StubFuture future1 = new StubFuture();
+        StubFuture future2 = new StubFuture();
+        future1.complete("response");
+        future2.complete(new Exception());
+
+        PhaseCompletionWaiter waiter = new PhaseCompletionWaiter(asList((ResponseFuture) future1, future2));
+
+        assertTrue(waiter.await(0));
+        assertEquals(2, waiter.getResponses());
+    }
+
+    @Test
+    public void testAwait_wakesUpOnLastResponse() {
+        final StubFuture future1 = new StubFuture();
+        final StubFuture future2 = new StubFuture();
+        PhaseCompletionWaiter waiter = new PhaseCompletionWaiter(asList((ResponseFuture) future1, future2));
+
+        new Thread() {
+            @Override
+            public void run() {
+                future1.complete("response");
+                sleepMillis(50);
+                future2.complete("response");
+            }
+        }.start();
+
+        long started = System.nanoTime();
+        assertTrue(waiter.await(LONG_TIMEOUT_MILLIS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertTrue("elapsed " + elapsedMillis + " ms", elapsedMillis < LONG_TIMEOUT_MILLIS / 2);
+        assertEquals(2, waiter.getResponses());
+        assertTrue(waiter.getLastResponseNanos() >= started);
+    }
+
+    @Test
+    public void testAwait_wakesUpOnFailure() {
+        StubFuture future = new StubFuture();
+        final PhaseCompletionWaiter waiter = new PhaseCompletionWaiter(Collections.<ResponseFuture>singletonList(future));
+
+        new Thread() {
+            @Override
+            public void run() {
+                sleepMillis(50);
+                waiter.onFailure(null, true, true);
+            }
+        }.start();
+
+        long started = System.nanoTime();
+        assertFalse(waiter.await(LONG_TIMEOUT_MILLIS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertTrue("elapsed " + elapsedMillis + " ms", elapsedMillis < LONG_TIMEOUT_MILLIS / 2);
+        // the failure only wakes up the waiting thread once
+        assertFalse(waiter.await(10));
+    }
+
+    private static class StubFuture implements ResponseFuture {
+
+        private final List<ResponseCallback> callbacks = new ArrayList<ResponseCallback>();
+        private Object result;
+
+        synchronized void complete(Object result) {
+            this.result = result;
+            for (ResponseCallback callback : callbacks) {
+                notify(callback);
+            }
+        }
+
+        @Override
+        public synchronized void andThen(ResponseCallback callback) {
+            if (result == null) {
+                callbacks.add(callback);
+            } else {
+                notify(callback);
+            }
+        }
+
+        private void notify(ResponseCallback callback) {
+            if (result instanceof Throwable) {
+                callback.onFailure((Throwable) result);
+            } else {
+                callback.onResponse((String) result);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public synchronized boolean isDone() {
+            return result != null;
+        }
+
+        @Override
+        public String get() throws InterruptedException, ExecutionException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
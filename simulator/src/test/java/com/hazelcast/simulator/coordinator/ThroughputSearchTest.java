@@ -0,0 +1,187 @@
+package com.hazelcast.simulator.coordinator;
+
+import org.HdrHistogram.Histogram;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static com.hazelcast.simulator.coordinator.ThroughputSearch.Strategy.BINARY;
+import static com.hazelcast.simulator.coordinator.ThroughputSearch.Strategy.STEP;
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ThroughputSearchTest {
+
+    private static final long SLA_NANOS = MILLISECONDS.toNanos(1);
+
+    private final File file = new File("throughput-search-test.csv");
+
+    @After
+    public void after() {
+        deleteQuiet(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_invalidRateRange() {
+        new ThroughputSearch(STEP, 1000, 100, 100, 0.05, 99, SLA_NANOS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_invalidPercentile() {
+        new ThroughputSearch(STEP, 100, 1000, 100, 0.05, 101, SLA_NANOS);
+    }
+
+    @Test
+    public void testStepSearch() {
+        ThroughputSearch search = new ThroughputSearch(STEP, 100, 10000, 100, 0.05, 99, SLA_NANOS);
+        KneeRunner runner = new KneeRunner(450);
+
+        assertEquals(400, search.search(runner));
+        assertEquals(asList(100, 200, 300, 400, 500), runner.rates);
+    }
+
+    @Test
+    public void testStepSearch_allRatesPass() {
+        ThroughputSearch search = new ThroughputSearch(STEP, 100, 300, 100, 0.05, 99, SLA_NANOS);
+
+        assertEquals(300, search.search(new KneeRunner(10000)));
+        assertEquals(3, search.getSteps().size());
+    }
+
+    @Test
+    public void testBinarySearch() {
+        ThroughputSearch search = new ThroughputSearch(BINARY, 1000, 1000000, 1000, 0.01, 99, SLA_NANOS);
+        KneeRunner runner = new KneeRunner(12345);
+
+        long rate = search.search(runner);
+
+        assertTrue("rate " + rate + " is too high", rate <= 12345);
+        assertTrue("rate " + rate + " is not precise enough", rate >= 12345 * 0.99);
+        // 1000, 2000, 4000, 8000 and 16000, followed by the bisection
+        assertEquals(asList(1000, 2000, 4000, 8000, 16000), runner.rates.subList(0, 5));
+    }
+
+    @Test
+    public void testBinarySearch_firstRateFails() {
+        ThroughputSearch search = new ThroughputSearch(BINARY, 1000, 1000000, 1000, 0.05, 99, SLA_NANOS);
+
+        long rate = search.search(new KneeRunner(10));
+
+        assertTrue(rate < 1000 * 0.05);
+    }
+
+    @Test
+    public void testBinarySearch_cappedByMaxRate() {
+        ThroughputSearch search = new ThroughputSearch(BINARY, 1000, 3000, 1000, 0.05, 99, SLA_NANOS);
+        KneeRunner runner = new KneeRunner(1000000);
+
+        assertEquals(3000, search.search(runner));
+        assertEquals(asList(1000, 2000, 3000), runner.rates);
+    }
+
+    @Test
+    public void testStep_failsWhenThroughputIsTooLow() {
+        ThroughputSearch search = new ThroughputSearch(STEP, 100, 100, 100, 0.05, 99, SLA_NANOS);
+
+        long rate = search.search(new ThroughputSearch.StepRunner() {
+            @Override
+            public ThroughputSearch.Step run(long ratePerSecond) {
+                return new ThroughputSearch.Step(ratePerSecond, ratePerSecond / 2, histogram(1000));
+            }
+        });
+
+        assertEquals(0, rate);
+        assertFalse(search.getSteps().get(0).isPassed());
+    }
+
+    @Test
+    public void testStep_failsWithoutHistogram() {
+        ThroughputSearch search = new ThroughputSearch(STEP, 100, 100, 100, 0.05, 99, SLA_NANOS);
+
+        long rate = search.search(new ThroughputSearch.StepRunner() {
+            @Override
+            public ThroughputSearch.Step run(long ratePerSecond) {
+                return new ThroughputSearch.Step(ratePerSecond, ratePerSecond, null);
+            }
+        });
+
+        assertEquals(0, rate);
+    }
+
+    @Test
+    public void testWriteTable() {
+        ThroughputSearch search = new ThroughputSearch(BINARY, 100, 1000, 100, 0.3, 99, SLA_NANOS);
+        search.search(new KneeRunner(250));
+
+        search.writeTable(file);
+
+        String[] lines = fileAsText(file).split("\n");
+        assertEquals("rate(ops/s),throughput(ops/s),avg(us),50th(us),99th(us),max(us),passed", lines[0].trim());
+        assertEquals(search.getSteps().size() + 1, lines.length);
+        // the rows are sorted by rate
+        assertTrue(lines[1].startsWith("100,100.0,"));
+        assertTrue(lines[1].trim().endsWith(",true"));
+        assertTrue(lines[lines.length - 1].startsWith("400,400.0,"));
+        assertTrue(lines[lines.length - 1].trim().endsWith(",false"));
+    }
+
+    @Test
+    public void testWriteTable_withCommaDecimalLocale() {
+        ThroughputSearch search = new ThroughputSearch(BINARY, 100, 1000, 100, 0.3, 99, SLA_NANOS);
+        search.search(new KneeRunner(250));
+
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            search.writeTable(file);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+
+        String[] lines = fileAsText(file).split("\n");
+        assertTrue(lines[1].startsWith("100,100.0,"));
+        assertEquals(7, lines[1].split(",").length);
+    }
+
+    private static List<Long> asList(long... values) {
+        List<Long> result = new ArrayList<Long>();
+        for (long value : values) {
+            result.add(value);
+        }
+        return result;
+    }
+
+    private static Histogram histogram(long latencyNanos) {
+        Histogram histogram = new Histogram(3);
+        histogram.recordValueWithCount(latencyNanos, 100);
+        return histogram;
+    }
+
+    /**
+     * Simulates a system where the latency exceeds the SLA above the knee rate.
+     */
+    private static final class KneeRunner implements ThroughputSearch.StepRunner {
+
+        private final List<Long> rates = new ArrayList<Long>();
+        private final long kneeRate;
+
+        private KneeRunner(long kneeRate) {
+            this.kneeRate = kneeRate;
+        }
+
+        @Override
+        public ThroughputSearch.Step run(long ratePerSecond) {
+            rates.add(ratePerSecond);
+            long latencyNanos = ratePerSecond <= kneeRate ? SLA_NANOS / 2 : SLA_NANOS * 10;
+            return new ThroughputSearch.Step(ratePerSecond, ratePerSecond, histogram(latencyNanos));
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.hazelcast.simulator.coordinator.registry.AgentData;
 import com.hazelcast.simulator.coordinator.registry.Registry;
 import com.hazelcast.simulator.coordinator.registry.WorkerData;
 import com.hazelcast.simulator.protocol.CoordinatorClient;
+import com.hazelcast.simulator.protocol.ResponseFuture;
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
 import com.hazelcast.simulator.utils.CommandLineExitException;
 import com.hazelcast.simulator.vendors.StubVendorDriver;
@@ -18,7 +19,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 
 import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
 import static org.junit.Assert.assertEquals;
@@ -53,7 +53,7 @@ public class StartWorkersTaskTest {
     public void testCreateWorkers_withClients() throws Exception {
         Map<SimulatorAddress, List<WorkerParameters>> deploymentPlan = getDeployment(0, 6, 3);
 
-        Future f = mock(Future.class);
+        ResponseFuture f = mock(ResponseFuture.class);
         when(f.get()).thenReturn("SUCCESS");
         when(client.submit(eq(agent1.getAddress()), any(CreateWorkerOperation.class))).thenReturn(f);
         when(client.submit(eq(agent2.getAddress()), any(CreateWorkerOperation.class))).thenReturn(f);
@@ -68,7 +68,7 @@ public class StartWorkersTaskTest {
     public void testCreateWorkers_noClients() throws Exception {
         Map<SimulatorAddress, List<WorkerParameters>> deploymentPlan = getDeployment(0, 6, 0);
 
-        Future f = mock(Future.class);
+        ResponseFuture f = mock(ResponseFuture.class);
         when(f.get()).thenReturn("SUCCESS");
         when(client.submit(eq(agent1.getAddress()), any(CreateWorkerOperation.class))).thenReturn(f);
         when(client.submit(eq(agent2.getAddress()), any(CreateWorkerOperation.class))).thenReturn(f);
@@ -83,7 +83,7 @@ public class StartWorkersTaskTest {
     public void testCreateWorkers_withErrorResponse() throws Exception {
         Map<SimulatorAddress, List<WorkerParameters>> deploymentPlan = getDeployment(0, 1, 0);
 
-        Future f = mock(Future.class);
+        ResponseFuture f = mock(ResponseFuture.class);
         when(f.get()).thenThrow(new ExecutionException(null));
         when(client.submit(eq(agent1.getAddress()), any(CreateWorkerOperation.class))).thenReturn(f);
 
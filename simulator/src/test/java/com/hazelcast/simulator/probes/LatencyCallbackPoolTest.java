@@ -0,0 +1,96 @@
+package com.hazelcast.simulator.probes;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.simulator.probes.impl.HdrProbe;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyCallbackPoolTest {
+
+    private LatencyCallbackPool pool;
+    private HdrProbe probe;
+
+    @Before
+    public void before() {
+        pool = new LatencyCallbackPool();
+        probe = new HdrProbe(true);
+    }
+
+    @Test
+    public void testAcquire_whenCompleted_thenRecycled() {
+        ExecutionCallback<String> callback1 = pool.acquire(probe, System.nanoTime());
+        callback1.onResponse("foo");
+
+        ExecutionCallback<String> callback2 = pool.acquire(probe, System.nanoTime());
+
+        assertSame(callback1, callback2);
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testAcquire_whenNotCompleted_thenNewCallback() {
+        ExecutionCallback<String> callback1 = pool.acquire(probe, System.nanoTime());
+        ExecutionCallback<String> callback2 = pool.acquire(probe, System.nanoTime());
+
+        assertNotSame(callback1, callback2);
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void testOnResponse_recordsLatency() {
+        long startNanos = System.nanoTime() - MILLISECONDS.toNanos(10);
+        pool.<String>acquire(probe, startNanos).onResponse("foo");
+
+        long latency = probe.getIntervalHistogram().getMaxValue();
+        assertTrue("latency: " + latency, latency >= MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    public void testOnFailure_recordsLatency() {
+        pool.acquire(probe, System.nanoTime()).onFailure(new Exception());
+
+        assertEquals(1, probe.getIntervalHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testCompletedByOtherThreads() throws Exception {
+        int threadCount = 4;
+        int callsPerThread = 10000;
+        List<ExecutionCallback<String>> callbacks = new ArrayList<ExecutionCallback<String>>();
+        for (int i = 0; i < threadCount * callsPerThread; i++) {
+            callbacks.add(pool.<String>acquire(probe, System.nanoTime()));
+            if (i % callsPerThread == callsPerThread - 1) {
+                completeInThread(callbacks).await();
+                callbacks = new ArrayList<ExecutionCallback<String>>();
+            }
+        }
+
+        assertEquals(threadCount * callsPerThread, probe.getIntervalHistogram().getTotalCount());
+        // all callbacks are completed before the next batch is acquired, so the callbacks of the first batch are recycled
+        assertEquals(callsPerThread, pool.size());
+    }
+
+    private static CountDownLatch completeInThread(final List<ExecutionCallback<String>> callbacks) {
+        final CountDownLatch completed = new CountDownLatch(1);
+        new Thread() {
+            @Override
+            public void run() {
+                for (ExecutionCallback<String> callback : callbacks) {
+                    callback.onResponse("foo");
+                }
+                completed.countDown();
+            }
+        }.start();
+        return completed;
+    }
+}
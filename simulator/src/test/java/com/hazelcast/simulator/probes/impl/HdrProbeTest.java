@@ -30,6 +30,20 @@ public class HdrProbeTest {
         assertFalse(tmpProbe.isPartOfTotalThroughput());
     }
 
+    @Test
+    public void testGetIntervalHistogram_recycled() {
+        probe.recordValue(1000);
+        Histogram histogram = probe.getIntervalHistogram(null);
+        assertEquals(1, histogram.getTotalCount());
+
+        probe.recordValue(2000);
+        probe.recordValue(3000);
+        Histogram recycled = probe.getIntervalHistogram(histogram);
+        assertEquals(2, recycled.getTotalCount());
+
+        assertEquals(0, probe.getIntervalHistogram(recycled).getTotalCount());
+    }
+
     @Test
     public void testDone_withExternalStarted() throws InterruptedException {
         long expectedLatency = TimeUnit.SECONDS.toNanos(2);
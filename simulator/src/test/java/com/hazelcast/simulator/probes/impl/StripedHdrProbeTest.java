@@ -0,0 +1,150 @@
+package com.hazelcast.simulator.probes.impl;
+
+import com.hazelcast.simulator.probes.Probe;
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import static com.hazelcast.simulator.probes.impl.HdrProbe.HIGHEST_TRACKABLE_VALUE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StripedHdrProbeTest {
+
+    private StripedHdrProbe probe = new StripedHdrProbe(false);
+
+    @Test
+    public void testConstructor_throughputProbe() {
+        Probe tmpProbe = new StripedHdrProbe(true);
+        assertTrue(tmpProbe.isPartOfTotalThroughput());
+    }
+
+    @Test
+    public void testConstructor_noThroughputProbe() {
+        Probe tmpProbe = new StripedHdrProbe(false);
+        assertFalse(tmpProbe.isPartOfTotalThroughput());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDone_withExternalStarted_withZero() {
+        probe.done(0);
+    }
+
+    @Test
+    public void testDone() {
+        probe.done(System.nanoTime() - MILLISECONDS.toNanos(1));
+
+        assertEquals(1, probe.getIntervalHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testGetIntervalHistogram_noValues() {
+        Histogram histogram = probe.getIntervalHistogram();
+
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, probe.stripeCount());
+    }
+
+    @Test
+    public void testRecord_whenTooLarge() {
+        probe.recordValue(HIGHEST_TRACKABLE_VALUE * 2);
+
+        Histogram histogram = probe.getIntervalHistogram();
+        assertTrue(histogram.valuesAreEquivalent(HIGHEST_TRACKABLE_VALUE, histogram.getMaxValue()));
+    }
+
+    @Test
+    public void testGetIntervalHistogram_mergesThreads() throws Exception {
+        final int threadCount = 4;
+        final int valuesPerThread = 1000;
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final long value = MILLISECONDS.toNanos(i + 1);
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int k = 0; k < valuesPerThread; k++) {
+                        probe.recordValue(value);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(threadCount, probe.stripeCount());
+
+        Histogram histogram = probe.getIntervalHistogram();
+
+        // the stripes of the dead threads are dropped once they have been drained
+        assertEquals(0, probe.stripeCount());
+        assertEquals(threadCount * valuesPerThread, histogram.getTotalCount());
+        assertTrue(histogram.valuesAreEquivalent(MILLISECONDS.toNanos(1), histogram.getMinValue()));
+        assertTrue(histogram.valuesAreEquivalent(MILLISECONDS.toNanos(threadCount), histogram.getMaxValue()));
+    }
+
+    @Test
+    public void testGetIntervalHistogram_keepsStripesOfLiveThreads() {
+        probe.recordValue(1000);
+
+        assertEquals(1, probe.getIntervalHistogram().getTotalCount());
+        assertEquals(1, probe.stripeCount());
+
+        probe.recordValue(1000);
+        assertEquals(1, probe.getIntervalHistogram().getTotalCount());
+        assertEquals(1, probe.stripeCount());
+    }
+
+    @Test
+    public void testReset_dropsStripesOfDeadThreads() throws Exception {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                probe.recordValue(1000);
+            }
+        };
+        thread.start();
+        thread.join();
+        probe.recordValue(1000);
+
+        probe.reset();
+
+        assertEquals(1, probe.stripeCount());
+        assertEquals(0, probe.getIntervalHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testGetIntervalHistogram_startsNewInterval() {
+        probe.recordValue(1000);
+        probe.recordValue(2000);
+        assertEquals(2, probe.getIntervalHistogram().getTotalCount());
+
+        probe.recordValue(3000);
+        assertEquals(1, probe.getIntervalHistogram().getTotalCount());
+        assertEquals(0, probe.getIntervalHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testGetIntervalHistogram_recycled() {
+        probe.recordValue(1000);
+        Histogram histogram = probe.getIntervalHistogram(null);
+        assertEquals(1, histogram.getTotalCount());
+
+        probe.recordValue(2000);
+        probe.recordValue(3000);
+        Histogram recycled = probe.getIntervalHistogram(histogram);
+        assertEquals(2, recycled.getTotalCount());
+
+        assertEquals(0, probe.getIntervalHistogram(recycled).getTotalCount());
+    }
+
+    @Test
+    public void testReset() {
+        probe.recordValue(1000);
+        probe.reset();
+
+        assertEquals(0, probe.getIntervalHistogram().getTotalCount());
+    }
+}
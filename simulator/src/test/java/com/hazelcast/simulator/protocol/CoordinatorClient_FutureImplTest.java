@@ -0,0 +1,130 @@
+package com.hazelcast.simulator.protocol;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CoordinatorClient_FutureImplTest {
+
+    private CoordinatorClient.FutureImpl future;
+    private RecordingCallback callback;
+
+    @Before
+    public void before() {
+        future = new CoordinatorClient.FutureImpl(null);
+        callback = new RecordingCallback();
+    }
+
+    @Test
+    public void testAndThen_beforeCompletion() {
+        future.andThen(callback);
+        assertNull(callback.response.get());
+
+        future.complete("response");
+
+        assertEquals("response", callback.response.get());
+        assertNull(callback.failure.get());
+    }
+
+    @Test
+    public void testAndThen_afterCompletion() {
+        future.complete("response");
+
+        future.andThen(callback);
+
+        assertEquals("response", callback.response.get());
+    }
+
+    @Test
+    public void testAndThen_failure() {
+        Exception cause = new Exception();
+        future.andThen(callback);
+
+        future.complete(cause);
+
+        assertSame(cause, callback.failure.get());
+        assertNull(callback.response.get());
+    }
+
+    @Test
+    public void testAndThen_callbackOnlyNotifiedOnce() {
+        future.andThen(callback);
+
+        future.complete("response1");
+        future.complete("response2");
+
+        assertEquals(1, callback.count);
+        assertEquals("response1", callback.response.get());
+    }
+
+    @Test
+    public void testAndThen_failingCallbackDoesNotPreventOtherCallbacks() throws Exception {
+        future.andThen(new RecordingCallback() {
+            @Override
+            public void onResponse(String response) {
+                throw new IllegalStateException("expected");
+            }
+        });
+        future.andThen(callback);
+
+        future.complete("response");
+
+        assertEquals("response", callback.response.get());
+        assertEquals("response", future.get());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testAndThen_nullCallback() {
+        future.andThen(null);
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testGet_timeout() throws Exception {
+        future.get(10, MILLISECONDS);
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testGet_failure() throws Exception {
+        future.complete(new Exception());
+
+        future.get(10, MILLISECONDS);
+    }
+
+    @Test
+    public void testIsDone() {
+        assertFalse(future.isDone());
+
+        future.complete("response");
+
+        assertTrue(future.isDone());
+    }
+
+    private static class RecordingCallback implements ResponseCallback {
+
+        private final AtomicReference<String> response = new AtomicReference<String>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        private int count;
+
+        @Override
+        public void onResponse(String response) {
+            count++;
+            this.response.set(response);
+        }
+
+        @Override
+        public void onFailure(Throwable cause) {
+            count++;
+            failure.set(cause);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.hazelcast.simulator.protocol;
+
+import com.hazelcast.simulator.protocol.operation.LogOperation;
+import com.hazelcast.simulator.protocol.operation.OperationEncoding;
+import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
+import org.apache.log4j.Level;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static com.hazelcast.simulator.protocol.Frame.LENGTH_PREFIX_BYTES;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FrameTest {
+
+    @Test
+    public void testHello() throws Exception {
+        Frame frame = decode(Frame.hello("A1_W1"));
+
+        assertEquals(Frame.HELLO, frame.type);
+        assertEquals("A1_W1", frame.source);
+        assertEquals("", frame.target);
+    }
+
+    @Test
+    public void testOperations_json() throws Exception {
+        testOperations(OperationEncoding.JSON);
+    }
+
+    @Test
+    public void testOperations_binary() throws Exception {
+        testOperations(OperationEncoding.BINARY);
+    }
+
+    private void testOperations(OperationEncoding encoding) throws Exception {
+        List<SimulatorOperation> operations = asList(
+                (SimulatorOperation) new LogOperation("foo", Level.INFO),
+                new LogOperation("bar", Level.WARN));
+
+        Frame frame = decode(Frame.operations("C", "A1_W1", "", operations, encoding));
+
+        assertEquals(Frame.OPERATIONS, frame.type);
+        assertEquals("C", frame.target);
+        assertEquals("A1_W1", frame.source);
+        assertFalse(frame.isRequest());
+
+        List<SimulatorOperation> result = frame.readOperations();
+        assertEquals(2, result.size());
+        assertEquals("foo", ((LogOperation) result.get(0)).getMessage());
+        assertEquals(Level.WARN, ((LogOperation) result.get(1)).getLevel());
+    }
+
+    @Test
+    public void testRequest() throws Exception {
+        List<SimulatorOperation> operations = asList((SimulatorOperation) new LogOperation("foo"));
+
+        Frame frame = decode(Frame.operations("A1", "C", "1234", operations, OperationEncoding.JSON));
+
+        assertTrue(frame.isRequest());
+        assertEquals("1234", frame.correlationId);
+    }
+
+    @Test
+    public void testReply() throws Exception {
+        Frame frame = decode(Frame.reply("C", "A1", "1234", "ok"));
+
+        assertEquals(Frame.REPLY, frame.type);
+        assertEquals("1234", frame.correlationId);
+        assertEquals("ok", frame.readAnswer());
+    }
+
+    @Test
+    public void testReply_error() throws Exception {
+        Frame frame = decode(Frame.reply("C", "A1", "1234", new IllegalStateException("failed")));
+
+        Object answer = frame.readAnswer();
+        assertTrue(answer instanceof Exception);
+        assertEquals("failed", ((Exception) answer).getMessage());
+    }
+
+    @Test
+    public void testReply_null() throws Exception {
+        Frame frame = decode(Frame.reply("C", "A1", "1234", new IllegalStateException()));
+
+        assertNull(((Exception) frame.readAnswer()).getMessage());
+    }
+
+    @Test
+    public void testReadTarget() throws Exception {
+        ByteBuffer buffer = Frame.reply("A1_W2", "C", "1234", "ok");
+
+        assertEquals(buffer.capacity() - LENGTH_PREFIX_BYTES, buffer.getInt(0));
+        assertEquals("A1_W2", Frame.readTarget(buffer.array(), LENGTH_PREFIX_BYTES));
+    }
+
+    private static Frame decode(ByteBuffer buffer) throws Exception {
+        return Frame.decode(buffer.array(), LENGTH_PREFIX_BYTES);
+    }
+}
@@ -2,6 +2,7 @@ package com.hazelcast.simulator.protocol;
 
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
 import com.hazelcast.simulator.protocol.operation.LogOperation;
+import com.hazelcast.simulator.protocol.operation.OperationEncoding;
 import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
 import com.hazelcast.simulator.utils.AssertTask;
 import org.apache.log4j.Level;
@@ -24,6 +25,7 @@ import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class MessagingTest {
@@ -138,4 +140,69 @@ public class MessagingTest {
             }
         });
     }
+
+    @Test
+    public void sendCoordinator_batched() throws Exception {
+        final int operationCount = 50;
+        agentServer = new Server("agents")
+                .setBrokerURL(broker.getBrokerURL())
+                .setSelfAddress(agentAddress)
+                .setFlushWindowMillis(200)
+                .setProcessor(mock(OperationProcessor.class))
+                .start();
+
+        final OperationProcessor clientOperationProcessor = mock(OperationProcessor.class);
+        client = new CoordinatorClient()
+                .setProcessor(clientOperationProcessor);
+        client.getConnectionFactory().setMaxReconnectAttempts(1);
+        client.start().connectToAgentBroker(agentAddress, localIp());
+
+        for (int i = 0; i < operationCount; i++) {
+            agentServer.sendCoordinator(new LogOperation("Foo" + i));
+        }
+
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                verify(clientOperationProcessor, times(operationCount))
+                        .process(any(LogOperation.class), eq(agentAddress), any(Promise.class));
+
+                SendStats sendStats = agentServer.getSendStats();
+                assertEquals(operationCount, sendStats.getOperationsSent());
+                assertTrue(sendStats.getMessagesSent() < operationCount);
+                assertTrue(sendStats.getMaxBatchSize() > 1);
+            }
+        });
+    }
+
+    @Test
+    public void binaryEncoding() throws Exception {
+        final OperationProcessor agentOperationProcessor = mock(OperationProcessor.class);
+        agentServer = new Server("agents")
+                .setBrokerURL(broker.getBrokerURL())
+                .setSelfAddress(agentAddress)
+                .setOperationEncoding(OperationEncoding.BINARY)
+                .setProcessor(agentOperationProcessor)
+                .start();
+
+        final OperationProcessor clientOperationProcessor = mock(OperationProcessor.class);
+        client = new CoordinatorClient()
+                .setOperationEncoding(OperationEncoding.BINARY)
+                .setProcessor(clientOperationProcessor);
+        client.getConnectionFactory().setMaxReconnectAttempts(1);
+        client.start().connectToAgentBroker(agentAddress, localIp());
+
+        client.send(agentAddress, new LogOperation("toAgent", Level.INFO));
+        agentServer.sendCoordinator(new LogOperation("toCoordinator1"));
+        agentServer.sendCoordinator(new LogOperation("toCoordinator2"));
+
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                verify(agentOperationProcessor).process(any(LogOperation.class), any(SimulatorAddress.class), any(Promise.class));
+                verify(clientOperationProcessor, times(2))
+                        .process(any(LogOperation.class), eq(agentAddress), any(Promise.class));
+            }
+        });
+    }
 }
@@ -0,0 +1,203 @@
+package com.hazelcast.simulator.protocol;
+
+import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.protocol.operation.LogOperation;
+import com.hazelcast.simulator.protocol.operation.OperationEncoding;
+import com.hazelcast.simulator.protocol.operation.SimulatorOperation;
+import com.hazelcast.simulator.utils.AssertTask;
+import org.apache.log4j.Level;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static com.hazelcast.simulator.utils.SimulatorUtils.localIp;
+import static com.hazelcast.simulator.utils.TestUtils.assertCompletesEventually;
+import static com.hazelcast.simulator.utils.TestUtils.assertTrueEventually;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class NioMessagingTest {
+
+    private FrameRouter router;
+    private Server agentServer;
+    private Server workerServer;
+    private CoordinatorClient client;
+    private SimulatorAddress agentAddress = SimulatorAddress.fromString("A1");
+    private SimulatorAddress workerAddress = SimulatorAddress.fromString("A1_W1");
+
+    @Before
+    public void before() {
+        router = new FrameRouter(localIp(), 0).start();
+    }
+
+    @After
+    public void after() {
+        closeQuietly(client);
+        closeQuietly(workerServer);
+        closeQuietly(agentServer);
+        closeQuietly(router);
+    }
+
+    @Test
+    public void test() throws Exception {
+        agentServer = newServer(agentAddress, new OperationProcessor() {
+            @Override
+            public void process(SimulatorOperation op, SimulatorAddress source, Promise promise) throws Exception {
+                promise.answer("agent");
+            }
+        });
+        workerServer = newServer(workerAddress, new OperationProcessor() {
+            @Override
+            public void process(SimulatorOperation op, SimulatorAddress source, Promise promise) throws Exception {
+                promise.answer("worker");
+            }
+        });
+        client = newClient(mock(OperationProcessor.class));
+
+        Future agentFuture = client.submit(agentAddress, new LogOperation("", Level.DEBUG));
+        Future workerFuture = client.submit(workerAddress, new LogOperation("", Level.DEBUG));
+
+        assertEquals("agent", agentFuture.get(10, SECONDS));
+        assertEquals("worker", workerFuture.get(10, SECONDS));
+    }
+
+    @Test
+    public void testError() throws Exception {
+        agentServer = newServer(agentAddress, new OperationProcessor() {
+            @Override
+            public void process(SimulatorOperation op, SimulatorAddress source, Promise promise) throws Exception {
+                throw new IllegalStateException("expected");
+            }
+        });
+        client = newClient(mock(OperationProcessor.class));
+
+        Future f = client.submit(agentAddress, new LogOperation("", Level.DEBUG));
+        try {
+            f.get(10, SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("expected", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testUnknownTarget() throws Exception {
+        client = newClient(mock(OperationProcessor.class));
+
+        Future f = client.submit(workerAddress, new LogOperation("", Level.DEBUG));
+        try {
+            f.get(10, SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("No connection for [A1_W1]"));
+        }
+    }
+
+    @Test
+    public void testWhenRouterFails() throws Exception {
+        final CountDownLatch received = new CountDownLatch(1);
+        agentServer = newServer(agentAddress, new OperationProcessor() {
+            @Override
+            public void process(SimulatorOperation op, SimulatorAddress source, Promise promise) throws Exception {
+                // we don't do anything to let the future wait
+                received.countDown();
+            }
+        });
+        client = newClient(mock(OperationProcessor.class));
+
+        Future f = client.submit(agentAddress, new LogOperation("", Level.DEBUG));
+
+        received.await();
+        router.close();
+
+        assertCompletesEventually(f);
+        try {
+            f.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testWhenConnectionIsReset_thenRouterKeepsRouting() throws Exception {
+        Socket socket = new Socket(localIp(), router.getPort());
+        // closes the connection with a reset instead of a regular close
+        socket.setSoLinger(true, 0);
+        socket.close();
+
+        agentServer = newServer(agentAddress, new OperationProcessor() {
+            @Override
+            public void process(SimulatorOperation op, SimulatorAddress source, Promise promise) throws Exception {
+                promise.answer("agent");
+            }
+        });
+        client = newClient(mock(OperationProcessor.class));
+
+        assertEquals("agent", client.submit(agentAddress, new LogOperation("", Level.DEBUG)).get(10, SECONDS));
+    }
+
+    @Test
+    public void sendCoordinator_batched() throws Exception {
+        final int operationCount = 50;
+        agentServer = new Server("agents")
+                .setTransportType(TransportType.NIO)
+                .setBrokerURL(localIp(), router.getPort())
+                .setSelfAddress(agentAddress)
+                .setFlushWindowMillis(200)
+                .setOperationEncoding(OperationEncoding.BINARY)
+                .setProcessor(mock(OperationProcessor.class))
+                .start();
+
+        final OperationProcessor clientOperationProcessor = mock(OperationProcessor.class);
+        client = newClient(clientOperationProcessor);
+
+        for (int i = 0; i < operationCount; i++) {
+            agentServer.sendCoordinator(new LogOperation("Foo" + i));
+        }
+
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                verify(clientOperationProcessor, times(operationCount))
+                        .process(any(LogOperation.class), eq(agentAddress), any(Promise.class));
+
+                SendStats sendStats = agentServer.getSendStats();
+                assertEquals(operationCount, sendStats.getOperationsSent());
+                assertTrue(sendStats.getMessagesSent() < operationCount);
+            }
+        });
+    }
+
+    private Server newServer(SimulatorAddress address, OperationProcessor processor) {
+        return new Server(address.equals(agentAddress) ? "agents" : "workers")
+                .setTransportType(TransportType.NIO)
+                .setBrokerURL(localIp(), router.getPort())
+                .setSelfAddress(address)
+                .setProcessor(processor)
+                .start();
+    }
+
+    private CoordinatorClient newClient(OperationProcessor processor) throws Exception {
+        return new CoordinatorClient()
+                .setTransportType(TransportType.NIO)
+                .setAgentBrokerPort(router.getPort())
+                .setProcessor(processor)
+                .start()
+                .connectToAgentBroker(agentAddress, localIp());
+    }
+}
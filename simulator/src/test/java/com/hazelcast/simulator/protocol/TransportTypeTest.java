@@ -0,0 +1,35 @@
+package com.hazelcast.simulator.protocol;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TransportTypeTest {
+
+    @Test
+    public void testFromString() {
+        assertEquals(TransportType.JMS, TransportType.fromString("jms"));
+        assertEquals(TransportType.NIO, TransportType.fromString(" NIO "));
+        assertEquals(TransportType.EMBEDDED, TransportType.fromString("embedded"));
+    }
+
+    @Test
+    public void testUsesFrames() {
+        assertFalse(TransportType.JMS.usesFrames());
+        assertTrue(TransportType.NIO.usesFrames());
+        assertTrue(TransportType.EMBEDDED.usesFrames());
+    }
+
+    @Test
+    public void testFromString_default() {
+        assertEquals(TransportType.JMS, TransportType.fromString(null));
+        assertEquals(TransportType.JMS, TransportType.fromString(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromString_unknown() {
+        TransportType.fromString("udp");
+    }
+}
@@ -0,0 +1,237 @@
+package com.hazelcast.simulator.protocol.operation;
+
+import com.google.gson.Gson;
+import com.hazelcast.simulator.agent.operations.CreateWorkerOperation;
+import com.hazelcast.simulator.agent.operations.StartTimeoutDetectionOperation;
+import com.hazelcast.simulator.agent.operations.StopTimeoutDetectionOperation;
+import com.hazelcast.simulator.agent.workerprocess.WorkerParameters;
+import com.hazelcast.simulator.common.FailureType;
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.common.TestPhase;
+import com.hazelcast.simulator.coordinator.TargetType;
+import com.hazelcast.simulator.coordinator.TestSuite;
+import com.hazelcast.simulator.coordinator.operations.FailureOperation;
+import com.hazelcast.simulator.coordinator.operations.RcDownloadOperation;
+import com.hazelcast.simulator.coordinator.operations.RcInstallOperation;
+import com.hazelcast.simulator.coordinator.operations.RcPerformanceHistoryOperation;
+import com.hazelcast.simulator.coordinator.operations.RcPrintLayoutOperation;
+import com.hazelcast.simulator.coordinator.operations.RcStopCoordinatorOperation;
+import com.hazelcast.simulator.coordinator.operations.RcTestRunOperation;
+import com.hazelcast.simulator.coordinator.operations.RcTestStatusOperation;
+import com.hazelcast.simulator.coordinator.operations.RcTestStopOperation;
+import com.hazelcast.simulator.coordinator.operations.RcWorkerKillOperation;
+import com.hazelcast.simulator.coordinator.operations.RcWorkerScriptOperation;
+import com.hazelcast.simulator.coordinator.operations.RcWorkerStartOperation;
+import com.hazelcast.simulator.coordinator.registry.WorkerQuery;
+import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.utils.ReflectionException;
+import com.hazelcast.simulator.worker.operations.CreateTestOperation;
+import com.hazelcast.simulator.worker.operations.ExecuteScriptOperation;
+import com.hazelcast.simulator.worker.operations.PerformanceHistoryOperation;
+import com.hazelcast.simulator.worker.operations.PerformanceStatsOperation;
+import com.hazelcast.simulator.worker.operations.StartPhaseOperation;
+import com.hazelcast.simulator.worker.operations.RetuneRateOperation;
+import com.hazelcast.simulator.worker.operations.StopRunOperation;
+import com.hazelcast.simulator.worker.operations.TerminateWorkerOperation;
+import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import org.HdrHistogram.Histogram;
+import org.apache.log4j.Level;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class BinaryOperationCodecTest {
+
+    private static final Gson GSON = new Gson();
+
+    @Test
+    public void testRoundTrip_allOperationTypes() {
+        for (OperationType operationType : OperationType.values()) {
+            assertRoundTrip(operationType, createOperation(operationType));
+        }
+    }
+
+    @Test
+    public void testRoundTrip_nullFields() {
+        assertRoundTrip(OperationType.FAILURE, new FailureOperation(null));
+        assertRoundTrip(OperationType.RC_WORKER_KILL, new RcWorkerKillOperation(null, null));
+        assertRoundTrip(OperationType.CREATE_WORKER, new CreateWorkerOperation(null, 0));
+    }
+
+    @Test
+    public void testRoundTrip_largeString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            sb.append('é').append(i);
+        }
+
+        assertRoundTrip(OperationType.EXECUTE_SCRIPT, new ExecuteScriptOperation(sb.toString(), true));
+    }
+
+    @Test
+    public void testCompatibleWithJsonCodec() {
+        for (OperationType operationType : OperationType.values()) {
+            SimulatorOperation op = createOperation(operationType);
+
+            SimulatorOperation fromJson = OperationCodec.fromJson(OperationCodec.toJson(op), operationType.getClassType());
+            SimulatorOperation fromBinary = BinaryOperationCodec.fromBytes(BinaryOperationCodec.toBytes(op), operationType);
+
+            assertEquals(operationType.name(), OperationCodec.toJson(fromJson), OperationCodec.toJson(fromBinary));
+        }
+    }
+
+    @Test
+    public void testRoundTrip_withoutDefaultConstructor() {
+        ValueCodec codec = ValueCodecs.forType(Child.class);
+        BinaryOutput out = new BinaryOutput();
+        codec.write(out, new Child("value"));
+
+        Child decoded = (Child) codec.read(ByteBuffer.wrap(out.toByteArray()));
+
+        assertEquals("value", decoded.value);
+        assertNull(decoded.child);
+    }
+
+    @Test(expected = ReflectionException.class)
+    public void testWrite_polymorphicValue() {
+        Child child = new Child("value");
+        child.child = new GrandChild("other");
+
+        ValueCodecs.forType(Child.class).write(new BinaryOutput(), child);
+    }
+
+    private static void assertRoundTrip(OperationType operationType, SimulatorOperation op) {
+        byte[] bytes = BinaryOperationCodec.toBytes(op);
+        SimulatorOperation decoded = BinaryOperationCodec.fromBytes(bytes, operationType);
+
+        assertNotSame(op, decoded);
+        assertEquals(op.getClass(), decoded.getClass());
+        assertEquals(operationType.name(), GSON.toJson(op), GSON.toJson(decoded));
+    }
+
+    private static SimulatorOperation createOperation(OperationType operationType) {
+        switch (operationType) {
+            case LOG:
+                return new LogOperation("message", Level.WARN);
+            case FAILURE:
+                return new FailureOperation("failure", FailureType.WORKER_EXCEPTION, SimulatorAddress.fromString("A1_W1"),
+                        "127.0.0.1", "workerId", "testId", "cause")
+                        .setTestCase(newTestCase())
+                        .setDurationMs(1234);
+            case PERFORMANCE_STATE:
+                PerformanceStatsOperation performanceStatsOperation = new PerformanceStatsOperation();
+                Histogram histogram = new Histogram(3);
+                histogram.recordValue(400);
+                performanceStatsOperation.addPerformanceStats("test1", new PerformanceStats(1000, 10.5, 20.25, 3.5, 400, 500)
+                        .setIntervalHistogram(histogram));
+                performanceStatsOperation.addPerformanceStats("test2", new PerformanceStats());
+                return performanceStatsOperation;
+            case RC_INSTALL:
+                return new RcInstallOperation("maven=3.7");
+            case RC_EXIT:
+                return new RcStopCoordinatorOperation();
+            case RC_TEST_RUN:
+                TestSuite testSuite = new TestSuite()
+                        .addTest(newTestCase())
+                        .addTest(new TestCase("other"))
+                        .setDurationSeconds(60)
+                        .setFailFast(true);
+                return new RcTestRunOperation(testSuite, true, newWorkerQuery());
+            case RC_TEST_STATUS:
+                return new RcTestStatusOperation("testId");
+            case RC_TEST_STOP:
+                return new RcTestStopOperation("testId");
+            case RC_WORKER_KILL:
+                return new RcWorkerKillOperation("js:java.lang.System.exit(0);", newWorkerQuery());
+            case RC_WORKER_SCRIPT:
+                return new RcWorkerScriptOperation("bash:ls", newWorkerQuery(), true);
+            case RC_WORKER_START:
+                return new RcWorkerStartOperation()
+                        .setCount(3)
+                        .setHzConfig("<hazelcast/>")
+                        .setVersionSpec("git=master")
+                        .setAgentTags(newMap("zone", "a"))
+                        .setTags(newMap("role", "client"))
+                        .setWorkerType("javaclient");
+            case RC_PRINT_LAYOUT:
+                return new RcPrintLayoutOperation();
+            case RC_DOWNLOAD:
+                return new RcDownloadOperation();
+            case RC_PERFORMANCE_HISTORY:
+                return new RcPerformanceHistoryOperation("testId", newWorkerQuery(), 1000);
+            case CREATE_WORKER:
+                WorkerParameters workerParameters = new WorkerParameters()
+                        .set("WORKER_ADDRESS", "A1_W1")
+                        .set("file:hazelcast.xml", "<hazelcast/>");
+                return new CreateWorkerOperation(workerParameters, 100);
+            case START_TIMEOUT_DETECTION:
+                return new StartTimeoutDetectionOperation();
+            case STOP_TIMEOUT_DETECTION:
+                return new StopTimeoutDetectionOperation();
+            case TERMINATE_WORKER:
+                return new TerminateWorkerOperation(true);
+            case CREATE_TEST:
+                return new CreateTestOperation(newTestCase());
+            case EXECUTE_SCRIPT:
+                return new ExecuteScriptOperation("bash:ls", false);
+            case START_TEST_PHASE:
+                return new StartPhaseOperation(TestPhase.RUN, "testId");
+            case STOP_TEST:
+                return new StopRunOperation("testId");
+            case PERFORMANCE_HISTORY:
+                return new PerformanceHistoryOperation("testId", 1000);
+            case RETUNE_RATE:
+                return new RetuneRateOperation("testId", 0.25);
+            default:
+                throw new IllegalArgumentException("No test operation for " + operationType);
+        }
+    }
+
+    private static TestCase newTestCase() {
+        TestCase testCase = new TestCase("testId");
+        testCase.setProperty("class", "com.hazelcast.simulator.tests.FooTest");
+        testCase.setProperty("threadCount", "10");
+        return testCase;
+    }
+
+    private static WorkerQuery newWorkerQuery() {
+        return new WorkerQuery()
+                .setAgentAddresses(asList("A1", "A2"))
+                .setMaxCount(5)
+                .setRandom(true)
+                .setTargetType(TargetType.CLIENT)
+                .setWorkerTags(newMap("key", "value"));
+    }
+
+    static class Child {
+
+        String value;
+        Child child;
+
+        Child(String value) {
+            this.value = value;
+        }
+    }
+
+    static final class GrandChild extends Child {
+
+        String extra = "extra";
+
+        GrandChild(String value) {
+            super(value);
+        }
+    }
+
+    private static Map<String, String> newMap(String key, String value) {
+        Map<String, String> map = new HashMap<String, String>();
+        map.put(key, value);
+        return map;
+    }
+}
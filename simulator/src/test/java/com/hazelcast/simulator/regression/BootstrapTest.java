@@ -0,0 +1,62 @@
+package com.hazelcast.simulator.regression;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BootstrapTest {
+
+    private final Bootstrap bootstrap = new Bootstrap(1000, 0.95, 0);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_whenNoIterations() {
+        new Bootstrap(0, 0.95, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_whenInvalidConfidence() {
+        new Bootstrap(1000, 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRelativeDifference_whenEmpty() {
+        bootstrap.relativeDifference(new double[0], new double[]{1});
+    }
+
+    @Test
+    public void testRelativeDifference_whenSame() {
+        double[] values = {100, 100, 100, 100};
+
+        double[] difference = bootstrap.relativeDifference(values, values);
+
+        assertEquals(0, difference[0], 0.0001);
+        assertEquals(0, difference[1], 0.0001);
+        assertEquals(0, difference[2], 0.0001);
+    }
+
+    @Test
+    public void testRelativeDifference() {
+        double[] baseline = {98, 102, 99, 101, 100, 97, 103, 100};
+        double[] candidate = {88, 92, 89, 91, 90, 87, 93, 90};
+
+        double[] difference = bootstrap.relativeDifference(baseline, candidate);
+
+        assertEquals(-0.1, difference[1], 0.0001);
+        assertTrue(difference[0] <= difference[1]);
+        assertTrue(difference[2] >= difference[1]);
+        assertTrue(difference[2] < 0);
+    }
+
+    @Test
+    public void testRelativeDifference_isReproducible() {
+        double[] baseline = {98, 102, 99, 101, 100};
+        double[] candidate = {95, 105, 96, 104, 100};
+
+        double[] difference1 = new Bootstrap(100, 0.9, 42).relativeDifference(baseline, candidate);
+        double[] difference2 = new Bootstrap(100, 0.9, 42).relativeDifference(baseline, candidate);
+
+        assertEquals(difference1[0], difference2[0], 0);
+        assertEquals(difference1[2], difference2[2], 0);
+    }
+}
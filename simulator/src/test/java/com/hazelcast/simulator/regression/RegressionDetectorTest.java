@@ -0,0 +1,277 @@
+package com.hazelcast.simulator.regression;
+
+import com.hazelcast.simulator.regression.Verdict.Comparison;
+import com.hazelcast.simulator.regression.Verdict.Result;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Collections;
+
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static com.hazelcast.simulator.utils.FileUtils.appendText;
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.FileUtils.ensureExistingDirectory;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.steadyStateStartTimeComment;
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RegressionDetectorTest {
+
+    private static final long START_MILLIS = 1480000000000L;
+    private static final int INTERVALS = 20;
+
+    private File directory;
+    private File baseline;
+    private File candidate;
+    private RegressionDetector regressionDetector;
+
+    @Before
+    public void before() {
+        directory = ensureExistingDirectory(new File(getUserDir(), randomUUID().toString()));
+        baseline = ensureExistingDirectory(directory, "baseline");
+        candidate = ensureExistingDirectory(directory, "candidate");
+        regressionDetector = new RegressionDetector(new Bootstrap(500, 0.95, 0), 0.95, 0.05, new double[]{50, 99.9}, 0);
+    }
+
+    @After
+    public void after() {
+        deleteQuiet(directory);
+    }
+
+    @Test
+    public void testCompare_whenSame() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 100);
+        writeHdrFile(new File(candidate, "test-probe.hdr"), 1000, 100);
+
+        Verdict verdict = compare();
+
+        assertFalse(verdict.isRegression());
+        assertEquals(3, verdict.getComparisons().size());
+        for (Comparison comparison : verdict.getComparisons()) {
+            assertEquals(comparison.toString(), Result.NO_CHANGE, comparison.getResult());
+        }
+    }
+
+    @Test
+    public void testCompare_whenThroughputRegression() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 100);
+        writeHdrFile(new File(candidate, "test-probe.hdr"), 800, 100);
+
+        Verdict verdict = compare();
+
+        assertTrue(verdict.isRegression());
+        Comparison throughput = verdict.getComparisons().get(0);
+        assertEquals(RegressionDetector.THROUGHPUT, throughput.getMetric());
+        assertEquals(Result.REGRESSION, throughput.getResult());
+        assertEquals(-0.2, throughput.getChange(), 0.01);
+    }
+
+    @Test
+    public void testCompare_whenLatencyImprovement() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 200);
+        writeHdrFile(new File(candidate, "test-probe.hdr"), 1000, 100);
+
+        Verdict verdict = compare();
+
+        assertFalse(verdict.isRegression());
+        assertEquals(Result.NO_CHANGE, verdict.getComparisons().get(0).getResult());
+        assertEquals("p50", verdict.getComparisons().get(1).getMetric());
+        assertEquals(Result.IMPROVEMENT, verdict.getComparisons().get(1).getResult());
+        assertEquals("p99.9", verdict.getComparisons().get(2).getMetric());
+        assertEquals(Result.IMPROVEMENT, verdict.getComparisons().get(2).getResult());
+    }
+
+    @Test
+    public void testCompare_whenProbeMissing() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 100);
+
+        Verdict verdict = compare();
+
+        assertFalse(verdict.isRegression());
+        assertTrue(verdict.isInsufficientData());
+        assertTrue(verdict.isFailure(false));
+        assertFalse(verdict.isFailure(true));
+        assertEquals(1, verdict.getComparisons().size());
+        assertEquals(Result.INSUFFICIENT_DATA, verdict.getComparisons().get(0).getResult());
+    }
+
+    @Test
+    public void testCompare_whenNewProbe() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 100);
+        writeHdrFile(new File(candidate, "test-probe.hdr"), 1000, 100);
+        writeHdrFile(new File(candidate, "test-other.hdr"), 1000, 100);
+
+        Verdict verdict = compare();
+
+        assertFalse(verdict.isFailure(false));
+        Comparison newProbe = verdict.getComparisons().get(verdict.getComparisons().size() - 1);
+        assertEquals("test-other", newProbe.getProbe());
+        assertEquals(Result.NEW_PROBE, newProbe.getResult());
+    }
+
+    @Test
+    public void testCompare_whenBaselineEmpty() {
+        writeHdrFile(new File(candidate, "test-probe.hdr"), 1000, 100);
+
+        Verdict verdict = compare();
+
+        assertTrue(verdict.isInsufficientData());
+        assertTrue(verdict.isFailure(false));
+    }
+
+    @Test
+    public void testCompare_whenSessionEmpty() {
+        Verdict verdict = compare();
+
+        assertTrue(verdict.getComparisons().isEmpty());
+        assertTrue(verdict.isInsufficientData());
+        assertTrue(verdict.isFailure(false));
+    }
+
+    @Test
+    public void testCompare_whenTooFewIntervals() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 100);
+        writeHdrFile(new File(candidate, "test-probe.hdr"), 1000, 100, INTERVALS - 1);
+        File candidateFile = new File(candidate, "test-probe.hdr");
+        appendText('#' + steadyStateStartTimeComment(START_MILLIS + (INTERVALS - 1) * 1000) + '\n', candidateFile);
+
+        Verdict verdict = compare();
+
+        assertTrue(verdict.isInsufficientData());
+        assertTrue(verdict.isFailure(false));
+    }
+
+    @Test
+    public void testCompare_skipsWarmupBeforeSteadyState() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 100);
+        File candidateFile = new File(candidate, "test-probe.hdr");
+        writeHdrFile(candidateFile, 1000, 100, 5);
+        appendText('#' + steadyStateStartTimeComment(START_MILLIS + 5000) + '\n', candidateFile);
+
+        Verdict verdict = compare();
+
+        assertFalse(verdict.isRegression());
+        assertEquals(Result.NO_CHANGE, verdict.getComparisons().get(0).getResult());
+    }
+
+    @Test
+    public void testCompare_whenWarmupWithoutSteadyState() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 100);
+        writeHdrFile(new File(candidate, "test-probe.hdr"), 1000, 100, 5);
+
+        Verdict verdict = compare();
+
+        assertTrue(verdict.isRegression());
+    }
+
+    @Test
+    public void testJudge() {
+        assertEquals(Result.REGRESSION, regressionDetector.judge(new double[]{-0.3, -0.2, -0.1}, true));
+        assertEquals(Result.IMPROVEMENT, regressionDetector.judge(new double[]{-0.3, -0.2, -0.1}, false));
+        assertEquals(Result.NO_CHANGE, regressionDetector.judge(new double[]{-0.3, -0.2, 0.1}, true));
+        // significant, but smaller than the threshold
+        assertEquals(Result.NO_CHANGE, regressionDetector.judge(new double[]{-0.03, -0.02, -0.01}, true));
+    }
+
+    @Test
+    public void testPercentileMetric() {
+        assertEquals("p99", RegressionDetector.percentileMetric(99));
+        assertEquals("p99.99", RegressionDetector.percentileMetric(99.99));
+    }
+
+    @Test
+    public void testVerdictToJson() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 100);
+        writeHdrFile(new File(candidate, "test-probe.hdr"), 800, 100);
+        File verdictFile = new File(directory, "verdict.json");
+
+        compare().writeTo(verdictFile);
+
+        String json = fileAsText(verdictFile);
+        assertTrue(json, json.contains("\"regression\": true"));
+        assertTrue(json, json.contains("\"result\": \"REGRESSION\""));
+    }
+
+    @Test
+    public void testCli() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 100);
+        writeHdrFile(new File(candidate, "test-probe.hdr"), 800, 100);
+        File verdictFile = new File(directory, "verdict.json");
+
+        RegressionDetectorCli cli = new RegressionDetectorCli(new String[]{"--iterations", "100", "--percentiles", "50,99",
+                "--verdictFile", verdictFile.getPath(), baseline.getPath(), candidate.getPath()});
+
+        assertTrue(cli.run());
+        assertTrue(verdictFile.exists());
+    }
+
+    @Test
+    public void testCli_whenInsufficientData() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 100);
+        File verdictFile = new File(directory, "verdict.json");
+
+        RegressionDetectorCli cli = new RegressionDetectorCli(new String[]{"--iterations", "100",
+                "--verdictFile", verdictFile.getPath(), baseline.getPath(), candidate.getPath()});
+
+        assertTrue(cli.run());
+        assertTrue(fileAsText(verdictFile).contains("\"insufficientData\": true"));
+    }
+
+    @Test
+    public void testCli_whenInsufficientDataAllowed() {
+        writeHdrFile(new File(baseline, "test-probe.hdr"), 1000, 100);
+        File verdictFile = new File(directory, "verdict.json");
+
+        RegressionDetectorCli cli = new RegressionDetectorCli(new String[]{"--iterations", "100", "--allowInsufficientData",
+                "--verdictFile", verdictFile.getPath(), baseline.getPath(), candidate.getPath()});
+
+        assertFalse(cli.run());
+    }
+
+    private Verdict compare() {
+        return regressionDetector.compare(baseline, Collections.singletonList(candidate));
+    }
+
+    private static void writeHdrFile(File file, int operationsPerSecond, long latency) {
+        writeHdrFile(file, operationsPerSecond, latency, 0);
+    }
+
+    private static void writeHdrFile(File file, int operationsPerSecond, long latency, int warmupIntervals) {
+        PrintStream stream = null;
+        try {
+            stream = new PrintStream(file);
+            HistogramLogWriter writer = new HistogramLogWriter(stream);
+            writer.setBaseTime(START_MILLIS);
+            writer.outputStartTime(START_MILLIS);
+            writer.outputLogFormatVersion();
+            writer.outputLegend();
+            for (int i = 0; i < INTERVALS; i++) {
+                Histogram histogram = new Histogram(3);
+                histogram.setStartTimeStamp(START_MILLIS + i * 1000);
+                histogram.setEndTimeStamp(START_MILLIS + (i + 1) * 1000);
+                // a bit of noise, so the intervals differ
+                int count = operationsPerSecond + (i % 5) * 5;
+                if (i < warmupIntervals) {
+                    count /= 10;
+                }
+                for (int k = 0; k < count; k++) {
+                    histogram.recordValue((latency + k % 10) * 1000);
+                }
+                writer.outputIntervalHistogram(histogram);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+}
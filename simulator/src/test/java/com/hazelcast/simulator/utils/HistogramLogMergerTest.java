@@ -1,13 +1,243 @@
 package com.hazelcast.simulator.utils;
 
+import com.hazelcast.simulator.utils.HistogramLogMerger.Input;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.HistogramLogWriter;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.PrintStream;
+
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.FileUtils.ensureExistingDirectory;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.appendText;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.AUTO_RESOLUTION;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.NO_STEADY_STATE;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.isBeforeSteadyState;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.readSteadyStateStartTimeMillis;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.steadyStateStartTimeComment;
 import static com.hazelcast.simulator.utils.ReflectionUtils.invokePrivateConstructor;
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class HistogramLogMergerTest {
 
+    private static final long START_MILLIS = 1480000000000L;
+
+    private File directory;
+    private File outputFile;
+
+    @Before
+    public void before() {
+        directory = ensureExistingDirectory(new File(getUserDir(), randomUUID().toString()));
+        outputFile = new File(directory, "merged.hdr");
+    }
+
+    @After
+    public void after() {
+        deleteQuiet(directory);
+    }
+
     @Test
     public void testConstructor() throws Exception {
         invokePrivateConstructor(HistogramLogMerger.class);
     }
+
+    @Test
+    public void testMain() throws Exception {
+        File input1 = writeHdrFile("input1.hdr", START_MILLIS, 1000, 10, 10, 10);
+        File input2 = writeHdrFile("input2.hdr", START_MILLIS, 1000, 20, 20);
+
+        HistogramLogMerger.main(new String[]{outputFile.getPath(), input1.getPath(), input2.getPath()});
+
+        HistogramLogReader reader = new HistogramLogReader(outputFile);
+        assertTotalCount(reader, 30, START_MILLIS);
+        assertEquals(START_MILLIS / 1000.0, reader.getStartTimeSec(), 0.001);
+        assertTotalCount(reader, 30, START_MILLIS + 1000);
+        assertTotalCount(reader, 10, START_MILLIS + 2000);
+        assertNull(reader.nextIntervalHistogram());
+    }
+
+    @Test
+    public void testMerge_whenWorkersStartedAtDifferentTimes() throws Exception {
+        File input1 = writeHdrFile("input1.hdr", START_MILLIS, 1000, 10, 10, 10, 10);
+        // starts 2 intervals and a bit later
+        File input2 = writeHdrFile("input2.hdr", START_MILLIS + 2300, 1000, 20, 20);
+
+        merge(AUTO_RESOLUTION, new Input(input1, 0), new Input(input2, 0));
+
+        HistogramLogReader reader = new HistogramLogReader(outputFile);
+        assertTotalCount(reader, 10, START_MILLIS);
+        assertTotalCount(reader, 10, START_MILLIS + 1000);
+        assertTotalCount(reader, 30, START_MILLIS + 2000);
+        assertTotalCount(reader, 30, START_MILLIS + 3000);
+        assertNull(reader.nextIntervalHistogram());
+    }
+
+    @Test
+    public void testMerge_whenIntervalMissing() throws Exception {
+        File input1 = writeHdrFile("input1.hdr", START_MILLIS, 1000, 10, 10, 10);
+        File input2 = new File(directory, "input2.hdr");
+        writeHdrFile(input2, START_MILLIS, new long[]{START_MILLIS, START_MILLIS + 2000}, 1000, 20, 20);
+
+        merge(AUTO_RESOLUTION, new Input(input1, 0), new Input(input2, 0));
+
+        HistogramLogReader reader = new HistogramLogReader(outputFile);
+        assertTotalCount(reader, 30, START_MILLIS);
+        assertTotalCount(reader, 10, START_MILLIS + 1000);
+        assertTotalCount(reader, 30, START_MILLIS + 2000);
+        assertNull(reader.nextIntervalHistogram());
+    }
+
+    @Test
+    public void testMerge_withClockOffset() throws Exception {
+        File input1 = writeHdrFile("input1.hdr", START_MILLIS, 1000, 10, 10);
+        // the clock of the second agent is 5 seconds ahead
+        File input2 = writeHdrFile("input2.hdr", START_MILLIS + 5000, 1000, 20, 20);
+
+        merge(AUTO_RESOLUTION, new Input(input1, 0), new Input(input2, 5000));
+
+        HistogramLogReader reader = new HistogramLogReader(outputFile);
+        assertTotalCount(reader, 30, START_MILLIS);
+        assertTotalCount(reader, 30, START_MILLIS + 1000);
+        assertNull(reader.nextIntervalHistogram());
+    }
+
+    @Test
+    public void testMerge_withResolution() throws Exception {
+        File input1 = writeHdrFile("input1.hdr", START_MILLIS, 1000, 10, 10, 10, 10);
+        File input2 = writeHdrFile("input2.hdr", START_MILLIS, 1000, 20, 20, 20);
+
+        merge(2000, new Input(input1, 0), new Input(input2, 0));
+
+        HistogramLogReader reader = new HistogramLogReader(outputFile);
+        Histogram histogram = assertTotalCount(reader, 60, START_MILLIS);
+        assertEquals(START_MILLIS + 2000, histogram.getEndTimeStamp());
+        assertTotalCount(reader, 40, START_MILLIS + 2000);
+        assertNull(reader.nextIntervalHistogram());
+    }
+
+    @Test
+    public void testDetectResolutionMillis() throws Exception {
+        File input1 = writeHdrFile("input1.hdr", START_MILLIS, 9990, 10);
+        File input2 = writeHdrFile("input2.hdr", START_MILLIS, 10010, 10);
+        Input[] inputs = new Input[]{new Input(input1, 0), new Input(input2, 0)};
+
+        try {
+            assertEquals(10000, HistogramLogMerger.detectResolutionMillis(inputs));
+        } finally {
+            closeQuietly(inputs);
+        }
+    }
+
+    @Test
+    public void testMerge_steadyStateStartTime() {
+        File input1 = writeHdrFile("input1.hdr", START_MILLIS, 1000, 10, 10, 10);
+        File input2 = writeHdrFile("input2.hdr", START_MILLIS, 1000, 20, 20, 20);
+        appendText('#' + steadyStateStartTimeComment(START_MILLIS + 1000) + '\n', input1);
+        appendText('#' + steadyStateStartTimeComment(START_MILLIS + 2500) + '\n', input2);
+
+        merge(AUTO_RESOLUTION, new Input(input1, 0), new Input(input2, 500));
+
+        // the latest start of the steady state, corrected by the clock offset
+        assertEquals(START_MILLIS + 2000, readSteadyStateStartTimeMillis(outputFile));
+    }
+
+    @Test
+    public void testMerge_whenNotAllInputsInSteadyState() {
+        File input1 = writeHdrFile("input1.hdr", START_MILLIS, 1000, 10, 10, 10);
+        File input2 = writeHdrFile("input2.hdr", START_MILLIS, 1000, 20, 20, 20);
+        appendText('#' + steadyStateStartTimeComment(START_MILLIS + 1000) + '\n', input1);
+
+        merge(AUTO_RESOLUTION, new Input(input1, 0), new Input(input2, 0));
+
+        assertEquals(NO_STEADY_STATE, readSteadyStateStartTimeMillis(outputFile));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadSteadyStateStartTimeMillis_whenMalformed() {
+        File input = writeHdrFile("input.hdr", START_MILLIS, 1000, 10);
+        appendText("#[SteadyStateStartTime: garbage (seconds since epoch)]\n", input);
+
+        readSteadyStateStartTimeMillis(input);
+    }
+
+    @Test
+    public void testIsBeforeSteadyState() {
+        Histogram histogram = new Histogram(3);
+        histogram.setStartTimeStamp(START_MILLIS);
+        histogram.setEndTimeStamp(START_MILLIS + 1000);
+
+        assertFalse(isBeforeSteadyState(histogram, NO_STEADY_STATE));
+        assertFalse(isBeforeSteadyState(histogram, START_MILLIS));
+        assertFalse(isBeforeSteadyState(histogram, START_MILLIS + 500));
+        assertTrue(isBeforeSteadyState(histogram, START_MILLIS + 501));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMerge_whenMalformedHdrFile() {
+        File input = new File(directory, "input.hdr");
+        FileUtils.writeText("#[StartTime: 1480000000.000 (seconds since epoch)]\n0.000,1.000,2.000,garbage\n", input);
+
+        merge(AUTO_RESOLUTION, new Input(input, 0));
+    }
+
+    private void merge(long resolutionMillis, Input... inputs) {
+        try {
+            HistogramLogMerger.merge(outputFile, inputs, resolutionMillis);
+        } finally {
+            closeQuietly(inputs);
+        }
+    }
+
+    private static Histogram assertTotalCount(HistogramLogReader reader, long expectedTotalCount, long expectedStartMillis) {
+        Histogram histogram = (Histogram) reader.nextIntervalHistogram();
+        assertEquals(expectedTotalCount, histogram.getTotalCount());
+        assertEquals(expectedStartMillis, histogram.getStartTimeStamp());
+        return histogram;
+    }
+
+    private File writeHdrFile(String name, long startMillis, long intervalMillis, int... counts) {
+        long[] intervalStartMillis = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            intervalStartMillis[i] = startMillis + i * intervalMillis;
+        }
+        File file = new File(directory, name);
+        writeHdrFile(file, startMillis, intervalStartMillis, intervalMillis, counts);
+        return file;
+    }
+
+    private static void writeHdrFile(File file, long startMillis, long[] intervalStartMillis, long intervalMillis,
+                                     int... counts) {
+        PrintStream stream = null;
+        try {
+            stream = new PrintStream(file);
+            HistogramLogWriter writer = new HistogramLogWriter(stream);
+            writer.setBaseTime(startMillis);
+            writer.outputStartTime(startMillis);
+            writer.outputLogFormatVersion();
+            writer.outputLegend();
+            for (int i = 0; i < counts.length; i++) {
+                Histogram histogram = new Histogram(3);
+                histogram.setStartTimeStamp(intervalStartMillis[i]);
+                histogram.setEndTimeStamp(intervalStartMillis[i] + intervalMillis);
+                for (int value = 1; value <= counts[i]; value++) {
+                    histogram.recordValue(value * 1000);
+                }
+                writer.outputIntervalHistogram(histogram);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            closeQuietly(stream);
+        }
+    }
 }
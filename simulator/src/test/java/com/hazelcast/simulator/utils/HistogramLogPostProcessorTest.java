@@ -0,0 +1,179 @@
+package com.hazelcast.simulator.utils;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.HistogramLogWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.FileUtils.ensureExistingDirectory;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.writeText;
+import static com.hazelcast.simulator.utils.FileUtils.appendText;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.AUTO_RESOLUTION;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.readSteadyStateStartTimeMillis;
+import static com.hazelcast.simulator.utils.HistogramLogMerger.steadyStateStartTimeComment;
+import static com.hazelcast.simulator.utils.ReflectionUtils.invokePrivateConstructor;
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramLogPostProcessorTest {
+
+    private static final long START_MILLIS = 1480000000000L;
+
+    private File sessionDirectory;
+
+    @Before
+    public void before() {
+        sessionDirectory = ensureExistingDirectory(new File(getUserDir(), randomUUID().toString()));
+    }
+
+    @After
+    public void after() {
+        deleteQuiet(sessionDirectory);
+    }
+
+    @Test
+    public void testConstructor() throws Exception {
+        invokePrivateConstructor(HistogramLogPostProcessor.class);
+    }
+
+    @Test
+    public void testFindHdrFiles() {
+        File worker1 = ensureExistingDirectory(sessionDirectory, "A1_W1-member");
+        File worker2 = ensureExistingDirectory(sessionDirectory, "A1_W2-member");
+        writeHdrFile(new File(worker1, "test-probe.hdr"), 1);
+        writeHdrFile(new File(worker2, "test-probe.hdr"), 1);
+        writeHdrFile(new File(worker2, "test-other.hdr"), 1);
+        writeText("foo", new File(worker1, "performance.csv"));
+        // a merged file of a previous run
+        writeHdrFile(new File(sessionDirectory, "test-probe.hdr"), 1);
+
+        Map<String, List<File>> hdrFiles = HistogramLogPostProcessor.findHdrFiles(sessionDirectory);
+
+        assertEquals(2, hdrFiles.size());
+        assertEquals(2, hdrFiles.get("test-probe.hdr").size());
+        assertEquals(1, hdrFiles.get("test-other.hdr").size());
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+        File worker1 = ensureExistingDirectory(sessionDirectory, "A1_W1-member");
+        File worker2 = ensureExistingDirectory(sessionDirectory, "A1_W2-member");
+        writeHdrFile(new File(worker1, "test-probe.hdr"), 3);
+        writeHdrFile(new File(worker2, "test-probe.hdr"), 2);
+        writeHdrFile(new File(worker2, "test-other.hdr"), 1);
+
+        List<File> mergedFiles = HistogramLogPostProcessor.process(sessionDirectory, 2, AUTO_RESOLUTION);
+
+        assertEquals(2, mergedFiles.size());
+        File mergedFile = new File(sessionDirectory, "test-probe.hdr");
+        assertTrue(mergedFiles.contains(mergedFile));
+
+        HistogramLogReader reader = new HistogramLogReader(mergedFile);
+        assertEquals(200, ((Histogram) reader.nextIntervalHistogram()).getTotalCount());
+        assertEquals(START_MILLIS / 1000.0, reader.getStartTimeSec(), 0.001);
+        assertEquals(200, ((Histogram) reader.nextIntervalHistogram()).getTotalCount());
+        assertEquals(100, ((Histogram) reader.nextIntervalHistogram()).getTotalCount());
+        assertEquals(null, reader.nextIntervalHistogram());
+
+        assertPercentileLogs(new File(sessionDirectory, "test-probe"), 3, 500);
+        assertPercentileLogs(new File(worker1, "test-probe"), 3, 300);
+        assertPercentileLogs(new File(worker2, "test-probe"), 2, 200);
+        assertPercentileLogs(new File(worker2, "test-other"), 1, 100);
+        assertPercentileLogs(new File(sessionDirectory, "test-other"), 1, 100);
+        assertFalse(new File(sessionDirectory, "test-probe.steady-state.hgrm").exists());
+    }
+
+    @Test
+    public void testProcess_withSteadyState() {
+        File worker1 = ensureExistingDirectory(sessionDirectory, "A1_W1-member");
+        File worker2 = ensureExistingDirectory(sessionDirectory, "A1_W2-member");
+        File workerFile1 = new File(worker1, "test-probe.hdr");
+        File workerFile2 = new File(worker2, "test-probe.hdr");
+        writeHdrFile(workerFile1, 3);
+        writeHdrFile(workerFile2, 3);
+        appendText('#' + steadyStateStartTimeComment(START_MILLIS + 1000) + '\n', workerFile1);
+        appendText('#' + steadyStateStartTimeComment(START_MILLIS + 2000) + '\n', workerFile2);
+
+        HistogramLogPostProcessor.process(sessionDirectory, 1, AUTO_RESOLUTION);
+
+        File mergedFile = new File(sessionDirectory, "test-probe.hdr");
+        assertEquals(START_MILLIS + 2000, readSteadyStateStartTimeMillis(mergedFile));
+        // the totals still contain the warmup
+        assertPercentileLogs(new File(sessionDirectory, "test-probe"), 3, 600);
+        assertSteadyStatePercentileLog(new File(sessionDirectory, "test-probe"), 200);
+        assertSteadyStatePercentileLog(new File(worker1, "test-probe"), 200);
+        assertSteadyStatePercentileLog(new File(worker2, "test-probe"), 100);
+    }
+
+    @Test
+    public void testProcess_whenNoHdrFiles() {
+        ensureExistingDirectory(sessionDirectory, "A1_W1-member");
+
+        List<File> mergedFiles = HistogramLogPostProcessor.process(sessionDirectory, 2, AUTO_RESOLUTION);
+
+        assertTrue(mergedFiles.isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProcess_whenMalformedHdrFile() {
+        File worker = ensureExistingDirectory(sessionDirectory, "A1_W1-member");
+        writeText("#[StartTime: 1480000000.000 (seconds since epoch)]\n0.000,1.000,2.000,garbage\n",
+                new File(worker, "test-probe.hdr"));
+
+        HistogramLogPostProcessor.process(sessionDirectory, 1, AUTO_RESOLUTION);
+    }
+
+    private static void assertPercentileLogs(File intervalLogFile, int intervals, long totalCount) {
+        String[] lines = fileAsText(intervalLogFile).split("\n");
+        // the time range, the start time and the legend
+        assertEquals(3 + intervals, lines.length);
+        assertTrue(lines[2], lines[2].startsWith("\"Timestamp\""));
+
+        String percentiles = fileAsText(new File(intervalLogFile.getPath() + ".hgrm"));
+        assertTrue(percentiles, percentiles.contains("#[Mean"));
+        assertTrue(percentiles, percentiles.replaceAll(" +", " ").contains("Total count = " + totalCount + "]"));
+    }
+
+    private static void assertSteadyStatePercentileLog(File intervalLogFile, long totalCount) {
+        String percentiles = fileAsText(new File(intervalLogFile.getPath() + ".steady-state.hgrm"));
+        assertTrue(percentiles, percentiles.startsWith("#[Overall percentile distribution of the steady state"));
+        assertTrue(percentiles, percentiles.replaceAll(" +", " ").contains("Total count = " + totalCount + "]"));
+    }
+
+    private static void writeHdrFile(File file, int intervals) {
+        PrintStream stream = null;
+        try {
+            stream = new PrintStream(file);
+            HistogramLogWriter writer = new HistogramLogWriter(stream);
+            writer.setBaseTime(START_MILLIS);
+            writer.outputStartTime(START_MILLIS);
+            writer.outputLogFormatVersion();
+            writer.outputLegend();
+            for (int i = 0; i < intervals; i++) {
+                Histogram histogram = new Histogram(3);
+                histogram.setStartTimeStamp(START_MILLIS + i * 1000);
+                histogram.setEndTimeStamp(START_MILLIS + (i + 1) * 1000);
+                for (int value = 1; value <= 100; value++) {
+                    histogram.recordValue(value * 1000);
+                }
+                writer.outputIntervalHistogram(histogram);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            CommonUtils.closeQuietly(stream);
+        }
+    }
+}
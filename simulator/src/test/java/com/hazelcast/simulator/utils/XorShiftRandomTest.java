@@ -0,0 +1,91 @@
+package com.hazelcast.simulator.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class XorShiftRandomTest {
+
+    private static final int SAMPLES = 1000 * 1000;
+
+    @Test
+    public void testSameSeed_sameSequence() {
+        XorShiftRandom random1 = new XorShiftRandom(10);
+        XorShiftRandom random2 = new XorShiftRandom(10);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(random1.nextLong(), random2.nextLong());
+        }
+    }
+
+    @Test
+    public void testDifferentSeeds_differentSequence() {
+        XorShiftRandom random1 = new XorShiftRandom(10);
+        XorShiftRandom random2 = new XorShiftRandom(11);
+
+        assertNotEquals(random1.nextLong(), random2.nextLong());
+    }
+
+    @Test
+    public void testDefaultConstructor_differentSequence() {
+        assertNotEquals(new XorShiftRandom().nextLong(), new XorShiftRandom().nextLong());
+    }
+
+    @Test
+    public void testZeroSeed() {
+        XorShiftRandom random = new XorShiftRandom(0);
+
+        assertNotEquals(0, random.nextLong() | random.nextLong());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextInt_zeroBound() {
+        new XorShiftRandom().nextInt(0);
+    }
+
+    @Test
+    public void testNextInt_distribution() {
+        XorShiftRandom random = new XorShiftRandom(1);
+        int[] counts = new int[10];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[random.nextInt(counts.length)]++;
+        }
+
+        for (int count : counts) {
+            assertEquals(SAMPLES / counts.length, count, SAMPLES / 200);
+        }
+    }
+
+    @Test
+    public void testNextDouble() {
+        XorShiftRandom random = new XorShiftRandom(1);
+        double sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double value = random.nextDouble();
+            assertTrue(value >= 0 && value < 1);
+            sum += value;
+        }
+
+        assertEquals(0.5, sum / SAMPLES, 0.005);
+    }
+
+    @Test
+    public void testNextLong_allBitsUsed() {
+        XorShiftRandom random = new XorShiftRandom(1);
+        int[] bitCounts = new int[64];
+        for (int i = 0; i < SAMPLES; i++) {
+            long value = random.nextLong();
+            for (int bit = 0; bit < 64; bit++) {
+                if ((value & (1L << bit)) != 0) {
+                    bitCounts[bit]++;
+                }
+            }
+        }
+
+        for (int bit = 0; bit < 64; bit++) {
+            assertEquals("bit " + bit, SAMPLES / 2, bitCounts[bit], SAMPLES / 100);
+        }
+    }
+}
@@ -10,9 +10,12 @@ import com.hazelcast.simulator.protocol.exception.ProcessException;
 import com.hazelcast.simulator.utils.ExceptionReporter;
 import com.hazelcast.simulator.worker.operations.CreateTestOperation;
 import com.hazelcast.simulator.worker.operations.ExecuteScriptOperation;
+import com.hazelcast.simulator.worker.operations.PerformanceHistoryOperation;
 import com.hazelcast.simulator.worker.operations.StartPhaseOperation;
+import com.hazelcast.simulator.worker.operations.RetuneRateOperation;
 import com.hazelcast.simulator.worker.operations.StopRunOperation;
 import com.hazelcast.simulator.worker.operations.TerminateWorkerOperation;
+import com.hazelcast.simulator.worker.performance.PerformanceMonitor;
 import com.hazelcast.simulator.worker.testcontainer.TestManager;
 import org.junit.After;
 import org.junit.Before;
@@ -24,12 +27,14 @@ import static com.hazelcast.simulator.TestEnvironmentUtils.setupFakeUserDir;
 import static com.hazelcast.simulator.TestEnvironmentUtils.teardownFakeUserDir;
 import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
 import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class WorkerOperationProcessorTest {
 
@@ -105,6 +110,36 @@ public class WorkerOperationProcessorTest {
         assertTrue(promise.hasAnswer());
     }
 
+    @Test
+    public void test_RetuneRateOperation() throws Exception {
+        RetuneRateOperation op = new RetuneRateOperation("foo", 0.5);
+
+        processor.process(op, sourceAddress, promise);
+
+        verify(testManager).retuneRate(op);
+        assertTrue(promise.hasAnswer());
+    }
+
+    @Test
+    public void test_PerformanceHistoryOperation() throws Exception {
+        PerformanceMonitor performanceMonitor = mock(PerformanceMonitor.class);
+        when(worker.getPerformanceMonitor()).thenReturn(performanceMonitor);
+        when(performanceMonitor.getHistory("foo", 10)).thenReturn("history");
+
+        processor.process(new PerformanceHistoryOperation("foo", 10), sourceAddress, promise);
+
+        assertEquals("history", promise.getAnswer());
+    }
+
+    @Test
+    public void test_PerformanceHistoryOperation_whenNoHistory() throws Exception {
+        when(worker.getPerformanceMonitor()).thenReturn(mock(PerformanceMonitor.class));
+
+        processor.process(new PerformanceHistoryOperation("foo", 0), sourceAddress, promise);
+
+        assertEquals("", promise.getAnswer());
+    }
+
     // make sure that unhandled exceptions are trapped.
     @Test
     public void test_unhandledException() throws Exception {
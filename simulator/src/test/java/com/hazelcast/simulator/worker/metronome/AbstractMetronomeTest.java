@@ -6,6 +6,7 @@ import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public abstract class AbstractMetronomeTest {
@@ -39,21 +40,19 @@ public abstract class AbstractMetronomeTest {
     }
 
     private void testMetronome(int intervalMs) {
+        long intervalNanos = MILLISECONDS.toNanos(intervalMs);
         // we don't want to measure the first invocation, since it has a random delay
-        metronome.waitForNext();
+        long lastExpectedStartNanos = metronome.waitForNext();
 
-        long lastTimestamp = 0;
         for (int i = 0; i < 10; i++) {
-            long startTimestamp = System.currentTimeMillis();
-            metronome.waitForNext();
-
-            if (lastTimestamp != 0) {
-                long currentTimestamp = System.currentTimeMillis();
-                long actual = lastTimestamp + intervalMs;
-                assertTrue(format("Expected currentTimestamp >= lastTimestamp + interval, but was %d >= %d (diff: %d ms)",
-                        currentTimestamp, actual, actual - currentTimestamp), currentTimestamp >= actual);
-            }
-            lastTimestamp = startTimestamp;
+            long expectedStartNanos = metronome.waitForNext();
+            long nowNanos = System.nanoTime();
+
+            // a delayed call catches up with the schedule, so we check the expected start times and not the wall clock
+            assertEquals(intervalNanos, expectedStartNanos - lastExpectedStartNanos);
+            assertTrue(format("Expected the metronome not to return before the expected start time, but was %d ns early",
+                    expectedStartNanos - nowNanos), nowNanos >= expectedStartNanos);
+            lastExpectedStartNanos = expectedStartNanos;
         }
     }
 }
@@ -0,0 +1,79 @@
+package com.hazelcast.simulator.worker.metronome;
+
+import org.junit.Test;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+
+public class BurstyMetronomeTest {
+
+    private static final long EPOCH = 1000;
+    private static final long INTERVAL = 10;
+    private static final long ON = 100;
+    private static final long PERIOD = 400;
+
+    private final BurstyMetronome metronome = new BurstyMetronome(INTERVAL, ON, PERIOD, EPOCH, true);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_withoutOffDuration() {
+        new BurstyMetronome(INTERVAL, MILLISECONDS.toNanos(1), 0, true);
+    }
+
+    @Test
+    public void testSkipOffPeriod_duringOnPeriod() {
+        assertEquals(EPOCH, metronome.skipOffPeriod(EPOCH));
+        assertEquals(EPOCH + ON - 1, metronome.skipOffPeriod(EPOCH + ON - 1));
+        assertEquals(EPOCH + PERIOD + 50, metronome.skipOffPeriod(EPOCH + PERIOD + 50));
+    }
+
+    @Test
+    public void testSkipOffPeriod_duringOffPeriod() {
+        assertEquals(EPOCH + PERIOD, metronome.skipOffPeriod(EPOCH + ON));
+        assertEquals(EPOCH + PERIOD, metronome.skipOffPeriod(EPOCH + PERIOD - 1));
+        assertEquals(EPOCH + 2 * PERIOD, metronome.skipOffPeriod(EPOCH + PERIOD + ON + 5));
+    }
+
+    @Test
+    public void testSkipOffPeriod_beforeEpoch() {
+        assertEquals(EPOCH, metronome.skipOffPeriod(EPOCH - 1));
+        assertEquals(EPOCH - PERIOD + 1, metronome.skipOffPeriod(EPOCH - PERIOD + 1));
+    }
+
+    @Test
+    public void testNextStartNanos() {
+        assertEquals(EPOCH + INTERVAL, metronome.nextStartNanos(EPOCH));
+        // the last call of the on-period is followed by the first call of the next on-period
+        assertEquals(EPOCH + PERIOD, metronome.nextStartNanos(EPOCH + ON - INTERVAL));
+    }
+
+    @Test
+    public void testCopy_sharesPeriods() {
+        BurstyMetronome copy = new BurstyMetronome(metronome);
+
+        assertEquals(INTERVAL, copy.getIntervalNanos());
+        assertEquals(EPOCH + PERIOD, copy.skipOffPeriod(EPOCH + ON));
+    }
+
+    @Test
+    public void testEpoch_anchoredAtFirstWait() {
+        BurstyMetronome master = new BurstyMetronome(INTERVAL, ON, PERIOD - ON, true);
+        BurstyMetronome copy = new BurstyMetronome(master);
+        long startNanos = nanoTime() + SECONDS.toNanos(1);
+
+        copy.firstStartNanos(startNanos);
+
+        // the first on-period starts at the first wait
+        assertEquals(startNanos + ON - 1, master.skipOffPeriod(startNanos + ON - 1));
+        assertEquals(startNanos + PERIOD, master.skipOffPeriod(startNanos + ON));
+    }
+
+    @Test
+    public void testRetune_keepsPeriods() {
+        BurstyMetronome retuned = (BurstyMetronome) metronome.retune(2 * INTERVAL);
+
+        assertEquals(2 * INTERVAL, retuned.getIntervalNanos());
+        assertEquals(EPOCH + PERIOD, retuned.skipOffPeriod(EPOCH + ON));
+    }
+}
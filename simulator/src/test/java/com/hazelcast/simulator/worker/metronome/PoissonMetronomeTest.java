@@ -0,0 +1,59 @@
+package com.hazelcast.simulator.worker.metronome;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PoissonMetronomeTest {
+
+    private static final int SAMPLES = 100000;
+
+    @Test
+    public void testIntervalsAreExponentiallyDistributed() {
+        long meanIntervalNanos = MICROSECONDS.toNanos(100);
+        PoissonMetronome metronome = new PoissonMetronome(meanIntervalNanos, true);
+
+        long start = metronome.firstStartNanos(0);
+        long last = start;
+        int shorterThanMean = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            long next = metronome.nextStartNanos(last);
+            assertTrue(next >= last);
+            if (next - last < meanIntervalNanos) {
+                shorterThanMean++;
+            }
+            last = next;
+        }
+
+        // the mean of the intervals is the configured interval
+        assertEquals(meanIntervalNanos, (last - start) / (double) SAMPLES, meanIntervalNanos * 0.02);
+        // for an exponential distribution P(X < mean) = 1 - 1/e
+        assertEquals(1 - 1 / Math.E, shorterThanMean / (double) SAMPLES, 0.01);
+    }
+
+    @Test
+    public void testWaitForNext() {
+        PoissonMetronome master = new PoissonMetronome(MILLISECONDS.toNanos(1), true);
+        Metronome metronome = new PoissonMetronome(master);
+
+        long lastExpectedStartNanos = metronome.waitForNext();
+        for (int i = 0; i < 10; i++) {
+            long expectedStartNanos = metronome.waitForNext();
+            assertTrue(expectedStartNanos >= lastExpectedStartNanos);
+            assertTrue(System.nanoTime() >= expectedStartNanos);
+            lastExpectedStartNanos = expectedStartNanos;
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        PoissonMetronome master = new PoissonMetronome(MILLISECONDS.toNanos(1), false);
+        PoissonMetronome metronome = new PoissonMetronome(master);
+
+        assertEquals(MILLISECONDS.toNanos(1), metronome.getMeanIntervalNanos());
+        assertEquals(false, metronome.isAccountForCoordinatedOmission());
+    }
+}
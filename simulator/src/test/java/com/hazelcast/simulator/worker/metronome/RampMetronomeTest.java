@@ -0,0 +1,82 @@
+package com.hazelcast.simulator.worker.metronome;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.worker.testcontainer.PropertyBinding;
+import org.junit.Test;
+
+import static java.lang.System.nanoTime;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+
+public class RampMetronomeTest {
+
+    private static final long EPOCH = 1000;
+    private static final long STEP = SECONDS.toNanos(10);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_withoutStepDuration() {
+        new RampMetronome(100, 100, 0, 0, 1, EPOCH, true);
+    }
+
+    @Test
+    public void testGetRatePerSecond() {
+        RampMetronome metronome = new RampMetronome(1000, 500, 0, STEP, 1, EPOCH, true);
+
+        assertEquals(1000, metronome.getRatePerSecond(EPOCH - 1), 0);
+        assertEquals(1000, metronome.getRatePerSecond(EPOCH), 0);
+        assertEquals(1000, metronome.getRatePerSecond(EPOCH + STEP - 1), 0);
+        assertEquals(1500, metronome.getRatePerSecond(EPOCH + STEP), 0);
+        assertEquals(3500, metronome.getRatePerSecond(EPOCH + 5 * STEP), 0);
+    }
+
+    @Test
+    public void testGetRatePerSecond_withMaxRate() {
+        RampMetronome metronome = new RampMetronome(1000, 500, 2000, STEP, 1, EPOCH, true);
+
+        assertEquals(2000, metronome.getRatePerSecond(EPOCH + 2 * STEP), 0);
+        assertEquals(2000, metronome.getRatePerSecond(EPOCH + 10 * STEP), 0);
+    }
+
+    @Test
+    public void testNextStartNanos() {
+        // 4 threads with a combined rate of 1000/s, so each thread has an interval of 4ms
+        RampMetronome metronome = new RampMetronome(1000, 1000, 0, STEP, 4, EPOCH, true);
+
+        assertEquals(EPOCH + MILLISECONDS.toNanos(4), metronome.nextStartNanos(EPOCH));
+        assertEquals(EPOCH + STEP + MILLISECONDS.toNanos(2), metronome.nextStartNanos(EPOCH + STEP));
+    }
+
+    @Test
+    public void testCopy() {
+        RampMetronome master = new RampMetronome(1000, 1000, 0, STEP, 4, EPOCH, true);
+        RampMetronome metronome = new RampMetronome(master);
+
+        assertEquals(2000, metronome.getRatePerSecond(EPOCH + STEP), 0);
+    }
+
+    @Test
+    public void testEpoch_anchoredAtFirstWait() {
+        RampMetronome master = new RampMetronome(SECONDS.toNanos(1) / 1000, 1, new PropertyBinding(new TestCase("id")), "");
+        RampMetronome metronome = new RampMetronome(master);
+        long createdNanos = nanoTime();
+
+        metronome.firstStartNanos(createdNanos + STEP);
+
+        // the steps start at the first wait, not when the metronome was created
+        assertEquals(1000, metronome.getRatePerSecond(createdNanos + STEP), 0);
+        assertEquals(2000, master.getRatePerSecond(createdNanos + 2 * STEP), 0);
+    }
+
+    @Test
+    public void testRetune_keepsSteps() {
+        RampMetronome master = new RampMetronome(1000, 500, 2000, STEP, 4, EPOCH, true);
+
+        RampMetronome retuned = (RampMetronome) master.retune(MILLISECONDS.toNanos(2));
+
+        assertEquals(500, retuned.getRatePerSecond(EPOCH), 0);
+        assertEquals(750, retuned.getRatePerSecond(EPOCH + STEP), 0);
+        assertEquals(1000, retuned.getRatePerSecond(EPOCH + 10 * STEP), 0);
+    }
+}
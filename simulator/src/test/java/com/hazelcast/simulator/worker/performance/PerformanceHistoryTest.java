@@ -0,0 +1,54 @@
+package com.hazelcast.simulator.worker.performance;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PerformanceHistoryTest {
+
+    private final PerformanceHistory history = new PerformanceHistory(3);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_whenCapacityZero() {
+        new PerformanceHistory(0);
+    }
+
+    @Test
+    public void testToCsv_whenEmpty() {
+        assertEquals(PerformanceHistory.HEADER, history.toCsv(0));
+    }
+
+    @Test
+    public void testToCsv() {
+        history.add(1000, 10, 100, 1000, 2000, 3000, 4000);
+        history.add(1100, 20, 200.5, -1, -1, -1, -1);
+
+        assertEquals(2, history.size());
+        assertEquals(PerformanceHistory.HEADER
+                + "1000,10,100.00,1,2,3,4\n"
+                + "1100,20,200.50,-1,-1,-1,-1\n", history.toCsv(0));
+    }
+
+    @Test
+    public void testToCsv_whenFull_thenOldestSamplesOverwritten() {
+        for (int i = 1; i <= 5; i++) {
+            history.add(i * 100, i, i, 0, 0, 0, 0);
+        }
+
+        assertEquals(3, history.size());
+        assertEquals(PerformanceHistory.HEADER
+                + "300,3,3.00,0,0,0,0\n"
+                + "400,4,4.00,0,0,0,0\n"
+                + "500,5,5.00,0,0,0,0\n", history.toCsv(0));
+    }
+
+    @Test
+    public void testToCsv_sinceMillis() {
+        for (int i = 1; i <= 3; i++) {
+            history.add(i * 100, i, i, 0, 0, 0, 0);
+        }
+
+        assertEquals(PerformanceHistory.HEADER
+                + "300,3,3.00,0,0,0,0\n", history.toCsv(200));
+    }
+}
@@ -0,0 +1,143 @@
+package com.hazelcast.simulator.worker.performance;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static com.hazelcast.simulator.TestEnvironmentUtils.setupFakeUserDir;
+import static com.hazelcast.simulator.TestEnvironmentUtils.teardownFakeUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.writeText;
+import static com.hazelcast.simulator.worker.performance.BinaryPerformanceLogWriter.putVarLong;
+import static com.hazelcast.simulator.worker.performance.PerformanceLogWriter.TIMESTAMP_FORMAT;
+import static org.junit.Assert.assertEquals;
+
+public class PerformanceLogConverterTest {
+
+    private static final long START_MILLIS = 1500000000123L;
+    private static final int INTERVALS = BinaryPerformanceLogWriter.BLOCK_ROWS * 2 + 5;
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat(TIMESTAMP_FORMAT);
+
+    private File csvFile;
+    private File binaryFile;
+
+    @Before
+    public void before() {
+        setupFakeUserDir();
+
+        csvFile = new File(getUserDir(), "expected.csv");
+        binaryFile = new File(getUserDir(), "performance-test.bin");
+    }
+
+    @After
+    public void after() {
+        teardownFakeUserDir();
+    }
+
+    @Test
+    public void testConvert() {
+        writeIntervals(INTERVALS);
+
+        File convertedFile = PerformanceLogConverter.convert(binaryFile);
+
+        assertEquals(new File(getUserDir(), "performance-test.csv"), convertedFile);
+        assertEquals(fileAsText(csvFile), fileAsText(convertedFile));
+    }
+
+    @Test
+    public void testConvert_ignoresIncompleteLastBlock() throws Exception {
+        writeIntervals(BinaryPerformanceLogWriter.BLOCK_ROWS);
+        long length = binaryFile.length();
+        writeIntervals(BinaryPerformanceLogWriter.BLOCK_ROWS);
+
+        RandomAccessFile file = new RandomAccessFile(binaryFile, "rw");
+        file.setLength(length + 10);
+        file.close();
+
+        String[] lines = fileAsText(PerformanceLogConverter.convert(binaryFile)).split("\n");
+
+        assertEquals(BinaryPerformanceLogWriter.BLOCK_ROWS + 1, lines.length);
+    }
+
+    @Test
+    public void testMain() {
+        writeIntervals(1);
+
+        PerformanceLogConverter.main(new String[]{binaryFile.getAbsolutePath()});
+
+        assertEquals(fileAsText(csvFile), fileAsText(new File(getUserDir(), "performance-test.csv")));
+    }
+
+    @Test
+    public void testConvert_whenVersion1() throws Exception {
+        byte[] timeZoneId = "UTC".getBytes(BinaryPerformanceLogWriter.UTF8);
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        buffer.putInt(BinaryPerformanceLogWriter.MAGIC);
+        buffer.put((byte) 1);
+        buffer.putShort((short) timeZoneId.length);
+        buffer.put(timeZoneId);
+        // a block of a single row without the steady state column
+        buffer.putInt(1);
+        putVarLong(buffer, START_MILLIS);
+        putVarLong(buffer, 100);
+        putVarLong(buffer, 100);
+        buffer.putDouble(100.5);
+        RandomAccessFile file = new RandomAccessFile(binaryFile, "rw");
+        file.write(buffer.array(), 0, buffer.position());
+        file.close();
+
+        String[] lines = fileAsText(PerformanceLogConverter.convert(binaryFile)).split("\n");
+
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        assertEquals(2, lines.length);
+        assertEquals("1500000000.123," + dateFormat.format(new Date(START_MILLIS)) + ",100,100,100.5,0", lines[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConvert_whenUnsupportedVersion() throws Exception {
+        RandomAccessFile file = new RandomAccessFile(binaryFile, "rw");
+        file.writeInt(BinaryPerformanceLogWriter.MAGIC);
+        file.write(BinaryPerformanceLogWriter.VERSION + 1);
+        file.close();
+
+        PerformanceLogConverter.convert(binaryFile);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConvert_whenNotBinaryPerformanceLog() {
+        writeText(CsvPerformanceLogWriter.HEADER, binaryFile);
+
+        PerformanceLogConverter.convert(binaryFile);
+    }
+
+    private void writeIntervals(int intervals) {
+        CsvPerformanceLogWriter csvWriter = new CsvPerformanceLogWriter(csvFile);
+        BinaryPerformanceLogWriter binaryWriter = new BinaryPerformanceLogWriter(binaryFile);
+
+        long operationsTotal = 0;
+        for (int i = 0; i < intervals; i++) {
+            long timeMillis = START_MILLIS + i * 1000 + i % 7;
+            long operationsDelta = i * 31 % 1000;
+            operationsTotal += operationsDelta;
+            double operationsPerSecond = operationsDelta * 1000d / 999;
+            String timestamp = dateFormat.format(new Date(timeMillis));
+
+            boolean steadyState = i > 10;
+
+            csvWriter.write(timeMillis, timestamp, operationsTotal, operationsDelta, operationsPerSecond, steadyState);
+            binaryWriter.write(timeMillis, timestamp, operationsTotal, operationsDelta, operationsPerSecond, steadyState);
+        }
+
+        csvWriter.close();
+        binaryWriter.close();
+    }
+}
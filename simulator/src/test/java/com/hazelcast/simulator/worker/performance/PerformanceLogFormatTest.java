@@ -0,0 +1,31 @@
+package com.hazelcast.simulator.worker.performance;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PerformanceLogFormatTest {
+
+    @Test
+    public void testFromString() {
+        assertEquals(PerformanceLogFormat.CSV, PerformanceLogFormat.fromString("csv"));
+        assertEquals(PerformanceLogFormat.BINARY, PerformanceLogFormat.fromString(" BINARY "));
+    }
+
+    @Test
+    public void testFromString_default() {
+        assertEquals(PerformanceLogFormat.CSV, PerformanceLogFormat.fromString(null));
+        assertEquals(PerformanceLogFormat.CSV, PerformanceLogFormat.fromString(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromString_unknown() {
+        PerformanceLogFormat.fromString("xml");
+    }
+
+    @Test
+    public void testGetFileExtension() {
+        assertEquals("csv", PerformanceLogFormat.CSV.getFileExtension());
+        assertEquals("bin", PerformanceLogFormat.BINARY.getFileExtension());
+    }
+}
@@ -0,0 +1,101 @@
+package com.hazelcast.simulator.worker.performance;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static com.hazelcast.simulator.TestEnvironmentUtils.setupFakeUserDir;
+import static com.hazelcast.simulator.TestEnvironmentUtils.teardownFakeUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.worker.performance.PerformanceLogWriter.newPerformanceLogWriter;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PerformanceLogWriterTest {
+
+    private static final long START_MILLIS = 1500000000123L;
+
+    @Before
+    public void before() {
+        setupFakeUserDir();
+    }
+
+    @After
+    public void after() {
+        teardownFakeUserDir();
+    }
+
+    @Test
+    public void testNewPerformanceLogWriter() {
+        PerformanceLogWriter csvWriter = newPerformanceLogWriter(getUserDir(), "performance", PerformanceLogFormat.CSV);
+        PerformanceLogWriter binaryWriter = newPerformanceLogWriter(getUserDir(), "performance", PerformanceLogFormat.BINARY);
+
+        assertTrue(csvWriter instanceof CsvPerformanceLogWriter);
+        assertEquals(new File(getUserDir(), "performance.csv"), csvWriter.getFile());
+        assertTrue(binaryWriter instanceof BinaryPerformanceLogWriter);
+        assertEquals(new File(getUserDir(), "performance.bin"), binaryWriter.getFile());
+    }
+
+    @Test
+    public void testCsv() {
+        CsvPerformanceLogWriter writer = new CsvPerformanceLogWriter(new File(getUserDir(), "performance.csv"));
+
+        writer.write(START_MILLIS, "14/07/2017 02:40:00", 100, 100, 100, false);
+        writer.write(START_MILLIS + 1000, "14/07/2017 02:40:01", 250, 150, 149.5, true);
+        writer.close();
+
+        assertEquals(CsvPerformanceLogWriter.HEADER
+                        + "1500000000.123,14/07/2017 02:40:00,100,100,100,0\n"
+                        + "1500000001.123,14/07/2017 02:40:01,250,150,149.5,1\n",
+                fileAsText(writer.getFile()));
+    }
+
+    @Test
+    public void testCsv_fileIsOnlyCreatedOnWrite() {
+        CsvPerformanceLogWriter writer = new CsvPerformanceLogWriter(new File(getUserDir(), "performance.csv"));
+        writer.close();
+
+        assertFalse(writer.getFile().exists());
+    }
+
+    @Test
+    public void testBinary_blocksAreOnlyWrittenWhenFullOrClosed() {
+        BinaryPerformanceLogWriter writer = new BinaryPerformanceLogWriter(new File(getUserDir(), "performance.bin"));
+
+        for (int i = 0; i < BinaryPerformanceLogWriter.BLOCK_ROWS - 1; i++) {
+            writer.write(START_MILLIS + i * 1000, null, i * 10, 10, 10, false);
+        }
+        assertFalse(writer.getFile().exists());
+
+        writer.write(START_MILLIS + BinaryPerformanceLogWriter.BLOCK_ROWS * 1000, null, 600, 10, 10, false);
+        long length = writer.getFile().length();
+        assertTrue(length > 0);
+
+        writer.write(START_MILLIS + (BinaryPerformanceLogWriter.BLOCK_ROWS + 1) * 1000, null, 610, 10, 10, false);
+        assertEquals(length, writer.getFile().length());
+
+        writer.close();
+        assertTrue(writer.getFile().length() > length);
+    }
+
+    @Test
+    public void testVarLong() {
+        long[] values = {0, 1, -1, 63, -64, 64, 1000, -1000, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 10);
+
+        for (long value : values) {
+            BinaryPerformanceLogWriter.putVarLong(buffer, value);
+        }
+        buffer.flip();
+
+        for (long value : values) {
+            assertEquals(value, BinaryPerformanceLogWriter.getVarLong(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+}
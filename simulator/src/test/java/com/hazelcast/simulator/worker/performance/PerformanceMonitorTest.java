@@ -15,6 +15,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -23,7 +24,12 @@ import static com.hazelcast.simulator.TestEnvironmentUtils.teardownFakeUserDir;
 import static com.hazelcast.simulator.utils.CommonUtils.joinThread;
 import static com.hazelcast.simulator.utils.CommonUtils.sleepMillis;
 import static com.hazelcast.simulator.utils.EmptyStatement.ignore;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
 import static com.hazelcast.simulator.utils.TestUtils.assertTrueEventually;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
@@ -119,6 +125,106 @@ public class PerformanceMonitorTest {
         performanceMonitor.close();
     }
 
+    @Test
+    public void test_whenTestRunning_thenJvmMetricsWritten() {
+        performanceMonitor.start();
+
+        DummyTest test = new DummyTest();
+        TestContext testContext = addTest(test);
+
+        Thread runTestThread = new RunTestThread();
+        runTestThread.start();
+
+        final File jvmMetricsLog = new File(getUserDir(), "jvm-metrics.csv");
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                assertTrue(jvmMetricsLog.exists());
+                String text = fileAsText(jvmMetricsLog);
+                assertTrue(text.startsWith(JvmMetricsLogWriter.HEADER));
+                assertTrue(text.contains("," + TEST_NAME + ","));
+            }
+        });
+
+        testContext.stop();
+        joinThread(runTestThread);
+    }
+
+    @Test
+    public void test_whenBinaryLogFormat_thenLogsWrittenWhenTestRemoved() {
+        performanceMonitor = new PerformanceMonitor(server, containerManager, 1, PerformanceLogFormat.BINARY, 0, 0);
+        performanceMonitor.start();
+
+        DummyTest test = new DummyTest();
+        TestContext testContext = addTest(test);
+
+        Thread runTestThread = new RunTestThread();
+        runTestThread.start();
+
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                assertPerfStatsSend();
+            }
+        });
+
+        testContext.stop();
+        joinThread(runTestThread);
+        tests.remove(TEST_NAME);
+
+        final File testPerformanceLog = new File(getUserDir(), "performance-" + TEST_NAME + ".bin");
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                assertTrue(testPerformanceLog.length() > 0);
+            }
+        });
+
+        performanceMonitor.close();
+
+        File csvFile = PerformanceLogConverter.convert(new File(getUserDir(), "performance.bin"));
+        assertTrue(fileAsText(csvFile).startsWith(CsvPerformanceLogWriter.HEADER));
+    }
+
+    @Test
+    public void test_whenSampleInterval_thenHistoryAvailable() {
+        performanceMonitor = new PerformanceMonitor(server, containerManager, 1, PerformanceLogFormat.CSV, 50, 100);
+        performanceMonitor.start();
+
+        DummyTest test = new DummyTest();
+        TestContext testContext = addTest(test);
+
+        Thread runTestThread = new RunTestThread();
+        runTestThread.start();
+
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                assertPerfStatsSend();
+                String history = performanceMonitor.getHistory(TEST_NAME, 0);
+                assertNotNull(history);
+                // the header and at least 10 samples
+                assertTrue(history.split("\n").length > 10);
+            }
+        });
+
+        testContext.stop();
+        joinThread(runTestThread);
+
+        assertNull(performanceMonitor.getHistory("unknown", 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_whenSampleIntervalWithoutHistorySize() {
+        new PerformanceMonitor(server, containerManager, 1, PerformanceLogFormat.CSV, 50, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_whenSteadyStateWindowTooSmall() {
+        performanceMonitor = new PerformanceMonitor(server, containerManager, 1);
+        performanceMonitor.enableSteadyStateDetection(1, 0.1);
+    }
+
     private TestContext addTest(Object test) {
         return addTest(test, 0);
     }
@@ -1,9 +1,14 @@
 package com.hazelcast.simulator.worker.performance;
 
+import com.google.gson.Gson;
+import org.HdrHistogram.Histogram;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class PerformanceStatsTest {
@@ -101,4 +106,151 @@ public class PerformanceStatsTest {
     public void testToString() {
         assertNotNull(new PerformanceStats().toString());
     }
+
+    @Test
+    public void testIntervalJvmMetrics_notSet() {
+        PerformanceStats performanceStats = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200);
+
+        assertEquals(-1, performanceStats.getIntervalGcTimeMillis());
+        assertEquals(-1, performanceStats.getIntervalAllocationRate(), 0.01);
+    }
+
+    @Test
+    public void testAdd_intervalJvmMetrics() {
+        PerformanceStats performanceStats = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200)
+                .setIntervalJvmMetrics(20, 1000);
+
+        performanceStats.add(new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setIntervalJvmMetrics(50, 3000));
+        performanceStats.add(new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200));
+
+        assertEquals(50, performanceStats.getIntervalGcTimeMillis());
+        assertEquals(4000, performanceStats.getIntervalAllocationRate(), 0.01);
+    }
+
+    @Test
+    public void testAdd_intervalJvmMetrics_withoutAddOperationCountAndThroughput() {
+        PerformanceStats performanceStats = new PerformanceStats();
+
+        performanceStats.add(new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setIntervalJvmMetrics(50, 1000), false);
+        performanceStats.add(new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setIntervalJvmMetrics(20, 3000), false);
+
+        assertEquals(50, performanceStats.getIntervalGcTimeMillis());
+        assertEquals(3000, performanceStats.getIntervalAllocationRate(), 0.01);
+    }
+
+    @Test
+    public void testIntervalHistogram() {
+        Histogram histogram = new Histogram(3);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordValue(i);
+        }
+
+        PerformanceStats performanceStats = new PerformanceStats().setIntervalHistogram(histogram);
+        Histogram decoded = performanceStats.getIntervalHistogram();
+
+        assertEquals(histogram, decoded);
+        assertEquals(1000, decoded.getTotalCount());
+        assertEquals(histogram.getValueAtPercentile(99.9), decoded.getValueAtPercentile(99.9));
+    }
+
+    @Test
+    public void testIntervalHistogram_notSet() {
+        assertNull(new PerformanceStats().getIntervalHistogram());
+    }
+
+    @Test
+    public void testIntervalHistogram_setNull() {
+        Histogram histogram = new Histogram(3);
+        histogram.recordValue(5);
+
+        PerformanceStats performanceStats = new PerformanceStats()
+                .setIntervalHistogram(histogram)
+                .setIntervalHistogram(null);
+
+        assertNull(performanceStats.getIntervalHistogram());
+    }
+
+    @Test
+    public void testIntervalHistogram_decodedOnce() {
+        Histogram histogram = new Histogram(3);
+        histogram.recordValue(5);
+
+        PerformanceStats performanceStats = new PerformanceStats().setIntervalHistogram(histogram);
+
+        assertSame(performanceStats.getIntervalHistogram(), performanceStats.getIntervalHistogram());
+    }
+
+    @Test
+    public void testIntervalHistogram_gson() {
+        Histogram histogram = new Histogram(3);
+        histogram.recordValue(5);
+        PerformanceStats performanceStats = new PerformanceStats().setIntervalHistogram(histogram);
+        performanceStats.getIntervalHistogram();
+
+        Gson gson = new Gson();
+        String json = gson.toJson(performanceStats);
+        PerformanceStats deserialized = gson.fromJson(json, PerformanceStats.class);
+
+        assertFalse(json.contains("decodedIntervalHistogram"));
+        assertEquals(histogram, deserialized.getIntervalHistogram());
+    }
+
+    @Test
+    public void testIntervalHistogram_copyConstructor() {
+        Histogram histogram = new Histogram(3);
+        histogram.recordValue(42);
+
+        PerformanceStats copy = new PerformanceStats(new PerformanceStats().setIntervalHistogram(histogram));
+
+        assertEquals(histogram, copy.getIntervalHistogram());
+    }
+
+    @Test
+    public void testSteadyState_notSet() {
+        PerformanceStats performanceStats = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200);
+
+        assertEquals(-1, performanceStats.getSteadyStateOperationCount());
+        assertEquals(-1, performanceStats.getSteadyStateThroughput(), 0.01);
+    }
+
+    @Test
+    public void testAdd_steadyState() {
+        PerformanceStats performanceStats = new PerformanceStats();
+
+        performanceStats.add(new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setSteadyState(80, 8.0));
+        performanceStats.add(new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setSteadyState(60, 9.0));
+
+        assertEquals(140, performanceStats.getSteadyStateOperationCount());
+        assertEquals(17.0, performanceStats.getSteadyStateThroughput(), 0.01);
+    }
+
+    @Test
+    public void testAdd_steadyState_whenNotAllInSteadyState() {
+        PerformanceStats performanceStats = new PerformanceStats();
+
+        performanceStats.add(new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setSteadyState(80, 8.0));
+        performanceStats.add(new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200));
+
+        assertEquals(-1, performanceStats.getSteadyStateOperationCount());
+        assertEquals(-1, performanceStats.getSteadyStateThroughput(), 0.01);
+    }
+
+    @Test
+    public void testAdd_steadyState_withoutAddOperationCountAndThroughput() {
+        PerformanceStats performanceStats = new PerformanceStats();
+
+        performanceStats.add(new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200), false);
+        performanceStats.add(new PerformanceStats(200, 5.0, 10.0, 175.0d, 150, 200).setSteadyState(80, 8.0), false);
+
+        assertEquals(80, performanceStats.getSteadyStateOperationCount());
+        assertEquals(8.0, performanceStats.getSteadyStateThroughput(), 0.01);
+    }
+
+    @Test
+    public void testSteadyState_copyConstructor() {
+        PerformanceStats copy = new PerformanceStats(new PerformanceStats().setSteadyState(80, 8.0));
+
+        assertEquals(80, copy.getSteadyStateOperationCount());
+        assertEquals(8.0, copy.getSteadyStateThroughput(), 0.01);
+    }
 }
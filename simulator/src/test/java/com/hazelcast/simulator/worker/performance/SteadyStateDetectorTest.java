@@ -0,0 +1,82 @@
+package com.hazelcast.simulator.worker.performance;
+
+import org.junit.Test;
+
+import static com.hazelcast.simulator.worker.performance.SteadyStateDetector.NOT_DETECTED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SteadyStateDetectorTest {
+
+    private static final long START_MILLIS = 1500000000000L;
+
+    private final SteadyStateDetector detector = new SteadyStateDetector(3, 0.1);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_whenWindowSizeTooSmall() {
+        new SteadyStateDetector(1, 0.1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_whenMaxCoefficientOfVariationNotPositive() {
+        new SteadyStateDetector(3, 0);
+    }
+
+    @Test
+    public void testAdd_whenWarmingUp() {
+        assertFalse(detector.add(START_MILLIS, 0, 100, 50));
+        assertFalse(detector.add(START_MILLIS + 1000, 100, 500, 20));
+        assertFalse(detector.add(START_MILLIS + 2000, 600, 1000, 10));
+
+        assertFalse(detector.isSteadyState());
+        assertEquals(NOT_DETECTED, detector.getSteadyStateStartMillis());
+        assertEquals(NOT_DETECTED, detector.getSteadyStateStartOperationCount());
+    }
+
+    @Test
+    public void testAdd_whenStable() {
+        detector.add(START_MILLIS, 0, 100, 50);
+        detector.add(START_MILLIS + 1000, 100, 1000, 10);
+        detector.add(START_MILLIS + 2000, 1100, 1050, 11);
+        assertTrue(detector.add(START_MILLIS + 3000, 2150, 980, 10));
+
+        assertTrue(detector.isSteadyState());
+        assertEquals(START_MILLIS + 1000, detector.getSteadyStateStartMillis());
+        assertEquals(100, detector.getSteadyStateStartOperationCount());
+    }
+
+    @Test
+    public void testAdd_whenLatencyNotStable() {
+        detector.add(START_MILLIS, 0, 1000, 10);
+        detector.add(START_MILLIS + 1000, 1000, 1000, 50);
+
+        assertFalse(detector.add(START_MILLIS + 2000, 2000, 1000, 10));
+    }
+
+    @Test
+    public void testAdd_whenNoLatencies() {
+        detector.add(START_MILLIS, 0, 1000, -1);
+        detector.add(START_MILLIS + 1000, 1000, 1000, -1);
+
+        assertTrue(detector.add(START_MILLIS + 2000, 2000, 1000, -1));
+    }
+
+    @Test
+    public void testAdd_whenSteadyState_thenNotRevoked() {
+        detector.add(START_MILLIS, 0, 1000, 10);
+        detector.add(START_MILLIS + 1000, 1000, 1000, 10);
+        detector.add(START_MILLIS + 2000, 2000, 1000, 10);
+
+        assertFalse(detector.add(START_MILLIS + 3000, 3000, 10, 1000));
+        assertTrue(detector.isSteadyState());
+        assertEquals(START_MILLIS, detector.getSteadyStateStartMillis());
+    }
+
+    @Test
+    public void testCoefficientOfVariation() {
+        assertEquals(0, SteadyStateDetector.coefficientOfVariation(new double[]{5, 5, 5}), 0.0001);
+        assertEquals(0.5, SteadyStateDetector.coefficientOfVariation(new double[]{1, 3}), 0.0001);
+        assertEquals(Double.POSITIVE_INFINITY, SteadyStateDetector.coefficientOfVariation(new double[]{0, 0}), 0.0001);
+    }
+}
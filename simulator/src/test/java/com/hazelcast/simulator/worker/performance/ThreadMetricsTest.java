@@ -0,0 +1,83 @@
+package com.hazelcast.simulator.worker.performance;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ThreadMetricsTest {
+
+    private JvmMetrics jvmMetrics;
+    private ThreadMetrics threadMetrics;
+
+    @Before
+    public void before() {
+        jvmMetrics = new JvmMetrics();
+        threadMetrics = new ThreadMetrics();
+    }
+
+    @Test
+    public void testUpdate_noThreads() {
+        threadMetrics.update(new long[0], jvmMetrics);
+
+        assertEquals(-1, threadMetrics.getIntervalCpuTimeNanos());
+        assertEquals(-1, threadMetrics.getIntervalAllocatedBytes());
+    }
+
+    @Test
+    public void testUpdate_unknownThread() {
+        threadMetrics.update(new long[]{Long.MAX_VALUE}, jvmMetrics);
+
+        assertEquals(-1, threadMetrics.getIntervalCpuTimeNanos());
+        assertEquals(-1, threadMetrics.getIntervalAllocatedBytes());
+    }
+
+    @Test
+    public void testUpdate_allocatingThread() {
+        long[] threadIds = {Thread.currentThread().getId()};
+        threadMetrics.update(threadIds, jvmMetrics);
+        if (jvmMetrics.getThreadAllocatedBytes(threadIds[0]) < 0) {
+            // the JVM doesn't measure the allocated bytes
+            return;
+        }
+
+        List<byte[]> list = new ArrayList<byte[]>();
+        for (int i = 0; i < 100; i++) {
+            list.add(new byte[1024]);
+        }
+        threadMetrics.update(threadIds, jvmMetrics);
+
+        assertEquals(100, list.size());
+        assertTrue(threadMetrics.getIntervalAllocatedBytes() >= 100 * 1024);
+        assertTrue(threadMetrics.getIntervalCpuTimeNanos() >= -1);
+    }
+
+    @Test
+    public void testJvmMetrics_update() {
+        jvmMetrics.update();
+
+        assertTrue(jvmMetrics.getIntervalGcCount() >= 0);
+        assertTrue(jvmMetrics.getIntervalGcTimeMillis() >= 0);
+        assertTrue(jvmMetrics.getHeapUsedBytes() > 0);
+        assertTrue(jvmMetrics.getHeapCommittedBytes() >= jvmMetrics.getHeapUsedBytes());
+    }
+
+    @Test
+    public void testGetAllocationMXBean() {
+        assertNotNull(JvmMetrics.getAllocationMXBean(ManagementFactory.getThreadMXBean()));
+    }
+
+    @Test
+    public void testGetAllocationMXBean_whenNotExtended() {
+        assertNull(JvmMetrics.getAllocationMXBean(mock(ThreadMXBean.class)));
+    }
+}
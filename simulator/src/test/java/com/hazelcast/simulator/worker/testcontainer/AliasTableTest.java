@@ -0,0 +1,128 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.utils.XorShiftRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AliasTableTest {
+
+    private static final int SAMPLES = 1000 * 1000;
+    private static final double TOLERANCE = 0.005;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_noProbabilities() {
+        new AliasTable();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_negativeProbability() {
+        new AliasTable(0.5, -0.5, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_allZero() {
+        new AliasTable(0, 0);
+    }
+
+    @Test
+    public void testSize() {
+        assertEquals(3, new AliasTable(0.2, 0.3, 0.5).size());
+    }
+
+    @Test
+    public void testSelect_singleProbability() {
+        AliasTable table = new AliasTable(1);
+
+        XorShiftRandom random = new XorShiftRandom(1);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, table.select(random.nextLong()));
+        }
+    }
+
+    @Test
+    public void testSelect_extremeRandomValues() {
+        AliasTable table = new AliasTable(0.1, 0.9);
+
+        assertValidIndex(table, 0);
+        assertValidIndex(table, -1);
+        assertValidIndex(table, Long.MAX_VALUE);
+        assertValidIndex(table, Long.MIN_VALUE);
+    }
+
+    @Test
+    public void testDistribution_uniform() {
+        assertDistribution(0.25, 0.25, 0.25, 0.25);
+    }
+
+    @Test
+    public void testDistribution_skewed() {
+        assertDistribution(0.01, 0.09, 0.9);
+    }
+
+    @Test
+    public void testDistribution_unevenProbabilities() {
+        assertDistribution(0.123456, 0.333333, 0.543211);
+    }
+
+    @Test
+    public void testDistribution_zeroProbability() {
+        double[] frequencies = assertDistribution(0.5, 0, 0.5);
+
+        assertEquals(0, frequencies[1], 0);
+    }
+
+    @Test
+    public void testDistribution_notNormalized() {
+        double[] frequencies = sample(new AliasTable(1, 3));
+
+        assertEquals(0.25, frequencies[0], TOLERANCE);
+        assertEquals(0.75, frequencies[1], TOLERANCE);
+    }
+
+    @Test
+    public void testDistribution_sameAsProbabilityArray() {
+        double[] probabilities = {0.1, 0.2, 0.1, 0.29, 0.21, 0.1};
+        byte[] probabilityArray = Probability.ratiosToMethodProbabilityArray(
+                Probability.methodProbabilitiesToMethodRatios(probabilities));
+
+        double[] expected = new double[probabilities.length];
+        for (byte index : probabilityArray) {
+            expected[index] += 1d / probabilityArray.length;
+        }
+
+        double[] actual = sample(new AliasTable(probabilities));
+        for (int i = 0; i < probabilities.length; i++) {
+            assertEquals("index " + i, expected[i], actual[i], TOLERANCE);
+        }
+    }
+
+    private static double[] assertDistribution(double... probabilities) {
+        double[] frequencies = sample(new AliasTable(probabilities));
+        for (int i = 0; i < probabilities.length; i++) {
+            assertEquals("index " + i, probabilities[i], frequencies[i], TOLERANCE);
+        }
+        return frequencies;
+    }
+
+    private static double[] sample(AliasTable table) {
+        XorShiftRandom random = new XorShiftRandom(42);
+        long[] counts = new long[table.size()];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[table.select(random.nextLong())]++;
+        }
+
+        double[] frequencies = new double[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            frequencies[i] = counts[i] / (double) SAMPLES;
+        }
+        return frequencies;
+    }
+
+    private static void assertValidIndex(AliasTable table, long random) {
+        int index = table.select(random);
+        if (index < 0 || index >= table.size()) {
+            throw new AssertionError("Invalid index " + index + " for random " + random);
+        }
+    }
+}
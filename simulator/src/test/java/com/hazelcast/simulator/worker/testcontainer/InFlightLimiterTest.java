@@ -0,0 +1,141 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.probes.Probe;
+import com.hazelcast.simulator.probes.impl.EmptyProbe;
+import org.junit.Test;
+
+import static com.hazelcast.simulator.utils.CommonUtils.sleepMillis;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.longThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class InFlightLimiterTest {
+
+    private final InFlightLimiter limiter = new InFlightLimiter(2, SECONDS.toNanos(1));
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_invalidMaxInFlight() {
+        new InFlightLimiter(0, 1);
+    }
+
+    @Test
+    public void testTryAcquire() {
+        long now = System.nanoTime();
+
+        assertTrue(limiter.tryAcquire(now));
+        assertTrue(limiter.tryAcquire(now));
+        assertFalse(limiter.tryAcquire(now));
+
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getDroppedCount());
+        assertEquals(0, limiter.getLateCount());
+    }
+
+    @Test
+    public void testRelease() {
+        long now = System.nanoTime();
+        limiter.tryAcquire(now);
+        limiter.tryAcquire(now);
+
+        limiter.release();
+
+        assertEquals(1, limiter.getInFlight());
+        assertTrue(limiter.tryAcquire(now));
+        assertEquals(0, limiter.getDroppedCount());
+    }
+
+    @Test
+    public void testTryAcquire_late() {
+        assertTrue(limiter.tryAcquire(System.nanoTime() - SECONDS.toNanos(2)));
+
+        assertEquals(1, limiter.getLateCount());
+    }
+
+    @Test
+    public void testWrap_done() {
+        Probe probe = mock(Probe.class);
+        limiter.tryAcquire(System.nanoTime());
+
+        limiter.wrap(probe).done(10);
+
+        verify(probe).done(10);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testWrap_recordValue() {
+        Probe probe = mock(Probe.class);
+        limiter.tryAcquire(System.nanoTime());
+
+        limiter.wrap(probe).recordValue(20);
+
+        verify(probe).recordValue(20);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testTryAcquire_recordsDroppedAndLateArrivals() {
+        Probe droppedProbe = mock(Probe.class);
+        Probe lateProbe = mock(Probe.class);
+        InFlightLimiter limiter = new InFlightLimiter(1, SECONDS.toNanos(1), SECONDS.toNanos(60), droppedProbe, lateProbe);
+        long now = System.nanoTime();
+
+        limiter.tryAcquire(now);
+        limiter.tryAcquire(now);
+        limiter.tryAcquire(now - SECONDS.toNanos(2));
+
+        verify(droppedProbe, times(2)).recordValue(anyLong());
+        verify(lateProbe).recordValue(longThat(greaterThan(SECONDS.toNanos(1))));
+        assertEquals(2, limiter.getDroppedCount());
+        assertEquals(1, limiter.getLateCount());
+    }
+
+    @Test
+    public void testTryAcquire_failsWhenSlotsLeak() {
+        InFlightLimiter limiter = new InFlightLimiter(1, SECONDS.toNanos(1), 1, EmptyProbe.INSTANCE, EmptyProbe.INSTANCE);
+        long now = System.nanoTime();
+        limiter.tryAcquire(now);
+        limiter.tryAcquire(now);
+
+        sleepMillis(1);
+
+        try {
+            limiter.tryAcquire(now);
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals(2, limiter.getDroppedCount());
+        }
+    }
+
+    @Test
+    public void testTryAcquire_noStallWhenSlotsAreReleased() {
+        InFlightLimiter limiter = new InFlightLimiter(1, SECONDS.toNanos(1), 1, EmptyProbe.INSTANCE, EmptyProbe.INSTANCE);
+        long now = System.nanoTime();
+        limiter.tryAcquire(now);
+        limiter.tryAcquire(now);
+        limiter.release();
+
+        assertTrue(limiter.tryAcquire(now));
+        sleepMillis(1);
+
+        assertFalse(limiter.tryAcquire(now));
+    }
+
+    @Test
+    public void testSetLateThresholdNanos() {
+        limiter.setLateThresholdNanos(SECONDS.toNanos(3));
+
+        assertTrue(limiter.tryAcquire(System.nanoTime() - SECONDS.toNanos(2)));
+
+        assertEquals(SECONDS.toNanos(3), limiter.getLateThresholdNanos());
+        assertEquals(0, limiter.getLateCount());
+    }
+}
@@ -1,9 +1,12 @@
 package com.hazelcast.simulator.worker.testcontainer;
 
 import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.worker.metronome.BurstyMetronome;
 import com.hazelcast.simulator.worker.metronome.BusySpinningMetronome;
 import com.hazelcast.simulator.worker.metronome.EmptyMetronome;
 import com.hazelcast.simulator.worker.metronome.Metronome;
+import com.hazelcast.simulator.worker.metronome.PoissonMetronome;
+import com.hazelcast.simulator.worker.metronome.RampMetronome;
 import com.hazelcast.simulator.worker.metronome.SleepingMetronome;
 import org.junit.Test;
 
@@ -15,6 +18,8 @@ import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class MetronomeConstructorTest {
 
@@ -93,4 +98,120 @@ public class MetronomeConstructorTest {
         Metronome m = metronomeConstructor.newInstance();
         assertEquals(EmptyMetronome.class, m.getClass());
     }
+
+    @Test
+    public void withPoissonMetronome() {
+        PropertyBinding propertyBinding = new PropertyBinding(
+                new TestCase("foo")
+                        .setProperty("ratePerSecond", 100)
+                        .setProperty("metronomeClass", PoissonMetronome.class));
+        MetronomeConstructor metronomeConstructor = new MetronomeConstructor("", propertyBinding, 2);
+
+        Metronome m = metronomeConstructor.newInstance();
+        assertEquals(PoissonMetronome.class, m.getClass());
+        assertEquals(MILLISECONDS.toNanos(20), ((PoissonMetronome) m).getMeanIntervalNanos());
+    }
+
+    @Test
+    public void withBurstyMetronome() {
+        TestCase testCase = new TestCase("foo")
+                .setProperty("getInterval", "10us")
+                .setProperty("getMetronomeClass", BurstyMetronome.class)
+                .setProperty("getOnDurationMs", 100)
+                .setProperty("getOffDurationMs", 900);
+        PropertyBinding propertyBinding = new PropertyBinding(testCase);
+        MetronomeConstructor metronomeConstructor = new MetronomeConstructor("get", propertyBinding, 1);
+
+        Metronome m = metronomeConstructor.newInstance();
+        assertEquals(BurstyMetronome.class, m.getClass());
+        propertyBinding.ensureNoUnusedProperties();
+    }
+
+    @Test
+    public void withRampMetronome() {
+        TestCase testCase = new TestCase("foo")
+                .setProperty("ratePerSecond", 1000)
+                .setProperty("metronomeClass", RampMetronome.class)
+                .setProperty("rampStepSeconds", 5)
+                .setProperty("rampStepRatePerSecond", 500)
+                .setProperty("rampMaxRatePerSecond", 5000);
+        PropertyBinding propertyBinding = new PropertyBinding(testCase);
+        MetronomeConstructor metronomeConstructor = new MetronomeConstructor("", propertyBinding, 1);
+
+        Metronome m = metronomeConstructor.newInstance();
+        assertEquals(RampMetronome.class, m.getClass());
+        propertyBinding.ensureNoUnusedProperties();
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void withBurstyMetronome_invalidDuration() {
+        TestCase testCase = new TestCase("foo")
+                .setProperty("interval", "10us")
+                .setProperty("metronomeClass", BurstyMetronome.class)
+                .setProperty("offDurationMs", 0);
+
+        new MetronomeConstructor("", new PropertyBinding(testCase), 1);
+    }
+
+    @Test
+    public void withGlobalRate() {
+        PropertyBinding propertyBinding = new PropertyBinding(new TestCase("foo").setProperty("globalRatePerSecond", 1000));
+        MetronomeConstructor metronomeConstructor = new MetronomeConstructor("", propertyBinding, 2);
+
+        assertTrue(metronomeConstructor.hasGlobalRate());
+        assertEquals(MILLISECONDS.toNanos(1), metronomeConstructor.getIntervalNanos());
+        assertEquals(MILLISECONDS.toNanos(2), ((SleepingMetronome) metronomeConstructor.newInstance()).getIntervalNanos());
+    }
+
+    @Test
+    public void retune() {
+        PropertyBinding propertyBinding = new PropertyBinding(new TestCase("foo").setProperty("globalRatePerSecond", 1000));
+        MetronomeConstructor metronomeConstructor = new MetronomeConstructor("", propertyBinding, 2);
+
+        assertTrue(metronomeConstructor.retune(0.25));
+
+        assertEquals(MILLISECONDS.toNanos(4), metronomeConstructor.getIntervalNanos());
+        assertEquals(MILLISECONDS.toNanos(8), ((SleepingMetronome) metronomeConstructor.newInstance()).getIntervalNanos());
+    }
+
+    @Test
+    public void retune_withRetunableMetronome() {
+        PropertyBinding propertyBinding = new PropertyBinding(new TestCase("foo")
+                .setProperty("globalRatePerSecond", 1000)
+                .setProperty("metronomeClass", BurstyMetronome.class.getName()));
+        MetronomeConstructor metronomeConstructor = new MetronomeConstructor("", propertyBinding, 2);
+
+        assertTrue(metronomeConstructor.retune(0.5));
+
+        // the bursty metronome retunes itself, so it keeps its on/off periods
+        assertEquals(MILLISECONDS.toNanos(2), metronomeConstructor.getIntervalNanos());
+        assertEquals(MILLISECONDS.toNanos(4), ((BurstyMetronome) metronomeConstructor.newInstance()).getIntervalNanos());
+    }
+
+    @Test
+    public void retune_whenNoGlobalRate() {
+        PropertyBinding propertyBinding = new PropertyBinding(new TestCase("foo").setProperty("ratePerSecond", 1000));
+        MetronomeConstructor metronomeConstructor = new MetronomeConstructor("", propertyBinding, 1);
+
+        assertFalse(metronomeConstructor.hasGlobalRate());
+        assertFalse(metronomeConstructor.retune(0.5));
+        assertEquals(MILLISECONDS.toNanos(1), metronomeConstructor.getIntervalNanos());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void retune_whenInvalidShare() {
+        PropertyBinding propertyBinding = new PropertyBinding(new TestCase("foo").setProperty("globalRatePerSecond", 1000));
+        MetronomeConstructor metronomeConstructor = new MetronomeConstructor("", propertyBinding, 1);
+
+        metronomeConstructor.retune(0);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void withGlobalRate_andRatePerSecond() {
+        TestCase testCase = new TestCase("foo")
+                .setProperty("globalRatePerSecond", 1000)
+                .setProperty("ratePerSecond", 100);
+
+        new MetronomeConstructor("", new PropertyBinding(testCase), 1);
+    }
 }
@@ -0,0 +1,60 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import org.HdrHistogram.Recorder;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OperationProfilerTest {
+
+    private OperationProfiler profiler;
+
+    @Before
+    public void before() {
+        profiler = new OperationProfiler(asList("get", "put"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetAllocationRecorder_whenUnknownMethod() {
+        profiler.getAllocationRecorder("unknown");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetCpuRecorder_whenUnknownMethod() {
+        profiler.getCpuRecorder("unknown");
+    }
+
+    @Test
+    public void testCreateReport_whenNothingProfiled() {
+        assertEquals("", profiler.createReport());
+    }
+
+    @Test
+    public void testRecord() {
+        Recorder allocationRecorder = profiler.getAllocationRecorder("get");
+        Recorder cpuRecorder = profiler.getCpuRecorder("get");
+
+        byte[][] bytes = new byte[10][];
+        for (int i = 0; i < bytes.length; i++) {
+            long startAllocatedBytes = profiler.allocatedBytes();
+            long startCpuTimeNanos = profiler.cpuTimeNanos();
+            bytes[i] = new byte[1000];
+            profiler.record(allocationRecorder, cpuRecorder, startAllocatedBytes, startCpuTimeNanos);
+        }
+
+        String report = profiler.createReport();
+        String[] columns = report.trim().split(",");
+        assertEquals(10, bytes.length);
+        assertEquals("get", columns[0]);
+        assertEquals("10", columns[1]);
+        if (profiler.allocatedBytes() >= 0) {
+            assertTrue(report, Double.parseDouble(columns[2]) >= 1000);
+        }
+
+        // the histograms are drained by the report
+        assertEquals("", profiler.createReport());
+    }
+}
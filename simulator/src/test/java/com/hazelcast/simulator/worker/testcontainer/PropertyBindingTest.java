@@ -1,9 +1,15 @@
 package com.hazelcast.simulator.worker.testcontainer;
 
 import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.probes.impl.EmptyProbe;
+import com.hazelcast.simulator.probes.impl.HdrProbe;
+import com.hazelcast.simulator.probes.impl.StripedHdrProbe;
 import org.junit.Test;
 
+import static com.hazelcast.simulator.TestSupport.assertInstanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class PropertyBindingTest {
     @Test
@@ -118,4 +124,52 @@ public class PropertyBindingTest {
 
         assertEquals(false, binding.loadAsBoolean("booleanValue", true));
     }
+
+    @Test
+    public void getOrCreateProbe_default() {
+        PropertyBinding binding = new PropertyBinding(new TestCase("foo"));
+
+        assertEquals(HdrProbe.class, binding.getProbeClass());
+        assertInstanceOf(HdrProbe.class, binding.getOrCreateProbe("probe", false));
+    }
+
+    @Test
+    public void getOrCreateProbe_probeClass() {
+        TestCase testCase = new TestCase("foo")
+                .setProperty("probeClass", StripedHdrProbe.class);
+        PropertyBinding binding = new PropertyBinding(testCase);
+
+        assertEquals(StripedHdrProbe.class, binding.getProbeClass());
+        assertInstanceOf(StripedHdrProbe.class, binding.getOrCreateProbe("probe", true));
+        assertSame(binding.getOrCreateProbe("probe", true), binding.getOrCreateProbe("probe", true));
+        binding.ensureNoUnusedProperties();
+    }
+
+    @Test
+    public void getOrCreateProbe_probeClass_noMeasureLatency() {
+        TestCase testCase = new TestCase("foo")
+                .setProperty("measureLatency", false)
+                .setProperty("probeClass", StripedHdrProbe.class);
+        PropertyBinding binding = new PropertyBinding(testCase);
+
+        assertNull(binding.getProbeClass());
+        assertSame(EmptyProbe.INSTANCE, binding.getOrCreateProbe("probe", true));
+        binding.ensureNoUnusedProperties();
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void probeClass_notAProbe() {
+        TestCase testCase = new TestCase("foo")
+                .setProperty("probeClass", String.class);
+
+        new PropertyBinding(testCase);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void probeClass_wrongConstructor() {
+        TestCase testCase = new TestCase("foo")
+                .setProperty("probeClass", EmptyProbe.class);
+
+        new PropertyBinding(testCase);
+    }
 }
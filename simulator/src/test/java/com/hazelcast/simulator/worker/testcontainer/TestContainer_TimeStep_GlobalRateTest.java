@@ -0,0 +1,92 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import com.hazelcast.simulator.utils.AssertTask;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hazelcast.simulator.TestSupport.spawn;
+import static com.hazelcast.simulator.common.TestPhase.RUN;
+import static com.hazelcast.simulator.common.TestPhase.SETUP;
+import static com.hazelcast.simulator.utils.CommonUtils.sleepMillis;
+import static com.hazelcast.simulator.utils.TestUtils.assertCompletesEventually;
+import static com.hazelcast.simulator.utils.TestUtils.assertNoExceptions;
+import static com.hazelcast.simulator.utils.TestUtils.assertTrueEventually;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests the retuning of the rate of a running test which is configured with the globalRatePerSecond property.
+ */
+public class TestContainer_TimeStep_GlobalRateTest extends TestContainer_AbstractTest {
+
+    @Test
+    public void testRetuneRate_whenRunning() throws Exception {
+        final CountingTest testInstance = new CountingTest();
+        final TestContainer container = newContainer(testInstance, new TestCase("globalRate")
+                .setProperty("threadCount", 1)
+                .setProperty("globalRatePerSecond", 1000)
+                .setProperty("class", testInstance.getClass()));
+        container.invoke(SETUP);
+
+        // a share of 1 call per second
+        assertTrue(container.retuneRate(0.001));
+        Future future = spawnRun(container);
+        sleepMillis(500);
+        assertTrue("calls: " + testInstance.calls.get(), testInstance.calls.get() <= 1);
+
+        // the running thread picks up the new metronome
+        assertTrue(container.retuneRate(1));
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                assertTrue("calls: " + testInstance.calls.get(), testInstance.calls.get() > 100);
+            }
+        });
+
+        container.getTestContext().stop();
+        assertCompletesEventually(future);
+        assertNoExceptions();
+    }
+
+    @Test
+    public void testRetuneRate_whenNoGlobalRate() throws Exception {
+        CountingTest testInstance = new CountingTest();
+        TestContainer container = newContainer(testInstance, new TestCase("globalRate")
+                .setProperty("threadCount", 1)
+                .setProperty("ratePerSecond", 1000)
+                .setProperty("class", testInstance.getClass()));
+
+        assertFalse(container.retuneRate(0.5));
+    }
+
+    private static TestContainer newContainer(Object testInstance, TestCase testCase) {
+        TestContextImpl testContext = new TestContextImpl(testCase.getId(), "localhost", mock(Server.class));
+        return new TestContainer(testContext, testInstance, testCase);
+    }
+
+    private static Future spawnRun(final TestContainer container) {
+        return spawn(new Callable() {
+            @Override
+            public Object call() throws Exception {
+                container.invoke(RUN);
+                return null;
+            }
+        });
+    }
+
+    public static class CountingTest {
+        final AtomicLong calls = new AtomicLong();
+
+        @TimeStep
+        public void timeStep() {
+            calls.incrementAndGet();
+        }
+    }
+}
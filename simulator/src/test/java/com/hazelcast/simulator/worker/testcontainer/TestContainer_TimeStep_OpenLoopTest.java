@@ -0,0 +1,199 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.ICompletableFuture;
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.probes.Probe;
+import com.hazelcast.simulator.probes.impl.HdrProbe;
+import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.test.StopException;
+import com.hazelcast.simulator.test.annotations.StartNanos;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hazelcast.simulator.TestSupport.spawn;
+import static com.hazelcast.simulator.common.TestPhase.RUN;
+import static com.hazelcast.simulator.common.TestPhase.SETUP;
+import static com.hazelcast.simulator.utils.CommonUtils.sleepMillis;
+import static com.hazelcast.simulator.utils.TestUtils.assertCompletesEventually;
+import static com.hazelcast.simulator.utils.TestUtils.assertNoExceptions;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests the open-loop mode which is enabled with the maxInFlight property.
+ */
+public class TestContainer_TimeStep_OpenLoopTest extends TestContainer_AbstractTest {
+
+    @Test
+    public void testMaxInFlight_whenCallsDontComplete() throws Exception {
+        NeverCompletingTest testInstance = new NeverCompletingTest();
+        TestContainer container = newContainer(testInstance, newTestCase(testInstance).setProperty("maxInFlight", 2));
+        container.invoke(SETUP);
+
+        Future future = spawnRun(container);
+        // with a rate of 1000 calls per second many arrivals are fired, but only maxInFlight calls can be pending
+        sleepMillis(300);
+        container.getTestContext().stop();
+
+        assertCompletesEventually(future);
+        assertNoExceptions();
+        assertEquals(2, testInstance.pending.size());
+        // the arrivals dropped because of the maxInFlight are recorded in a probe
+        assertTrue(getProbeTotalCount(container, "droppedArrivals") > 0);
+    }
+
+    @Test
+    public void testMaxInFlight_whenCallsComplete() throws Exception {
+        CompletingTest testInstance = new CompletingTest();
+        TestContainer container = newContainer(testInstance, newTestCase(testInstance)
+                .setProperty("maxInFlight", 1)
+                .setProperty("iterations", 20));
+        container.invoke(SETUP);
+
+        assertCompletesEventually(spawnRun(container));
+        assertNoExceptions();
+        assertEquals(20, testInstance.calls.get());
+        assertEquals(20, getProbeTotalCount(container, "timeStep"));
+    }
+
+    @Test
+    public void testMaxInFlight_withAsyncResult() throws Exception {
+        AsyncResultTest testInstance = new AsyncResultTest();
+        TestContainer container = newContainer(testInstance, newTestCase(testInstance)
+                .setProperty("maxInFlight", 1)
+                .setProperty("iterations", 20));
+        container.invoke(SETUP);
+
+        assertCompletesEventually(spawnRun(container));
+        assertNoExceptions();
+        assertEquals(20, getProbeTotalCount(container, "asyncTimeStep"));
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testMaxInFlight_withoutRate() {
+        CompletingTest testInstance = new CompletingTest();
+        TestCase testCase = new TestCase("openLoop")
+                .setProperty("threadCount", 1)
+                .setProperty("maxInFlight", 1)
+                .setProperty("class", testInstance.getClass());
+
+        newContainer(testInstance, testCase);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testMaxInFlight_withSynchronousMethod() {
+        SynchronousTest testInstance = new SynchronousTest();
+
+        newContainer(testInstance, newTestCase(testInstance).setProperty("maxInFlight", 1));
+    }
+
+    private static TestCase newTestCase(Object testInstance) {
+        return new TestCase("openLoop")
+                .setProperty("threadCount", 1)
+                .setProperty("ratePerSecond", 1000)
+                .setProperty("class", testInstance.getClass());
+    }
+
+    private static TestContainer newContainer(Object testInstance, TestCase testCase) {
+        TestContextImpl testContext = new TestContextImpl(testCase.getId(), "localhost", mock(Server.class));
+        return new TestContainer(testContext, testInstance, testCase);
+    }
+
+    private static Future spawnRun(final TestContainer container) {
+        return spawn(new Callable() {
+            @Override
+            public Object call() throws Exception {
+                container.invoke(RUN);
+                return null;
+            }
+        });
+    }
+
+    private static long getProbeTotalCount(TestContainer container, String probeName) {
+        HdrProbe probe = (HdrProbe) container.getProbeMap().get(probeName);
+        return probe.getIntervalHistogram().getTotalCount();
+    }
+
+    public static class NeverCompletingTest {
+        final List<Probe> pending = new CopyOnWriteArrayList<Probe>();
+
+        @TimeStep
+        public void timeStep(Probe probe) {
+            if (pending.size() > 2) {
+                throw new StopException();
+            }
+            pending.add(probe);
+        }
+    }
+
+    public static class CompletingTest {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @TimeStep
+        public void timeStep(Probe probe, @StartNanos long startNanos) {
+            calls.incrementAndGet();
+            probe.done(startNanos);
+        }
+    }
+
+    public static class AsyncResultTest {
+        @TimeStep
+        public ICompletableFuture<Object> asyncTimeStep() {
+            return new CompletedFuture();
+        }
+    }
+
+    public static class SynchronousTest {
+        @TimeStep
+        public void timeStep() {
+        }
+    }
+
+    private static class CompletedFuture implements ICompletableFuture<Object> {
+        @Override
+        public void andThen(ExecutionCallback<Object> callback) {
+            callback.onResponse(null);
+        }
+
+        @Override
+        public void andThen(ExecutionCallback<Object> callback, Executor executor) {
+            throw new UnsupportedOperationException("not implemented");
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            throw new UnsupportedOperationException("not implemented");
+        }
+
+        @Override
+        public boolean isCancelled() {
+            throw new UnsupportedOperationException("not implemented");
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            return null;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            return null;
+        }
+    }
+}
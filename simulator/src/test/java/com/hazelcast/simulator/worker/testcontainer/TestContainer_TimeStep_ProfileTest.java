@@ -0,0 +1,84 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.common.TestPhase;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import org.junit.Test;
+
+import java.io.File;
+
+import static com.hazelcast.simulator.common.TestPhase.SETUP;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.utils.TestUtils.assertNoExceptions;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestContainer_TimeStep_ProfileTest extends TestContainer_AbstractTest {
+
+    @Test
+    public void test() throws Exception {
+        ProfileTest testInstance = new ProfileTest();
+        TestCase testCase = new TestCase("profile")
+                .setProperty("threadCount", 1)
+                .setProperty("iterations", 1000)
+                .setProperty("profileInterval", 10)
+                .setProperty("class", testInstance.getClass());
+
+        TestContainer container = createTestContainer(testInstance, testCase);
+        container.invoke(SETUP);
+        for (TestPhase phase : TestPhase.values()) {
+            container.invoke(phase);
+        }
+
+        assertNoExceptions();
+        File profile = new File(userDir, "profile-" + testContext.getTestId() + ".csv");
+        String[] lines = fileAsText(profile).split("\n");
+        assertEquals(OperationProfiler.HEADER, lines[0] + "\n");
+        assertEquals(3, lines.length);
+
+        long operations = 0;
+        for (int i = 1; i < lines.length; i++) {
+            String[] columns = lines[i].split(",");
+            operations += Long.parseLong(columns[1]);
+            if (columns[0].equals("allocate") && !columns[2].equals("-1")) {
+                assertTrue(lines[i], Double.parseDouble(columns[2]) >= ProfileTest.ALLOCATION_SIZE);
+            }
+        }
+        assertEquals(100, operations);
+    }
+
+    @Test
+    public void test_whenNotConfigured_thenNoProfile() throws Exception {
+        ProfileTest testInstance = new ProfileTest();
+        TestCase testCase = new TestCase("profile")
+                .setProperty("threadCount", 1)
+                .setProperty("iterations", 100)
+                .setProperty("class", testInstance.getClass());
+
+        TestContainer container = createTestContainer(testInstance, testCase);
+        container.invoke(SETUP);
+        for (TestPhase phase : TestPhase.values()) {
+            container.invoke(phase);
+        }
+
+        assertNoExceptions();
+        assertFalse(new File(userDir, "profile-" + testContext.getTestId() + ".csv").exists());
+    }
+
+    public static class ProfileTest {
+
+        static final int ALLOCATION_SIZE = 1000;
+
+        volatile byte[] bytes;
+
+        @TimeStep(prob = 0.5)
+        public void allocate() {
+            bytes = new byte[ALLOCATION_SIZE];
+        }
+
+        @TimeStep(prob = 0.5)
+        public void noop() {
+        }
+    }
+}
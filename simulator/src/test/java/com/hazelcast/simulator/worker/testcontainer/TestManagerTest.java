@@ -14,6 +14,7 @@ import com.hazelcast.simulator.utils.AssertTask;
 import com.hazelcast.simulator.utils.ExceptionReporter;
 import com.hazelcast.simulator.vendors.VendorDriver;
 import com.hazelcast.simulator.worker.operations.CreateTestOperation;
+import com.hazelcast.simulator.worker.operations.RetuneRateOperation;
 import com.hazelcast.simulator.worker.operations.StartPhaseOperation;
 import com.hazelcast.simulator.worker.operations.StopRunOperation;
 import org.junit.After;
@@ -163,6 +164,11 @@ public class TestManagerTest {
         manager.stopRun(new StopRunOperation("foo"));
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void test_retuneRate_whenNotExistingTest() {
+        manager.retuneRate(new RetuneRateOperation("foo", 0.5));
+    }
+
     @Test
     public void test_startTestPhase() throws Exception {
         TestCase testCase = new TestCase("foo")
@@ -1,14 +1,50 @@
 package com.hazelcast.simulator.worker.testcontainer;
 
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.probes.impl.HdrProbe;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import com.hazelcast.simulator.worker.metronome.EmptyMetronome;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import javax.tools.JavaFileObject;
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
 
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.FileUtils.ensureExistingDirectory;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static java.util.Collections.singletonList;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 public class TimeStepRunnerCodeGeneratorTest {
 
-    private TimeStepRunnerCodeGenerator codeGenerator = new TimeStepRunnerCodeGenerator();
+    private File targetDirectory;
+    private TimeStepRunnerCodeGenerator codeGenerator;
+    private TimeStepModel timeStepModel;
+
+    @Before
+    public void before() {
+        targetDirectory = new File(getUserDir(), randomUUID().toString());
+        codeGenerator = new TimeStepRunnerCodeGenerator(targetDirectory);
+        timeStepModel = new TimeStepModel(CodeGeneratorTest.class, new PropertyBinding(new TestCase("foo")));
+    }
+
+    @After
+    public void after() {
+        deleteQuiet(targetDirectory);
+    }
 
     @Test(expected = IllegalStateException.class)
     public void testCompile_whenCompilerIsNull_thenThrowIllegalStateException() {
@@ -16,4 +52,83 @@ public class TimeStepRunnerCodeGeneratorTest {
 
         codeGenerator.compile(null, javaFileObject, "className");
     }
+
+    @Test
+    public void testCompile_whenSameConfiguration_thenRunnerReused() {
+        Class runner1 = compile("test1", 0);
+        Class runner2 = compile("test2", 0);
+
+        assertSame(runner1, runner2);
+        assertTrue(new File(targetDirectory, runner1.getSimpleName() + ".class").isFile());
+    }
+
+    @Test
+    public void testCompile_whenDifferentConfiguration_thenDifferentRunner() {
+        Class runner1 = compile("test1", 0);
+        Class runner2 = compile("test1", 1000);
+
+        assertNotSame(runner1, runner2);
+        assertNotEquals(runner1.getName(), runner2.getName());
+    }
+
+    @Test
+    public void testHash() {
+        List<Method> methods = Collections.emptyList();
+
+        assertEquals(TimeStepRunnerCodeGenerator.hash("foo", methods), TimeStepRunnerCodeGenerator.hash("foo", methods));
+        assertNotEquals(TimeStepRunnerCodeGenerator.hash("foo", methods), TimeStepRunnerCodeGenerator.hash("bar", methods));
+        assertEquals(16, TimeStepRunnerCodeGenerator.hash("foo", methods).length());
+    }
+
+    @Test
+    public void testHash_whenReturnTypeDiffers() throws Exception {
+        List<Method> voidMethod = singletonList(CodeGeneratorTest.class.getMethod("timeStep"));
+        List<Method> longMethod = singletonList(LongResultTest.class.getMethod("timeStep"));
+
+        assertNotEquals(TimeStepRunnerCodeGenerator.hash("foo", voidMethod), TimeStepRunnerCodeGenerator.hash("foo", longMethod));
+    }
+
+    @Test
+    public void testEvictUnusedRunners() {
+        Class runner = compile("test1", 0);
+        File classFile = new File(targetDirectory, runner.getSimpleName() + ".class");
+        File sourceFile = new File(targetDirectory, runner.getSimpleName() + ".java");
+        long nowMillis = System.currentTimeMillis();
+
+        codeGenerator.evictUnusedRunners(nowMillis);
+        assertTrue(classFile.isFile());
+
+        codeGenerator.evictUnusedRunners(nowMillis + DAYS.toMillis(8));
+        assertFalse(classFile.exists());
+        assertFalse(sourceFile.exists());
+    }
+
+    @Test
+    public void testEvictUnusedRunners_removesAbandonedCompileDirectories() {
+        File compileDirectory = ensureExistingDirectory(new File(targetDirectory, "compile-foo"));
+
+        codeGenerator.evictUnusedRunners(System.currentTimeMillis() + DAYS.toMillis(8));
+
+        assertFalse(compileDirectory.exists());
+    }
+
+    private Class compile(String testCaseId, long logFrequency) {
+        return codeGenerator.compile(testCaseId, "", timeStepModel, EmptyMetronome.class, HdrProbe.class,
+                logFrequency, 0, false, false, 0);
+    }
+
+    public static class CodeGeneratorTest {
+
+        @TimeStep
+        public void timeStep() {
+        }
+    }
+
+    public static class LongResultTest {
+
+        @TimeStep
+        public long timeStep() {
+            return 0;
+        }
+    }
 }
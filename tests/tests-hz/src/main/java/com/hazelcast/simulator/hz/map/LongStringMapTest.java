@@ -17,6 +17,7 @@ package com.hazelcast.simulator.hz.map;
 
 import com.hazelcast.core.IMap;
 import com.hazelcast.simulator.hz.HazelcastTest;
+import com.hazelcast.simulator.probes.LatencyCallbackPool;
 import com.hazelcast.simulator.probes.Probe;
 import com.hazelcast.simulator.test.BaseThreadState;
 import com.hazelcast.simulator.test.annotations.Prepare;
@@ -24,7 +25,6 @@ import com.hazelcast.simulator.test.annotations.Setup;
 import com.hazelcast.simulator.test.annotations.StartNanos;
 import com.hazelcast.simulator.test.annotations.Teardown;
 import com.hazelcast.simulator.test.annotations.TimeStep;
-import com.hazelcast.spi.impl.SimpleExecutionCallback;
 
 import java.util.Random;
 
@@ -63,13 +63,8 @@ public class LongStringMapTest extends HazelcastTest {
     }
 
     @TimeStep(prob = -1)
-    public void getAsync(ThreadState state, final Probe probe, @StartNanos final long startNanos) {
-        map.getAsync(state.randomKey()).andThen(new SimpleExecutionCallback<String>() {
-            @Override
-            public void notify(Object o) {
-                probe.done(startNanos);
-            }
-        });
+    public void getAsync(ThreadState state, Probe probe, @StartNanos long startNanos) {
+        map.getAsync(state.randomKey()).andThen(state.callbacks.<String>acquire(probe, startNanos));
     }
 
     @TimeStep(prob = 0.1)
@@ -78,13 +73,8 @@ public class LongStringMapTest extends HazelcastTest {
     }
 
     @TimeStep(prob = 0.0)
-    public void putAsync(ThreadState state, final Probe probe, @StartNanos final long startNanos) {
-        map.putAsync(state.randomKey(), state.randomValue()).andThen(new SimpleExecutionCallback<String>() {
-            @Override
-            public void notify(Object o) {
-                probe.done(startNanos);
-            }
-        });
+    public void putAsync(ThreadState state, Probe probe, @StartNanos long startNanos) {
+        map.putAsync(state.randomKey(), state.randomValue()).andThen(state.callbacks.<String>acquire(probe, startNanos));
     }
 
     @TimeStep(prob = 0)
@@ -93,17 +83,14 @@ public class LongStringMapTest extends HazelcastTest {
     }
 
     @TimeStep(prob = 0)
-    public void setAsync(ThreadState state, final Probe probe, @StartNanos final long startNanos) {
-        map.setAsync(state.randomKey(), state.randomValue()).andThen(new SimpleExecutionCallback<Void>() {
-            @Override
-            public void notify(Object o) {
-                probe.done(startNanos);
-            }
-        });
+    public void setAsync(ThreadState state, Probe probe, @StartNanos long startNanos) {
+        map.setAsync(state.randomKey(), state.randomValue()).andThen(state.callbacks.<Void>acquire(probe, startNanos));
     }
 
     public class ThreadState extends BaseThreadState {
 
+        private final LatencyCallbackPool callbacks = new LatencyCallbackPool();
+
         private long randomKey() {
             return randomLong(keyDomain);
         }